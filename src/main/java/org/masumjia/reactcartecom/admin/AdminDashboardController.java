@@ -5,16 +5,21 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import org.masumjia.reactcartecom.catalog.ProductRepository;
 import org.masumjia.reactcartecom.common.ApiResponse;
-import org.masumjia.reactcartecom.coupons.CouponRepository;
-import org.masumjia.reactcartecom.orders.*;
-import org.masumjia.reactcartecom.user.UserRepository;
+import org.masumjia.reactcartecom.orders.OrderRepository;
+import org.masumjia.reactcartecom.orders.OrderStatus;
+import org.masumjia.reactcartecom.orders.OrderSummary;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.time.Month;
 import java.util.*;
 
@@ -23,89 +28,139 @@ import java.util.*;
 @Tag(name = "Admin Dashboard")
 @SecurityRequirement(name = "bearerAuth")
 public class AdminDashboardController {
-    private final OrderRepository orders;
-    private final OrderItemRepository orderItems;
-    private final UserRepository users;
+    private static final int MAX_FEED_LIMIT = 100;
+
+    private final DashboardMetricsStore metrics;
     private final ProductRepository products;
-    private final CouponRepository coupons;
+    private final OrderRepository orders;
 
-    public AdminDashboardController(OrderRepository orders, OrderItemRepository orderItems,
-                                    UserRepository users, ProductRepository products,
-                                    CouponRepository coupons) {
-        this.orders = orders; this.orderItems = orderItems; this.users = users; this.products = products; this.coupons = coupons;
+    public AdminDashboardController(DashboardMetricsStore metrics, ProductRepository products, OrderRepository orders) {
+        this.metrics = metrics; this.products = products; this.orders = orders;
     }
 
     @GetMapping
     @Operation(summary = "Get aggregated dashboard metrics for admin")
     public ResponseEntity<ApiResponse<Map<String,Object>>> overview(@RequestParam(value = "lowStockThreshold", required = false, defaultValue = "5") Integer lowStockThreshold) {
         Map<String,Object> data = new LinkedHashMap<>();
+        // Everything below comes from DashboardMetricsStore; only a non-default low-stock threshold hits the products table
+        DashboardMetricsStore.TableCounts counts = metrics.counts();
+
+        // Fold the (status, month) rollups into per-status totals and the DELIVERED monthly trend
+        Map<String,Long> status = new LinkedHashMap<>();
+        for (OrderStatus st : OrderStatus.values()) status.put(st.name(), 0L);
+        long totalOrders = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        Map<Integer, BigDecimal> deliveredByMonth = new TreeMap<>();
+        for (DashboardMetricsStore.Rollup r : metrics.rollups()) {
+            status.merge(r.status().name(), r.count(), Long::sum);
+            totalOrders += r.count();
+            if (r.status() != OrderStatus.DELIVERED) continue;
+            totalRevenue = totalRevenue.add(r.total());
+            if (r.year() > 0 && r.count() > 0) deliveredByMonth.merge(r.year() * 100 + r.month(), r.total(), BigDecimal::add);
+        }
 
         // Top KPIs
-        BigDecimal totalRevenue = orders.sumTotalByStatus(OrderStatus.DELIVERED);
-        long totalOrders = orders.count();
-        long totalCustomers = users.count();
-        long totalProducts = products.count();
         data.put("totalRevenue", totalRevenue);
         data.put("totalOrders", totalOrders);
-        data.put("totalCustomers", totalCustomers);
-        data.put("totalProducts", totalProducts);
+        data.put("totalCustomers", counts.customers());
+        data.put("totalProducts", counts.products());
 
         // Status distribution
-        Map<String,Long> status = new LinkedHashMap<>();
-        for (OrderStatus st : OrderStatus.values()) {
-            status.put(st.name(), orders.countByStatus(st));
-        }
         data.put("statusDistribution", status);
 
         // Revenue trend (by month for DELIVERED orders)
-        List<Object[]> raw = orders.monthlyTotalsByStatus(OrderStatus.DELIVERED);
         List<Map<String,Object>> trend = new ArrayList<>();
-        for (Object[] r : raw) {
-            Integer y = (Integer) r[0];
-            Integer m = (Integer) r[1];
-            BigDecimal s = (BigDecimal) r[2];
+        for (Map.Entry<Integer, BigDecimal> e : deliveredByMonth.entrySet()) {
+            int m = e.getKey() % 100;
             Map<String,Object> row = new LinkedHashMap<>();
-            row.put("year", y);
+            row.put("year", e.getKey() / 100);
             row.put("month", m);
             row.put("label", Month.of(m).name());
-            row.put("total", s);
+            row.put("total", e.getValue());
             trend.add(row);
         }
         data.put("revenueTrend", trend);
 
         // Quick stats
-        long completedOrders = orders.countByStatus(OrderStatus.DELIVERED);
-        long pendingOrders = orders.countByStatus(OrderStatus.PENDING);
-        long activeCoupons = coupons.countActiveAndNotExpired();
-        long lowStockProducts = products.countByStockLessThanEqual(lowStockThreshold);
+        long lowStockProducts = lowStockThreshold == null || lowStockThreshold == metrics.lowStockThreshold()
+                ? counts.lowStockProducts()
+                : products.countByStockLessThanEqual(lowStockThreshold);
         Map<String,Object> quick = new LinkedHashMap<>();
-        quick.put("completedOrders", completedOrders);
-        quick.put("pendingOrders", pendingOrders);
-        quick.put("activeCoupons", activeCoupons);
+        quick.put("completedOrders", status.get(OrderStatus.DELIVERED.name()));
+        quick.put("pendingOrders", status.get(OrderStatus.PENDING.name()));
+        quick.put("activeCoupons", counts.activeCoupons());
         quick.put("lowStockProducts", lowStockProducts);
         data.put("quickStats", quick);
 
         // Recent orders (last 10, by createdAt desc)
-        List<Order> recent = orders.findAll(org.springframework.data.domain.Sort.by(org.springframework.data.domain.Sort.Direction.DESC, "createdAt"));
-        if (recent.size() > 10) recent = recent.subList(0, 10);
         List<Map<String,Object>> recentOut = new ArrayList<>();
-        for (Order o : recent) {
+        for (OrderSummary o : metrics.recentOrders()) {
             Map<String,Object> r = new LinkedHashMap<>();
-            r.put("id", o.getId());
-            r.put("orderNumber", o.getOrderNumber());
-            r.put("orderNumberFormatted", o.getOrderNumber() == null ? null : String.format("%03d", o.getOrderNumber()));
-            r.put("createdAt", o.getCreatedAt());
-            r.put("status", o.getStatus() == null ? null : o.getStatus().name());
-            r.put("total", o.getTotal());
-            r.put("customer", o.getUser() != null ? o.getUser().getId() : (o.getGuestName() != null ? o.getGuestName() : o.getGuestEmail()));
-            r.put("userId", o.getUser() == null ? null : o.getUser().getId());
-            r.put("guestName", o.getGuestName());
-            r.put("guestEmail", o.getGuestEmail());
-            r.put("guestPhone", o.getGuestPhone());
+            r.put("id", o.id());
+            r.put("orderNumber", o.orderNumber());
+            r.put("orderNumberFormatted", o.orderNumber() == null ? null : String.format("%03d", o.orderNumber()));
+            r.put("createdAt", o.createdAt());
+            r.put("status", o.status() == null ? null : o.status().name());
+            r.put("total", o.total());
+            r.put("customer", o.userId() != null ? o.userId() : (o.guestName() != null ? o.guestName() : o.guestEmail()));
+            r.put("userId", o.userId());
+            r.put("guestName", o.guestName());
+            r.put("guestEmail", o.guestEmail());
+            r.put("guestPhone", o.guestPhone());
             recentOut.add(r);
         }
         data.put("recentOrders", recentOut);
 
         return ResponseEntity.ok(ApiResponse.success(data));
     }
+
+    // Newest orders as light projections, one index range read per page; pass meta.nextCursor back as `before`
+    // to load more. New orders arriving meanwhile never shift the pages already served.
+    @GetMapping("/recent-orders")
+    @Operation(summary = "Recent orders feed (newest first, keyset pagination)")
+    public ResponseEntity<ApiResponse<List<OrderSummary>>> recentOrders(
+            @RequestParam(value = "limit", required = false, defaultValue = "10") int limit,
+            @RequestParam(value = "before", required = false) String before
+    ) {
+        int n = Math.min(Math.max(limit, 1), MAX_FEED_LIMIT);
+        Pageable page = PageRequest.of(0, n);
+        List<OrderSummary> data;
+        if (before == null || before.isBlank()) {
+            data = orders.findRecent(page);
+        } else {
+            Cursor c = Cursor.decode(before);
+            data = orders.findRecentBefore(c.createdAt(), c.id(), page);
+        }
+        Map<String,Object> meta = new LinkedHashMap<>();
+        meta.put("count", data.size());
+        OrderSummary last = data.isEmpty() ? null : data.get(data.size() - 1);
+        meta.put("nextCursor", data.size() < n ? null : new Cursor(last.createdAt(), last.id()).encode());
+        return ResponseEntity.ok(ApiResponse.success(data, meta));
+    }
+
+    // Position in the feed: the (createdAt, id) of the last order shown, as an opaque url-safe token
+    record Cursor(LocalDateTime createdAt, String id) {
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+                int bar = raw.indexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, bar)), raw.substring(bar + 1));
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+
+    // Backfill / repair: recomputes the order rollups from the orders table
+    @PostMapping("/rebuild")
+    @Operation(summary = "Rebuild dashboard order aggregates from the orders table")
+    public ResponseEntity<ApiResponse<Object>> rebuild() {
+        metrics.rebuild();
+        metrics.refresh();
+        return ResponseEntity.ok(ApiResponse.success(null, Map.of("message", "Dashboard metrics rebuilt")));
+    }
 }
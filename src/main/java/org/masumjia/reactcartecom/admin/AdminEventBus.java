@@ -0,0 +1,143 @@
+package org.masumjia.reactcartecom.admin;
+
+import jakarta.annotation.PreDestroy;
+import org.masumjia.reactcartecom.common.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process fan-out of admin live events to SSE subscribers. publish() never blocks: each subscriber has its
+// own queue of app.admin.events.buffer events drained by its own sender thread, so a slow or stalled client
+// only ever delays itself. When a queue is full the oldest event is dropped and the subscriber is sent a
+// "resync" event (with the number lost) before the next one, telling the client to re-read the dashboard.
+// An idle stream gets a comment every app.admin.events.heartbeat-ms so proxies keep it open and dead
+// clients are noticed.
+@Component
+public class AdminEventBus {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AdminEventBus.class);
+
+    public record Event(String name, Object data) {}
+
+    private final int bufferSize;
+    private final long heartbeatMs;
+    private final long timeoutMs;
+    private final int maxSubscribers;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong ids = new AtomicLong();
+
+    public AdminEventBus(@Value("${app.admin.events.buffer:256}") int bufferSize,
+                         @Value("${app.admin.events.heartbeat-ms:25000}") long heartbeatMs,
+                         @Value("${app.admin.events.timeout-ms:1800000}") long timeoutMs,
+                         @Value("${app.admin.events.max-subscribers:50}") int maxSubscribers) {
+        this.bufferSize = Math.max(1, bufferSize);
+        this.heartbeatMs = Math.max(100, heartbeatMs);
+        this.timeoutMs = timeoutMs;
+        this.maxSubscribers = Math.max(1, maxSubscribers);
+    }
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        if (subscribers.size() >= maxSubscribers) throw new TooManyRequestsException("Too many live event subscribers", 30);
+        Subscriber s = new Subscriber(emitter);
+        subscribers.add(s);
+        emitter.onCompletion(s::close);
+        emitter.onTimeout(s::close);
+        emitter.onError(ex -> s.close());
+        s.start();
+        return emitter;
+    }
+
+    public void publish(String name, Object data) {
+        if (subscribers.isEmpty()) return;
+        Event e = new Event(name, data);
+        for (Subscriber s : subscribers) s.offer(e);
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber s : subscribers) {
+            s.close();
+            try {
+                s.emitter.complete();
+            } catch (RuntimeException ignored) {}
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<Event> buffer = new ArrayBlockingQueue<>(bufferSize);
+        final AtomicInteger dropped = new AtomicInteger();
+        final Thread sender;
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.sender = new Thread(this, "admin-events-" + ids.incrementAndGet());
+            this.sender.setDaemon(true);
+        }
+
+        void start() {
+            sender.start();
+        }
+
+        void offer(Event e) {
+            if (closed) return;
+            while (!buffer.offer(e)) {
+                if (buffer.poll() != null) dropped.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    Event e = buffer.poll(heartbeatMs, TimeUnit.MILLISECONDS);
+                    if (closed) break;
+                    if (e == null) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                        continue;
+                    }
+                    int lost = dropped.getAndSet(0);
+                    if (lost > 0) emitter.send(SseEmitter.event().name("resync").data(Map.of("dropped", lost)));
+                    emitter.send(SseEmitter.event().name(e.name()).data(e.data()));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ex) {
+                // client went away mid-write; the emitter's own callbacks may not fire for a broken socket
+                log.debug("Admin event subscriber dropped: {}", ex.toString());
+                try {
+                    emitter.completeWithError(ex);
+                } catch (RuntimeException ignored) {}
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            buffer.clear();
+            if (Thread.currentThread() != sender) sender.interrupt();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.masumjia.reactcartecom.admin;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.masumjia.reactcartecom.common.TooManyRequestsException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/admin/events")
+@Tag(name = "Admin Dashboard")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminEventsController {
+    private final AdminEventBus bus;
+
+    public AdminEventsController(AdminEventBus bus) {
+        this.bus = bus;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Live admin events (order-created, order-status-changed, low-stock, resync) as server-sent events")
+    public ResponseEntity<SseEmitter> stream() {
+        try {
+            return ResponseEntity.ok(bus.subscribe());
+        } catch (TooManyRequestsException ex) {
+            // an EventSource only accepts text/event-stream, so the JSON error body can't be negotiated
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", String.valueOf(Math.max(1, ex.getRetryAfterSeconds())))
+                    .build();
+        }
+    }
+}
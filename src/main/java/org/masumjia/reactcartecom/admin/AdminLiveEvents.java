@@ -0,0 +1,79 @@
+package org.masumjia.reactcartecom.admin;
+
+import org.masumjia.reactcartecom.catalog.CatalogChangedEvent;
+import org.masumjia.reactcartecom.catalog.ProductRepository;
+import org.masumjia.reactcartecom.orders.OrderChangedEvent;
+import org.masumjia.reactcartecom.orders.OrderSummary;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Turns committed domain events into admin live events on AdminEventBus:
+//  - order-created / order-status-changed from OrderChangedEvent (OrderController, OrderAdminController);
+//  - low-stock when a product's stock drops to the dashboard threshold or below, checked from the
+//    CatalogChangedEvents every stock mutation already publishes. A product is reported once when it
+//    crosses the threshold, and again only after it has been restocked above it.
+// Nothing is read while no admin is subscribed; the reported set is forgotten then too, since a restock
+// nobody watched would otherwise leave a product marked and silence its next crossing.
+@Component
+public class AdminLiveEvents {
+    public static final String ORDER_CREATED = "order-created";
+    public static final String ORDER_STATUS_CHANGED = "order-status-changed";
+    public static final String LOW_STOCK = "low-stock";
+
+    private final AdminEventBus bus;
+    private final ProductRepository products;
+    private final DashboardMetricsStore metrics;
+    private final Set<String> lowStock = ConcurrentHashMap.newKeySet();
+
+    public AdminLiveEvents(AdminEventBus bus, ProductRepository products, DashboardMetricsStore metrics) {
+        this.bus = bus; this.products = products; this.metrics = metrics;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent e) {
+        switch (e.kind()) {
+            case CREATED -> bus.publish(ORDER_CREATED, OrderSummary.of(e));
+            case STATUS_CHANGED -> {
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("order", OrderSummary.of(e));
+                data.put("previousStatus", e.previousStatus());
+                bus.publish(ORDER_STATUS_CHANGED, data);
+            }
+            case DELETED -> {}
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent e) {
+        if (e.type() == CatalogChangedEvent.Type.PRODUCTS_DELETED) {
+            lowStock.removeAll(e.productIds());
+            return;
+        }
+        if (e.type() != CatalogChangedEvent.Type.STOCK_CHANGED && e.type() != CatalogChangedEvent.Type.PRODUCTS_UPSERTED) return;
+        if (!bus.hasSubscribers()) {
+            lowStock.clear();
+            return;
+        }
+        if (e.productIds() == null || e.productIds().isEmpty()) return;
+        int threshold = metrics.lowStockThreshold();
+        for (Object[] row : products.findStockByIds(e.productIds())) {
+            String id = (String) row[0];
+            int stock = row[1] == null ? 0 : ((Number) row[1]).intValue();
+            if (stock > threshold) {
+                lowStock.remove(id);
+            } else if (lowStock.add(id)) {
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("productId", id);
+                data.put("stock", stock);
+                data.put("threshold", threshold);
+                bus.publish(LOW_STOCK, data);
+            }
+        }
+    }
+}
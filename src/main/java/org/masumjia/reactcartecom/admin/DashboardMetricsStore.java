@@ -0,0 +1,234 @@
+package org.masumjia.reactcartecom.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.masumjia.reactcartecom.catalog.ProductRepository;
+import org.masumjia.reactcartecom.common.Outbox;
+import org.masumjia.reactcartecom.common.OutboxHandler;
+import org.masumjia.reactcartecom.common.OutboxMessage;
+import org.masumjia.reactcartecom.coupons.CouponRepository;
+import org.masumjia.reactcartecom.orders.OrderChangedEvent;
+import org.masumjia.reactcartecom.orders.OrderRepository;
+import org.masumjia.reactcartecom.orders.OrderStatus;
+import org.masumjia.reactcartecom.orders.OrderSummary;
+import org.masumjia.reactcartecom.user.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Precomputed numbers for the admin dashboard, so a page load never scans orders:
+//  - order_rollups: count and total per (status, creation month), moved by deltas from the order.* outbox
+//    events (this is their OutboxHandler, so checkout never waits on the hot rollup rows) and rebuilt from
+//    orders on demand (and when empty at startup);
+//  - table counts (customers, products, active coupons, low stock), refreshed every app.dashboard.refresh-ms;
+//  - the newest orders, kept in memory from committed OrderChangedEvents and re-read on the same schedule so
+//    orders placed on other nodes show up.
+@Component
+public class DashboardMetricsStore implements OutboxHandler {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DashboardMetricsStore.class);
+    static final int RECENT_SIZE = 10;
+
+    public record Rollup(OrderStatus status, int year, int month, long count, BigDecimal total) {}
+
+    public record TableCounts(long customers, long products, long activeCoupons, long lowStockProducts) {}
+
+    private static final Comparator<OrderSummary> NEWEST_FIRST = Comparator.comparing(OrderSummary::createdAt,
+            Comparator.nullsLast(Comparator.reverseOrder())).thenComparing(OrderSummary::id, Comparator.reverseOrder());
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final OrderRepository orders;
+    private final UserRepository users;
+    private final ProductRepository products;
+    private final CouponRepository coupons;
+    private final Outbox outbox;
+    private final ObjectMapper json;
+    private final int lowStockThreshold;
+    private volatile TableCounts counts = new TableCounts(0, 0, 0, 0);
+    private final List<OrderSummary> recent = new ArrayList<>(); // newest first, guarded by itself
+
+    public DashboardMetricsStore(JdbcTemplate jdbc, PlatformTransactionManager txManager, OrderRepository orders,
+                                 UserRepository users, ProductRepository products, CouponRepository coupons,
+                                 Outbox outbox, ObjectMapper json,
+                                 @Value("${app.dashboard.low-stock-threshold:5}") int lowStockThreshold) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.orders = orders;
+        this.users = users;
+        this.products = products;
+        this.coupons = coupons;
+        this.outbox = outbox;
+        this.json = json;
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    // --- Write side: order.* outbox events, applied by OutboxDispatcher in its transaction ---
+
+    @Override
+    public boolean handles(String eventType) {
+        return eventType.startsWith(OrderChangedEvent.EVENT_PREFIX);
+    }
+
+    @Override
+    public void handle(OutboxMessage message) throws Exception {
+        deltas(json.readValue(message.payload(), OrderChangedEvent.class), this::add);
+    }
+
+    @FunctionalInterface
+    private interface Delta {
+        void add(OrderStatus status, LocalDateTime createdAt, int count, BigDecimal total);
+    }
+
+    private static void deltas(OrderChangedEvent e, Delta sink) {
+        switch (e.kind()) {
+            case CREATED -> sink.add(e.status(), e.createdAt(), 1, e.total());
+            case STATUS_CHANGED -> {
+                if (e.previousStatus() == e.status()) return;
+                sink.add(e.previousStatus(), e.createdAt(), -1, e.total());
+                sink.add(e.status(), e.createdAt(), 1, e.total());
+            }
+            case DELETED -> sink.add(e.status(), e.createdAt(), -1, e.total());
+        }
+    }
+
+    private void add(OrderStatus status, LocalDateTime createdAt, int count, BigDecimal total) {
+        if (status == null) return;
+        BigDecimal amount = total == null ? BigDecimal.ZERO : (count < 0 ? total.negate() : total);
+        int year = createdAt == null ? 0 : createdAt.getYear();
+        int month = createdAt == null ? 0 : createdAt.getMonthValue();
+        jdbc.update("insert into order_rollups (status, year, month, order_count, total_sum) values (?, ?, ?, ?, ?) "
+                        + "on duplicate key update order_count = order_count + values(order_count), total_sum = total_sum + values(total_sum)",
+                status.name(), year, month, count, amount);
+    }
+
+    // --- Read side ---
+
+    public List<Rollup> rollups() {
+        List<Rollup> out = new ArrayList<>();
+        jdbc.query("select status, year, month, order_count, total_sum from order_rollups", (RowCallbackHandler) rs -> {
+            OrderStatus st = parse(rs.getString(1));
+            if (st != null) out.add(new Rollup(st, rs.getInt(2), rs.getInt(3), rs.getLong(4), rs.getBigDecimal(5)));
+        });
+        return out;
+    }
+
+    public TableCounts counts() {
+        return counts;
+    }
+
+    public int lowStockThreshold() {
+        return lowStockThreshold;
+    }
+
+    public List<OrderSummary> recentOrders() {
+        synchronized (recent) {
+            return List.copyOf(recent);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent e) {
+        boolean reseed;
+        synchronized (recent) {
+            recent.removeIf(r -> r.id().equals(e.orderId()));
+            if (e.kind() != OrderChangedEvent.Kind.DELETED) {
+                recent.add(OrderSummary.of(e));
+                recent.sort(NEWEST_FIRST);
+                while (recent.size() > RECENT_SIZE) recent.remove(recent.size() - 1);
+            }
+            // a delete may have opened a slot that only the database can fill
+            reseed = e.kind() == OrderChangedEvent.Kind.DELETED && recent.size() < RECENT_SIZE;
+        }
+        if (reseed) reloadRecent();
+    }
+
+    // --- Maintenance ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        Long rows = jdbc.queryForObject("select count(*) from order_rollups", Long.class);
+        if (rows != null && rows == 0) rebuild();
+        refresh();
+    }
+
+    @Scheduled(initialDelayString = "${app.dashboard.refresh-ms:30000}", fixedDelayString = "${app.dashboard.refresh-ms:30000}")
+    public void refresh() {
+        counts = new TableCounts(users.count(), products.count(), coupons.countActiveAndNotExpired(),
+                products.countByStockLessThanEqual(lowStockThreshold));
+        reloadRecent();
+    }
+
+    // Recomputes every rollup from orders; also the backfill for orders that predate the table. Runs with the
+    // outbox dispatcher locked out, and both reads below see one snapshot (MySQL's default REPEATABLE READ),
+    // so order events still pending in the outbox are taken back out: the dispatcher applies them afterwards
+    // and the rollups come out exact. Pending events this handler already applied (held back by another
+    // handler's failure, see outbox_deliveries) will not be applied again, so they stay in. Parked events are
+    // not taken out either, so a rebuild also repairs them.
+    @Scheduled(cron = "${app.dashboard.rebuild-cron:-}")
+    public void rebuild() {
+        long t0 = System.currentTimeMillis();
+        tx.executeWithoutResult(status -> {
+            outbox.lockDispatcher();
+            Map<List<Object>, Object[]> buckets = new HashMap<>();
+            Delta merge = (st, createdAt, count, total) -> {
+                if (st == null) return;
+                List<Object> key = List.of(st.name(), createdAt == null ? 0 : createdAt.getYear(), createdAt == null ? 0 : createdAt.getMonthValue());
+                Object[] b = buckets.computeIfAbsent(key, k -> new Object[]{ 0L, BigDecimal.ZERO });
+                BigDecimal amount = total == null ? BigDecimal.ZERO : total;
+                b[0] = (Long) b[0] + count;
+                b[1] = ((BigDecimal) b[1]).add(count < 0 ? amount.negate() : amount);
+            };
+            jdbc.query("select status, coalesce(year(created_at), 0), coalesce(month(created_at), 0), count(*), coalesce(sum(total), 0) "
+                    + "from orders where status is not null group by 1, 2, 3", (RowCallbackHandler) rs -> {
+                List<Object> key = List.of(rs.getString(1), rs.getInt(2), rs.getInt(3));
+                buckets.put(key, new Object[]{ rs.getLong(4), rs.getBigDecimal(5) });
+            });
+            jdbc.query("select payload from outbox_events e where failed_at is null and event_type like ? "
+                    + "and not exists (select 1 from outbox_deliveries d where d.event_id = e.id and d.handler = ?)", (RowCallbackHandler) rs -> {
+                try {
+                    OrderChangedEvent e = json.readValue(rs.getString(1), OrderChangedEvent.class);
+                    deltas(e, (st, createdAt, count, total) -> merge.add(st, createdAt, -count, total));
+                } catch (java.io.IOException ex) {
+                    throw new IllegalStateException("Unreadable order event in outbox", ex);
+                }
+            }, OrderChangedEvent.EVENT_PREFIX + "%", handlerName());
+            List<Object[]> rows = new ArrayList<>(buckets.size());
+            buckets.forEach((k, b) -> rows.add(new Object[]{ k.get(0), k.get(1), k.get(2), b[0], b[1] }));
+            jdbc.update("delete from order_rollups");
+            jdbc.batchUpdate("insert into order_rollups (status, year, month, order_count, total_sum) values (?, ?, ?, ?, ?)", rows);
+        });
+        log.info("Dashboard rollups rebuilt in {} ms", System.currentTimeMillis() - t0);
+    }
+
+    private void reloadRecent() {
+        List<OrderSummary> fresh = orders.findRecent(PageRequest.of(0, RECENT_SIZE));
+        synchronized (recent) {
+            recent.clear();
+            recent.addAll(fresh);
+        }
+    }
+
+    private static OrderStatus parse(String s) {
+        try {
+            return s == null ? null : OrderStatus.valueOf(s);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -3,79 +3,108 @@ package org.masumjia.reactcartecom.auth;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.masumjia.reactcartecom.common.ApiError;
 import org.masumjia.reactcartecom.common.ApiResponse;
 import org.masumjia.reactcartecom.user.User;
 import org.masumjia.reactcartecom.user.UserRepository;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.masumjia.reactcartecom.auth.dto.AuthDtos.*;
 
+import org.masumjia.reactcartecom.security.ClientIp;
 import org.masumjia.reactcartecom.security.JwtService;
+import org.masumjia.reactcartecom.security.LoginThrottle;
+import org.masumjia.reactcartecom.security.PasswordHashingExecutor;
 
 @RestController
 @RequestMapping("/api/auth")
 @Tag(name = "Auth")
 public class AuthController {
     private final UserRepository users;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor hashing;
+    private final LoginThrottle throttle;
+    private final ClientIp clientIp;
     private final JwtService jwtService;
+    private final SessionService sessions;
 
-    public AuthController(UserRepository users, PasswordEncoder passwordEncoder, JwtService jwtService) {
+    public AuthController(UserRepository users, PasswordHashingExecutor hashing, LoginThrottle throttle, ClientIp clientIp,
+                          JwtService jwtService, SessionService sessions) {
         this.users = users;
-        this.passwordEncoder = passwordEncoder;
+        this.hashing = hashing;
+        this.throttle = throttle;
+        this.clientIp = clientIp;
         this.jwtService = jwtService;
+        this.sessions = sessions;
     }
 
     @PostMapping("/register")
     @Operation(summary = "Register a new user", security = {})
-    public ResponseEntity<ApiResponse<Map<String, Object>>> register(@Valid @RequestBody RegisterRequest req) {
+    public CompletableFuture<ResponseEntity<ApiResponse<Map<String, Object>>>> register(@Valid @RequestBody RegisterRequest req, HttpServletRequest http) {
+        throttle.acquire(req.email(), clientIp.resolve(http));
         if (users.findByEmail(req.email()).isPresent()) {
             throw new IllegalArgumentException("Email already registered");
         }
-        User u = new User();
-        u.setId(UUID.randomUUID().toString());
-        u.setEmail(req.email());
-        u.setName(req.name());
-        u.setPasswordHash(passwordEncoder.encode(req.password()));
-        u.setRole("CUSTOMER");
-        u.setBanned(false);
-        u.setCreatedAt(LocalDateTime.now());
-        u.setUpdatedAt(LocalDateTime.now());
-        users.save(u);
-
-        var payload = tokensPayload(u);
-        return ResponseEntity.status(201)
-                .body(ApiResponse.success(payload, java.util.Map.of("message", "Registration successful")));
+        return hashing.encode(req.password()).thenApply(hash -> {
+            User u = new User();
+            u.setId(UUID.randomUUID().toString());
+            u.setEmail(req.email());
+            u.setName(req.name());
+            u.setPasswordHash(hash);
+            u.setRole("CUSTOMER");
+            u.setBanned(false);
+            u.setCreatedAt(LocalDateTime.now());
+            u.setUpdatedAt(LocalDateTime.now());
+            users.save(u);
+
+            var payload = tokensPayload(u);
+            return ResponseEntity.status(201)
+                    .body(ApiResponse.success(payload, java.util.Map.of("message", "Registration successful")));
+        });
     }
 
     @PostMapping("/login")
     @Operation(summary = "Login and receive access token", security = {})
-    public ResponseEntity<ApiResponse<Map<String, Object>>> login(@Valid @RequestBody LoginRequest req) {
+    public CompletableFuture<ResponseEntity<ApiResponse<Map<String, Object>>>> login(@Valid @RequestBody LoginRequest req, HttpServletRequest http) {
+        throttle.acquire(req.email(), clientIp.resolve(http));
         User u = users.findByEmail(req.email()).orElseThrow(() -> new IllegalArgumentException("Email not registered"));
         if (u.isBanned()) {
             throw new IllegalArgumentException("Account is banned");
         }
-        if (!passwordEncoder.matches(req.password(), u.getPasswordHash())) {
-            throw new IllegalArgumentException("Incorrect password");
-        }
-        var payload = tokensPayload(u);
-        return ResponseEntity.ok(ApiResponse.success(payload, java.util.Map.of("message", "Login successful")));
+        return hashing.matches(req.password(), u.getPasswordHash()).thenApply(ok -> {
+            if (!ok) {
+                throw new IllegalArgumentException("Incorrect password");
+            }
+            var payload = tokensPayload(u);
+            return ResponseEntity.ok(ApiResponse.success(payload, java.util.Map.of("message", "Login successful")));
+        });
     }
 
-    // Refresh endpoint removed per requirement
+    // Renews without the password: the refresh token is rotated and a fresh access token issued
+    @PostMapping("/refresh")
+    @Operation(summary = "Exchange a refresh token for new access and refresh tokens", security = {})
+    public ResponseEntity<ApiResponse<Map<String, Object>>> refresh(@Valid @RequestBody RefreshRequest req) {
+        SessionService.Issued next = sessions.rotate(req.refreshToken()).orElse(null);
+        User u = next == null ? null : users.findById(next.userId()).orElse(null);
+        if (u == null || u.isBanned()) {
+            if (next != null) sessions.revoke(next.refreshToken());
+            return ResponseEntity.status(401).body(ApiResponse.error(new ApiError("UNAUTHORIZED", "Invalid or expired refresh token")));
+        }
+        return ResponseEntity.ok(ApiResponse.success(tokensPayload(u, next.refreshToken()), java.util.Map.of("message", "Token refreshed")));
+    }
 
     @PostMapping("/logout")
-    @Operation(summary = "Logout (client should discard token)", security = {})
-    public ResponseEntity<Void> logout() {
-        // Stateless JWT: client discards access token; nothing to do server-side
-        return ResponseEntity.noContent().build();
+    @Operation(summary = "Logout (revokes the refresh token's session; client discards the access token)", security = {})
+    public ResponseEntity<ApiResponse<Object>> logout(@RequestBody(required = false) LogoutRequest req) {
+        if (req != null && req.refreshToken() != null) sessions.revoke(req.refreshToken());
+        return ResponseEntity.ok(ApiResponse.success(null, java.util.Map.of("message", "Logged out successfully")));
     }
 
     // Removed: /forgot-password (change with old password) per requirement
@@ -83,22 +112,31 @@ public class AuthController {
     // Reset password by email with confirm password (no old password)
     @PostMapping("/reset-password")
     @Operation(summary = "Reset password with email + confirm", security = {})
-    public ResponseEntity<ApiResponse<Object>> resetPasswordSimple(@Valid @RequestBody PasswordResetSimpleRequest req) {
+    public CompletableFuture<ResponseEntity<ApiResponse<Object>>> resetPasswordSimple(@Valid @RequestBody PasswordResetSimpleRequest req, HttpServletRequest http) {
+        throttle.acquire(req.email(), clientIp.resolve(http));
         if (!req.newPassword().equals(req.confirmPassword())) {
             throw new IllegalArgumentException("Password and confirm password do not match");
         }
         User u = users.findByEmail(req.email()).orElseThrow(() -> new IllegalArgumentException("User not found"));
-        u.setPasswordHash(passwordEncoder.encode(req.newPassword()));
-        u.setUpdatedAt(LocalDateTime.now());
-        users.save(u);
-        return ResponseEntity.ok(ApiResponse.success(null, java.util.Map.of("message", "Password reset successful")));
+        return hashing.encode(req.newPassword()).thenApply(hash -> {
+            u.setPasswordHash(hash);
+            u.setUpdatedAt(LocalDateTime.now());
+            users.save(u);
+            // devices signed in with the old password must not keep renewing
+            sessions.revokeAll(u.getId());
+            return ResponseEntity.ok(ApiResponse.success(null, java.util.Map.of("message", "Password reset successful")));
+        });
     }
 
     // Session endpoint removed per requirement
 
     private Map<String, Object> tokensPayload(User u) {
+        return tokensPayload(u, sessions.open(u.getId()).refreshToken());
+    }
+
+    private Map<String, Object> tokensPayload(User u, String refreshToken) {
         String access = jwtService.generateAccess(u.getId(), Map.of("role", u.getRole()));
         UserDto dto = new UserDto(u.getId(), u.getEmail(), u.getName(), u.getRole(), u.isBanned(), u.getPhone(), u.getAddress(), u.getProfileImageUrl(), u.getCreatedAt());
-        return Map.of("user", dto, "accessToken", access);
+        return Map.of("user", dto, "accessToken", access, "refreshToken", refreshToken);
     }
 }
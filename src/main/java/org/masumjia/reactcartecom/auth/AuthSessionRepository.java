@@ -0,0 +1,33 @@
+package org.masumjia.reactcartecom.auth;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface AuthSessionRepository extends JpaRepository<AuthSession, String> {
+    // Compare-and-set on the current token hash: of two refreshes racing with the same token only one wins
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update AuthSession s set s.tokenHash = :newHash, s.expiresAt = :expiresAt, s.lastUsedAt = :now"
+            + " where s.id = :id and s.tokenHash = :oldHash and s.revokedAt is null and s.expiresAt > :now")
+    int rotate(String id, String oldHash, String newHash, LocalDateTime expiresAt, LocalDateTime now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update AuthSession s set s.revokedAt = :now where s.id = :id and s.revokedAt is null")
+    int revoke(String id, LocalDateTime now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update AuthSession s set s.revokedAt = :now where s.userId = :userId and s.revokedAt is null")
+    int revokeAllForUser(String userId, LocalDateTime now);
+
+    // Revoked rows are kept until they would have expired anyway, so a replayed token is still recognised
+    @Transactional
+    @Modifying
+    @Query(value = "delete from auth_sessions where expires_at < :now limit :limit", nativeQuery = true)
+    int deleteExpired(LocalDateTime now, int limit);
+}
@@ -0,0 +1,130 @@
+package org.masumjia.reactcartecom.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+// Server-side refresh sessions. A refresh token is "<session id>.<random secret>" and only the secret's
+// SHA-256 is stored, so renewing is a primary-key read and one conditional update instead of a BCrypt check.
+// Every refresh rotates the secret; presenting a secret that was already rotated away means the token was
+// copied (or two refreshes raced with it), so the whole session is revoked and the user signs in again.
+@Service
+public class SessionService {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(SessionService.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final AuthSessionRepository sessions;
+    private final int ttlDays;
+    private final int sweepBatch;
+
+    public SessionService(AuthSessionRepository sessions,
+                          @Value("${app.security.refresh.ttl-days:14}") int ttlDays,
+                          @Value("${app.security.refresh.sweep-batch:500}") int sweepBatch) {
+        this.sessions = sessions;
+        this.ttlDays = ttlDays;
+        this.sweepBatch = sweepBatch;
+    }
+
+    public record Issued(String refreshToken, String userId, LocalDateTime expiresAt) {}
+
+    private record Presented(String sessionId, String secret) {}
+
+    public Issued open(String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        String secret = newSecret();
+        AuthSession s = new AuthSession();
+        s.setId(UUID.randomUUID().toString());
+        s.setUserId(userId);
+        s.setTokenHash(hash(secret));
+        s.setCreatedAt(now);
+        s.setLastUsedAt(now);
+        s.setExpiresAt(now.plusDays(ttlDays));
+        sessions.save(s);
+        return new Issued(s.getId() + "." + secret, userId, s.getExpiresAt());
+    }
+
+    public Optional<Issued> rotate(String refreshToken) {
+        Presented p = parse(refreshToken);
+        if (p == null) return Optional.empty();
+        AuthSession s = sessions.findById(p.sessionId()).orElse(null);
+        LocalDateTime now = LocalDateTime.now();
+        if (s == null || s.getRevokedAt() != null || !s.getExpiresAt().isAfter(now)) return Optional.empty();
+        String presentedHash = hash(p.secret());
+        if (!matches(presentedHash, s.getTokenHash())) {
+            reused(s.getId(), now);
+            return Optional.empty();
+        }
+        String secret = newSecret();
+        LocalDateTime expiresAt = now.plusDays(ttlDays);
+        if (sessions.rotate(s.getId(), presentedHash, hash(secret), expiresAt, now) != 1) {
+            // another refresh consumed this token between our read and update
+            reused(s.getId(), now);
+            return Optional.empty();
+        }
+        return Optional.of(new Issued(s.getId() + "." + secret, s.getUserId(), expiresAt));
+    }
+
+    // Logout: only the current token of a session can end it
+    public boolean revoke(String refreshToken) {
+        Presented p = parse(refreshToken);
+        if (p == null) return false;
+        AuthSession s = sessions.findById(p.sessionId()).orElse(null);
+        if (s == null || !matches(hash(p.secret()), s.getTokenHash())) return false;
+        return sessions.revoke(s.getId(), LocalDateTime.now()) == 1;
+    }
+
+    public int revokeAll(String userId) {
+        return sessions.revokeAllForUser(userId, LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.refresh.sweep-ms:3600000}")
+    public void sweep() {
+        int total = 0;
+        int n;
+        do {
+            n = sessions.deleteExpired(LocalDateTime.now(), sweepBatch);
+            total += n;
+        } while (n == sweepBatch);
+        if (total > 0) log.info("Removed {} expired auth sessions", total);
+    }
+
+    private void reused(String sessionId, LocalDateTime now) {
+        sessions.revoke(sessionId, now);
+        log.warn("Refresh token reuse detected; revoked session {}", sessionId);
+    }
+
+    private static Presented parse(String token) {
+        if (token == null) return null;
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) return null;
+        return new Presented(token.substring(0, dot), token.substring(dot + 1));
+    }
+
+    private static String newSecret() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    static String hash(String secret) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean matches(String a, String b) {
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.US_ASCII), b.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -9,15 +9,16 @@ import jakarta.validation.Valid;
 import org.masumjia.reactcartecom.cart.dto.CartDtos;
 import org.masumjia.reactcartecom.catalog.Product;
 import org.masumjia.reactcartecom.catalog.ProductRepository;
+import org.masumjia.reactcartecom.catalog.StockReservationService;
 import org.masumjia.reactcartecom.common.ApiError;
 import org.masumjia.reactcartecom.common.ApiResponse;
 import org.masumjia.reactcartecom.coupons.Coupon;
-import org.masumjia.reactcartecom.coupons.CouponAssignment;
+import org.masumjia.reactcartecom.coupons.CouponIndex;
+import org.masumjia.reactcartecom.coupons.CouponRule;
 import org.masumjia.reactcartecom.user.User;
 import org.masumjia.reactcartecom.user.UserRepository;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
@@ -32,18 +33,19 @@ public class CartController {
     private final CartItemRepository items;
     private final ProductRepository products;
     private final UserRepository users;
-    private final org.masumjia.reactcartecom.coupons.CouponRepository couponRepo;
-    private final org.masumjia.reactcartecom.coupons.CouponAssignmentRepository assignRepo;
+    private final CouponIndex coupons;
+    private final CartPricingService pricing;
+    private final StockReservationService reservations;
 
     public CartController(CartRepository carts, CartItemRepository items, ProductRepository products, UserRepository users,
-                          org.masumjia.reactcartecom.coupons.CouponRepository couponRepo,
-                          org.masumjia.reactcartecom.coupons.CouponAssignmentRepository assignRepo) {
+                          CouponIndex coupons, CartPricingService pricing, StockReservationService reservations) {
         this.carts = carts;
         this.items = items;
         this.products = products;
         this.users = users;
-        this.couponRepo = couponRepo;
-        this.assignRepo = assignRepo;
+        this.coupons = coupons;
+        this.pricing = pricing;
+        this.reservations = reservations;
     }
 
     @PostMapping("/carts")
@@ -192,13 +194,15 @@ public class CartController {
         if (c == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Cart not found")));
         String code = body == null ? null : body.get("code");
         if (code == null || code.isBlank()) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Code is required")));
-        Coupon coupon = couponRepo.findByCodeIgnoreCase(code.trim()).orElse(null);
+        CouponIndex.Entry coupon = coupons.find(code).orElse(null);
         if (coupon == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Coupon not found")));
-        if (!isCouponApplicableToCart(coupon, c, null)) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Coupon not applicable")));
-        c.setCouponCode(coupon.getCode());
+        CartPricingService.Snapshot snap = pricing.load(c);
+        CartPricingService.Quote quote = pricing.quote(coupon.rule(), snap, null);
+        if (!quote.applicable()) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Coupon not applicable")));
+        c.setCouponCode(coupon.coupon().getCode());
         c.setUpdatedAt(LocalDateTime.now());
         carts.save(c);
-        return ResponseEntity.ok(ApiResponse.success(toView(c, true), java.util.Map.of("message", "Coupon applied")));
+        return ResponseEntity.ok(ApiResponse.success(toView(c, snap, quote, true), java.util.Map.of("message", "Coupon applied")));
     }
 
     @DeleteMapping("/carts/{id}/coupon")
@@ -213,6 +217,79 @@ public class CartController {
         return ResponseEntity.ok(ApiResponse.success(toView(c, true), java.util.Map.of("message", "Coupon removed")));
     }
 
+    // Public by cart id, so only coupons open to every customer are considered; customer-scoped coupons
+    // are quoted by the /me/cart variants below
+    @GetMapping("/carts/{id}/best-coupon")
+    @Operation(summary = "Find the coupon giving this cart the largest discount")
+    public ResponseEntity<ApiResponse<CartDtos.BestCouponView>> bestCoupon(@PathVariable String id) {
+        Cart c = carts.findById(id).orElse(null);
+        if (c == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Cart not found")));
+        return bestCouponView(c, null);
+    }
+
+    @PostMapping("/carts/{id}/best-coupon")
+    @Transactional
+    @Operation(summary = "Apply the coupon giving this cart the largest discount")
+    public ResponseEntity<ApiResponse<CartDtos.CartView>> applyBestCoupon(@PathVariable String id) {
+        Cart c = carts.findById(id).orElse(null);
+        if (c == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Cart not found")));
+        return applyBest(c, null);
+    }
+
+    @GetMapping("/me/cart/best-coupon")
+    @Operation(summary = "Find the coupon giving current user's cart the largest discount", security = { @SecurityRequirement(name = "bearerAuth") })
+    public ResponseEntity<ApiResponse<CartDtos.BestCouponView>> bestCouponMy(Authentication auth) {
+        if (auth == null || auth.getName() == null) return ResponseEntity.status(401).body(ApiResponse.error(new ApiError("UNAUTHORIZED", "Login required")));
+        String userId = auth.getName(); // JWT subject is userId
+        User u = users.findById(userId).orElse(null);
+        if (u == null) return ResponseEntity.status(401).body(ApiResponse.error(new ApiError("UNAUTHORIZED", "User not found")));
+        Cart c = carts.findByUserId(u.getId()).orElse(null);
+        if (c == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Cart not found")));
+        return bestCouponView(c, u.getId());
+    }
+
+    @PostMapping("/me/cart/best-coupon")
+    @Transactional
+    @Operation(summary = "Apply the coupon giving current user's cart the largest discount", security = { @SecurityRequirement(name = "bearerAuth") })
+    public ResponseEntity<ApiResponse<CartDtos.CartView>> applyBestCouponMy(Authentication auth) {
+        if (auth == null || auth.getName() == null) return ResponseEntity.status(401).body(ApiResponse.error(new ApiError("UNAUTHORIZED", "Login required")));
+        String userId = auth.getName(); // JWT subject is userId
+        User u = users.findById(userId).orElse(null);
+        if (u == null) return ResponseEntity.status(401).body(ApiResponse.error(new ApiError("UNAUTHORIZED", "User not found")));
+        Cart c = carts.findByUserId(u.getId()).orElse(null);
+        if (c == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Cart not found")));
+        return applyBest(c, u.getId());
+    }
+
+    private ResponseEntity<ApiResponse<CartDtos.BestCouponView>> bestCouponView(Cart c, String userId) {
+        CartPricingService.Snapshot snap = pricing.load(c);
+        CartPricingService.Quote best = bestQuote(snap, userId);
+        if (best == null) return ResponseEntity.ok(ApiResponse.success(null, java.util.Map.of("message", "No applicable coupon")));
+        Coupon cpn = best.coupon();
+        BigDecimal total = snap.subtotal().subtract(best.discount()).max(BigDecimal.ZERO);
+        return ResponseEntity.ok(ApiResponse.success(new CartDtos.BestCouponView(cpn.getCode(), cpn.getDiscountType().name(), cpn.getDiscountValue(),
+                best.match().name(), best.applicableSubtotal(), best.discount(), total)));
+    }
+
+    private ResponseEntity<ApiResponse<CartDtos.CartView>> applyBest(Cart c, String userId) {
+        CartPricingService.Snapshot snap = pricing.load(c);
+        CartPricingService.Quote best = bestQuote(snap, userId);
+        if (best == null) return ResponseEntity.ok(ApiResponse.success(toView(c, snap, true), java.util.Map.of("message", "No applicable coupon")));
+        c.setCouponCode(best.coupon().getCode());
+        c.setUpdatedAt(LocalDateTime.now());
+        carts.save(c);
+        return ResponseEntity.ok(ApiResponse.success(toView(c, snap, best, true), java.util.Map.of("message", "Coupon applied")));
+    }
+
+    // Scores only the coupons the index links to this cart's products, categories and, when userId is the
+    // authenticated owner, customer
+    private CartPricingService.Quote bestQuote(CartPricingService.Snapshot snap, String userId) {
+        if (snap.lines().isEmpty()) return null;
+        List<CouponRule> rules = new ArrayList<>();
+        for (CouponIndex.Entry e : coupons.candidates(userId, snap.productIds(), snap.categoryIds())) rules.add(e.rule());
+        return pricing.best(rules, snap, userId);
+    }
+
     @PostMapping("/me/cart/apply-coupon")
     @Transactional
     @Operation(summary = "Apply coupon to current user's cart", security = { @SecurityRequirement(name = "bearerAuth") })
@@ -225,13 +302,15 @@ public class CartController {
         if (c == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Cart not found")));
         String code = body == null ? null : body.get("code");
         if (code == null || code.isBlank()) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Code is required")));
-        Coupon coupon = couponRepo.findByCodeIgnoreCase(code.trim()).orElse(null);
+        CouponIndex.Entry coupon = coupons.find(code).orElse(null);
         if (coupon == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Coupon not found")));
-        if (!isCouponApplicableToCart(coupon, c, u.getId())) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Coupon not applicable")));
-        c.setCouponCode(coupon.getCode());
+        CartPricingService.Snapshot snap = pricing.load(c);
+        CartPricingService.Quote quote = pricing.quote(coupon.rule(), snap, u.getId());
+        if (!quote.applicable()) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Coupon not applicable")));
+        c.setCouponCode(coupon.coupon().getCode());
         c.setUpdatedAt(LocalDateTime.now());
         carts.save(c);
-        return ResponseEntity.ok(ApiResponse.success(toView(c, true), java.util.Map.of("message", "Coupon applied")));
+        return ResponseEntity.ok(ApiResponse.success(toView(c, snap, quote, true), java.util.Map.of("message", "Coupon applied")));
     }
 
     @DeleteMapping("/me/cart/coupon")
@@ -257,6 +336,7 @@ public class CartController {
         Cart c = carts.findById(id).orElse(null);
         if (c == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Cart not found")));
         boolean hasClientSnapshot = false;
+        CartPricingService.Snapshot snap = null;
         if (body != null) {
             // accept both `code` and `couponCode` (camel or snake)
             Object rawCode = body.containsKey("code") ? body.get("code") : (body.containsKey("couponCode") ? body.get("couponCode") : body.get("coupon_code"));
@@ -269,10 +349,11 @@ public class CartController {
                 if (code.isBlank()) {
                     c.setCouponCode(null);
                 } else {
-                    Coupon coupon = couponRepo.findByCodeIgnoreCase(code.trim()).orElse(null);
+                    CouponIndex.Entry coupon = coupons.find(code).orElse(null);
                     if (coupon == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Coupon not found")));
-                    if (!isCouponApplicableToCart(coupon, c, null)) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Coupon not applicable")));
-                    c.setCouponCode(coupon.getCode());
+                    snap = pricing.load(c);
+                    if (!pricing.quote(coupon.rule(), snap, null).applicable()) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Coupon not applicable")));
+                    c.setCouponCode(coupon.coupon().getCode());
                 }
                 hasClientSnapshot = true; // coupon came from client
             }
@@ -290,7 +371,8 @@ public class CartController {
                 carts.save(c);
             }
         }
-        CartDtos.CartView view = hasClientSnapshot ? toViewSnapshot(c) : toView(c, true);
+        if (snap == null) snap = pricing.load(c);
+        CartDtos.CartView view = hasClientSnapshot ? toViewSnapshot(c, snap) : toView(c, snap, true);
         return ResponseEntity.ok(ApiResponse.success(view, java.util.Map.of("message", hasClientSnapshot ? "Summary synced (client)" : "Summary synced")));
     }
 
@@ -305,6 +387,7 @@ public class CartController {
         Cart c = carts.findByUserId(u.getId()).orElse(null);
         if (c == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Cart not found")));
         boolean hasClientSnapshot = false;
+        CartPricingService.Snapshot snap = null;
         if (body != null) {
             Object rawCode = body.containsKey("code") ? body.get("code") : (body.containsKey("couponCode") ? body.get("couponCode") : body.get("coupon_code"));
             Object rawSubtotal = body.containsKey("subtotal") ? body.get("subtotal") : body.get("sub_total");
@@ -316,10 +399,11 @@ public class CartController {
                 if (code.isBlank()) {
                     c.setCouponCode(null);
                 } else {
-                    Coupon coupon = couponRepo.findByCodeIgnoreCase(code.trim()).orElse(null);
+                    CouponIndex.Entry coupon = coupons.find(code).orElse(null);
                     if (coupon == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Coupon not found")));
-                    if (!isCouponApplicableToCart(coupon, c, u.getId())) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Coupon not applicable")));
-                    c.setCouponCode(coupon.getCode());
+                    snap = pricing.load(c);
+                    if (!pricing.quote(coupon.rule(), snap, u.getId()).applicable()) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Coupon not applicable")));
+                    c.setCouponCode(coupon.coupon().getCode());
                 }
                 hasClientSnapshot = true;
             }
@@ -337,7 +421,8 @@ public class CartController {
                 carts.save(c);
             }
         }
-        CartDtos.CartView view = hasClientSnapshot ? toViewSnapshot(c) : toView(c, true);
+        if (snap == null) snap = pricing.load(c);
+        CartDtos.CartView view = hasClientSnapshot ? toViewSnapshot(c, snap) : toView(c, snap, true);
         return ResponseEntity.ok(ApiResponse.success(view, java.util.Map.of("message", hasClientSnapshot ? "Summary synced (client)" : "Summary synced")));
     }
 
@@ -350,36 +435,14 @@ public class CartController {
         }
     }
 
-    private CartDtos.CartView toViewSnapshot(Cart c) {
-        List<CartItem> list = items.findByCart_Id(c.getId());
-        List<CartDtos.ItemView> views = new ArrayList<>();
-        java.math.BigDecimal calcSubtotal = java.math.BigDecimal.ZERO;
-        int totalQty = 0;
-        for (CartItem ci : list) {
-            if (ci == null) continue;
-            Product p = ci.getProduct();
-            if (p == null) continue;
-            java.math.BigDecimal price = safeEffectivePrice(p);
-            java.math.BigDecimal line = price.multiply(java.math.BigDecimal.valueOf(ci.getQuantity() == null ? 0 : ci.getQuantity()));
-            calcSubtotal = calcSubtotal.add(line);
-            totalQty += ci.getQuantity() == null ? 0 : ci.getQuantity();
-            views.add(new CartDtos.ItemView(
-                    ci.getId(),
-                    p.getId(),
-                    p.getName(),
-                    p.getPrice(),
-                    p.getDiscountedPrice(),
-                    p.getStock(),
-                    ci.getQuantity(),
-                    line
-            ));
-        }
-        java.math.BigDecimal subtotal = c.getSubtotal() != null ? c.getSubtotal() : calcSubtotal;
+    private CartDtos.CartView toViewSnapshot(Cart c, CartPricingService.Snapshot snap) {
+        List<CartDtos.ItemView> views = pricing.itemViews(snap);
+        java.math.BigDecimal subtotal = c.getSubtotal() != null ? c.getSubtotal() : snap.subtotal();
         java.math.BigDecimal discount = c.getDiscountAmount() != null ? c.getDiscountAmount() : java.math.BigDecimal.ZERO;
         java.math.BigDecimal total = c.getTotal() != null ? c.getTotal() : subtotal.subtract(discount);
         if (total.compareTo(java.math.BigDecimal.ZERO) < 0) total = java.math.BigDecimal.ZERO;
         String applied = c.getCouponCode();
-        return new CartDtos.CartView(c.getId(), c.getUser() == null ? null : c.getUser().getId(), views, totalQty, subtotal, applied, discount, total, c.getUpdatedAt());
+        return new CartDtos.CartView(c.getId(), c.getUser() == null ? null : c.getUser().getId(), views, snap.totalQuantity(), subtotal, applied, discount, total, c.getUpdatedAt());
     }
 
     @PostMapping("/me/cart/merge")
@@ -402,8 +465,8 @@ public class CartController {
         }
         Cart target = existingUserCart;
         Map<String, CartItem> byProd = new HashMap<>();
-        for (CartItem ci : items.findByCart_Id(target.getId())) byProd.put(ci.getProduct().getId(), ci);
-        for (CartItem gi : items.findByCart_Id(guest.getId())) {
+        for (CartItem ci : items.findByCartIdWithProduct(target.getId())) byProd.put(ci.getProduct().getId(), ci);
+        for (CartItem gi : items.findByCartIdWithProduct(guest.getId())) {
             int gQty = gi.getQuantity();
             Product gp = gi.getProduct();
             int stock = gp.getStock() == null ? 0 : gp.getStock();
@@ -434,77 +497,60 @@ public class CartController {
 
     @PostMapping("/carts/{id}/checkout")
     @Transactional
-    @Operation(summary = "Attempt to decrement stock for all items atomically; fails if any item insufficient")
+    @Operation(summary = "Hold stock for all items atomically until the hold expires; fails if any item insufficient")
     public ResponseEntity<ApiResponse<Object>> checkout(@PathVariable String id) {
         Cart c = carts.findById(id).orElse(null);
         if (c == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Cart not found")));
-        List<CartItem> list = items.findByCart_Id(id);
-        Map<String, Integer> failed = new HashMap<>();
-        for (CartItem ci : list) {
-            String pid = ci.getProduct().getId();
-            int qty = ci.getQuantity();
-            int updated = products.decrementIfAvailable(pid, qty);
-            if (updated == 0) {
-                Product p = products.findById(pid).orElse(null);
-                int avail = p == null || p.getStock() == null ? 0 : p.getStock();
-                failed.put(pid, avail);
-            }
-        }
-        if (!failed.isEmpty()) {
-            for (CartItem ci : list) {
-                String pid = ci.getProduct().getId();
-                if (!failed.containsKey(pid)) {
-                    products.increment(pid, ci.getQuantity());
-                }
-            }
-            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        StockReservationService.Result held = reservations.hold(id, toQuantities(items.findByCart_Id(id)));
+        if (!held.ok()) {
             Map<String, String> fields = new HashMap<>();
-            for (Map.Entry<String, Integer> e : failed.entrySet()) {
+            for (Map.Entry<String, Integer> e : held.failed().entrySet()) {
                 fields.put(e.getKey(), String.valueOf(e.getValue()));
             }
             return ResponseEntity.status(409).body(ApiResponse.error(new ApiError("OUT_OF_STOCK", "One or more items are out of stock", fields)));
         }
-        return ResponseEntity.ok(ApiResponse.success(Map.of("cartId", c.getId()), Map.of("message", "Stock reserved")));
+        return ResponseEntity.ok(ApiResponse.success(Map.of("cartId", c.getId(), "expiresAt", held.expiresAt()), Map.of("message", "Stock reserved")));
     }
 
-    private CartDtos.CartView toView(Cart c, boolean computeCoupon) {
-        List<CartItem> list = items.findByCart_Id(c.getId());
-        List<CartDtos.ItemView> views = new ArrayList<>();
-        BigDecimal subtotal = BigDecimal.ZERO;
-        int totalQty = 0;
+    private static Map<String, Integer> toQuantities(List<CartItem> list) {
+        Map<String, Integer> qty = new HashMap<>();
         for (CartItem ci : list) {
-            if (ci == null) continue;
-            Product p = ci.getProduct();
-            if (p == null) continue;
-            BigDecimal price = safeEffectivePrice(p);
-            BigDecimal line = price.multiply(BigDecimal.valueOf(ci.getQuantity() == null ? 0 : ci.getQuantity()));
-            subtotal = subtotal.add(line);
-            totalQty += ci.getQuantity() == null ? 0 : ci.getQuantity();
-            views.add(new CartDtos.ItemView(
-                    ci.getId(),
-                    p.getId(),
-                    p.getName(),
-                    p.getPrice(),
-                    p.getDiscountedPrice(),
-                    p.getStock(),
-                    ci.getQuantity(),
-                    line
-            ));
+            if (ci.getProduct() == null || ci.getQuantity() == null) continue;
+            qty.merge(ci.getProduct().getId(), ci.getQuantity(), Integer::sum);
         }
-        BigDecimal discount = BigDecimal.ZERO;
+        return qty;
+    }
+
+    private CartDtos.CartView toView(Cart c, boolean computeCoupon) {
+        return toView(c, pricing.load(c), computeCoupon);
+    }
+
+    private CartDtos.CartView toView(Cart c, CartPricingService.Snapshot snap, boolean computeCoupon) {
+        CartPricingService.Quote quote = null;
         String applied = c.getCouponCode();
         if (computeCoupon && applied != null && !applied.isBlank()) {
-            Coupon coupon = couponRepo.findByCodeIgnoreCase(applied).orElse(null);
+            CouponIndex.Entry coupon = coupons.find(applied).orElse(null);
             if (coupon != null) {
                 String userId = c.getUser() == null ? null : c.getUser().getId();
-                if (isCouponApplicableToCart(coupon, c, userId)) {
-                    BigDecimal applicableSubtotal = computeApplicableSubtotal(coupon, c);
-                    discount = computeDiscountAmount(coupon, applicableSubtotal);
-                } else {
-                    c.setCouponCode(null);
-                    carts.save(c);
-                    applied = null;
-                }
+                quote = pricing.quote(coupon.rule(), snap, userId);
+            }
+        }
+        return toView(c, snap, quote, computeCoupon);
+    }
+
+    // Pure in-memory computation over an already loaded snapshot/quote
+    private CartDtos.CartView toView(Cart c, CartPricingService.Snapshot snap, CartPricingService.Quote quote, boolean computeCoupon) {
+        List<CartDtos.ItemView> views = pricing.itemViews(snap);
+        BigDecimal subtotal = snap.subtotal();
+        BigDecimal discount = BigDecimal.ZERO;
+        String applied = c.getCouponCode();
+        if (quote != null) {
+            if (quote.applicable()) {
+                discount = quote.discount();
+            } else {
+                c.setCouponCode(null);
+                carts.save(c);
+                applied = null;
             }
         }
         if (!computeCoupon) {
@@ -524,95 +570,7 @@ public class CartController {
             carts.save(c);
         }
         BigDecimal totalResp = computeCoupon ? total : null;
-        return new CartDtos.CartView(c.getId(), c.getUser() == null ? null : c.getUser().getId(), views, totalQty, subtotal, applied, discount, totalResp, c.getUpdatedAt());
-    }
-
-    private boolean isCouponApplicableToCart(Coupon cpn, Cart cart, String userId) {
-        if (!cpn.isActive()) return false;
-        if (isExpired(cpn)) return false;
-        List<CouponAssignment> list = assignRepo.findByCouponId(cpn.getId());
-        if (list.isEmpty()) return true;
-        Set<String> productIds = new HashSet<>();
-        Set<String> categoryIds = new HashSet<>();
-        for (CartItem ci : items.findByCart_Id(cart.getId())) {
-            productIds.add(ci.getProduct().getId());
-            if (ci.getProduct().getCategory() != null) categoryIds.add(ci.getProduct().getCategory().getId());
-        }
-        for (CouponAssignment a : list) {
-            switch (a.getAssignedType()) {
-                case CUSTOMER -> {
-                    if ("*".equals(a.getAssignedId()) && userId != null) return true;
-                    if (userId != null && a.getAssignedId().equals(userId)) return true;
-                }
-                case PRODUCT -> {
-                    if ("*".equals(a.getAssignedId())) return true;
-                    if (productIds.contains(a.getAssignedId())) return true;
-                }
-                case CATEGORY -> {
-                    if ("*".equals(a.getAssignedId())) return true;
-                    if (categoryIds.contains(a.getAssignedId())) return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private boolean isExpired(Coupon c) {
-        boolean timeExpired = c.getExpiryDate() != null && LocalDateTime.now().isAfter(c.getExpiryDate());
-        boolean usesExceeded = c.getMaxUses() != null && c.getUsedCount() != null && c.getUsedCount() >= c.getMaxUses();
-        return timeExpired || usesExceeded;
-    }
-
-    private BigDecimal computeApplicableSubtotal(Coupon cpn, Cart cart) {
-        List<CouponAssignment> list = assignRepo.findByCouponId(cpn.getId());
-        BigDecimal subtotal = BigDecimal.ZERO;
-        if (list.isEmpty()) {
-            for (CartItem ci : items.findByCart_Id(cart.getId())) {
-                if (ci == null || ci.getProduct() == null) continue;
-                Product p = ci.getProduct();
-                BigDecimal price = safeEffectivePrice(p);
-                subtotal = subtotal.add(price.multiply(BigDecimal.valueOf(ci.getQuantity() == null ? 0 : ci.getQuantity())));
-            }
-            return subtotal;
-        }
-        Set<String> allowedProducts = new HashSet<>();
-        Set<String> allowedCategories = new HashSet<>();
-        boolean allProducts = false, allCategories = false;
-        for (CouponAssignment a : list) {
-            if (a.getAssignedType() == CouponAssignment.AssignmentType.PRODUCT) {
-                if ("*".equals(a.getAssignedId())) allProducts = true; else allowedProducts.add(a.getAssignedId());
-            }
-            if (a.getAssignedType() == CouponAssignment.AssignmentType.CATEGORY) {
-                if ("*".equals(a.getAssignedId())) allCategories = true; else allowedCategories.add(a.getAssignedId());
-            }
-        }
-        for (CartItem ci : items.findByCart_Id(cart.getId())) {
-            if (ci == null || ci.getProduct() == null) continue;
-            Product p = ci.getProduct();
-            boolean include = false;
-            if (allProducts || allowedProducts.contains(p.getId())) include = true;
-            if (!include && (allCategories || (p.getCategory() != null && allowedCategories.contains(p.getCategory().getId())))) include = true;
-            if (include) {
-                BigDecimal price = safeEffectivePrice(p);
-                subtotal = subtotal.add(price.multiply(BigDecimal.valueOf(ci.getQuantity() == null ? 0 : ci.getQuantity())));
-            }
-        }
-        return subtotal;
-    }
-
-    private BigDecimal computeDiscountAmount(Coupon cpn, BigDecimal applicableSubtotal) {
-        if (applicableSubtotal == null || applicableSubtotal.compareTo(BigDecimal.ZERO) <= 0) return BigDecimal.ZERO;
-        if (cpn.getDiscountType() == Coupon.DiscountType.PERCENT) {
-            BigDecimal base = cpn.getDiscountValue() == null ? BigDecimal.ZERO : cpn.getDiscountValue();
-            BigDecimal pct = base.divide(BigDecimal.valueOf(100), java.math.RoundingMode.HALF_UP);
-            BigDecimal amt = applicableSubtotal.multiply(pct);
-            if (amt.compareTo(applicableSubtotal) > 0) amt = applicableSubtotal;
-            return amt.setScale(2, java.math.RoundingMode.HALF_UP);
-        } else {
-            BigDecimal amt = cpn.getDiscountValue() == null ? BigDecimal.ZERO : cpn.getDiscountValue();
-            if (amt.compareTo(applicableSubtotal) > 0) amt = applicableSubtotal;
-            return amt.setScale(2, java.math.RoundingMode.HALF_UP);
-        }
+        return new CartDtos.CartView(c.getId(), c.getUser() == null ? null : c.getUser().getId(), views, snap.totalQuantity(), subtotal, applied, discount, totalResp, c.getUpdatedAt());
     }
 
     private void initCartDefaults(Cart c) {
@@ -633,11 +591,4 @@ public class CartController {
         }
         return raw.toString();
     }
-
-    private BigDecimal safeEffectivePrice(Product p) {
-        BigDecimal dp = p.getDiscountedPrice();
-        BigDecimal pr = p.getPrice();
-        BigDecimal price = (dp != null ? dp : (pr != null ? pr : BigDecimal.ZERO));
-        return price;
-    }
 }
@@ -1,6 +1,7 @@
 package org.masumjia.reactcartecom.cart;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
@@ -9,4 +10,8 @@ public interface CartItemRepository extends JpaRepository<CartItem, String> {
     java.util.List<CartItem> findByCart_Id(String cartId);
     java.util.Optional<CartItem> findByCart_IdAndProduct_Id(String cartId, String productId);
     void deleteByCart_Id(String cartId);
+
+    // Items with their product and category in one round trip (no lazy loads per line)
+    @Query("select ci from CartItem ci join fetch ci.product p left join fetch p.category where ci.cart.id = :cartId")
+    List<CartItem> findByCartIdWithProduct(String cartId);
 }
@@ -0,0 +1,114 @@
+package org.masumjia.reactcartecom.cart;
+
+import org.masumjia.reactcartecom.cart.dto.CartDtos;
+import org.masumjia.reactcartecom.catalog.Product;
+import org.masumjia.reactcartecom.coupons.Coupon;
+import org.masumjia.reactcartecom.coupons.CouponRule;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+public class CartPricingService {
+    private final CartItemRepository items;
+
+    public CartPricingService(CartItemRepository items) {
+        this.items = items;
+    }
+
+    public record Line(CartItem item, Product product, int quantity, BigDecimal unitPrice, BigDecimal lineTotal) {}
+
+    // Everything pricing needs about a cart, loaded with a single fetch-join query
+    public record Snapshot(List<Line> lines, BigDecimal subtotal, int totalQuantity, Set<String> productIds, Set<String> categoryIds) {}
+
+    public record Quote(Coupon coupon, CouponRule.Match match, BigDecimal applicableSubtotal, BigDecimal discount) {
+        public boolean applicable() {
+            return match.applies();
+        }
+    }
+
+    public Snapshot load(Cart cart) {
+        List<Line> lines = new ArrayList<>();
+        Set<String> productIds = new HashSet<>();
+        Set<String> categoryIds = new HashSet<>();
+        BigDecimal subtotal = BigDecimal.ZERO;
+        int totalQty = 0;
+        for (CartItem ci : items.findByCartIdWithProduct(cart.getId())) {
+            if (ci == null) continue;
+            Product p = ci.getProduct();
+            if (p == null) continue;
+            int qty = ci.getQuantity() == null ? 0 : ci.getQuantity();
+            BigDecimal price = effectivePrice(p);
+            BigDecimal line = price.multiply(BigDecimal.valueOf(qty));
+            lines.add(new Line(ci, p, qty, price, line));
+            subtotal = subtotal.add(line);
+            totalQty += qty;
+            productIds.add(p.getId());
+            if (p.getCategory() != null) categoryIds.add(p.getCategory().getId());
+        }
+        return new Snapshot(lines, subtotal, totalQty, productIds, categoryIds);
+    }
+
+    // Eligibility and discount from the coupon's compiled rule; no queries
+    public Quote quote(CouponRule rule, Snapshot snap, String userId) {
+        return quote(rule, snap, userId, LocalDateTime.now());
+    }
+
+    // Largest discount among the candidates (ties go to the lower code), or null when none applies
+    public Quote best(Collection<CouponRule> rules, Snapshot snap, String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        Quote best = null;
+        for (CouponRule rule : rules) {
+            Quote q = quote(rule, snap, userId, now);
+            if (!q.applicable() || q.discount().signum() <= 0) continue;
+            if (best == null || q.discount().compareTo(best.discount()) > 0
+                    || (q.discount().compareTo(best.discount()) == 0 && q.coupon().getCode().compareTo(best.coupon().getCode()) < 0)) {
+                best = q;
+            }
+        }
+        return best;
+    }
+
+    private Quote quote(CouponRule rule, Snapshot snap, String userId, LocalDateTime now) {
+        Coupon cpn = rule.coupon();
+        CouponRule.Match match = rule.match(userId, snap.productIds(), snap.categoryIds(), now);
+        if (!match.applies()) return new Quote(cpn, match, BigDecimal.ZERO, BigDecimal.ZERO);
+        BigDecimal applicable = rule.coversWholeCart() ? snap.subtotal() : applicableSubtotal(rule, snap);
+        return new Quote(cpn, match, applicable, rule.discountOn(applicable));
+    }
+
+    public List<CartDtos.ItemView> itemViews(Snapshot snap) {
+        List<CartDtos.ItemView> views = new ArrayList<>(snap.lines().size());
+        for (Line l : snap.lines()) {
+            Product p = l.product();
+            views.add(new CartDtos.ItemView(
+                    l.item().getId(),
+                    p.getId(),
+                    p.getName(),
+                    p.getPrice(),
+                    p.getDiscountedPrice(),
+                    p.getStock(),
+                    l.item().getQuantity(),
+                    l.lineTotal()
+            ));
+        }
+        return views;
+    }
+
+    private static BigDecimal applicableSubtotal(CouponRule rule, Snapshot snap) {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (Line l : snap.lines()) {
+            Product p = l.product();
+            if (rule.covers(p.getId(), p.getCategory() == null ? null : p.getCategory().getId())) subtotal = subtotal.add(l.lineTotal());
+        }
+        return subtotal;
+    }
+
+    private static BigDecimal effectivePrice(Product p) {
+        BigDecimal dp = p.getDiscountedPrice();
+        BigDecimal pr = p.getPrice();
+        return dp != null ? dp : (pr != null ? pr : BigDecimal.ZERO);
+    }
+}
@@ -33,4 +33,14 @@ public class CartDtos {
             BigDecimal total,
             LocalDateTime updatedAt
     ) {}
+
+    public static record BestCouponView(
+            String code,
+            String discountType,
+            BigDecimal discountValue,
+            String appliedScope,
+            BigDecimal applicableSubtotal,
+            BigDecimal discountAmount,
+            BigDecimal total
+    ) {}
 }
@@ -0,0 +1,25 @@
+package org.masumjia.reactcartecom.catalog;
+
+import java.util.Collection;
+import java.util.List;
+
+// Published after catalog writes; read-side caches and indexes invalidate from it once the write commits
+public record CatalogChangedEvent(Type type, Collection<String> productIds) {
+    public enum Type { PRODUCTS_UPSERTED, PRODUCTS_DELETED, STOCK_CHANGED, CATEGORIES_CHANGED }
+
+    public static CatalogChangedEvent upserted(String productId) {
+        return new CatalogChangedEvent(Type.PRODUCTS_UPSERTED, List.of(productId));
+    }
+
+    public static CatalogChangedEvent deleted(String productId) {
+        return new CatalogChangedEvent(Type.PRODUCTS_DELETED, List.of(productId));
+    }
+
+    public static CatalogChangedEvent stockChanged(Collection<String> productIds) {
+        return new CatalogChangedEvent(Type.STOCK_CHANGED, List.copyOf(productIds));
+    }
+
+    public static CatalogChangedEvent categoriesChanged() {
+        return new CatalogChangedEvent(Type.CATEGORIES_CHANGED, List.of());
+    }
+}
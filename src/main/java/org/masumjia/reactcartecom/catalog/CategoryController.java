@@ -7,6 +7,8 @@ import jakarta.validation.Valid;
 import org.masumjia.reactcartecom.catalog.dto.CategoryDtos;
 import org.masumjia.reactcartecom.common.ApiError;
 import org.masumjia.reactcartecom.common.ApiResponse;
+import org.masumjia.reactcartecom.common.IdAllocator;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -20,11 +22,15 @@ import java.util.*;
 @Tag(name = "Categories (Admin)")
 public class CategoryController {
     private final CategoryRepository categories;
-    private final ProductRepository products;
+    private final ProductFacetIndex facetIndex;
+    private final IdAllocator ids;
+    private final ApplicationEventPublisher events;
 
-    public CategoryController(CategoryRepository categories, ProductRepository products) {
+    public CategoryController(CategoryRepository categories, ProductFacetIndex facetIndex, IdAllocator ids, ApplicationEventPublisher events) {
         this.categories = categories;
-        this.products = products;
+        this.facetIndex = facetIndex;
+        this.ids = ids;
+        this.events = events;
     }
 
     @GetMapping("/categories")
@@ -40,8 +46,10 @@ public class CategoryController {
     @GetMapping("/admin/categories")
     @Operation(summary = "List categories (admin)", security = { @SecurityRequirement(name = "bearerAuth") })
     public ResponseEntity<ApiResponse<List<Map<String, Object>>>> adminList() {
+        // counts come from the facet bitsets instead of one COUNT query per category
+        Map<String, Integer> counts = facetIndex.productsPerCategory();
         List<Map<String, Object>> list = categories.findAll().stream().map(c -> {
-            long count = products.count((root, q, cb) -> cb.equal(root.get("category").get("id"), c.getId()));
+            long count = counts.getOrDefault(c.getId(), 0);
             Map<String, Object> m = new HashMap<>();
             m.put("id", c.getId());
             m.put("name", c.getName());
@@ -57,7 +65,7 @@ public class CategoryController {
     @Operation(summary = "Create category", security = { @SecurityRequirement(name = "bearerAuth") })
     public ResponseEntity<ApiResponse<CategoryDtos.CategoryView>> create(@Valid @RequestBody CategoryDtos.CreateCategoryRequest req) {
         String slug = uniqueSlug(slugify(req.name()));
-        String id = nextCategoryId();
+        String id = ids.next(IdAllocator.Sequence.CATEGORY);
         Category c = new Category();
         c.setId(id);
         c.setName(req.name());
@@ -65,6 +73,7 @@ public class CategoryController {
         c.setCreatedAt(LocalDateTime.now());
         c.setUpdatedAt(LocalDateTime.now());
         categories.save(c);
+        events.publishEvent(CatalogChangedEvent.categoriesChanged());
         return ResponseEntity.status(201).body(ApiResponse.success(new CategoryDtos.CategoryView(c.getId(), c.getName(), c.getSlug()), Map.of("message", "Category created")));
     }
 
@@ -83,6 +92,7 @@ public class CategoryController {
             }
             c.setUpdatedAt(LocalDateTime.now());
             categories.save(c);
+            events.publishEvent(CatalogChangedEvent.categoriesChanged());
             return ResponseEntity.ok(ApiResponse.success(new CategoryDtos.CategoryView(c.getId(), c.getName(), c.getSlug()), Map.of("message", "Category updated")));
         }).orElseGet(() -> ResponseEntity.status(404)
                 .body(ApiResponse.<CategoryDtos.CategoryView>error(new ApiError("NOT_FOUND", "Category not found"))));
@@ -94,6 +104,7 @@ public class CategoryController {
     public ResponseEntity<ApiResponse<Object>> delete(@PathVariable String id) {
         return categories.findById(id).map(c -> {
             categories.delete(c);
+            events.publishEvent(CatalogChangedEvent.categoriesChanged());
             return ResponseEntity.ok(ApiResponse.success(null, Map.of("message", "Category deleted")));
         }).orElseGet(() -> ResponseEntity.status(404)
                 .body(ApiResponse.<Object>error(new ApiError("NOT_FOUND", "Category not found"))));
@@ -114,17 +125,4 @@ public class CategoryController {
         }
         return slug;
     }
-
-    private String nextCategoryId() {
-        int max = 0;
-        for (String id : categories.findAllIds()) {
-            if (id != null && id.startsWith("cat-")) {
-                try {
-                    int n = Integer.parseInt(id.substring(4));
-                    if (n > max) max = n;
-                } catch (NumberFormatException ignored) {}
-            }
-        }
-        return "cat-" + (max + 1);
-    }
 }
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,11 +18,18 @@ import java.util.Map;
 @Tag(name = "Products By Category (Public)")
 public class CategoryProductsPublicController {
     private final CategoryRepository categories;
-    private final ProductRepository products;
+    private final ProductListingService listing;
+    private final ProductSearchIndex searchIndex;
+    private final ProductCatalogCache cache;
+    private final ProductFacetIndex facetIndex;
 
-    public CategoryProductsPublicController(CategoryRepository categories, ProductRepository products) {
+    public CategoryProductsPublicController(CategoryRepository categories, ProductListingService listing, ProductSearchIndex searchIndex,
+                                            ProductCatalogCache cache, ProductFacetIndex facetIndex) {
         this.categories = categories;
-        this.products = products;
+        this.listing = listing;
+        this.searchIndex = searchIndex;
+        this.cache = cache;
+        this.facetIndex = facetIndex;
     }
 
     @GetMapping("/{categoryId}/products")
@@ -29,20 +37,40 @@ public class CategoryProductsPublicController {
     public ResponseEntity<ApiResponse<List<ProductDtos.ProductSummary>>> byId(
             @PathVariable String categoryId,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) Boolean inStockOnly
+            @RequestParam(required = false) Boolean inStockOnly,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(required = false) List<String> discount,
+            @RequestParam(required = false, defaultValue = "false") boolean facets,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false, defaultValue = "true") boolean includeTotal
     ) {
         if (!categories.existsById(categoryId)) {
             return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Category not found")));
         }
-        Specification<Product> spec = Specification.where((root, q, cb) -> cb.equal(root.get("category").get("id"), categoryId));
-        if (search != null && !search.isBlank()) {
-            spec = spec.and((root, q, cb) -> cb.like(cb.lower(root.get("name")), "%" + search.toLowerCase() + "%"));
+        boolean searching = search != null && !search.isBlank();
+        ProductFacetIndex.FacetQuery facetQuery = ProductFacetIndex.FacetQuery.of(categoryId, price, discount, inStockOnly);
+        if (ProductListingService.isPagedRequest(sort, cursor, limit)) {
+            Specification<Product> spec = facetIndex.toSpecification(facetQuery);
+            ProductSearchIndex.DbMatch match = searching ? searchIndex.dbMatch(search) : null;
+            if (match != null) {
+                spec = spec.and(match.spec());
+            }
+            ProductListingService.Page page = listing.page(spec, sort, cursor, limit, includeTotal);
+            Map<String, Object> meta = ProductListingService.meta(page);
+            // broad searches page through the best app.catalog.search.max-db-ids matches only; total counts those
+            if (match != null) meta.put("truncated", match.truncated());
+            if (facets) meta.put("facets", facetIndex.counts(facetQuery, searching ? searchIndex.searchIds(search) : null));
+            return ResponseEntity.ok(ApiResponse.success(page.items(), meta));
         }
-        if (Boolean.TRUE.equals(inStockOnly)) {
-            spec = spec.and((root, q, cb) -> cb.greaterThan(root.get("stock"), 0));
-        }
-        List<ProductDtos.ProductSummary> list = products.findAll(spec).stream().map(this::toSummary).toList();
-        return ResponseEntity.ok(ApiResponse.success(list, Map.of("count", list.size())));
+        List<ProductDtos.ProductSummary> list = searching
+                ? searchIndex.rank(cache.summaries(), search, facetIndex.predicate(facetQuery))
+                : facetIndex.filter(facetQuery);
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("count", list.size());
+        if (facets) meta.put("facets", facetIndex.counts(facetQuery, searching ? searchIndex.searchIds(search) : null));
+        return ResponseEntity.ok(ApiResponse.success(list, meta));
     }
 
     @GetMapping("/slug/{slug}/products")
@@ -50,20 +78,17 @@ public class CategoryProductsPublicController {
     public ResponseEntity<ApiResponse<List<ProductDtos.ProductSummary>>> bySlug(
             @PathVariable String slug,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) Boolean inStockOnly
+            @RequestParam(required = false) Boolean inStockOnly,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(required = false) List<String> discount,
+            @RequestParam(required = false, defaultValue = "false") boolean facets,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false, defaultValue = "true") boolean includeTotal
     ) {
         return categories.findBySlug(slug)
-                .map(cat -> byId(cat.getId(), search, inStockOnly))
+                .map(cat -> byId(cat.getId(), search, inStockOnly, price, discount, facets, sort, cursor, limit, includeTotal))
                 .orElse(ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Category not found"))));
     }
-
-    private ProductDtos.ProductSummary toSummary(Product p) {
-        String categoryName = p.getCategory() != null ? p.getCategory().getName() : null;
-        return new ProductDtos.ProductSummary(
-                p.getId(), p.getName(), p.getDescription(),
-                p.getCategory() != null ? p.getCategory().getId() : null,
-                categoryName,
-                p.getPrice(), p.getDiscountedPrice(), p.getDiscount(), p.getStock(), p.getPrimaryImageUrl()
-        );
-    }
-}
\ No newline at end of file
+}
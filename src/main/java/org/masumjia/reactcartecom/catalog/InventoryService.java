@@ -0,0 +1,93 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+@Service
+public class InventoryService {
+    private final ProductRepository products;
+    private final JdbcTemplate jdbc;
+    private final StockLedger ledger;
+    private final ApplicationEventPublisher events;
+
+    public InventoryService(ProductRepository products, JdbcTemplate jdbc, StockLedger ledger, ApplicationEventPublisher events) {
+        this.products = products;
+        this.jdbc = jdbc;
+        this.ledger = ledger;
+        this.events = events;
+    }
+
+    // Reserve stock for a whole cart: one SELECT ... FOR UPDATE over the sorted product ids, the
+    // availability check in memory, then one batched UPDATE (or the in-memory ledger when enabled).
+    // Returns productId -> available stock for every line that cannot be satisfied; nothing is
+    // decremented in that case.
+    @Transactional
+    public Map<String, Integer> reserve(Map<String, Integer> quantities) {
+        Map<String, Integer> failed = new HashMap<>();
+        if (quantities == null || quantities.isEmpty()) return failed;
+        if (ledger.isEnabled()) return reserveInLedger(quantities);
+        SortedMap<String, Integer> sorted = new TreeMap<>(quantities);
+        Map<String, Integer> available = new HashMap<>();
+        for (Object[] row : products.lockStockByIds(sorted.keySet())) {
+            available.put((String) row[0], row[1] == null ? 0 : ((Number) row[1]).intValue());
+        }
+        for (Map.Entry<String, Integer> e : sorted.entrySet()) {
+            int avail = available.getOrDefault(e.getKey(), 0);
+            if (avail < e.getValue()) failed.put(e.getKey(), avail);
+        }
+        if (!failed.isEmpty()) return failed;
+        applyDeltas(sorted, -1);
+        return failed;
+    }
+
+    // Give stock back (abandoned reservations, cancelled checkouts)
+    @Transactional
+    public void release(Map<String, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) return;
+        if (ledger.isEnabled()) {
+            ledger.release(quantities);
+            return;
+        }
+        applyDeltas(new TreeMap<>(quantities), 1);
+    }
+
+    // Admin edits overwrite `products.stock` directly: write pending ledger deltas first, then drop the
+    // counter so it is re-seeded from the new value
+    public void beforeStockWrite() {
+        if (ledger.isEnabled()) ledger.flush();
+    }
+
+    public void afterStockWrite(String productId) {
+        if (ledger.isEnabled()) ledger.evict(productId);
+    }
+
+    // The ledger is not part of the database transaction: give the stock back if the caller rolls back
+    private Map<String, Integer> reserveInLedger(Map<String, Integer> quantities) {
+        Map<String, Integer> failed = ledger.reserve(quantities);
+        if (failed.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            Map<String, Integer> taken = new HashMap<>(quantities);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) ledger.release(taken);
+                }
+            });
+        }
+        return failed;
+    }
+
+    private void applyDeltas(SortedMap<String, Integer> quantities, int sign) {
+        List<Object[]> args = new ArrayList<>(quantities.size());
+        for (Map.Entry<String, Integer> e : quantities.entrySet()) {
+            args.add(new Object[]{ sign * e.getValue(), e.getKey() });
+        }
+        jdbc.batchUpdate("update products set stock = stock + ? where id = ?", args);
+        events.publishEvent(CatalogChangedEvent.stockChanged(quantities.keySet()));
+    }
+}
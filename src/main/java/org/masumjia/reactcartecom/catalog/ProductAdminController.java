@@ -7,6 +7,8 @@ import jakarta.validation.Valid;
 import org.masumjia.reactcartecom.catalog.dto.ProductDtos;
 import org.masumjia.reactcartecom.common.ApiError;
 import org.masumjia.reactcartecom.common.ApiResponse;
+import org.masumjia.reactcartecom.common.IdAllocator;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
@@ -24,19 +26,37 @@ public class ProductAdminController {
     private final ProductRepository products;
     private final CategoryRepository categories;
     private final ProductImageRepository images;
+    private final InventoryService inventory;
+    private final ProductCatalogCache cache;
+    private final ProductSearchIndex searchIndex;
+    private final IdAllocator ids;
+    private final ApplicationEventPublisher events;
 
-    public ProductAdminController(ProductRepository products, CategoryRepository categories, ProductImageRepository images) {
+    public ProductAdminController(ProductRepository products, CategoryRepository categories, ProductImageRepository images,
+                                  InventoryService inventory, ProductCatalogCache cache, ProductSearchIndex searchIndex,
+                                  IdAllocator ids, ApplicationEventPublisher events) {
         this.products = products;
         this.categories = categories;
         this.images = images;
+        this.inventory = inventory;
+        this.cache = cache;
+        this.searchIndex = searchIndex;
+        this.ids = ids;
+        this.events = events;
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping
     @Operation(summary = "List all products (admin)", security = { @SecurityRequirement(name = "bearerAuth") })
     public ResponseEntity<ApiResponse<List<ProductDtos.ProductSummary>>> list() {
-        List<ProductDtos.ProductSummary> items = products.findAll().stream().map(this::toSummary).toList();
-        return ResponseEntity.ok(ApiResponse.success(items));
+        return ResponseEntity.ok(ApiResponse.success(cache.summaries()));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/cache-stats")
+    @Operation(summary = "Catalog cache hit/miss metrics", security = { @SecurityRequirement(name = "bearerAuth") })
+    public ResponseEntity<ApiResponse<Map<String, Object>>> cacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(cache.stats()));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -51,7 +71,7 @@ public class ProductAdminController {
     ) {
         Specification<Product> spec = Specification.where(null);
         if (search != null && !search.isBlank()) {
-            spec = spec.and((root, q, cb) -> cb.like(cb.lower(root.get("name")), "%" + search.toLowerCase() + "%"));
+            spec = spec.and(searchIndex.matching(search));
         }
         if (categoryId != null && !categoryId.isBlank()) {
             spec = spec.and((root, q, cb) -> cb.equal(root.get("category").get("id"), categoryId));
@@ -61,6 +81,9 @@ public class ProductAdminController {
         }
         Sort srt = parseSort(sort, Sort.by(Sort.Direction.DESC, "updatedAt"));
         List<Product> list = products.findAll(spec, srt);
+        if (search != null && !search.isBlank() && (sort == null || sort.isEmpty())) {
+            list = searchIndex.sortByRank(list, search, Product::getId);
+        }
         if (limit != null && limit > 0 && limit < list.size()) {
             list = list.subList(0, limit);
         }
@@ -85,7 +108,7 @@ public class ProductAdminController {
             return ResponseEntity.badRequest().body(ApiResponse.<ProductDtos.ProductDetail>error(new ApiError("BAD_REQUEST", "Discounted price must be less than price")));
         }
         Product p = new Product();
-        p.setId(nextProductId());
+        p.setId(ids.next(IdAllocator.Sequence.PRODUCT));
         p.setName(req.name());
         p.setDescription(req.description());
         p.setCategory(cat);
@@ -109,6 +132,7 @@ public class ProductAdminController {
                 images.save(img);
             }
         }
+        events.publishEvent(CatalogChangedEvent.upserted(p.getId()));
         return ResponseEntity.status(201).body(ApiResponse.success(toDetail(p), Map.of("message", "Product created")));
     }
 
@@ -148,9 +172,12 @@ public class ProductAdminController {
         if (p == null) {
             return ResponseEntity.status(404).body(ApiResponse.<ProductDtos.ProductDetail>error(new ApiError("NOT_FOUND", "Product not found")));
         }
+        inventory.beforeStockWrite();
         p.setStock(req.stock());
         p.setUpdatedAt(LocalDateTime.now());
         products.save(p);
+        inventory.afterStockWrite(p.getId());
+        events.publishEvent(CatalogChangedEvent.stockChanged(List.of(p.getId())));
         return ResponseEntity.ok(ApiResponse.success(toDetail(p), Map.of("message", "Stock updated")));
     }
 
@@ -161,6 +188,8 @@ public class ProductAdminController {
     public ResponseEntity<ApiResponse<Object>> delete(@PathVariable String id) {
         return products.findById(id).map(p -> {
             products.delete(p); // Cascade + orphanRemoval on images handles children
+            inventory.afterStockWrite(id);
+            events.publishEvent(CatalogChangedEvent.deleted(id));
             return ResponseEntity.ok(ApiResponse.success(null, Map.of("message", "Product deleted")));
         }).orElse(ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Product not found"))));
     }
@@ -197,7 +226,9 @@ public class ProductAdminController {
         Integer dd = calcDiscount(p.getPrice(), p.getDiscountedPrice());
         p.setDiscount(dd == null ? 0 : dd);
         p.setUpdatedAt(LocalDateTime.now());
+        if (req.stock() != null) inventory.beforeStockWrite();
         products.save(p);
+        if (req.stock() != null) inventory.afterStockWrite(p.getId());
 
         if (req.images() != null) {
             images.deleteByProductId(p.getId());
@@ -211,6 +242,7 @@ public class ProductAdminController {
                 images.save(img);
             }
         }
+        events.publishEvent(CatalogChangedEvent.upserted(p.getId()));
         return ResponseEntity.ok(ApiResponse.success(toDetail(p), Map.of("message", "Product updated")));
     }
 
@@ -240,18 +272,5 @@ public class ProductAdminController {
                 p.getPrice(), p.getDiscountedPrice(), p.getDiscount(), p.getStock(), p.getPrimaryImageUrl(), imgs
         );
     }
-
-    private String nextProductId() {
-        int max = 0;
-        for (String id : products.findAllIds()) {
-            if (id != null && id.startsWith("prod-")) {
-                try {
-                    int n = Integer.parseInt(id.substring(5));
-                    if (n > max) max = n;
-                } catch (NumberFormatException ignored) {}
-            }
-        }
-        return "prod-" + (max + 1);
-    }
 }
 
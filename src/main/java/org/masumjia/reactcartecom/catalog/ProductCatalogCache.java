@@ -0,0 +1,221 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.masumjia.reactcartecom.catalog.dto.ProductDtos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+// Read-through cache for the public catalog: the full summary list (prebuilt, immutable) and a bounded
+// LRU of product details. Both expire after app.catalog.cache.ttl-sec as a safety net; normally they are
+// invalidated precisely by CatalogChangedEvent after the admin or checkout write commits.
+// A stock-only change replaces just the affected entries of the current list, in place: the list instance
+// stays the same, so indexes built over it (facets, search) are patched through addStockListener instead
+// of being rebuilt. Any other change hands out a new list.
+@Component
+public class ProductCatalogCache {
+    private final ProductRepository products;
+    private final ProductImageRepository images;
+    private final long ttlMillis;
+    private final int maxDetails;
+
+    private record Summaries(SummaryList list, long loadedAt) {}
+    private record DetailEntry(ProductDtos.ProductDetail detail, long loadedAt) {}
+
+    private volatile Summaries summaries;
+    // Stock-only changes are patched into the summary list on next read instead of rebuilding it
+    private final Set<String> staleStock = ConcurrentHashMap.newKeySet();
+    private final Object summaryLock = new Object();
+    private final List<BiConsumer<List<ProductDtos.ProductSummary>, List<Integer>>> stockListeners = new CopyOnWriteArrayList<>();
+    private final LinkedHashMap<String, DetailEntry> details;
+    // Bumped on every invalidation; a load that raced with one is returned but not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong listHits = new AtomicLong();
+    private final AtomicLong listMisses = new AtomicLong();
+    private final AtomicLong detailHits = new AtomicLong();
+    private final AtomicLong detailMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ProductCatalogCache(ProductRepository products, ProductImageRepository images,
+                               @Value("${app.catalog.cache.ttl-sec:300}") long ttlSeconds,
+                               @Value("${app.catalog.cache.max-details:1000}") int maxDetails) {
+        this.products = products;
+        this.images = images;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxDetails = maxDetails;
+        this.details = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DetailEntry> eldest) {
+                if (size() <= ProductCatalogCache.this.maxDetails) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    public List<ProductDtos.ProductSummary> summaries() {
+        Summaries s = summaries;
+        if (s != null && !expired(s.loadedAt()) && staleStock.isEmpty()) {
+            listHits.incrementAndGet();
+            return s.list();
+        }
+        synchronized (summaryLock) {
+            s = summaries;
+            if (s == null || expired(s.loadedAt())) {
+                listMisses.incrementAndGet();
+                long gen = generation.get();
+                staleStock.clear();
+                SummaryList list = new SummaryList(products.findAllWithCategory().stream().map(ProductCatalogCache::toSummary).toList());
+                s = new Summaries(list, System.currentTimeMillis());
+                if (generation.get() == gen) summaries = s;
+            } else if (!staleStock.isEmpty()) {
+                listHits.incrementAndGet();
+                patchStock(s.list());
+            } else {
+                listHits.incrementAndGet();
+            }
+            return s.list();
+        }
+    }
+
+    // Called under the summary lock with the list and the ordinals whose stock was replaced
+    void addStockListener(BiConsumer<List<ProductDtos.ProductSummary>, List<Integer>> listener) {
+        stockListeners.add(listener);
+    }
+
+    public Optional<ProductDtos.ProductDetail> detail(String id) {
+        synchronized (details) {
+            DetailEntry e = details.get(id);
+            if (e != null && !expired(e.loadedAt())) {
+                detailHits.incrementAndGet();
+                return Optional.of(e.detail());
+            }
+        }
+        detailMisses.incrementAndGet();
+        long gen = generation.get();
+        Optional<ProductDtos.ProductDetail> loaded = products.findById(id).map(this::toDetail);
+        loaded.ifPresent(d -> {
+            synchronized (details) {
+                if (generation.get() == gen) details.put(id, new DetailEntry(d, System.currentTimeMillis()));
+            }
+        });
+        return loaded;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent e) {
+        generation.incrementAndGet();
+        switch (e.type()) {
+            case STOCK_CHANGED -> staleStock.addAll(e.productIds());
+            case PRODUCTS_UPSERTED, PRODUCTS_DELETED -> summaries = null;
+            case CATEGORIES_CHANGED -> {
+                summaries = null;
+                synchronized (details) {
+                    details.clear();
+                }
+                return;
+            }
+        }
+        synchronized (details) {
+            for (String id : e.productIds()) details.remove(id);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        Summaries s = summaries;
+        m.put("listHits", listHits.get());
+        m.put("listMisses", listMisses.get());
+        m.put("listSize", s == null ? 0 : s.list().size());
+        m.put("detailHits", detailHits.get());
+        m.put("detailMisses", detailMisses.get());
+        synchronized (details) {
+            m.put("detailSize", details.size());
+        }
+        m.put("detailMaxSize", maxDetails);
+        m.put("detailEvictions", evictions.get());
+        return m;
+    }
+
+    private boolean expired(long loadedAt) {
+        return System.currentTimeMillis() - loadedAt > ttlMillis;
+    }
+
+    // Cost is proportional to the changed products, not to the catalog
+    private void patchStock(SummaryList list) {
+        List<String> ids = new ArrayList<>(staleStock);
+        staleStock.removeAll(ids);
+        List<Integer> changed = new ArrayList<>();
+        for (Object[] row : products.findStockByIds(ids)) {
+            Integer ord = list.ordinal((String) row[0]);
+            if (ord == null) continue;
+            int st = row[1] == null ? 0 : ((Number) row[1]).intValue();
+            ProductDtos.ProductSummary p = list.get(ord);
+            if (p.stock() != null && p.stock() == st) continue;
+            list.replace(ord, new ProductDtos.ProductSummary(p.id(), p.name(), p.description(), p.categoryId(),
+                    p.categoryName(), p.price(), p.discountedPrice(), p.discount(), st, p.primaryImageUrl()));
+            changed.add(ord);
+        }
+        if (changed.isEmpty()) return;
+        for (BiConsumer<List<ProductDtos.ProductSummary>, List<Integer>> l : stockListeners) l.accept(list, changed);
+    }
+
+    // Read-only to callers; entries are swapped one at a time by patchStock
+    static final class SummaryList extends AbstractList<ProductDtos.ProductSummary> implements RandomAccess {
+        private final AtomicReferenceArray<ProductDtos.ProductSummary> rows;
+        private final Map<String, Integer> ordinals;
+
+        SummaryList(List<ProductDtos.ProductSummary> rows) {
+            this.rows = new AtomicReferenceArray<>(rows.toArray(ProductDtos.ProductSummary[]::new));
+            this.ordinals = new HashMap<>(rows.size() * 2);
+            for (int i = 0; i < rows.size(); i++) ordinals.put(rows.get(i).id(), i);
+        }
+
+        @Override
+        public ProductDtos.ProductSummary get(int index) {
+            return rows.get(index);
+        }
+
+        @Override
+        public int size() {
+            return rows.length();
+        }
+
+        Integer ordinal(String id) {
+            return ordinals.get(id);
+        }
+
+        private void replace(int index, ProductDtos.ProductSummary p) {
+            rows.set(index, p);
+        }
+    }
+
+    static ProductDtos.ProductSummary toSummary(Product p) {
+        String categoryName = p.getCategory() != null ? p.getCategory().getName() : null;
+        return new ProductDtos.ProductSummary(
+                p.getId(), p.getName(), p.getDescription(),
+                p.getCategory() != null ? p.getCategory().getId() : null,
+                categoryName,
+                p.getPrice(), p.getDiscountedPrice(), p.getDiscount(), p.getStock(), p.getPrimaryImageUrl()
+        );
+    }
+
+    private ProductDtos.ProductDetail toDetail(Product p) {
+        List<String> imgs = images.findByProductIdOrderByPositionAsc(p.getId()).stream().map(ProductImage::getUrl).toList();
+        String categoryName = p.getCategory() != null ? p.getCategory().getName() : null;
+        return new ProductDtos.ProductDetail(
+                p.getId(), p.getName(), p.getDescription(),
+                p.getCategory() != null ? p.getCategory().getId() : null,
+                categoryName,
+                p.getPrice(), p.getDiscountedPrice(), p.getDiscount(), p.getStock(), p.getPrimaryImageUrl(), imgs
+        );
+    }
+}
@@ -0,0 +1,292 @@
+package org.masumjia.reactcartecom.catalog;
+
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.masumjia.reactcartecom.catalog.dto.ProductDtos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+// Column store over the cached catalog for faceted browsing: one BitSet per category, price bucket,
+// discount bucket and in-stock flag, indexed by the product's ordinal in ProductCatalogCache.summaries().
+// It is rebuilt whenever the cache hands out a new list (admin writes); stock patches only flip the
+// in-stock bits of the changed products. Facet counts are a handful of BitSet ANDs instead of one COUNT(*)
+// per facet value.
+@Component
+public class ProductFacetIndex {
+    private final ProductCatalogCache cache;
+    private final BigDecimal[] priceBounds;
+    private final int[] discountBounds;
+    private final List<String> priceKeys;
+    private final List<String> discountKeys;
+    private volatile Snapshot snapshot;
+
+    public ProductFacetIndex(ProductCatalogCache cache,
+                             @Value("${app.catalog.facets.price-bounds:25,50,100,200}") String priceBounds,
+                             @Value("${app.catalog.facets.discount-bounds:10,25,50}") String discountBounds) {
+        this.cache = cache;
+        this.priceBounds = Arrays.stream(priceBounds.split(",")).map(String::trim).map(BigDecimal::new).toArray(BigDecimal[]::new);
+        this.discountBounds = Arrays.stream(discountBounds.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        this.priceKeys = bucketKeys(Arrays.stream(this.priceBounds).map(BigDecimal::toPlainString).toList());
+        this.discountKeys = bucketKeys(Arrays.stream(this.discountBounds).mapToObj(String::valueOf).toList());
+        cache.addStockListener(this::stockPatched);
+    }
+
+    // Values within one facet are OR-ed, facets are AND-ed; bucket keys look like "25-50" or "200+"
+    public record FacetQuery(Set<String> categoryIds, Set<String> prices, Set<String> discounts, boolean inStockOnly) {
+        public static FacetQuery of(String categoryId, List<String> prices, List<String> discounts, Boolean inStockOnly) {
+            return new FacetQuery(
+                    categoryId == null || categoryId.isBlank() ? Set.of() : Set.of(categoryId),
+                    prices == null ? Set.of() : new LinkedHashSet<>(prices),
+                    discounts == null ? Set.of() : new LinkedHashSet<>(discounts),
+                    Boolean.TRUE.equals(inStockOnly));
+        }
+
+        public boolean isFiltered() {
+            return !categoryIds.isEmpty() || !prices.isEmpty() || !discounts.isEmpty() || inStockOnly;
+        }
+    }
+
+    private static final class Snapshot {
+        final List<ProductDtos.ProductSummary> rows;
+        final Map<String, Integer> ordinals = new HashMap<>();
+        final Map<String, BitSet> categories = new LinkedHashMap<>();
+        final Map<String, String> categoryNames = new HashMap<>();
+        final BitSet[] prices;
+        final BitSet[] discounts;
+        // replaced, never mutated, once the snapshot is published
+        volatile BitSet inStock = new BitSet();
+        final BitSet all = new BitSet();
+
+        Snapshot(List<ProductDtos.ProductSummary> rows, int priceBuckets, int discountBuckets) {
+            this.rows = rows;
+            this.prices = new BitSet[priceBuckets];
+            this.discounts = new BitSet[discountBuckets];
+            for (int i = 0; i < priceBuckets; i++) prices[i] = new BitSet();
+            for (int i = 0; i < discountBuckets; i++) discounts[i] = new BitSet();
+        }
+    }
+
+    public List<ProductDtos.ProductSummary> filter(FacetQuery q) {
+        Snapshot s = snapshot();
+        BitSet match = matches(s, q, null);
+        List<ProductDtos.ProductSummary> out = new ArrayList<>(match.cardinality());
+        for (int i = match.nextSetBit(0); i >= 0; i = match.nextSetBit(i + 1)) out.add(s.rows.get(i));
+        return out;
+    }
+
+    // For callers filtering the cached summaries themselves (e.g. search ranking)
+    public java.util.function.Predicate<ProductDtos.ProductSummary> predicate(FacetQuery q) {
+        Snapshot s = snapshot();
+        BitSet match = matches(s, q, null);
+        return p -> {
+            Integer ord = s.ordinals.get(p.id());
+            return ord != null && match.get(ord);
+        };
+    }
+
+    // Disjunctive counts: each facet is counted with every other facet's filter applied but not its own,
+    // so the client can show how many results selecting another value would give. restrictTo (nullable)
+    // limits the base set, e.g. to the products matching a search.
+    public Map<String, List<ProductDtos.FacetCount>> counts(FacetQuery q, Collection<String> restrictTo) {
+        Snapshot s = snapshot();
+        BitSet base = (BitSet) s.all.clone();
+        if (restrictTo != null) {
+            BitSet only = new BitSet(s.rows.size());
+            for (String id : restrictTo) {
+                Integer ord = s.ordinals.get(id);
+                if (ord != null) only.set(ord);
+            }
+            base.and(only);
+        }
+        Map<String, List<ProductDtos.FacetCount>> out = new LinkedHashMap<>();
+
+        BitSet forCategory = matches(s, q, "category");
+        forCategory.and(base);
+        List<ProductDtos.FacetCount> cats = new ArrayList<>();
+        for (Map.Entry<String, BitSet> e : s.categories.entrySet()) {
+            int n = intersectionSize(forCategory, e.getValue());
+            if (n > 0 || q.categoryIds().contains(e.getKey())) {
+                cats.add(new ProductDtos.FacetCount(e.getKey(), s.categoryNames.get(e.getKey()), n));
+            }
+        }
+        out.put("category", cats);
+
+        BitSet forPrice = matches(s, q, "price");
+        forPrice.and(base);
+        out.put("price", bucketCounts(priceKeys, s.prices, forPrice));
+
+        BitSet forDiscount = matches(s, q, "discount");
+        forDiscount.and(base);
+        out.put("discount", bucketCounts(discountKeys, s.discounts, forDiscount));
+
+        BitSet forStock = matches(s, q, "inStock");
+        forStock.and(base);
+        int inStock = intersectionSize(forStock, s.inStock);
+        out.put("inStock", List.of(new ProductDtos.FacetCount("true", "In stock", inStock),
+                new ProductDtos.FacetCount("false", "Out of stock", forStock.cardinality() - inStock)));
+        return out;
+    }
+
+    // Number of products per category id, over the whole catalog
+    public Map<String, Integer> productsPerCategory() {
+        Snapshot s = snapshot();
+        Map<String, Integer> out = new HashMap<>();
+        s.categories.forEach((id, bits) -> out.put(id, bits.cardinality()));
+        return out;
+    }
+
+    // Same filter for the paged DB path (keyset listing)
+    public Specification<Product> toSpecification(FacetQuery q) {
+        List<BigDecimal[]> priceRanges = new ArrayList<>();
+        for (String key : q.prices()) {
+            int b = bucketIndex(priceKeys, key, "price range");
+            priceRanges.add(new BigDecimal[]{ b == 0 ? null : priceBounds[b - 1], b < priceBounds.length ? priceBounds[b] : null });
+        }
+        List<Integer[]> discountRanges = new ArrayList<>();
+        for (String key : q.discounts()) {
+            int b = bucketIndex(discountKeys, key, "discount range");
+            discountRanges.add(new Integer[]{ b == 0 ? null : discountBounds[b - 1], b < discountBounds.length ? discountBounds[b] : null });
+        }
+        return (root, query, cb) -> {
+            List<Predicate> and = new ArrayList<>();
+            if (!q.categoryIds().isEmpty()) and.add(root.get("category").get("id").in(q.categoryIds()));
+            if (q.inStockOnly()) and.add(cb.greaterThan(root.get("stock"), 0));
+            if (!priceRanges.isEmpty()) {
+                Expression<BigDecimal> price = cb.coalesce(root.<BigDecimal>get("discountedPrice"), root.<BigDecimal>get("price"));
+                List<Predicate> or = new ArrayList<>();
+                for (BigDecimal[] r : priceRanges) {
+                    or.add(cb.and(r[0] == null ? cb.conjunction() : cb.greaterThanOrEqualTo(price, r[0]),
+                            r[1] == null ? cb.conjunction() : cb.lessThan(price, r[1])));
+                }
+                and.add(cb.or(or.toArray(Predicate[]::new)));
+            }
+            if (!discountRanges.isEmpty()) {
+                Expression<Integer> discount = cb.coalesce(root.<Integer>get("discount"), 0);
+                List<Predicate> or = new ArrayList<>();
+                for (Integer[] r : discountRanges) {
+                    or.add(cb.and(r[0] == null ? cb.conjunction() : cb.greaterThanOrEqualTo(discount, r[0]),
+                            r[1] == null ? cb.conjunction() : cb.lessThan(discount, r[1])));
+                }
+                and.add(cb.or(or.toArray(Predicate[]::new)));
+            }
+            return and.isEmpty() ? null : cb.and(and.toArray(Predicate[]::new));
+        };
+    }
+
+    private Snapshot snapshot() {
+        List<ProductDtos.ProductSummary> rows = cache.summaries();
+        Snapshot s = snapshot;
+        if (s != null && s.rows == rows) return s;
+        synchronized (this) {
+            s = snapshot;
+            if (s != null && s.rows == rows) return s;
+            s = build(rows);
+            snapshot = s;
+            return s;
+        }
+    }
+
+    // Copy-on-write of the in-stock bits only; a patch for a list this index has not built yet is picked up
+    // by the next build
+    synchronized void stockPatched(List<ProductDtos.ProductSummary> rows, List<Integer> ordinals) {
+        Snapshot s = snapshot;
+        if (s == null || s.rows != rows) return;
+        BitSet inStock = (BitSet) s.inStock.clone();
+        for (int ord : ordinals) {
+            Integer stock = rows.get(ord).stock();
+            inStock.set(ord, stock != null && stock > 0);
+        }
+        s.inStock = inStock;
+    }
+
+    private Snapshot build(List<ProductDtos.ProductSummary> rows) {
+        Snapshot s = new Snapshot(rows, priceKeys.size(), discountKeys.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ProductDtos.ProductSummary p = rows.get(i);
+            s.ordinals.put(p.id(), i);
+            s.all.set(i);
+            if (p.categoryId() != null) {
+                s.categories.computeIfAbsent(p.categoryId(), k -> new BitSet()).set(i);
+                s.categoryNames.putIfAbsent(p.categoryId(), p.categoryName());
+            }
+            BigDecimal price = p.discountedPrice() != null ? p.discountedPrice() : p.price();
+            if (price != null) s.prices[priceBucket(price)].set(i);
+            s.discounts[discountBucket(p.discount() == null ? 0 : p.discount())].set(i);
+            if (p.stock() != null && p.stock() > 0) s.inStock.set(i);
+        }
+        return s;
+    }
+
+    // Products matching q, ignoring the facet named by skip (null = apply all)
+    private BitSet matches(Snapshot s, FacetQuery q, String skip) {
+        BitSet m = (BitSet) s.all.clone();
+        if (!"category".equals(skip) && !q.categoryIds().isEmpty()) {
+            BitSet any = new BitSet();
+            for (String id : q.categoryIds()) {
+                BitSet bits = s.categories.get(id);
+                if (bits != null) any.or(bits);
+            }
+            m.and(any);
+        }
+        if (!"price".equals(skip) && !q.prices().isEmpty()) {
+            BitSet any = new BitSet();
+            for (String key : q.prices()) any.or(s.prices[bucketIndex(priceKeys, key, "price range")]);
+            m.and(any);
+        }
+        if (!"discount".equals(skip) && !q.discounts().isEmpty()) {
+            BitSet any = new BitSet();
+            for (String key : q.discounts()) any.or(s.discounts[bucketIndex(discountKeys, key, "discount range")]);
+            m.and(any);
+        }
+        if (!"inStock".equals(skip) && q.inStockOnly()) m.and(s.inStock);
+        return m;
+    }
+
+    private int priceBucket(BigDecimal price) {
+        int b = 0;
+        while (b < priceBounds.length && price.compareTo(priceBounds[b]) >= 0) b++;
+        return b;
+    }
+
+    private int discountBucket(int discount) {
+        int b = 0;
+        while (b < discountBounds.length && discount >= discountBounds[b]) b++;
+        return b;
+    }
+
+    private static int bucketIndex(List<String> keys, String key, String what) {
+        int i = keys.indexOf(key == null ? "" : key.trim());
+        if (i < 0) throw new IllegalArgumentException("Unsupported " + what + ": " + key + " (expected one of " + keys + ")");
+        return i;
+    }
+
+    private static List<ProductDtos.FacetCount> bucketCounts(List<String> keys, BitSet[] buckets, BitSet base) {
+        List<ProductDtos.FacetCount> out = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            out.add(new ProductDtos.FacetCount(keys.get(i), keys.get(i), intersectionSize(base, buckets[i])));
+        }
+        return out;
+    }
+
+    private static int intersectionSize(BitSet a, BitSet b) {
+        BitSet x = (BitSet) a.clone();
+        x.and(b);
+        return x.cardinality();
+    }
+
+    // Bounds [25, 50] -> "0-25", "25-50", "50+"
+    private static List<String> bucketKeys(List<String> bounds) {
+        List<String> keys = new ArrayList<>();
+        String lo = "0";
+        for (String b : bounds) {
+            keys.add(lo + "-" + b);
+            lo = b;
+        }
+        keys.add(lo + "+");
+        return List.copyOf(keys);
+    }
+}
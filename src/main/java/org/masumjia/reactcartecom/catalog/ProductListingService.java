@@ -0,0 +1,146 @@
+package org.masumjia.reactcartecom.catalog;
+
+import jakarta.persistence.criteria.*;
+import org.masumjia.reactcartecom.catalog.dto.ProductDtos;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Keyset (cursor) pagination over a product Specification. Rows are ordered by the sort value with the
+// product id as tie-breaker, and the next page starts strictly after the last (value, id) seen, so pages
+// stay stable while the catalog changes and the DB never scans skipped rows.
+@Service
+public class ProductListingService {
+    public static final int DEFAULT_LIMIT = 24;
+    public static final int MAX_LIMIT = 100;
+    private static final LocalDateTime NO_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    // Products without any price sort (and page) as free, the same in the ORDER BY, the keyset and the cursor
+    private static final BigDecimal NO_PRICE = BigDecimal.ZERO;
+
+    private final ProductRepository products;
+
+    public ProductListingService(ProductRepository products) {
+        this.products = products;
+    }
+
+    public enum SortKey {
+        PRICE(false), NAME(false), NEWEST(true), DISCOUNT(true);
+
+        final boolean defaultDesc;
+
+        SortKey(boolean defaultDesc) { this.defaultDesc = defaultDesc; }
+    }
+
+    public record Page(List<ProductDtos.ProductSummary> items, String nextCursor, Long total) {}
+
+    public static boolean isPagedRequest(String sort, String cursor, Integer limit) {
+        return (sort != null && !sort.isBlank()) || (cursor != null && !cursor.isBlank()) || limit != null;
+    }
+
+    // sort is "price|name|newest|discount[,asc|desc]"; a cursor must come from a page with the same sort
+    public Page page(Specification<Product> filter, String sort, String cursor, Integer limit, boolean includeTotal) {
+        SortKey key = SortKey.NEWEST;
+        boolean desc = key.defaultDesc;
+        if (sort != null && !sort.isBlank()) {
+            String[] parts = sort.split(",");
+            try {
+                key = SortKey.valueOf(parts[0].trim().toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Unsupported sort: " + parts[0].trim());
+            }
+            desc = parts.length > 1 ? parts[1].trim().equalsIgnoreCase("desc") : key.defaultDesc;
+        }
+        int n = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        Cursor after = cursor == null || cursor.isBlank() ? null : Cursor.decode(cursor);
+        if (after != null && (after.key != key || after.desc != desc)) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+
+        final SortKey k = key;
+        final boolean d = desc;
+        Specification<Product> ordered = (root, q, cb) -> {
+            if (q.getResultType() != Long.class && q.getResultType() != long.class) {
+                root.fetch("category", JoinType.LEFT);
+                Expression<?> value = sortValue(k, root, cb);
+                q.orderBy(d ? cb.desc(value) : cb.asc(value), d ? cb.desc(root.get("id")) : cb.asc(root.get("id")));
+            }
+            return after == null ? null : keyset(root, cb, after);
+        };
+        Specification<Product> spec = filter == null ? ordered : filter.and(ordered);
+        List<Product> rows = products.findBy(spec, q -> q.limit(n + 1).all());
+
+        boolean more = rows.size() > n;
+        List<Product> pageRows = more ? rows.subList(0, n) : rows;
+        String next = more ? Cursor.of(k, d, pageRows.get(n - 1)).encode() : null;
+        Long total = includeTotal ? (filter == null ? products.count() : products.count(filter)) : null;
+        return new Page(pageRows.stream().map(ProductCatalogCache::toSummary).toList(), next, total);
+    }
+
+    public static Map<String, Object> meta(Page page) {
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("count", page.items().size());
+        meta.put("nextCursor", page.nextCursor());
+        meta.put("hasMore", page.nextCursor() != null);
+        if (page.total() != null) meta.put("total", page.total());
+        return meta;
+    }
+
+    private static Expression<?> sortValue(SortKey key, Root<Product> root, CriteriaBuilder cb) {
+        return switch (key) {
+            case PRICE -> cb.coalesce(cb.coalesce(root.<BigDecimal>get("discountedPrice"), root.<BigDecimal>get("price")), NO_PRICE);
+            case NAME -> root.<String>get("name");
+            case NEWEST -> cb.coalesce(root.<LocalDateTime>get("createdAt"), NO_DATE);
+            case DISCOUNT -> cb.coalesce(root.<Integer>get("discount"), 0);
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate keyset(Root<Product> root, CriteriaBuilder cb, Cursor c) {
+        Expression value = sortValue(c.key, root, cb);
+        Expression<String> id = root.get("id");
+        Predicate beyondValue = c.desc ? cb.lessThan(value, (Comparable) c.value) : cb.greaterThan(value, (Comparable) c.value);
+        Predicate beyondId = c.desc ? cb.lessThan(id, c.id) : cb.greaterThan(id, c.id);
+        return cb.or(beyondValue, cb.and(cb.equal(value, c.value), beyondId));
+    }
+
+    // Opaque continuation token: base64url("v1\nSORT\nasc|desc\nid\nvalue")
+    record Cursor(SortKey key, boolean desc, String id, Object value) {
+        static Cursor of(SortKey key, boolean desc, Product p) {
+            Object v = switch (key) {
+                case PRICE -> p.getDiscountedPrice() != null ? p.getDiscountedPrice() : p.getPrice() != null ? p.getPrice() : NO_PRICE;
+                case NAME -> p.getName();
+                case NEWEST -> p.getCreatedAt() != null ? p.getCreatedAt() : NO_DATE;
+                case DISCOUNT -> p.getDiscount() != null ? p.getDiscount() : 0;
+            };
+            return new Cursor(key, desc, p.getId(), v);
+        }
+
+        String encode() {
+            String raw = "v1\n" + key.name() + "\n" + (desc ? "desc" : "asc") + "\n" + id + "\n"
+                    + (value instanceof BigDecimal bd ? bd.toPlainString() : String.valueOf(value));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\n", 5);
+                if (parts.length != 5 || !"v1".equals(parts[0])) throw new IllegalArgumentException();
+                SortKey key = SortKey.valueOf(parts[1]);
+                Object value = switch (key) {
+                    case PRICE -> new BigDecimal(parts[4]);
+                    case NAME -> parts[4];
+                    case NEWEST -> LocalDateTime.parse(parts[4]);
+                    case DISCOUNT -> Integer.valueOf(parts[4]);
+                };
+                return new Cursor(key, "desc".equals(parts[2]), parts[3], value);
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
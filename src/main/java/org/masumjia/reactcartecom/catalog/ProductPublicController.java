@@ -14,69 +14,96 @@ import java.util.*;
 @RequestMapping("/api/products")
 @Tag(name = "Products (Public)")
 public class ProductPublicController {
-    private final ProductRepository products;
-    private final ProductImageRepository images;
+    private final ProductCatalogCache cache;
+    private final ProductListingService listing;
+    private final ProductSearchIndex searchIndex;
+    private final ProductSuggestIndex suggestIndex;
+    private final ProductFacetIndex facetIndex;
 
-    public ProductPublicController(ProductRepository products, ProductImageRepository images) {
-        this.products = products;
-        this.images = images;
+    public ProductPublicController(ProductCatalogCache cache, ProductListingService listing, ProductSearchIndex searchIndex,
+                                   ProductSuggestIndex suggestIndex, ProductFacetIndex facetIndex) {
+        this.cache = cache;
+        this.listing = listing;
+        this.searchIndex = searchIndex;
+        this.suggestIndex = suggestIndex;
+        this.facetIndex = facetIndex;
     }
 
     @GetMapping
-    @Operation(summary = "List products")
+    @Operation(summary = "List products (paged when sort, cursor or limit is given; sort = price|name|newest|discount[,asc|desc]; "
+            + "price/discount take facet bucket keys such as 25-50 or 200+; facets=true adds facet counts to meta)")
     public ResponseEntity<ApiResponse<List<ProductDtos.ProductSummary>>> list(
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String categoryId,
-            @RequestParam(required = false) Boolean inStockOnly
+            @RequestParam(required = false) Boolean inStockOnly,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(required = false) List<String> discount,
+            @RequestParam(required = false, defaultValue = "false") boolean facets,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false, defaultValue = "true") boolean includeTotal
     ) {
-        boolean filtered = (search != null && !search.isBlank()) || (categoryId != null && !categoryId.isBlank()) || Boolean.TRUE.equals(inStockOnly);
-        List<Product> list;
-        if (!filtered) {
-            list = products.findAll();
-        } else {
-            Specification<Product> spec = Specification.where(null);
-            if (search != null && !search.isBlank()) {
-                spec = spec.and((root, q, cb) -> cb.like(cb.lower(root.get("name")), "%" + search.toLowerCase() + "%"));
-            }
-            if (categoryId != null && !categoryId.isBlank()) {
-                spec = spec.and((root, q, cb) -> cb.equal(root.get("category").get("id"), categoryId));
-            }
-            if (Boolean.TRUE.equals(inStockOnly)) {
-                spec = spec.and((root, q, cb) -> cb.greaterThan(root.get("stock"), 0));
+        boolean searching = search != null && !search.isBlank();
+        ProductFacetIndex.FacetQuery facetQuery = ProductFacetIndex.FacetQuery.of(categoryId, price, discount, inStockOnly);
+        if (ProductListingService.isPagedRequest(sort, cursor, limit)) {
+            Specification<Product> spec = facetIndex.toSpecification(facetQuery);
+            ProductSearchIndex.DbMatch match = searching ? searchIndex.dbMatch(search) : null;
+            if (match != null) {
+                spec = spec.and(match.spec());
             }
-            list = products.findAll(spec);
+            ProductListingService.Page page = listing.page(spec, sort, cursor, limit, includeTotal);
+            Map<String, Object> meta = ProductListingService.meta(page);
+            // broad searches page through the best app.catalog.search.max-db-ids matches only; total counts those
+            if (match != null) meta.put("truncated", match.truncated());
+            if (facets) meta.put("facets", facetIndex.counts(facetQuery, searching ? searchIndex.searchIds(search) : null));
+            return ResponseEntity.ok(ApiResponse.success(page.items(), meta));
+        }
+        // Unpaged requests are answered from the cached catalog: search index for relevance order, facet bitsets for filters
+        List<ProductDtos.ProductSummary> items;
+        if (searching) {
+            items = searchIndex.rank(cache.summaries(), search, facetIndex.predicate(facetQuery));
+        } else if (facetQuery.isFiltered()) {
+            items = facetIndex.filter(facetQuery);
+        } else {
+            items = cache.summaries();
         }
-        List<ProductDtos.ProductSummary> items = list.stream().map(this::toSummary).toList();
-        return ResponseEntity.ok(ApiResponse.success(items));
+        if (!facets) return ResponseEntity.ok(ApiResponse.success(items));
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("count", items.size());
+        meta.put("facets", facetIndex.counts(facetQuery, searching ? searchIndex.searchIds(search) : null));
+        return ResponseEntity.ok(ApiResponse.success(items, meta));
+    }
+
+    @GetMapping("/facets")
+    @Operation(summary = "Facet counts (category, price, discount, inStock) for the given filters")
+    public ResponseEntity<ApiResponse<Map<String, List<ProductDtos.FacetCount>>>> facets(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String categoryId,
+            @RequestParam(required = false) Boolean inStockOnly,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(required = false) List<String> discount
+    ) {
+        ProductFacetIndex.FacetQuery facetQuery = ProductFacetIndex.FacetQuery.of(categoryId, price, discount, inStockOnly);
+        List<String> restrictTo = search != null && !search.isBlank() ? searchIndex.searchIds(search) : null;
+        return ResponseEntity.ok(ApiResponse.success(facetIndex.counts(facetQuery, restrictTo)));
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Autocomplete product and category names by prefix")
+    public ResponseEntity<ApiResponse<List<ProductDtos.Suggestion>>> suggest(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false, defaultValue = "8") int limit
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(suggestIndex.suggest(q, limit)));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get product details by id")
     public ResponseEntity<ApiResponse<ProductDtos.ProductDetail>> getOne(@PathVariable String id) {
-        return products.findById(id)
-                .map(prod -> ResponseEntity.ok(ApiResponse.success(toDetail(prod))))
+        return cache.detail(id)
+                .map(detail -> ResponseEntity.ok(ApiResponse.success(detail)))
                 .orElse(ResponseEntity.status(404)
                         .body(ApiResponse.<ProductDtos.ProductDetail>error(new org.masumjia.reactcartecom.common.ApiError("NOT_FOUND", "Product not found"))));
     }
-
-    private ProductDtos.ProductSummary toSummary(Product p) {
-        String categoryName = p.getCategory() != null ? p.getCategory().getName() : null;
-        return new ProductDtos.ProductSummary(
-                p.getId(), p.getName(), p.getDescription(),
-                p.getCategory() != null ? p.getCategory().getId() : null,
-                categoryName,
-                p.getPrice(), p.getDiscountedPrice(), p.getDiscount(), p.getStock(), p.getPrimaryImageUrl()
-        );
-    }
-
-    private ProductDtos.ProductDetail toDetail(Product p) {
-        List<String> imgs = images.findByProductIdOrderByPositionAsc(p.getId()).stream().map(ProductImage::getUrl).toList();
-        String categoryName = p.getCategory() != null ? p.getCategory().getName() : null;
-        return new ProductDtos.ProductDetail(
-                p.getId(), p.getName(), p.getDescription(),
-                p.getCategory() != null ? p.getCategory().getId() : null,
-                categoryName,
-                p.getPrice(), p.getDiscountedPrice(), p.getDiscount(), p.getStock(), p.getPrimaryImageUrl(), imgs
-        );
-    }
 }
@@ -2,23 +2,21 @@ package org.masumjia.reactcartecom.catalog;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.transaction.annotation.Transactional;
 
 public interface ProductRepository extends JpaRepository<Product, String>, JpaSpecificationExecutor<Product> {
-    @org.springframework.data.jpa.repository.Query("select p.id from Product p")
-    java.util.List<String> findAllIds();
+    long countByStockLessThanEqual(Integer stock);
 
-    @Transactional
-    @Modifying(clearAutomatically = true, flushAutomatically = true)
-    @Query("update Product p set p.stock = p.stock - :qty where p.id = :id and p.stock >= :qty")
-    int decrementIfAvailable(String id, int qty);
+    @Query("select p from Product p left join fetch p.category")
+    java.util.List<Product> findAllWithCategory();
 
-    @Transactional
-    @Modifying(clearAutomatically = true, flushAutomatically = true)
-    @Query("update Product p set p.stock = p.stock + :qty where p.id = :id")
-    int increment(String id, int qty);
+    @Query("select p from Product p left join fetch p.category where p.id in :ids")
+    java.util.List<Product> findAllWithCategoryByIdIn(java.util.Collection<String> ids);
 
-    long countByStockLessThanEqual(Integer stock);
+    // Row locks taken in primary-key order so concurrent checkouts never deadlock on each other
+    @Query(value = "select id, stock from products where id in (:ids) order by id for update", nativeQuery = true)
+    java.util.List<Object[]> lockStockByIds(java.util.Collection<String> ids);
+
+    @Query(value = "select id, stock from products where id in (:ids)", nativeQuery = true)
+    java.util.List<Object[]> findStockByIds(java.util.Collection<String> ids);
 }
@@ -0,0 +1,368 @@
+package org.masumjia.reactcartecom.catalog;
+
+import jakarta.annotation.PreDestroy;
+import org.masumjia.reactcartecom.catalog.dto.ProductDtos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+// Embedded inverted index over product name, description and category name. Built once at startup and
+// kept current from CatalogChangedEvent, so storefront/admin search never runs LIKE '%term%' scans.
+// Every query token must match a term of the product exactly, as a prefix, or within one typo
+// (tokens of 4+ chars); results are ranked by field-boosted, idf-weighted match quality.
+@Component
+public class ProductSearchIndex {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    static final float NAME_BOOST = 3f, CATEGORY_BOOST = 2f, DESCRIPTION_BOOST = 1f;
+    static final float EXACT = 1f, PREFIX = 0.6f, TYPO = 0.4f;
+    private static final int MIN_TYPO_LENGTH = 4;
+
+    private final ProductRepository products;
+    private final int maxDbIds;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+    private volatile boolean building;
+    private final Set<String> touchedWhileBuilding = ConcurrentHashMap.newKeySet();
+    private final ExecutorService rebuilds = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "product-search-rebuild");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Object rebuildQueue = new Object();
+    private CompletableFuture<Void> queuedRebuild;
+    private volatile Ordinals ordinals;
+
+    public ProductSearchIndex(ProductRepository products, @Value("${app.catalog.search.max-db-ids:1000}") int maxDbIds) {
+        this.products = products;
+        this.maxDbIds = Math.max(1, maxDbIds);
+    }
+
+    public record Hit(String productId, float score) {}
+
+    // term -> (productId -> field-boosted weight); sorted so prefix lookups are a subMap
+    private static final class State {
+        final TreeMap<String, Map<String, Float>> postings = new TreeMap<>();
+        // one-character deletions of each term -> terms (symmetric-delete typo candidates)
+        final Map<String, Set<String>> deletes = new HashMap<>();
+        final Map<String, Set<String>> termsByDoc = new HashMap<>();
+        final Map<String, String> names = new HashMap<>();
+    }
+
+    // id -> position in one cached summary list, built once per list instance (stock patches keep the instance)
+    private record Ordinals(List<ProductDtos.ProductSummary> rows, Map<String, Integer> byId) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        building = true;
+        touchedWhileBuilding.clear();
+        long t0 = System.currentTimeMillis();
+        State next = new State();
+        List<Product> all = products.findAllWithCategory();
+        for (Product p : all) add(next, p);
+        lock.writeLock().lock();
+        try {
+            state = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        building = false;
+        if (!touchedWhileBuilding.isEmpty()) reindex(new ArrayList<>(touchedWhileBuilding));
+        log.info("Product search index built: {} products, {} terms in {} ms", all.size(), next.postings.size(), System.currentTimeMillis() - t0);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent e) {
+        switch (e.type()) {
+            case PRODUCTS_UPSERTED, PRODUCTS_DELETED -> {
+                if (building) touchedWhileBuilding.addAll(e.productIds());
+                reindex(e.productIds());
+            }
+            case CATEGORIES_CHANGED -> scheduleRebuild();
+            case STOCK_CHANGED -> { }
+        }
+    }
+
+    // A category rename can touch any product, so the index is rebuilt, but on its own thread: the committing
+    // request does not wait for a full catalog read. Changes arriving while one is queued share it.
+    CompletableFuture<Void> scheduleRebuild() {
+        synchronized (rebuildQueue) {
+            if (queuedRebuild != null) return queuedRebuild;
+            CompletableFuture<Void> f = new CompletableFuture<>();
+            queuedRebuild = f;
+            rebuilds.execute(() -> {
+                // from here on a new change needs a new rebuild: this one may already have read past it
+                synchronized (rebuildQueue) {
+                    queuedRebuild = null;
+                }
+                try {
+                    rebuild();
+                    f.complete(null);
+                } catch (RuntimeException ex) {
+                    log.warn("Product search index rebuild failed: {}", ex.getMessage());
+                    f.completeExceptionally(ex);
+                }
+            });
+            return f;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilds.shutdownNow();
+    }
+
+    // Re-reads the given products; ids that no longer exist are dropped from the index
+    public void reindex(Collection<String> productIds) {
+        if (productIds.isEmpty()) return;
+        List<Product> fresh = products.findAllWithCategoryByIdIn(productIds);
+        lock.writeLock().lock();
+        try {
+            for (String id : productIds) remove(state, id);
+            for (Product p : fresh) add(state, p);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ranked product ids for a free-text query; empty when nothing matches
+    public List<Hit> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) return List.of();
+        lock.readLock().lock();
+        try {
+            State s = state;
+            Map<String, Float> scores = null;
+            for (String token : tokens) {
+                Map<String, Float> matched = match(s, token);
+                if (scores == null) {
+                    scores = matched;
+                } else {
+                    Map<String, Float> both = new HashMap<>();
+                    for (Map.Entry<String, Float> e : matched.entrySet()) {
+                        Float prev = scores.get(e.getKey());
+                        if (prev != null) both.put(e.getKey(), prev + e.getValue());
+                    }
+                    scores = both;
+                }
+                if (scores.isEmpty()) return List.of();
+            }
+            Comparator<Hit> order = Comparator.comparing(Hit::score).reversed()
+                    .thenComparing(h -> s.names.getOrDefault(h.productId(), ""))
+                    .thenComparing(Hit::productId);
+            if (limit > 0 && scores.size() > limit) {
+                // top-k: keep the best `limit` hits in a bounded heap instead of sorting everything
+                PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, order.reversed());
+                for (Map.Entry<String, Float> e : scores.entrySet()) {
+                    Hit h = new Hit(e.getKey(), e.getValue());
+                    if (top.size() < limit) {
+                        top.add(h);
+                    } else if (e.getValue() >= top.peek().score() && order.compare(h, top.peek()) < 0) {
+                        top.poll();
+                        top.add(h);
+                    }
+                }
+                List<Hit> hits = new ArrayList<>(top);
+                hits.sort(order);
+                return hits;
+            }
+            List<Hit> hits = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> hits.add(new Hit(id, score)));
+            hits.sort(order);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids only, in rank order
+    public List<String> searchIds(String query) {
+        return search(query, 0).stream().map(Hit::productId).toList();
+    }
+
+    // A DB restriction to the matching products, and whether matches beyond the cap were left out of it
+    public record DbMatch(Specification<Product> spec, boolean truncated) {}
+
+    // Restricts a DB query to the products matching the search text (replaces LIKE '%term%'). Only the best
+    // app.catalog.search.max-db-ids matches take part, so the IN list stays bounded for broad queries.
+    public Specification<Product> matching(String query) {
+        return dbMatch(query).spec();
+    }
+
+    // As matching(), also telling whether the query had more matches than the cap (one extra hit is ranked to know)
+    public DbMatch dbMatch(String query) {
+        List<Hit> hits = search(query, maxDbIds + 1);
+        boolean truncated = hits.size() > maxDbIds;
+        List<String> ids = (truncated ? hits.subList(0, maxDbIds) : hits).stream().map(Hit::productId).toList();
+        Specification<Product> spec = (root, q, cb) -> ids.isEmpty() ? cb.disjunction() : root.get("id").in(ids);
+        return new DbMatch(spec, truncated);
+    }
+
+    List<String> matchingIds(String query) {
+        return search(query, maxDbIds).stream().map(Hit::productId).toList();
+    }
+
+    // Matching summaries in relevance order, for callers that already hold the catalog in memory
+    public List<ProductDtos.ProductSummary> rank(List<ProductDtos.ProductSummary> all, String query, Predicate<ProductDtos.ProductSummary> filter) {
+        List<String> ids = searchIds(query);
+        if (ids.isEmpty()) return List.of();
+        Map<String, Integer> byId = ordinals(all);
+        List<ProductDtos.ProductSummary> out = new ArrayList<>();
+        for (String id : ids) {
+            Integer ord = byId.get(id);
+            ProductDtos.ProductSummary s = ord == null ? null : all.get(ord);
+            if (s != null && filter.test(s)) out.add(s);
+        }
+        return out;
+    }
+
+    private Map<String, Integer> ordinals(List<ProductDtos.ProductSummary> all) {
+        Ordinals o = ordinals;
+        if (o != null && o.rows() == all) return o.byId();
+        Map<String, Integer> byId = new HashMap<>(all.size() * 2);
+        for (int i = 0; i < all.size(); i++) byId.put(all.get(i).id(), i);
+        ordinals = new Ordinals(all, byId);
+        return byId;
+    }
+
+    // Reorders DB rows by relevance for the search text
+    public <T> List<T> sortByRank(List<T> rows, String query, java.util.function.Function<T, String> id) {
+        Map<String, Integer> pos = new HashMap<>();
+        List<String> ids = searchIds(query);
+        for (int i = 0; i < ids.size(); i++) pos.put(ids.get(i), i);
+        List<T> out = new ArrayList<>(rows);
+        out.sort(Comparator.comparingInt(r -> pos.getOrDefault(id.apply(r), Integer.MAX_VALUE)));
+        return out;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.termsByDoc.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Best score per product for one query token across exact, prefix and typo matches
+    private static Map<String, Float> match(State s, String token) {
+        Map<String, Float> out = new HashMap<>();
+        int docs = Math.max(1, s.termsByDoc.size());
+        Map<String, Float> exact = s.postings.get(token);
+        if (exact != null) collect(out, exact, EXACT, docs);
+        for (Map.Entry<String, Map<String, Float>> e : s.postings.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+            collect(out, e.getValue(), PREFIX, docs);
+        }
+        if (token.length() >= MIN_TYPO_LENGTH) {
+            Set<String> candidates = new HashSet<>();
+            Set<String> direct = s.deletes.get(token);
+            if (direct != null) candidates.addAll(direct);
+            for (String d : deletions(token)) {
+                if (s.postings.containsKey(d)) candidates.add(d);
+                Set<String> via = s.deletes.get(d);
+                if (via != null) candidates.addAll(via);
+            }
+            for (String term : candidates) {
+                if (term.equals(token) || term.startsWith(token)) continue;
+                if (distance(token, term) <= 1) collect(out, s.postings.get(term), TYPO, docs);
+            }
+        }
+        return out;
+    }
+
+    private static void collect(Map<String, Float> out, Map<String, Float> posting, float quality, int docs) {
+        if (posting == null || posting.isEmpty()) return;
+        float idf = (float) Math.log(1 + (double) docs / posting.size());
+        for (Map.Entry<String, Float> e : posting.entrySet()) {
+            float score = e.getValue() * idf * quality;
+            out.merge(e.getKey(), score, Math::max);
+        }
+    }
+
+    private static void add(State s, Product p) {
+        Map<String, Float> weights = new HashMap<>();
+        for (String t : tokenize(p.getName())) weights.merge(t, NAME_BOOST, Float::sum);
+        if (p.getCategory() != null) for (String t : tokenize(p.getCategory().getName())) weights.merge(t, CATEGORY_BOOST, Float::sum);
+        for (String t : tokenize(p.getDescription())) weights.merge(t, DESCRIPTION_BOOST, Float::sum);
+        for (Map.Entry<String, Float> e : weights.entrySet()) {
+            String term = e.getKey();
+            // dampen repetition: a term's weight grows with the log of its occurrences
+            float w = (float) (1 + Math.log(e.getValue()));
+            Map<String, Float> posting = s.postings.computeIfAbsent(term, k -> new HashMap<>());
+            if (posting.isEmpty() && term.length() >= MIN_TYPO_LENGTH) {
+                for (String d : deletions(term)) s.deletes.computeIfAbsent(d, k -> new HashSet<>()).add(term);
+            }
+            posting.put(p.getId(), w);
+        }
+        s.termsByDoc.put(p.getId(), weights.keySet());
+        s.names.put(p.getId(), p.getName() == null ? "" : p.getName().toLowerCase());
+    }
+
+    private static void remove(State s, String productId) {
+        Set<String> terms = s.termsByDoc.remove(productId);
+        s.names.remove(productId);
+        if (terms == null) return;
+        for (String term : terms) {
+            Map<String, Float> posting = s.postings.get(term);
+            if (posting == null) continue;
+            posting.remove(productId);
+            if (posting.isEmpty()) {
+                s.postings.remove(term);
+                if (term.length() >= MIN_TYPO_LENGTH) {
+                    for (String d : deletions(term)) {
+                        Set<String> set = s.deletes.get(d);
+                        if (set != null && set.remove(term) && set.isEmpty()) s.deletes.remove(d);
+                    }
+                }
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        String n = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT);
+        List<String> out = new ArrayList<>();
+        for (String t : n.split("[^\\p{L}\\p{N}]+")) {
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out;
+    }
+
+    private static Set<String> deletions(String term) {
+        Set<String> out = new HashSet<>(term.length());
+        for (int i = 0; i < term.length(); i++) out.add(term.substring(0, i) + term.substring(i + 1));
+        return out;
+    }
+
+    // Optimal string alignment distance (adjacent transposition counts as one edit), capped at 2
+    static int distance(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > 1) return 2;
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int v = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    v = Math.min(v, d[i - 2][j - 2] + 1);
+                }
+                d[i][j] = v;
+            }
+        }
+        return Math.min(2, d[a.length()][b.length()]);
+    }
+}
@@ -0,0 +1,265 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.masumjia.reactcartecom.catalog.dto.ProductDtos;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Search-as-you-type over product and category names. Each name is inserted into a character trie once per
+// word start (so "run" finds "Trail Runner"), and every node keeps its best MAX_SUGGESTIONS entries, so a
+// lookup is a walk of the prefix plus a copy of one short list. Keys are folded (accents, case, punctuation)
+// and capped at MAX_WORDS x MAX_KEY_LENGTH nodes per name, which bounds memory per indexed name.
+@Component
+public class ProductSuggestIndex {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    public static final int MAX_SUGGESTIONS = 10;
+    static final int MAX_KEY_LENGTH = 32;
+    static final int MAX_WORDS = 6;
+
+    private final ProductRepository products;
+    private final CategoryRepository categories;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node();
+    // "product:<id>" / "category:<id>" -> indexed suggestion, so removals can re-derive their keys
+    private Map<String, ProductDtos.Suggestion> entries = new HashMap<>();
+    private volatile boolean building;
+    private final Set<String> touchedWhileBuilding = ConcurrentHashMap.newKeySet();
+
+    public ProductSuggestIndex(ProductRepository products, CategoryRepository categories) {
+        this.products = products;
+        this.categories = categories;
+    }
+
+    private static final class Node {
+        Map<Character, Node> children;
+        // suggestions whose key ends exactly here
+        List<Ranked> here;
+        // best MAX_SUGGESTIONS of this subtree, in rank order
+        List<Ranked> top = List.of();
+    }
+
+    // Lower rank is better: categories before products, then matches on the first word, then shorter labels
+    private record Ranked(ProductDtos.Suggestion suggestion, int wordIndex) implements Comparable<Ranked> {
+        String key() { return key(suggestion); }
+
+        static String key(ProductDtos.Suggestion s) { return s.type() + ":" + s.id(); }
+
+        @Override
+        public int compareTo(Ranked o) {
+            int c = Boolean.compare(!"category".equals(suggestion.type()), !"category".equals(o.suggestion.type()));
+            if (c == 0) c = Integer.compare(wordIndex, o.wordIndex);
+            if (c == 0) c = Integer.compare(suggestion.label().length(), o.suggestion.label().length());
+            if (c == 0) c = suggestion.label().compareToIgnoreCase(o.suggestion.label());
+            if (c == 0) c = suggestion.id().compareTo(o.suggestion.id());
+            return c;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        building = true;
+        touchedWhileBuilding.clear();
+        long t0 = System.currentTimeMillis();
+        Node nextRoot = new Node();
+        Map<String, ProductDtos.Suggestion> nextEntries = new HashMap<>();
+        for (Category c : categories.findAll()) insert(nextRoot, nextEntries, toSuggestion(c));
+        for (Product p : products.findAllWithCategory()) insert(nextRoot, nextEntries, toSuggestion(p));
+        lock.writeLock().lock();
+        try {
+            root = nextRoot;
+            entries = nextEntries;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        building = false;
+        if (!touchedWhileBuilding.isEmpty()) reindex(new ArrayList<>(touchedWhileBuilding));
+        log.info("Product suggest index built: {} names in {} ms", nextEntries.size(), System.currentTimeMillis() - t0);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent e) {
+        switch (e.type()) {
+            case PRODUCTS_UPSERTED, PRODUCTS_DELETED -> {
+                if (building) touchedWhileBuilding.addAll(e.productIds());
+                reindex(e.productIds());
+            }
+            case CATEGORIES_CHANGED -> reloadCategories();
+            case STOCK_CHANGED -> { }
+        }
+    }
+
+    // Re-reads the given products; ids that no longer exist are dropped
+    public void reindex(Collection<String> productIds) {
+        if (productIds.isEmpty()) return;
+        List<Product> fresh = products.findAllWithCategoryByIdIn(productIds);
+        lock.writeLock().lock();
+        try {
+            for (String id : productIds) delete(root, entries, "product:" + id);
+            for (Product p : fresh) insert(root, entries, toSuggestion(p));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Categories are few, so any category write replaces just the category entries
+    public void reloadCategories() {
+        List<Category> all = categories.findAll();
+        lock.writeLock().lock();
+        try {
+            for (String key : new ArrayList<>(entries.keySet())) {
+                if (key.startsWith("category:")) delete(root, entries, key);
+            }
+            for (Category c : all) insert(root, entries, toSuggestion(c));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ProductDtos.Suggestion> suggest(String prefix, int limit) {
+        String key = fold(prefix);
+        if (key.isEmpty()) return List.of();
+        if (key.length() > MAX_KEY_LENGTH) key = key.substring(0, MAX_KEY_LENGTH);
+        int n = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children == null ? null : node.children.get(key.charAt(i));
+            }
+            if (node == null) return List.of();
+            List<ProductDtos.Suggestion> out = new ArrayList<>(Math.min(n, node.top.size()));
+            for (Ranked r : node.top) {
+                if (out.size() == n) break;
+                out.add(r.suggestion());
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static ProductDtos.Suggestion toSuggestion(Product p) {
+        return new ProductDtos.Suggestion("product", p.getId(), p.getName(), null);
+    }
+
+    private static ProductDtos.Suggestion toSuggestion(Category c) {
+        return new ProductDtos.Suggestion("category", c.getId(), c.getName(), c.getSlug());
+    }
+
+    private static void insert(Node root, Map<String, ProductDtos.Suggestion> entries, ProductDtos.Suggestion s) {
+        if (s.label() == null || s.label().isBlank()) return;
+        entries.put(Ranked.key(s), s);
+        List<String> keys = keys(s.label());
+        for (int w = 0; w < keys.size(); w++) {
+            Ranked r = new Ranked(s, w);
+            String key = keys.get(w);
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                if (node.children == null) node.children = new HashMap<>(4);
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+                path[i + 1] = node;
+            }
+            if (node.here == null) node.here = new ArrayList<>(1);
+            node.here.add(r);
+            for (Node n : path) n.top = offer(n.top, r);
+        }
+    }
+
+    private static void delete(Node root, Map<String, ProductDtos.Suggestion> entries, String entryKey) {
+        ProductDtos.Suggestion s = entries.remove(entryKey);
+        if (s == null) return;
+        for (String key : keys(s.label())) {
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children == null ? null : node.children.get(key.charAt(i));
+                path[i + 1] = node;
+            }
+            if (node == null) continue;
+            if (node.here != null) {
+                node.here.removeIf(r -> r.key().equals(entryKey));
+                if (node.here.isEmpty()) node.here = null;
+            }
+            // bottom-up: recompute only the nodes whose top list held the removed entry, prune empty leaves
+            for (int i = key.length(); i >= 0; i--) {
+                Node n = path[i];
+                if (n.top.stream().anyMatch(r -> r.key().equals(entryKey))) n.top = recompute(n);
+                if (i > 0 && n.here == null && (n.children == null || n.children.isEmpty())) {
+                    path[i - 1].children.remove(key.charAt(i - 1));
+                }
+            }
+        }
+    }
+
+    // Merges r into a node's top list, keeping one entry per suggestion and at most MAX_SUGGESTIONS
+    private static List<Ranked> offer(List<Ranked> top, Ranked r) {
+        if (top.size() == MAX_SUGGESTIONS && r.compareTo(top.get(MAX_SUGGESTIONS - 1)) >= 0) return top;
+        List<Ranked> next = new ArrayList<>(Math.min(top.size() + 1, MAX_SUGGESTIONS));
+        boolean placed = false;
+        for (Ranked t : top) {
+            if (t.key().equals(r.key())) {
+                if (t.compareTo(r) <= 0) return top;
+                continue;
+            }
+            if (!placed && r.compareTo(t) < 0) {
+                next.add(r);
+                placed = true;
+            }
+            next.add(t);
+        }
+        if (!placed) next.add(r);
+        if (next.size() > MAX_SUGGESTIONS) next.remove(next.size() - 1);
+        return next;
+    }
+
+    private static List<Ranked> recompute(Node n) {
+        List<Ranked> top = List.of();
+        if (n.here != null) for (Ranked r : n.here) top = offer(top, r);
+        if (n.children != null) {
+            for (Node child : n.children.values()) for (Ranked r : child.top) top = offer(top, r);
+        }
+        return top;
+    }
+
+    // One key per word start (up to MAX_WORDS), each running to the end of the name and capped in length
+    static List<String> keys(String label) {
+        String folded = fold(label);
+        if (folded.isEmpty()) return List.of();
+        List<String> out = new ArrayList<>();
+        int start = 0;
+        while (start < folded.length() && out.size() < MAX_WORDS) {
+            String key = folded.substring(start, Math.min(folded.length(), start + MAX_KEY_LENGTH));
+            if (!out.contains(key)) out.add(key);
+            int space = folded.indexOf(' ', start);
+            if (space < 0) break;
+            start = space + 1;
+        }
+        return out;
+    }
+
+    static String fold(String text) {
+        if (text == null) return "";
+        String n = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT);
+        return n.replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+}
@@ -0,0 +1,410 @@
+package org.masumjia.reactcartecom.catalog;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Optional in-memory stock counters (app.inventory.ledger.enabled). Reservations are accepted or rejected
+// with CAS on a per-product counter instead of a row lock; net deltas are written behind to `products`
+// in periodic batches. Every accepted change is appended to a journal and forced to disk before it is
+// acknowledged; on startup entries newer than the checkpoint stored with the last flush are replayed.
+// Each flush seals the journal written so far as a segment named after the last sequence it holds and
+// starts a new one; segments are deleted once the checkpoint covers them.
+//
+// The counters are authoritative only while a single instance serves reservations, so the ledger is for
+// single-node deployments. That is enforced with a lease row (stock_ledger_lease): a node that cannot take
+// the lease at startup fails to start, and a node that cannot renew it (app.inventory.ledger.lease-ms)
+// rejects reservations until it can. Multi-node deployments keep the ledger off and reserve with row locks.
+@Component
+public class StockLedger {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StockLedger.class);
+    private static final String CHECKPOINT_NAME = "products";
+
+    private final ProductRepository products;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher events;
+    private final boolean enabled;
+    private final Path journalPath;
+    private final long leaseMs;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    private final ConcurrentHashMap<String, AtomicInteger> counters = new ConcurrentHashMap<>();
+    // Net deltas not yet written to the products table; guarded by journalLock together with seq
+    private final Map<String, Integer> pending = new HashMap<>();
+    private final Object journalLock = new Object();
+    // Held while a flush is in flight so counters are never seeded from a half-applied state
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private FileChannel journal;
+    private long seq;
+    // System.nanoTime() after which reservations are refused unless the lease was renewed
+    private volatile long leaseValidUntil = System.nanoTime();
+    private long leaseRenewedAt;
+
+    public StockLedger(ProductRepository products, JdbcTemplate jdbc, PlatformTransactionManager txManager,
+                       ApplicationEventPublisher events,
+                       @Value("${app.inventory.ledger.enabled:false}") boolean enabled,
+                       @Value("${app.inventory.ledger.journal:./data/stock-ledger.journal}") String journalPath,
+                       @Value("${app.inventory.ledger.lease-ms:30000}") long leaseMs) {
+        this.products = products;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.events = events;
+        this.enabled = enabled;
+        this.journalPath = Path.of(journalPath);
+        this.leaseMs = Math.max(1000, leaseMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) return;
+        if (!renewLease()) {
+            throw new IllegalStateException("Stock ledger lease is held by another instance; app.inventory.ledger.enabled "
+                    + "requires a single application instance");
+        }
+        Path dir = journalPath.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        recover();
+        journal = openJournal();
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        if (!enabled || journal == null) return;
+        flush();
+        journal.close();
+        releaseLease(owner);
+    }
+
+    // All-or-nothing: counters are taken in sorted id order and given back if any line is short.
+    // Returns productId -> available stock for the lines that could not be satisfied.
+    public Map<String, Integer> reserve(Map<String, Integer> quantities) {
+        Map<String, Integer> failed = new HashMap<>();
+        if (quantities == null || quantities.isEmpty()) return failed;
+        if (System.nanoTime() - leaseValidUntil >= 0) {
+            throw new IllegalStateException("Stock ledger lease is not held; reservations are refused until it is renewed");
+        }
+        SortedMap<String, Integer> sorted = new TreeMap<>(quantities);
+        seed(sorted.keySet());
+        List<Map.Entry<String, Integer>> taken = new ArrayList<>(sorted.size());
+        for (Map.Entry<String, Integer> e : sorted.entrySet()) {
+            AtomicInteger c = counters.get(e.getKey());
+            if (c == null) {
+                failed.put(e.getKey(), 0);
+                break;
+            }
+            int qty = e.getValue();
+            int cur;
+            do {
+                cur = c.get();
+                if (cur < qty) break;
+            } while (!c.compareAndSet(cur, cur - qty));
+            if (cur < qty) {
+                failed.put(e.getKey(), cur);
+                break;
+            }
+            taken.add(e);
+        }
+        if (!failed.isEmpty()) {
+            giveBack(taken);
+            return failed;
+        }
+        try {
+            append(sorted, -1);
+        } catch (IOException ex) {
+            giveBack(taken);
+            throw new IllegalStateException("Stock journal write failed", ex);
+        }
+        return failed;
+    }
+
+    public void release(Map<String, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) return;
+        SortedMap<String, Integer> sorted = new TreeMap<>(quantities);
+        try {
+            append(sorted, 1);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Stock journal write failed", ex);
+        }
+        for (Map.Entry<String, Integer> e : sorted.entrySet()) {
+            AtomicInteger c = counters.get(e.getKey());
+            if (c != null) c.addAndGet(e.getValue());
+        }
+    }
+
+    // Drop a counter after its row was overwritten (admin stock edits); it is re-seeded on next use
+    public void evict(String productId) {
+        counters.remove(productId);
+    }
+
+    public Integer available(String productId) {
+        AtomicInteger c = counters.get(productId);
+        return c == null ? null : c.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.ledger.flush-ms:500}")
+    public void scheduledFlush() {
+        if (!enabled) return;
+        // renewed well before expiry so one slow tick of the shared scheduler cannot lose it
+        if (System.nanoTime() - leaseRenewedAt >= TimeUnit.MILLISECONDS.toNanos(leaseMs / 3) && !renewLease()) {
+            log.error("Stock ledger lease lost to another instance; reservations are refused");
+        }
+        flush();
+    }
+
+    // Takes or extends the lease; on failure reservations are refused from now on
+    boolean renewLease() {
+        long start = System.nanoTime();
+        boolean held;
+        try {
+            held = acquireLease(owner, leaseMs);
+        } catch (RuntimeException ex) {
+            log.warn("Stock ledger lease renewal failed: {}", ex.getMessage());
+            held = false;
+        }
+        if (held) {
+            leaseRenewedAt = start;
+            // measured from before the round trip, so the local deadline never outlives the row's
+            leaseValidUntil = start + TimeUnit.MILLISECONDS.toNanos(leaseMs);
+        } else {
+            leaseValidUntil = System.nanoTime();
+        }
+        return held;
+    }
+
+    // Writes pending net deltas in one batch and records the journal sequence they cover
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<String, Integer> batch;
+            long upTo;
+            synchronized (journalLock) {
+                if (pending.isEmpty()) return;
+                batch = new TreeMap<>(pending);
+                pending.clear();
+                upTo = seq;
+                sealJournal(upTo);
+            }
+            try {
+                writeDeltas(batch, upTo);
+            } catch (RuntimeException ex) {
+                log.warn("Stock ledger flush failed, will retry: {}", ex.getMessage());
+                synchronized (journalLock) {
+                    batch.forEach(this::addPending);
+                }
+                return;
+            }
+            events.publishEvent(CatalogChangedEvent.stockChanged(batch.keySet()));
+            // A failed flush leaves its segment behind; its deltas were merged back into pending, so this
+            // checkpoint covers older segments as well
+            for (Path segment : segments()) {
+                if (segmentSeq(segment) <= upTo) {
+                    try {
+                        Files.deleteIfExists(segment);
+                    } catch (IOException ex) {
+                        log.warn("Stock journal segment delete failed: {}", ex.getMessage());
+                    }
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // --- Persistence (overridable in tests) ---
+
+    protected Map<String, Integer> loadStock(Collection<String> ids) {
+        Map<String, Integer> out = new HashMap<>();
+        for (Object[] row : products.findStockByIds(ids)) {
+            out.put((String) row[0], row[1] == null ? 0 : ((Number) row[1]).intValue());
+        }
+        return out;
+    }
+
+    protected void writeDeltas(Map<String, Integer> deltas, long upToSeq) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((id, d) -> args.add(new Object[]{ d, id }));
+        tx.executeWithoutResult(status -> {
+            jdbc.batchUpdate("update products set stock = stock + ? where id = ?", args);
+            jdbc.update("update stock_ledger_checkpoint set seq = ? where name = ?", upToSeq, CHECKPOINT_NAME);
+        });
+    }
+
+    protected long readCheckpoint() {
+        jdbc.update("insert ignore into stock_ledger_checkpoint (name, seq) values (?, 0)", CHECKPOINT_NAME);
+        Long v = jdbc.queryForObject("select seq from stock_ledger_checkpoint where name = ?", Long.class, CHECKPOINT_NAME);
+        return v == null ? 0 : v;
+    }
+
+    // Single statement against the database clock: taken when free, expired or already ours
+    protected boolean acquireLease(String owner, long ttlMs) {
+        jdbc.update("insert ignore into stock_ledger_lease (name, owner, expires_at) values (?, ?, now(6))", CHECKPOINT_NAME, owner);
+        return jdbc.update("update stock_ledger_lease set owner = ?, expires_at = now(6) + interval ? microsecond "
+                + "where name = ? and (owner = ? or expires_at <= now(6))", owner, ttlMs * 1000, CHECKPOINT_NAME, owner) == 1;
+    }
+
+    protected void releaseLease(String owner) {
+        jdbc.update("update stock_ledger_lease set expires_at = now(6) where name = ? and owner = ?", CHECKPOINT_NAME, owner);
+    }
+
+    // --- Internals ---
+
+    private void seed(Collection<String> ids) {
+        List<String> missing = null;
+        for (String id : ids) {
+            if (!counters.containsKey(id)) {
+                if (missing == null) missing = new ArrayList<>();
+                missing.add(id);
+            }
+        }
+        if (missing == null) return;
+        flushLock.lock();
+        try {
+            Map<String, Integer> stock = loadStock(missing);
+            synchronized (journalLock) {
+                for (Map.Entry<String, Integer> e : stock.entrySet()) {
+                    int unflushed = pending.getOrDefault(e.getKey(), 0);
+                    counters.putIfAbsent(e.getKey(), new AtomicInteger(e.getValue() + unflushed));
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void giveBack(List<Map.Entry<String, Integer>> taken) {
+        for (Map.Entry<String, Integer> e : taken) counters.get(e.getKey()).addAndGet(e.getValue());
+    }
+
+    private void append(SortedMap<String, Integer> quantities, int sign) throws IOException {
+        synchronized (journalLock) {
+            long next = seq + 1;
+            if (journal != null) {
+                StringBuilder sb = new StringBuilder().append(next);
+                quantities.forEach((id, q) -> sb.append(' ').append(id).append(':').append(sign * q));
+                sb.append(" ;\n"); // terminator: a torn tail line is never replayed
+                ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+                while (buf.hasRemaining()) journal.write(buf);
+                journal.force(false);
+            }
+            seq = next;
+            quantities.forEach((id, q) -> addPending(id, sign * q));
+        }
+    }
+
+    private void addPending(String id, int delta) {
+        pending.merge(id, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    private FileChannel openJournal() throws IOException {
+        return FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Under journalLock: moves everything appended up to `upTo` into its own segment. An empty journal is
+    // left alone, so a retried flush never replaces the segment of the failed one.
+    private void sealJournal(long upTo) {
+        if (journal == null) return;
+        try {
+            if (journal.size() == 0) return;
+            journal.close();
+            Files.move(journalPath, journalPath.resolveSibling(journalPath.getFileName() + "." + upTo));
+        } catch (IOException ex) {
+            // entries stay in the live journal; replay skips what the checkpoint covers
+            log.warn("Stock journal rotation failed: {}", ex.getMessage());
+        } finally {
+            try {
+                if (!journal.isOpen()) journal = openJournal();
+            } catch (IOException ex) {
+                // appends fail (and reservations are refused) until the journal can be reopened
+                log.error("Stock journal reopen failed: {}", ex.getMessage());
+            }
+        }
+    }
+
+    // Sealed segments, oldest first
+    private List<Path> segments() {
+        Path dir = journalPath.toAbsolutePath().getParent();
+        String prefix = journalPath.getFileName() + ".";
+        List<Path> out = new ArrayList<>();
+        try (var files = Files.list(dir)) {
+            files.filter(f -> f.getFileName().toString().startsWith(prefix) && segmentSeq(f) >= 0).forEach(out::add);
+        } catch (IOException ex) {
+            log.warn("Stock journal segments could not be listed: {}", ex.getMessage());
+        }
+        out.sort(Comparator.comparingLong(this::segmentSeq));
+        return out;
+    }
+
+    private long segmentSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(journalPath.getFileName().toString().length() + 1));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    // Replays journal entries newer than the persisted checkpoint, then starts a fresh journal
+    private void recover() throws IOException {
+        long checkpoint = readCheckpoint();
+        long maxSeq = checkpoint;
+        Map<String, Integer> net = new TreeMap<>();
+        List<Path> files = segments();
+        if (Files.exists(journalPath)) files.add(journalPath);
+        for (Path file : files) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] parts = line.trim().split(" ");
+                long entrySeq;
+                try {
+                    entrySeq = Long.parseLong(parts[0]);
+                } catch (NumberFormatException ex) {
+                    continue;
+                }
+                if (entrySeq <= checkpoint || !";".equals(parts[parts.length - 1])) continue;
+                Map<String, Integer> entry = new HashMap<>();
+                boolean ok = true;
+                for (int i = 1; i < parts.length - 1 && ok; i++) {
+                    int idx = parts[i].lastIndexOf(':');
+                    try {
+                        entry.merge(parts[i].substring(0, idx), Integer.parseInt(parts[i].substring(idx + 1)), Integer::sum);
+                    } catch (RuntimeException ex) {
+                        ok = false;
+                    }
+                }
+                if (!ok) continue;
+                entry.forEach((id, d) -> net.merge(id, d, Integer::sum));
+                maxSeq = Math.max(maxSeq, entrySeq);
+            }
+        }
+        net.values().removeIf(d -> d == 0);
+        if (maxSeq > checkpoint) {
+            log.info("Replaying {} stock journal entries ({} products)", maxSeq - checkpoint, net.size());
+            writeDeltas(net, maxSeq);
+        }
+        seq = maxSeq;
+        for (Path file : files) Files.deleteIfExists(file);
+    }
+}
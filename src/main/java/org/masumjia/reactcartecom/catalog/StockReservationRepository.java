@@ -0,0 +1,24 @@
+package org.masumjia.reactcartecom.catalog;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+    // Serialises hold/convert per cart. Taken before lockByCartId: a FOR UPDATE over the cart's holds
+    // locks nothing while it has none, so two first checkouts of one cart would both reserve.
+    @Query(value = "select id from carts where id = :cartId for update", nativeQuery = true)
+    List<String> lockCart(String cartId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from StockReservation r where r.cartId = :cartId")
+    List<StockReservation> lockByCartId(String cartId);
+
+    // Rows held by an in-flight order creation are skipped, not waited on
+    @Query(value = "select * from stock_reservations where expires_at < :now order by expires_at limit :limit for update skip locked", nativeQuery = true)
+    List<StockReservation> lockExpired(LocalDateTime now, int limit);
+}
@@ -0,0 +1,102 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+public class StockReservationService {
+    private final StockReservationRepository reservations;
+    private final InventoryService inventory;
+    private final int ttlMinutes;
+
+    public StockReservationService(StockReservationRepository reservations, InventoryService inventory,
+                                   @Value("${app.inventory.hold-ttl-min:15}") int ttlMinutes) {
+        this.reservations = reservations;
+        this.inventory = inventory;
+        this.ttlMinutes = ttlMinutes;
+    }
+
+    public record Result(Map<String, Integer> failed, LocalDateTime expiresAt) {
+        public boolean ok() { return failed.isEmpty(); }
+    }
+
+    // Checkout: (re)places holds for the cart's current quantities with a fresh TTL. Only the difference
+    // against holds the cart already has touches product stock.
+    @Transactional
+    public Result hold(String cartId, Map<String, Integer> quantities) {
+        reservations.lockCart(cartId);
+        List<StockReservation> existing = reservations.lockByCartId(cartId);
+        Map<String, Integer> failed = adjust(existing, quantities);
+        if (!failed.isEmpty()) return new Result(failed, null);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(ttlMinutes);
+        reservations.deleteAllInBatch(existing);
+        List<StockReservation> holds = new ArrayList<>(quantities.size());
+        for (Map.Entry<String, Integer> e : new TreeMap<>(quantities).entrySet()) {
+            StockReservation r = new StockReservation();
+            r.setId(UUID.randomUUID().toString());
+            r.setCartId(cartId);
+            r.setProductId(e.getKey());
+            r.setQuantity(e.getValue());
+            r.setExpiresAt(expiresAt);
+            r.setCreatedAt(now);
+            holds.add(r);
+        }
+        reservations.saveAll(holds);
+        return new Result(failed, expiresAt);
+    }
+
+    // Order creation: consumes the cart's holds (expired but not yet swept ones still count) and
+    // reserves or releases only what differs from the ordered quantities
+    @Transactional
+    public Result convert(String cartId, Map<String, Integer> quantities) {
+        reservations.lockCart(cartId);
+        List<StockReservation> existing = reservations.lockByCartId(cartId);
+        Map<String, Integer> failed = adjust(existing, quantities);
+        if (failed.isEmpty()) reservations.deleteAllInBatch(existing);
+        return new Result(failed, null);
+    }
+
+    // Returns one batch of expired holds to product stock; returns the number of holds released
+    @Transactional
+    public int releaseExpired(int batchSize) {
+        List<StockReservation> expired = reservations.lockExpired(LocalDateTime.now(), batchSize);
+        if (expired.isEmpty()) return 0;
+        inventory.release(sum(expired));
+        reservations.deleteAllInBatch(expired);
+        return expired.size();
+    }
+
+    // Reserves increases and releases decreases relative to the current holds. On failure nothing is
+    // changed and the reported availability includes what the cart already holds.
+    private Map<String, Integer> adjust(List<StockReservation> existing, Map<String, Integer> quantities) {
+        Map<String, Integer> held = sum(existing);
+        Map<String, Integer> more = new HashMap<>();
+        Map<String, Integer> less = new HashMap<>();
+        Set<String> ids = new HashSet<>(held.keySet());
+        ids.addAll(quantities.keySet());
+        for (String id : ids) {
+            int diff = quantities.getOrDefault(id, 0) - held.getOrDefault(id, 0);
+            if (diff > 0) more.put(id, diff);
+            else if (diff < 0) less.put(id, -diff);
+        }
+        Map<String, Integer> failed = inventory.reserve(more);
+        if (!failed.isEmpty()) {
+            Map<String, Integer> out = new HashMap<>();
+            failed.forEach((id, avail) -> out.put(id, avail + held.getOrDefault(id, 0)));
+            return out;
+        }
+        inventory.release(less);
+        return failed;
+    }
+
+    private static Map<String, Integer> sum(List<StockReservation> list) {
+        Map<String, Integer> out = new HashMap<>();
+        for (StockReservation r : list) out.merge(r.getProductId(), r.getQuantity(), Integer::sum);
+        return out;
+    }
+}
@@ -0,0 +1,31 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Gives abandoned checkout holds back to product stock, one short transaction per batch
+@Component
+public class StockReservationSweeper {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StockReservationSweeper.class);
+
+    private final StockReservationService reservations;
+    private final int batchSize;
+
+    public StockReservationSweeper(StockReservationService reservations,
+                                   @Value("${app.inventory.hold-sweep-batch:200}") int batchSize) {
+        this.reservations = reservations;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.hold-sweep-ms:60000}")
+    public void sweep() {
+        int total = 0;
+        int n;
+        do {
+            n = reservations.releaseExpired(batchSize);
+            total += n;
+        } while (n == batchSize);
+        if (total > 0) log.info("Released {} expired stock holds", total);
+    }
+}
@@ -57,4 +57,9 @@ public class ProductDtos {
             String primaryImageUrl,
             List<String> images
     ) {}
+
+    // type is "product" or "category"; slug is set for categories
+    public static record Suggestion(String type, String id, String label, String slug) {}
+
+    public static record FacetCount(String value, String label, int count) {}
 }
@@ -0,0 +1,54 @@
+package org.masumjia.reactcartecom.common;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Secondary indexes the app's queries depend on, on core tables whose DDL lives outside schema.sql. MySQL
+// has no CREATE INDEX IF NOT EXISTS, so each one is looked up in information_schema at startup and added
+// when missing. A failure (e.g. no ALTER privilege) is logged and the app starts anyway, just slower.
+@Component
+public class CoreTableIndexes {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CoreTableIndexes.class);
+
+    record Index(String table, String name, String columns) {}
+
+    static final List<Index> INDEXES = List.of(
+            // admin user list: name prefix search (email already has its unique index), role filter + default sort
+            new Index("users", "idx_users_name", "name"),
+            new Index("users", "idx_users_created", "created_at"),
+            new Index("users", "idx_users_role_created", "role, created_at"),
+            // newest-first order feed and its keyset (see OrderRepository.findRecent)
+            new Index("orders", "idx_orders_created", "created_at, id")
+    );
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+
+    public CoreTableIndexes(JdbcTemplate jdbc, @Value("${app.schema.ensure-indexes:true}") boolean enabled) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensure() {
+        if (!enabled) return;
+        for (Index ix : INDEXES) {
+            try {
+                Integer n = jdbc.queryForObject(
+                        "select count(*) from information_schema.statistics where table_schema = database() and table_name = ? and index_name = ?",
+                        Integer.class, ix.table(), ix.name());
+                if (n != null && n > 0) continue;
+                long t0 = System.currentTimeMillis();
+                jdbc.execute("create index " + ix.name() + " on " + ix.table() + " (" + ix.columns() + ")");
+                log.info("Created index {} on {} in {} ms", ix.name(), ix.table(), System.currentTimeMillis() - t0);
+            } catch (RuntimeException ex) {
+                log.warn("Could not ensure index {} on {}: {}", ix.name(), ix.table(), ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.masumjia.reactcartecom.common;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Minimal RFC 4180 writer for the admin exports: rows go straight to the response stream, nothing is buffered.
+// Text cells that a spreadsheet would run as a formula (leading =, +, -, @, tab or CR) get a leading ' so a
+// customer-supplied name or address cannot execute when an admin opens the file. Numbers, booleans and dates
+// are written as they are: they come from typed columns, never from user input, and "-5.00" must stay numeric.
+public class CsvWriter {
+    private static final String FORMULA_START = "=+-@\t\r";
+
+    private final Writer out;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public CsvWriter row(Object... cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) out.write(',');
+            write(cells[i]);
+        }
+        out.write("\r\n");
+        return this;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void write(Object cell) throws IOException {
+        if (cell == null) return;
+        String s = cell.toString();
+        if (cell instanceof CharSequence && !s.isEmpty() && FORMULA_START.indexOf(s.charAt(0)) >= 0) s = "'" + s;
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(s);
+            return;
+        }
+        out.write('"');
+        out.write(s.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -70,6 +70,15 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(err));
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiResponse<Object>> handleTooManyRequests(TooManyRequestsException ex) {
+        ApiError err = new ApiError("TOO_MANY_REQUESTS", ex.getMessage());
+        if (log.isDebugEnabled()) log.debug("Throttled: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", String.valueOf(Math.max(1, ex.getRetryAfterSeconds())))
+                .body(ApiResponse.error(err));
+    }
+
     @ExceptionHandler(DataIntegrityViolationException.class)
     public ResponseEntity<ApiResponse<Object>> handleDataIntegrity(DataIntegrityViolationException ex) {
         ApiError err = new ApiError("CONSTRAINT_VIOLATION", "Operation violates data constraints");
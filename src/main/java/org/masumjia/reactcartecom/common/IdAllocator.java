@@ -0,0 +1,102 @@
+package org.masumjia.reactcartecom.common;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hi-lo allocator for the readable ids (prod-N, cat-N, cpn-N). Each node reserves a block of
+// app.ids.block-size numbers by bumping `id_sequences` under a row lock in its own transaction, then hands
+// them out from memory. Nodes never share a block, so ids are unique across the cluster; blocks left
+// unused at shutdown become gaps. A sequence row is seeded once from the highest id already in its table.
+@Component
+public class IdAllocator {
+    public enum Sequence {
+        PRODUCT("prod-", "products"), CATEGORY("cat-", "categories"), COUPON("cpn-", "coupons");
+
+        final String prefix;
+        final String table;
+
+        Sequence(String prefix, String table) {
+            this.prefix = prefix;
+            this.table = table;
+        }
+    }
+
+    private static final class Block {
+        long next;
+        long end;
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int blockSize;
+    private final Map<Sequence, Block> blocks = new EnumMap<>(Sequence.class);
+    private final Set<Sequence> seeded = ConcurrentHashMap.newKeySet();
+
+    public IdAllocator(JdbcTemplate jdbc, PlatformTransactionManager txManager,
+                       @Value("${app.ids.block-size:50}") int blockSize) {
+        this.jdbc = jdbc;
+        // the reservation must commit even if the caller's transaction rolls back, or another node could get the same block
+        this.tx = new TransactionTemplate(txManager);
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = Math.max(1, blockSize);
+        for (Sequence s : Sequence.values()) blocks.put(s, new Block());
+    }
+
+    public String next(Sequence sequence) {
+        Block b = blocks.get(sequence);
+        synchronized (b) {
+            if (b.next >= b.end) {
+                b.next = reserve(sequence, blockSize);
+                b.end = b.next + blockSize;
+            }
+            return sequence.prefix + (b.next++);
+        }
+    }
+
+    // Claims [start, start + size) for this node and returns start
+    private long reserve(Sequence sequence, int size) {
+        seed(sequence);
+        Long start = tx.execute(status -> {
+            List<Long> rows = jdbc.queryForList("select next_val from id_sequences where name = ? for update", Long.class, sequence.name());
+            if (rows.isEmpty()) throw new IllegalStateException("id_sequences row missing for " + sequence.name());
+            long first = rows.get(0);
+            jdbc.update("update id_sequences set next_val = ? where name = ?", first + size, sequence.name());
+            return first;
+        });
+        return start;
+    }
+
+    // Creates the row before it is ever read with FOR UPDATE: a locking read of a missing row takes a gap lock,
+    // and two nodes seeding the same sequence would then deadlock on each other's insert. The plain read and
+    // INSERT IGNORE take no gap lock; the first node to insert wins and the others keep its value.
+    private void seed(Sequence sequence) {
+        if (seeded.contains(sequence)) return;
+        tx.executeWithoutResult(status -> {
+            if (jdbc.queryForList("select next_val from id_sequences where name = ?", Long.class, sequence.name()).isEmpty()) {
+                jdbc.update("insert ignore into id_sequences (name, next_val) values (?, ?)", sequence.name(), maxExisting(sequence) + 1);
+            }
+        });
+        seeded.add(sequence);
+    }
+
+    // One-time scan when a sequence is first used, so existing ids are never handed out again
+    private long maxExisting(Sequence sequence) {
+        long max = 0;
+        for (String id : jdbc.queryForList("select id from " + sequence.table + " where id like ?", String.class, sequence.prefix + "%")) {
+            try {
+                max = Math.max(max, Long.parseLong(id.substring(sequence.prefix.length())));
+            } catch (NumberFormatException ignored) {}
+        }
+        return max;
+    }
+}
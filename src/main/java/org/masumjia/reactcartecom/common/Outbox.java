@@ -0,0 +1,46 @@
+package org.masumjia.reactcartecom.common;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+// Write side of the transactional outbox: append() inserts an outbox_events row in the caller's transaction,
+// so the event exists exactly when the change it describes commits. The insert only touches the table's
+// auto-increment tail, so writers do not queue behind each other however many handlers consume the event;
+// OutboxDispatcher delivers it in the background.
+@Component
+public class Outbox {
+    static final String LOCK_SQL = "select name from outbox_lock where name = 'dispatcher' for update";
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper json;
+
+    public Outbox(JdbcTemplate jdbc, ObjectMapper json) {
+        this.jdbc = jdbc;
+        this.json = json;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String aggregateType, String aggregateId, String eventType, Object payload) {
+        String body;
+        try {
+            body = json.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Outbox payload is not serializable: " + eventType, ex);
+        }
+        jdbc.update("insert into outbox_events (aggregate_type, aggregate_id, event_type, payload, created_at) values (?, ?, ?, ?, ?)",
+                aggregateType, aggregateId, eventType, body, LocalDateTime.now());
+    }
+
+    // Waits for any batch in flight and keeps the dispatcher out until the caller's transaction ends, for
+    // maintenance that must see outbox_events and the state it describes without deliveries in between
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockDispatcher() {
+        jdbc.queryForList(LOCK_SQL, String.class);
+    }
+}
@@ -0,0 +1,233 @@
+package org.masumjia.reactcartecom.common;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Background delivery of outbox_events to the OutboxHandler beans. Every app.outbox.poll-ms the node holding
+// the outbox_lock row (others skip the tick) reads up to app.outbox.batch-size due rows in id order and hands
+// each to the handlers for its event type, one savepoint per handler, in one transaction per batch. Delivered
+// rows are deleted in that transaction. A failing event is retried with exponential backoff, and later events
+// of the same aggregate wait behind it (the claim query skips both until it is due), so each aggregate's
+// events are handled in commit order; after app.outbox.max-attempts it is parked (failed_at set, kept for
+// inspection) and the aggregate moves on. Handlers that succeeded on a failed attempt are recorded in
+// outbox_deliveries and skipped when the event is retried, so one broken handler never re-runs the others.
+@Component
+public class OutboxDispatcher {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OutboxDispatcher.class);
+    // bounds one poll so a large backlog cannot starve the other scheduled jobs
+    static final int MAX_BATCHES_PER_POLL = 20;
+
+    // Due pending rows, minus those queued behind an earlier row of the same aggregate that is backing off
+    // (idx_outbox_events_pending, then idx_outbox_events_aggregate for the NOT EXISTS)
+    private static final String CLAIM_SQL = """
+            select id, aggregate_type, aggregate_id, event_type, payload, created_at, attempts, next_attempt_at
+            from outbox_events e
+            where failed_at is null and (next_attempt_at is null or next_attempt_at <= ?)
+              and not exists (select 1 from outbox_events p
+                              where p.aggregate_type = e.aggregate_type and p.aggregate_id = e.aggregate_id and p.id < e.id
+                                and p.failed_at is null and p.next_attempt_at > ?)
+            order by id limit ?""";
+
+    private static final RowMapper<OutboxMessage> ROW = (rs, i) -> new OutboxMessage(rs.getLong(1), rs.getString(2), rs.getString(3),
+            rs.getString(4), rs.getString(5), toLocal(rs.getTimestamp(6)), rs.getInt(7), toLocal(rs.getTimestamp(8)));
+
+    private static final RowMapper<Handled> HANDLED = (rs, i) -> new Handled(rs.getLong(1), rs.getString(2));
+
+    record Failure(long id, int attempts, LocalDateTime at, String error) {}
+
+    // An outbox_deliveries row: the handler finished this event on an attempt that failed elsewhere
+    record Handled(long eventId, String handler) {}
+
+    record Outcome(List<Long> delivered, List<Failure> retries, List<Failure> parked, List<Handled> handled) {
+        int processed() {
+            return delivered.size() + retries.size() + parked.size();
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate savepoint;
+    private final ObjectProvider<OutboxHandler> handlerBeans;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private volatile List<OutboxHandler> handlers;
+
+    public OutboxDispatcher(JdbcTemplate jdbc, PlatformTransactionManager txManager, ObjectProvider<OutboxHandler> handlers,
+                            @Value("${app.outbox.batch-size:200}") int batchSize,
+                            @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${app.outbox.backoff-ms:1000}") long backoffMs,
+                            @Value("${app.outbox.max-backoff-ms:300000}") long maxBackoffMs) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.savepoint = new TransactionTemplate(txManager);
+        this.savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.handlerBeans = handlers;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(1, backoffMs);
+        this.maxBackoffMs = Math.max(this.backoffMs, maxBackoffMs);
+    }
+
+    @Scheduled(initialDelayString = "${app.outbox.poll-ms:500}", fixedDelayString = "${app.outbox.poll-ms:500}")
+    public void poll() {
+        for (int i = 0; i < MAX_BATCHES_PER_POLL; i++) {
+            if (dispatchBatch() < batchSize) return;
+        }
+    }
+
+    // Returns how many events were delivered, rescheduled or parked; fewer than a batch means caught up
+    public int dispatchBatch() {
+        Integer n = tx.execute(status -> jdbc.queryForList(Outbox.LOCK_SQL + " skip locked", String.class).isEmpty()
+                ? 0 : dispatchLocked(LocalDateTime.now()));
+        return n == null ? 0 : n;
+    }
+
+    private int dispatchLocked(LocalDateTime now) {
+        List<OutboxMessage> batch = jdbc.query(CLAIM_SQL, ROW, now, now, batchSize);
+        if (batch.isEmpty()) return 0;
+        Outcome out = deliver(batch, now);
+        if (!out.delivered().isEmpty()) {
+            Set<Long> retried = new HashSet<>();
+            for (OutboxMessage m : batch) if (m.attempts() > 0) retried.add(m.id());
+            List<Object[]> ids = new ArrayList<>(out.delivered().size());
+            List<Object[]> recorded = new ArrayList<>();
+            for (Long id : out.delivered()) {
+                ids.add(new Object[]{ id });
+                // only an earlier failed attempt can have left delivery rows
+                if (retried.contains(id)) recorded.add(new Object[]{ id });
+            }
+            jdbc.batchUpdate("delete from outbox_events where id = ?", ids);
+            if (!recorded.isEmpty()) jdbc.batchUpdate("delete from outbox_deliveries where event_id = ?", recorded);
+        }
+        if (!out.handled().isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(out.handled().size());
+            for (Handled h : out.handled()) rows.add(new Object[]{ h.eventId(), h.handler() });
+            jdbc.batchUpdate("insert into outbox_deliveries (event_id, handler) values (?, ?)", rows);
+        }
+        for (Failure f : out.retries()) {
+            jdbc.update("update outbox_events set attempts = ?, next_attempt_at = ?, last_error = ? where id = ?", f.attempts(), f.at(), f.error(), f.id());
+        }
+        for (Failure f : out.parked()) {
+            jdbc.update("update outbox_events set attempts = ?, failed_at = ?, last_error = ? where id = ?", f.attempts(), f.at(), f.error(), f.id());
+        }
+        return out.processed();
+    }
+
+    // Runs the handlers over one batch (already in id order) and decides what happens to each row
+    Outcome deliver(List<OutboxMessage> batch, LocalDateTime now) {
+        Outcome out = new Outcome(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        Map<Long, Set<String>> done = alreadyHandled(batch);
+        Set<String> blocked = new HashSet<>();
+        for (OutboxMessage m : batch) {
+            String key = m.aggregateKey();
+            if (blocked.contains(key)) continue;
+            if (m.nextAttemptAt() != null && m.nextAttemptAt().isAfter(now)) {
+                blocked.add(key);
+                continue;
+            }
+            Set<String> skip = done.getOrDefault(m.id(), Set.of());
+            List<Handled> succeeded = new ArrayList<>();
+            String failedHandler = null;
+            Throwable cause = null;
+            for (OutboxHandler h : handlers()) {
+                if (!h.handles(m.eventType())) continue;
+                String name = h.handlerName();
+                if (skip.contains(name)) continue;
+                try {
+                    savepoint.executeWithoutResult(status -> invoke(h, m));
+                    succeeded.add(new Handled(m.id(), name));
+                } catch (RuntimeException ex) {
+                    // the other handlers still run: each has its own savepoint, and their success is kept
+                    if (cause == null) {
+                        failedHandler = name;
+                        cause = ex instanceof HandlerFailure ? ex.getCause() : ex;
+                    }
+                }
+            }
+            if (cause == null) {
+                out.delivered().add(m.id());
+                continue;
+            }
+            out.handled().addAll(succeeded);
+            int attempts = m.attempts() + 1;
+            String error = truncate(cause.toString());
+            if (attempts >= maxAttempts) {
+                log.error("Outbox event {} ({} {}) parked after {} attempts, failing in {}", m.id(), m.eventType(), key, attempts, failedHandler, cause);
+                out.parked().add(new Failure(m.id(), attempts, now, error));
+            } else {
+                log.warn("Outbox event {} ({} {}) failed in {}, attempt {}: {}", m.id(), m.eventType(), key, failedHandler, attempts, error);
+                blocked.add(key);
+                out.retries().add(new Failure(m.id(), attempts, now.plus(backoff(attempts)), error));
+            }
+        }
+        return out;
+    }
+
+    // Handlers recorded as done for the batch's retried events
+    private Map<Long, Set<String>> alreadyHandled(List<OutboxMessage> batch) {
+        List<Object> ids = new ArrayList<>();
+        for (OutboxMessage m : batch) if (m.attempts() > 0) ids.add(m.id());
+        if (ids.isEmpty()) return Map.of();
+        Map<Long, Set<String>> done = new HashMap<>();
+        String in = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        for (Handled h : jdbc.query("select event_id, handler from outbox_deliveries where event_id in (" + in + ")", HANDLED, ids.toArray())) {
+            done.computeIfAbsent(h.eventId(), k -> new HashSet<>()).add(h.handler());
+        }
+        return done;
+    }
+
+    private static void invoke(OutboxHandler h, OutboxMessage m) {
+        try {
+            h.handle(m);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new HandlerFailure(ex);
+        }
+    }
+
+    Duration backoff(int attempts) {
+        long ms = backoffMs << Math.min(attempts - 1, 20);
+        return Duration.ofMillis(Math.min(ms, maxBackoffMs));
+    }
+
+    private List<OutboxHandler> handlers() {
+        List<OutboxHandler> h = handlers;
+        if (h == null) handlers = h = handlerBeans.orderedStream().toList();
+        return h;
+    }
+
+    private static String truncate(String s) {
+        return s.length() <= 500 ? s : s.substring(0, 500);
+    }
+
+    private static LocalDateTime toLocal(Timestamp ts) {
+        return ts == null ? null : ts.toLocalDateTime();
+    }
+
+    private static final class HandlerFailure extends RuntimeException {
+        HandlerFailure(Exception cause) {
+            super(cause);
+        }
+    }
+}
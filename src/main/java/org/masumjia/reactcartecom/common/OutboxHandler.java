@@ -0,0 +1,20 @@
+package org.masumjia.reactcartecom.common;
+
+import org.springframework.util.ClassUtils;
+
+// In-process consumer of outbox events; any bean implementing this is picked up by OutboxDispatcher.
+// handle() runs inside the dispatcher's transaction under its own savepoint: database writes made there commit
+// together with the event's removal, or with its outbox_deliveries row when another handler fails, so each
+// handler applies an event exactly once. A thrown exception rolls back this handler's writes and schedules a
+// retry. Anything with effects outside the database must tolerate being called again for the same event.
+public interface OutboxHandler {
+
+    boolean handles(String eventType);
+
+    void handle(OutboxMessage message) throws Exception;
+
+    // Key of this handler in outbox_deliveries; it must not change while events it has handled are pending
+    default String handlerName() {
+        return ClassUtils.getUserClass(this).getName();
+    }
+}
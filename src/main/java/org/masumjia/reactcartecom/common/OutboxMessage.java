@@ -0,0 +1,13 @@
+package org.masumjia.reactcartecom.common;
+
+import java.time.LocalDateTime;
+
+// One outbox_events row as handed to OutboxHandlers; payload is the JSON written by Outbox.append.
+// attempts counts earlier failed deliveries.
+public record OutboxMessage(long id, String aggregateType, String aggregateId, String eventType, String payload,
+                            LocalDateTime createdAt, int attempts, LocalDateTime nextAttemptAt) {
+
+    public String aggregateKey() {
+        return aggregateType + ":" + aggregateId;
+    }
+}
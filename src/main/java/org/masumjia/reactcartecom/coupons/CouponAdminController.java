@@ -6,9 +6,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.masumjia.reactcartecom.common.ApiError;
 import org.masumjia.reactcartecom.common.ApiResponse;
+import org.masumjia.reactcartecom.common.IdAllocator;
 import org.masumjia.reactcartecom.coupons.Coupon.DiscountType;
 import org.masumjia.reactcartecom.coupons.CouponAssignment.AssignmentType;
 import org.masumjia.reactcartecom.coupons.dto.CouponDtos;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
@@ -28,16 +30,21 @@ public class CouponAdminController {
     private final org.masumjia.reactcartecom.catalog.ProductRepository productRepository;
     private final org.masumjia.reactcartecom.catalog.CategoryRepository categoryRepository;
     private final org.masumjia.reactcartecom.user.UserRepository userRepository;
+    private final IdAllocator ids;
+    private final ApplicationEventPublisher events;
 
     public CouponAdminController(CouponRepository coupons, CouponAssignmentRepository assignments,
                                  org.masumjia.reactcartecom.catalog.ProductRepository productRepository,
                                  org.masumjia.reactcartecom.catalog.CategoryRepository categoryRepository,
-                                 org.masumjia.reactcartecom.user.UserRepository userRepository) {
+                                 org.masumjia.reactcartecom.user.UserRepository userRepository,
+                                 IdAllocator ids, ApplicationEventPublisher events) {
         this.coupons = coupons;
         this.assignments = assignments;
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.userRepository = userRepository;
+        this.ids = ids;
+        this.events = events;
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -118,7 +125,7 @@ public class CouponAdminController {
         }
 
         Coupon c = new Coupon();
-        c.setId(nextCouponId());
+        c.setId(ids.next(IdAllocator.Sequence.COUPON));
         c.setCode(code);
         c.setDiscountType(type);
         c.setDiscountValue(req.discount());
@@ -134,6 +141,7 @@ public class CouponAdminController {
         } else {
             replaceAssignments(c, prodIds, catIds, custIds);
         }
+        events.publishEvent(new CouponChangedEvent(c.getId()));
         return ResponseEntity.status(201).body(ApiResponse.success(toView(c), Map.of("message", "Coupon created")));
     }
 
@@ -171,6 +179,7 @@ public class CouponAdminController {
                 List<String> custIds = normalizeIds(req.customerIds());
                 String invalid2 = validateAssignments(prodIds, catIds, custIds, global);
                 if (invalid2 != null) {
+                    events.publishEvent(new CouponChangedEvent(c.getId())); // the coupon row itself was already saved
                     return ResponseEntity.badRequest().body(ApiResponse.<CouponDtos.CouponView>error(new ApiError("BAD_REQUEST", invalid2)));
                 }
                 if (Boolean.TRUE.equals(global)) {
@@ -179,6 +188,7 @@ public class CouponAdminController {
                     replaceAssignments(c, prodIds, catIds, custIds);
                 }
             }
+            events.publishEvent(new CouponChangedEvent(c.getId()));
             return ResponseEntity.ok(ApiResponse.success(toView(c), Map.of("message", "Coupon updated")));
         }).orElse(ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Coupon not found"))));
     }
@@ -189,6 +199,7 @@ public class CouponAdminController {
     public ResponseEntity<ApiResponse<Object>> delete(@PathVariable String id) {
         return coupons.findById(id).map(c -> {
             coupons.delete(c);
+            events.publishEvent(new CouponChangedEvent(c.getId()));
             return ResponseEntity.ok(ApiResponse.success(null, Map.of("message", "Coupon deleted")));
         }).orElse(ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Coupon not found"))));
     }
@@ -201,6 +212,7 @@ public class CouponAdminController {
             c.setActive(true);
             c.setUpdatedAt(LocalDateTime.now());
             coupons.save(c);
+            events.publishEvent(new CouponChangedEvent(c.getId()));
             return ResponseEntity.ok(ApiResponse.success(toView(c), Map.of("message", "Coupon activated")));
         }).orElse(ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Coupon not found"))));
     }
@@ -213,6 +225,7 @@ public class CouponAdminController {
             c.setActive(false);
             c.setUpdatedAt(LocalDateTime.now());
             coupons.save(c);
+            events.publishEvent(new CouponChangedEvent(c.getId()));
             return ResponseEntity.ok(ApiResponse.success(toView(c), Map.of("message", "Coupon deactivated")));
         }).orElse(ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Coupon not found"))));
     }
@@ -368,17 +381,4 @@ public class CouponAdminController {
         } catch (Exception ignored) {}
         return null;
     }
-
-    private String nextCouponId() {
-        int max = 0;
-        for (String id : coupons.findAllIds()) {
-            if (id != null && id.startsWith("cpn-")) {
-                try {
-                    int n = Integer.parseInt(id.substring(4));
-                    if (n > max) max = n;
-                } catch (NumberFormatException ignored) {}
-            }
-        }
-        return "cpn-" + (max + 1);
-    }
 }
@@ -10,6 +10,10 @@ import java.util.List;
 public interface CouponAssignmentRepository extends JpaRepository<CouponAssignment, Long> {
     List<CouponAssignment> findByCouponId(String couponId);
 
+    // (couponId, assignedType, assignedId) for every assignment, without loading the coupons
+    @Query("select a.coupon.id, a.assignedType, a.assignedId from CouponAssignment a")
+    List<Object[]> findAllRows();
+
     @Transactional
     @Modifying
     @Query("delete from CouponAssignment a where a.coupon.id = :couponId")
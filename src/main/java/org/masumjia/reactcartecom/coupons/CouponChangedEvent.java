@@ -0,0 +1,4 @@
+package org.masumjia.reactcartecom.coupons;
+
+// Published after a coupon or its assignments are written; CouponIndex re-reads the coupon once the write commits
+public record CouponChangedEvent(String couponId) {}
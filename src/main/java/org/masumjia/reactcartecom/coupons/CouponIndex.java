@@ -0,0 +1,238 @@
+package org.masumjia.reactcartecom.coupons;
+
+import org.masumjia.reactcartecom.coupons.CouponAssignment.AssignmentType;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Case-folded code -> coupon lookup with the coupon's assignments pre-resolved into sets, so validating a
+// code is one hash lookup however many coupons exist. Loaded at startup, updated from CouponChangedEvent
+// after admin writes and from recordUsage after redemptions, and fully reloaded every app.coupons.index-refresh-ms to pick up
+// writes made on other nodes. Codes not in the index yet fall back to the unique-code lookup and are added.
+// Active coupons are also indexed by the product, category and customer ids they target, so candidates()
+// for a cart only touches coupons that could apply to it.
+@Component
+public class CouponIndex {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CouponIndex.class);
+
+    private final CouponRepository coupons;
+    private final CouponAssignmentRepository assignments;
+    private volatile State state = new State();
+    private volatile boolean loading;
+    private final Set<String> touchedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    public CouponIndex(CouponRepository coupons, CouponAssignmentRepository assignments) {
+        this.coupons = coupons;
+        this.assignments = assignments;
+    }
+
+    // Who a coupon applies to; "*" assignments become the any* flags. No assignments at all = global.
+    public record Scope(Set<String> customers, Set<String> products, Set<String> categories,
+                        boolean anyCustomer, boolean anyProduct, boolean anyCategory) {
+        public static final Scope GLOBAL = new Scope(Set.of(), Set.of(), Set.of(), false, false, false);
+
+        public boolean global() {
+            return customers.isEmpty() && products.isEmpty() && categories.isEmpty() && !anyCustomer && !anyProduct && !anyCategory;
+        }
+    }
+
+    // coupon is a detached snapshot: read it, never save it. Any change replaces the entry, so the rule is
+    // compiled exactly once per coupon version.
+    public record Entry(Coupon coupon, Scope scope, CouponRule rule) {
+        public Entry(Coupon coupon, Scope scope) {
+            this(coupon, scope, CouponRule.compile(coupon, scope));
+        }
+    }
+
+    private static final class State {
+        final Map<String, Entry> byCode = new ConcurrentHashMap<>();
+        final Map<String, Entry> byId = new ConcurrentHashMap<>();
+        final Map<String, Set<String>> byProduct = new ConcurrentHashMap<>();
+        final Map<String, Set<String>> byCategory = new ConcurrentHashMap<>();
+        final Map<String, Set<String>> byCustomer = new ConcurrentHashMap<>();
+        // global coupons and "*" product/category ones apply to every non-empty cart
+        final Set<String> everyCart = ConcurrentHashMap.newKeySet();
+        final Set<String> everyCustomer = ConcurrentHashMap.newKeySet();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.coupons.index-refresh-ms:300000}", fixedDelayString = "${app.coupons.index-refresh-ms:300000}")
+    public void reload() {
+        loading = true;
+        touchedWhileLoading.clear();
+        long t0 = System.currentTimeMillis();
+        Map<String, ScopeBuilder> scopes = new HashMap<>();
+        for (Object[] row : assignments.findAllRows()) {
+            scopes.computeIfAbsent((String) row[0], k -> new ScopeBuilder()).add((AssignmentType) row[1], (String) row[2]);
+        }
+        State next = new State();
+        for (Coupon c : coupons.findAll()) {
+            ScopeBuilder b = scopes.get(c.getId());
+            put(next, new Entry(snapshot(c, c.getUsedCount()), b == null ? Scope.GLOBAL : b.build()));
+        }
+        state = next;
+        loading = false;
+        for (String id : new ArrayList<>(touchedWhileLoading)) refresh(id);
+        log.info("Coupon index loaded: {} coupons in {} ms", next.byId.size(), System.currentTimeMillis() - t0);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCouponChanged(CouponChangedEvent e) {
+        if (loading) touchedWhileLoading.add(e.couponId());
+        refresh(e.couponId());
+    }
+
+    public Optional<Entry> find(String code) {
+        String key = fold(code);
+        if (key.isEmpty()) return Optional.empty();
+        Entry e = state.byCode.get(key);
+        if (e != null) return Optional.of(e);
+        // created on another node (or since the last reload): one indexed lookup, then served from memory
+        return coupons.findByCodeIgnoreCase(code.trim()).map(c -> {
+            Entry loaded = new Entry(snapshot(c, c.getUsedCount()), scopeOf(c.getId()));
+            put(state, loaded);
+            return loaded;
+        });
+    }
+
+    // Re-reads one coupon; a deleted coupon is dropped
+    public void refresh(String couponId) {
+        Optional<Coupon> fresh = coupons.findById(couponId);
+        State s = state;
+        remove(s, couponId);
+        fresh.ifPresent(c -> put(s, new Entry(snapshot(c, c.getUsedCount()), scopeOf(c.getId()))));
+    }
+
+    // Bumps the snapshot's usedCount after a redemption on this node, without re-reading the coupon
+    public synchronized void recordUsage(String couponId, int usedCount) {
+        State s = state;
+        Entry e = s.byId.get(couponId);
+        if (e == null) return;
+        Coupon c = e.coupon();
+        if (c.getUsedCount() != null && c.getUsedCount() >= usedCount) return;
+        put(s, new Entry(snapshot(c, usedCount), e.scope()));
+    }
+
+    // Active coupons whose scope intersects the cart; the caller still evaluates each rule
+    public List<Entry> candidates(String customerId, Collection<String> productIds, Collection<String> categoryIds) {
+        State s = state;
+        Set<String> ids = new LinkedHashSet<>(s.everyCart);
+        if (customerId != null) {
+            ids.addAll(s.everyCustomer);
+            ids.addAll(s.byCustomer.getOrDefault(customerId, Set.of()));
+        }
+        if (productIds != null) for (String id : productIds) ids.addAll(s.byProduct.getOrDefault(id, Set.of()));
+        if (categoryIds != null) for (String id : categoryIds) ids.addAll(s.byCategory.getOrDefault(id, Set.of()));
+        List<Entry> out = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Entry e = s.byId.get(id);
+            if (e != null) out.add(e);
+        }
+        return out;
+    }
+
+    public int size() {
+        return state.byId.size();
+    }
+
+    // Entries never hold the loaded entity: under open-session-in-view it stays managed by the request's
+    // persistence context, so a caller mutating it could flush the change, and it pins that context's memory
+    private static Coupon snapshot(Coupon c, Integer usedCount) {
+        Coupon copy = new Coupon();
+        copy.setId(c.getId());
+        copy.setCode(c.getCode());
+        copy.setDiscountType(c.getDiscountType());
+        copy.setDiscountValue(c.getDiscountValue());
+        copy.setExpiryDate(c.getExpiryDate());
+        copy.setMaxUses(c.getMaxUses());
+        copy.setUsedCount(usedCount);
+        copy.setCreatedAt(c.getCreatedAt());
+        copy.setUpdatedAt(c.getUpdatedAt());
+        copy.setActive(c.isActive());
+        return copy;
+    }
+
+    private Scope scopeOf(String couponId) {
+        ScopeBuilder b = new ScopeBuilder();
+        for (CouponAssignment a : assignments.findByCouponId(couponId)) b.add(a.getAssignedType(), a.getAssignedId());
+        return b.build();
+    }
+
+    private static void put(State s, Entry e) {
+        synchronized (s) {
+            Entry old = s.byId.put(e.coupon().getId(), e);
+            if (old != null) {
+                s.byCode.remove(fold(old.coupon().getCode()), old);
+                unlink(s, old);
+            }
+            s.byCode.put(fold(e.coupon().getCode()), e);
+            link(s, e);
+        }
+    }
+
+    private static void remove(State s, String couponId) {
+        synchronized (s) {
+            Entry old = s.byId.remove(couponId);
+            if (old != null) {
+                s.byCode.remove(fold(old.coupon().getCode()), old);
+                unlink(s, old);
+            }
+        }
+    }
+
+    private static void link(State s, Entry e) {
+        if (!e.coupon().isActive()) return;
+        String id = e.coupon().getId();
+        Scope scope = e.scope();
+        if (scope.global() || scope.anyProduct() || scope.anyCategory()) s.everyCart.add(id);
+        if (scope.anyCustomer()) s.everyCustomer.add(id);
+        for (String p : scope.products()) s.byProduct.computeIfAbsent(p, k -> ConcurrentHashMap.newKeySet()).add(id);
+        for (String c : scope.categories()) s.byCategory.computeIfAbsent(c, k -> ConcurrentHashMap.newKeySet()).add(id);
+        for (String u : scope.customers()) s.byCustomer.computeIfAbsent(u, k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    private static void unlink(State s, Entry e) {
+        String id = e.coupon().getId();
+        s.everyCart.remove(id);
+        s.everyCustomer.remove(id);
+        for (String p : e.scope().products()) unlink(s.byProduct, p, id);
+        for (String c : e.scope().categories()) unlink(s.byCategory, c, id);
+        for (String u : e.scope().customers()) unlink(s.byCustomer, u, id);
+    }
+
+    private static void unlink(Map<String, Set<String>> postings, String key, String couponId) {
+        Set<String> ids = postings.get(key);
+        if (ids == null) return;
+        ids.remove(couponId);
+        if (ids.isEmpty()) postings.remove(key, ids);
+    }
+
+    static String fold(String code) {
+        return code == null ? "" : code.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class ScopeBuilder {
+        final Set<String> customers = new HashSet<>(), products = new HashSet<>(), categories = new HashSet<>();
+        boolean anyCustomer, anyProduct, anyCategory;
+
+        void add(AssignmentType type, String id) {
+            boolean any = "*".equals(id);
+            switch (type) {
+                case CUSTOMER -> { if (any) anyCustomer = true; else customers.add(id); }
+                case PRODUCT -> { if (any) anyProduct = true; else products.add(id); }
+                case CATEGORY -> { if (any) anyCategory = true; else categories.add(id); }
+            }
+        }
+
+        Scope build() {
+            Scope s = new Scope(Set.copyOf(customers), Set.copyOf(products), Set.copyOf(categories), anyCustomer, anyProduct, anyCategory);
+            return s.global() ? Scope.GLOBAL : s;
+        }
+    }
+}
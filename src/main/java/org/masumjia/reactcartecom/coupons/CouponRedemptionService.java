@@ -0,0 +1,120 @@
+package org.masumjia.reactcartecom.coupons;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Redemptions are one conditional UPDATE (redeemIfAvailable), so maxUses holds across threads and nodes
+// without a read-check-save race. In front of it sits a per-coupon gate counting the uses this node may
+// still try: it starts at maxUses - usedCount and only goes down, so it never admits less than the row
+// would, and once a hot code is used up requests are turned away in memory instead of queueing on the
+// row lock. Admin writes drop the gate; a closed gate is re-read after app.coupons.redeem-gate-recheck-ms
+// in case another node raised the limit.
+@Service
+public class CouponRedemptionService {
+    private final CouponRepository coupons;
+    private final CouponIndex index;
+    private final long recheckMs;
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+
+    public CouponRedemptionService(CouponRepository coupons, CouponIndex index,
+                                   @Value("${app.coupons.redeem-gate-recheck-ms:30000}") long recheckMs) {
+        this.coupons = coupons;
+        this.index = index;
+        this.recheckMs = recheckMs;
+    }
+
+    public enum Outcome { REDEEMED, LIMIT_REACHED, UNAVAILABLE }
+
+    public record Redemption(Outcome outcome, Integer usedCount) {}
+
+    private static final class Gate {
+        static final Gate UNLIMITED = new Gate(-1);
+
+        final AtomicInteger remaining;
+        final long loadedAt = System.currentTimeMillis();
+
+        Gate(int remaining) {
+            this.remaining = new AtomicInteger(remaining);
+        }
+
+        boolean tryAcquire() {
+            if (this == UNLIMITED) return true;
+            for (int v = remaining.get(); v > 0; v = remaining.get()) {
+                if (remaining.compareAndSet(v, v - 1)) return true;
+            }
+            return false;
+        }
+
+        void release() {
+            if (this != UNLIMITED) remaining.incrementAndGet();
+        }
+
+        void close() {
+            if (this != UNLIMITED) remaining.set(0);
+        }
+    }
+
+    public Redemption redeem(String couponId) {
+        Gate gate = gateFor(couponId);
+        if (gate != null && !gate.tryAcquire()) {
+            gate = reopen(couponId, gate);
+            if (gate == null || !gate.tryAcquire()) return new Redemption(Outcome.LIMIT_REACHED, null);
+        }
+        int updated;
+        try {
+            updated = coupons.redeemIfAvailable(couponId, LocalDateTime.now());
+        } catch (RuntimeException ex) {
+            if (gate != null) gate.release();
+            throw ex;
+        }
+        if (updated == 1) {
+            Integer used = coupons.findUsedCount(couponId);
+            if (used != null) index.recordUsage(couponId, used);
+            return new Redemption(Outcome.REDEEMED, used);
+        }
+        // used up (possibly by another node), deactivated or expired: nothing more to admit here
+        if (gate != null) gate.close();
+        Coupon c = coupons.findById(couponId).orElse(null);
+        boolean limit = c != null && c.getMaxUses() != null && c.getUsedCount() != null && c.getUsedCount() >= c.getMaxUses();
+        return new Redemption(limit ? Outcome.LIMIT_REACHED : Outcome.UNAVAILABLE, c == null ? null : c.getUsedCount());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCouponChanged(CouponChangedEvent e) {
+        gates.remove(e.couponId());
+    }
+
+    // null = unknown coupon; the conditional update then simply matches nothing
+    private Gate gateFor(String couponId) {
+        Gate g = gates.get(couponId);
+        if (g != null) return g;
+        Gate loaded = load(couponId);
+        if (loaded == null) return null;
+        Gate prev = gates.putIfAbsent(couponId, loaded);
+        return prev != null ? prev : loaded;
+    }
+
+    private Gate reopen(String couponId, Gate closed) {
+        if (System.currentTimeMillis() - closed.loadedAt < recheckMs) return null;
+        Gate loaded = load(couponId);
+        if (loaded == null) {
+            gates.remove(couponId, closed);
+            return null;
+        }
+        return gates.replace(couponId, closed, loaded) ? loaded : gates.get(couponId);
+    }
+
+    private Gate load(String couponId) {
+        Coupon c = coupons.findById(couponId).orElse(null);
+        if (c == null) return null;
+        if (c.getMaxUses() == null) return Gate.UNLIMITED;
+        return new Gate(Math.max(0, c.getMaxUses() - (c.getUsedCount() == null ? 0 : c.getUsedCount())));
+    }
+}
@@ -2,16 +2,25 @@ package org.masumjia.reactcartecom.coupons;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface CouponRepository extends JpaRepository<Coupon, String>, JpaSpecificationExecutor<Coupon> {
     boolean existsByCode(String code);
 
-    @Query("select c.id from Coupon c")
-    java.util.List<String> findAllIds();
-
     java.util.Optional<Coupon> findByCodeIgnoreCase(String code);
     long countByActiveTrue();
     @Query("select count(c) from Coupon c where c.active = true and (c.expiryDate is null or c.expiryDate > CURRENT_TIMESTAMP)")
     long countActiveAndNotExpired();
+
+    // Check-and-increment in one statement: 0 rows means inactive, expired or used up
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Coupon c set c.usedCount = coalesce(c.usedCount, 0) + 1, c.updatedAt = :now where c.id = :id and c.active = true"
+            + " and (c.expiryDate is null or c.expiryDate > :now) and (c.maxUses is null or coalesce(c.usedCount, 0) < c.maxUses)")
+    int redeemIfAvailable(String id, java.time.LocalDateTime now);
+
+    @Query("select c.usedCount from Coupon c where c.id = :id")
+    Integer findUsedCount(String id);
 }
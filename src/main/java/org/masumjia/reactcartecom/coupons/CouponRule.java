@@ -0,0 +1,100 @@
+package org.masumjia.reactcartecom.coupons;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+
+// A coupon and its assignments compiled into one immutable predicate. Compiled once per CouponIndex entry, i.e.
+// once per coupon version, and shared by cart pricing and public validation; evaluating it is a few set lookups.
+public final class CouponRule {
+
+    public enum Match {
+        GLOBAL, CUSTOMER, PRODUCT, CATEGORY, INACTIVE, EXPIRED, NOT_APPLICABLE;
+
+        public boolean applies() {
+            return ordinal() <= CATEGORY.ordinal();
+        }
+    }
+
+    private final Coupon coupon;
+    private final boolean active;
+    private final LocalDateTime expiresAt;
+    private final boolean usedUp;
+    private final boolean global;
+    private final Set<String> customers;
+    private final Set<String> products;
+    private final Set<String> categories;
+    private final boolean anyCustomer;
+    private final boolean anyProduct;
+    private final boolean anyCategory;
+    private final boolean wholeCart;
+    private final Coupon.DiscountType discountType;
+    private final BigDecimal discountValue;
+
+    private CouponRule(Coupon c, CouponIndex.Scope scope) {
+        this.coupon = c;
+        this.active = c.isActive();
+        this.expiresAt = c.getExpiryDate();
+        this.usedUp = c.getMaxUses() != null && c.getUsedCount() != null && c.getUsedCount() >= c.getMaxUses();
+        this.global = scope.global();
+        this.customers = scope.customers();
+        this.products = scope.products();
+        this.categories = scope.categories();
+        this.anyCustomer = scope.anyCustomer();
+        this.anyProduct = scope.anyProduct();
+        this.anyCategory = scope.anyCategory();
+        // a coupon that only targets customers (or any product/category) discounts every line
+        this.wholeCart = anyProduct || anyCategory || (products.isEmpty() && categories.isEmpty());
+        this.discountType = c.getDiscountType();
+        this.discountValue = c.getDiscountValue() == null ? BigDecimal.ZERO : c.getDiscountValue();
+    }
+
+    public static CouponRule compile(Coupon coupon, CouponIndex.Scope scope) {
+        return new CouponRule(coupon, scope);
+    }
+
+    // Snapshot the rule was compiled from: read it, never save it
+    public Coupon coupon() {
+        return coupon;
+    }
+
+    // Customer assignments need a customer id; "*" product/category assignments match any selection
+    public Match match(String customerId, Collection<String> productIds, Collection<String> categoryIds, LocalDateTime now) {
+        if (!active) return Match.INACTIVE;
+        if (usedUp || (expiresAt != null && now.isAfter(expiresAt))) return Match.EXPIRED;
+        if (global) return Match.GLOBAL;
+        if (customerId != null && (anyCustomer || customers.contains(customerId))) return Match.CUSTOMER;
+        if (anyProduct || containsAny(products, productIds)) return Match.PRODUCT;
+        if (anyCategory || containsAny(categories, categoryIds)) return Match.CATEGORY;
+        return Match.NOT_APPLICABLE;
+    }
+
+    public boolean coversWholeCart() {
+        return wholeCart;
+    }
+
+    // Whether a cart line counts towards the discounted subtotal
+    public boolean covers(String productId, String categoryId) {
+        return wholeCart || products.contains(productId) || (categoryId != null && categories.contains(categoryId));
+    }
+
+    // Percent or fixed discount, capped at the amount it applies to
+    public BigDecimal discountOn(BigDecimal amount) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) return BigDecimal.ZERO;
+        BigDecimal amt = discountType == Coupon.DiscountType.PERCENT
+                ? amount.multiply(discountValue.divide(BigDecimal.valueOf(100), RoundingMode.HALF_UP))
+                : discountValue;
+        if (amt.compareTo(amount) > 0) amt = amount;
+        return amt.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static boolean containsAny(Set<String> allowed, Collection<String> ids) {
+        if (ids == null || allowed.isEmpty()) return false;
+        for (String id : ids) {
+            if (allowed.contains(id)) return true;
+        }
+        return false;
+    }
+}
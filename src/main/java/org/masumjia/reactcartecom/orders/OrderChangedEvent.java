@@ -0,0 +1,26 @@
+package org.masumjia.reactcartecom.orders;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+// An order was created, changed status or was deleted. Published inside the writing transaction (see
+// OrderEvents), which also records it in the outbox as "order.created" / "order.status_changed" /
+// "order.deleted"; in-process listeners that must only see committed changes use AFTER_COMMIT.
+public record OrderChangedEvent(Kind kind, String orderId, Integer orderNumber, OrderStatus previousStatus, OrderStatus status,
+                                BigDecimal total, LocalDateTime createdAt, String userId,
+                                String guestName, String guestEmail, String guestPhone) {
+    public static final String AGGREGATE_TYPE = "order";
+    public static final String EVENT_PREFIX = AGGREGATE_TYPE + ".";
+
+    public enum Kind { CREATED, STATUS_CHANGED, DELETED }
+
+    public static OrderChangedEvent of(Kind kind, Order o, OrderStatus previousStatus) {
+        return new OrderChangedEvent(kind, o.getId(), o.getOrderNumber(), previousStatus, o.getStatus(), o.getTotal(), o.getCreatedAt(),
+                o.getUser() == null ? null : o.getUser().getId(), o.getGuestName(), o.getGuestEmail(), o.getGuestPhone());
+    }
+
+    public String eventType() {
+        return EVENT_PREFIX + kind.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -7,7 +7,7 @@ import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import org.masumjia.reactcartecom.cart.*;
 import org.masumjia.reactcartecom.catalog.Product;
-import org.masumjia.reactcartecom.catalog.ProductRepository;
+import org.masumjia.reactcartecom.catalog.StockReservationService;
 import org.masumjia.reactcartecom.common.ApiError;
 import org.masumjia.reactcartecom.common.ApiResponse;
 import org.masumjia.reactcartecom.orders.dto.OrderDtos;
@@ -25,22 +25,29 @@ import java.util.*;
 @RequestMapping("/api")
 @Tag(name = "Orders (Customers)")
 public class OrderController {
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final OrderRepository orders;
     private final OrderItemRepository orderItems;
     private final CartRepository carts;
     private final CartItemRepository cartItems;
-    private final ProductRepository products;
+    private final StockReservationService reservations;
     private final UserRepository users;
+    private final OrderViewAssembler views;
+    private final OrderEvents orderEvents;
 
     public OrderController(OrderRepository orders, OrderItemRepository orderItems,
                            CartRepository carts, CartItemRepository cartItems,
-                           ProductRepository products, UserRepository users) {
+                           StockReservationService reservations, UserRepository users,
+                           OrderViewAssembler views, OrderEvents orderEvents) {
         this.orders = orders;
         this.orderItems = orderItems;
         this.carts = carts;
         this.cartItems = cartItems;
-        this.products = products;
+        this.reservations = reservations;
         this.users = users;
+        this.views = views;
+        this.orderEvents = orderEvents;
     }
 
     @PostMapping("/orders")
@@ -52,7 +59,9 @@ public class OrderController {
         Cart cart = carts.findById(req.cartId()).orElse(null);
         if (cart == null)
             return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Cart not found")));
-        if (cartItems.findByCart_Id(cart.getId()).isEmpty())
+        // Cart lines (with products) loaded once and reused for reservation and order items
+        List<CartItem> lines = cartItems.findByCartIdWithProduct(cart.getId());
+        if (lines.isEmpty())
             return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Cart is empty")));
 
         PaymentMethod pm = parsePayment(req.paymentMethod());
@@ -62,10 +71,9 @@ public class OrderController {
             if (err != null) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", err)));
         }
 
-        // Stock reservation (atomic)
-        Map<String, Integer> failed = attemptDecrement(cart.getId());
+        // Stock reservation (atomic); converts checkout holds, reserving only what they do not cover
+        Map<String, Integer> failed = reservations.convert(cart.getId(), toQuantities(lines)).failed();
         if (!failed.isEmpty()) {
-            rollbackDecrement(cart.getId(), failed);
             Map<String, String> fields = new HashMap<>();
             failed.forEach((k, v) -> fields.put(k, String.valueOf(v)));
             return ResponseEntity.status(409).body(ApiResponse.error(new ApiError("OUT_OF_STOCK", "One or more items are out of stock", fields)));
@@ -86,8 +94,9 @@ public class OrderController {
         // Re-read to populate DB-assigned orderNumber
         o = orders.findById(o.getId()).orElse(o);
 
-        createOrderItemsFromCart(o, cart.getId());
+        createOrderItemsFromCart(o, lines);
         orderItems.flush();
+        orderEvents.created(o);
 
         // Clear cart after successful order (items, coupon, monetary snapshots)
         cartItems.deleteByCart_Id(cart.getId());
@@ -100,7 +109,7 @@ public class OrderController {
         carts.save(cart);
         carts.flush();
 
-        return ResponseEntity.status(201).body(ApiResponse.success(toView(o), Map.of("message", "Order created")));
+        return ResponseEntity.status(201).body(ApiResponse.success(views.toView(o), Map.of("message", "Order created")));
     }
 
     @PostMapping("/me/orders")
@@ -114,7 +123,9 @@ public class OrderController {
         if (u == null) return ResponseEntity.status(401).body(ApiResponse.error(new ApiError("UNAUTHORIZED", "User not found")));
         Cart cart = carts.findByUserId(u.getId()).orElse(null);
         if (cart == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Cart not found")));
-        if (cartItems.findByCart_Id(cart.getId()).isEmpty())
+        // Cart lines (with products) loaded once and reused for reservation and order items
+        List<CartItem> lines = cartItems.findByCartIdWithProduct(cart.getId());
+        if (lines.isEmpty())
             return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", "Cart is empty")));
 
         PaymentMethod pm = parsePayment(req.paymentMethod());
@@ -124,9 +135,8 @@ public class OrderController {
             if (err != null) return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("BAD_REQUEST", err)));
         }
 
-        Map<String, Integer> failed = attemptDecrement(cart.getId());
+        Map<String, Integer> failed = reservations.convert(cart.getId(), toQuantities(lines)).failed();
         if (!failed.isEmpty()) {
-            rollbackDecrement(cart.getId(), failed);
             Map<String, String> fields = new HashMap<>();
             failed.forEach((k, v) -> fields.put(k, String.valueOf(v)));
             return ResponseEntity.status(409).body(ApiResponse.error(new ApiError("OUT_OF_STOCK", "One or more items are out of stock", fields)));
@@ -146,8 +156,9 @@ public class OrderController {
         orders.save(o);
         o = orders.findById(o.getId()).orElse(o);
 
-        createOrderItemsFromCart(o, cart.getId());
+        createOrderItemsFromCart(o, lines);
         orderItems.flush();
+        orderEvents.created(o);
 
         cartItems.deleteByCart_Id(cart.getId());
         cartItems.flush();
@@ -159,7 +170,7 @@ public class OrderController {
         carts.save(cart);
         carts.flush();
 
-        return ResponseEntity.status(201).body(ApiResponse.success(toView(o), Map.of("message", "Order created")));
+        return ResponseEntity.status(201).body(ApiResponse.success(views.toView(o), Map.of("message", "Order created")));
     }
 
     @GetMapping("/orders/{id}")
@@ -172,7 +183,7 @@ public class OrderController {
             if (auth == null || auth.getName() == null || !o.getUser().getId().equals(auth.getName()))
                 return ResponseEntity.status(403).body(ApiResponse.error(new ApiError("FORBIDDEN", "Not allowed")));
         }
-        return ResponseEntity.ok(ApiResponse.success(toView(o)));
+        return ResponseEntity.ok(ApiResponse.success(views.toView(o)));
     }
 
     @GetMapping("/orders/number/{orderNumber}")
@@ -184,18 +195,29 @@ public class OrderController {
             if (auth == null || auth.getName() == null || !o.getUser().getId().equals(auth.getName()))
                 return ResponseEntity.status(403).body(ApiResponse.error(new ApiError("FORBIDDEN", "Not allowed")));
         }
-        return ResponseEntity.ok(ApiResponse.success(toView(o)));
+        return ResponseEntity.ok(ApiResponse.success(views.toView(o)));
     }
 
     @GetMapping("/me/orders")
-    @Operation(summary = "List my orders", security = { @SecurityRequirement(name = "bearerAuth") })
-    public ResponseEntity<ApiResponse<List<OrderDtos.OrderView>>> listMine(Authentication auth) {
+    @Operation(summary = "List my orders, newest first (paginated)", security = { @SecurityRequirement(name = "bearerAuth") })
+    public ResponseEntity<ApiResponse<List<OrderDtos.OrderView>>> listMine(
+            Authentication auth,
+            @RequestParam(value = "page", required = false, defaultValue = "0") int page,
+            @RequestParam(value = "size", required = false, defaultValue = "20") int size
+    ) {
         if (auth == null || auth.getName() == null)
             return ResponseEntity.status(401).body(ApiResponse.error(new ApiError("UNAUTHORIZED", "Login required")));
-        List<Order> list = orders.findByUser_Id(auth.getName());
-        List<OrderDtos.OrderView> out = new ArrayList<>();
-        for (Order o : list) out.add(toView(o));
-        return ResponseEntity.ok(ApiResponse.success(out));
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(Math.max(page, 0), pageSize,
+                org.springframework.data.domain.Sort.by(org.springframework.data.domain.Sort.Direction.DESC, "createdAt").and(org.springframework.data.domain.Sort.by("id")));
+        var pageData = orders.findByUser_Id(auth.getName(), pageable);
+        List<OrderDtos.OrderView> out = views.toViews(pageData.getContent());
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("total", pageData.getTotalElements());
+        meta.put("page", pageable.getPageNumber());
+        meta.put("size", pageSize);
+        meta.put("totalPages", pageData.getTotalPages());
+        return ResponseEntity.ok(ApiResponse.success(out, meta));
     }
 
     @GetMapping("/me/orders/stats")
@@ -216,7 +238,7 @@ public class OrderController {
     public ResponseEntity<ApiResponse<OrderDtos.OrderView>> cancelMyOrder(@PathVariable String id, Authentication auth) {
         if (auth == null || auth.getName() == null)
             return ResponseEntity.status(401).body(ApiResponse.error(new ApiError("UNAUTHORIZED", "Login required")));
-        Order o = orders.findById(id).orElse(null);
+        Order o = orders.lockById(id).orElse(null);
         if (o == null) return ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "Order not found")));
         if (o.getUser() == null || !o.getUser().getId().equals(auth.getName()))
             return ResponseEntity.status(403).body(ApiResponse.error(new ApiError("FORBIDDEN", "Not allowed")));
@@ -228,9 +250,11 @@ public class OrderController {
         java.time.Duration since = java.time.Duration.between(created, java.time.LocalDateTime.now());
         if (since.toHours() >= 12)
             return ResponseEntity.badRequest().body(ApiResponse.error(new ApiError("CANCEL_WINDOW_EXPIRED", "Orders can only be cancelled within 12 hours")));
+        OrderStatus previous = o.getStatus();
         o.setStatus(OrderStatus.CANCELLED);
         orders.save(o);
-        return ResponseEntity.ok(ApiResponse.success(toView(o), java.util.Map.of("message", "Order cancelled")));
+        orderEvents.statusChanged(o, previous);
+        return ResponseEntity.ok(ApiResponse.success(views.toView(o), java.util.Map.of("message", "Order cancelled")));
     }
 
     @PostMapping("/me/orders/{id}/cancel")
@@ -267,30 +291,13 @@ public class OrderController {
 
     // Luhn check removed per requirement (only length + future expiry enforced)
 
-    private Map<String,Integer> attemptDecrement(String cartId) {
-        List<CartItem> list = cartItems.findByCart_Id(cartId);
-        Map<String,Integer> failed = new HashMap<>();
-        for (CartItem ci : list) {
-            String pid = ci.getProduct().getId();
-            int qty = ci.getQuantity();
-            int updated = products.decrementIfAvailable(pid, qty);
-            if (updated == 0) {
-                Product p = products.findById(pid).orElse(null);
-                int avail = p == null || p.getStock() == null ? 0 : p.getStock();
-                failed.put(pid, avail);
-            }
-        }
-        return failed;
-    }
-
-    private void rollbackDecrement(String cartId, Map<String,Integer> failed) {
-        List<CartItem> list = cartItems.findByCart_Id(cartId);
-        for (CartItem ci : list) {
-            String pid = ci.getProduct().getId();
-            if (!failed.containsKey(pid)) {
-                products.increment(pid, ci.getQuantity());
-            }
+    private static Map<String, Integer> toQuantities(List<CartItem> lines) {
+        Map<String, Integer> qty = new HashMap<>();
+        for (CartItem ci : lines) {
+            if (ci.getProduct() == null || ci.getQuantity() == null) continue;
+            qty.merge(ci.getProduct().getId(), ci.getQuantity(), Integer::sum);
         }
+        return qty;
     }
 
     private void snapshotTotalsFromCart(Cart cart, Order o) {
@@ -303,9 +310,9 @@ public class OrderController {
         o.setCouponCode(cart.getCouponCode());
     }
 
-    private void createOrderItemsFromCart(Order o, String cartId) {
-        List<CartItem> cis = cartItems.findByCart_Id(cartId);
-        for (CartItem ci : cis) {
+    private void createOrderItemsFromCart(Order o, List<CartItem> lines) {
+        List<OrderItem> batch = new ArrayList<>(lines.size());
+        for (CartItem ci : lines) {
             Product p = ci.getProduct();
             OrderItem oi = new OrderItem();
             oi.setId(UUID.randomUUID().toString());
@@ -316,8 +323,10 @@ public class OrderController {
             java.math.BigDecimal price = p.getDiscountedPrice() != null ? p.getDiscountedPrice() : (p.getPrice() != null ? p.getPrice() : BigDecimal.ZERO);
             oi.setPrice(price);
             oi.setQuantity(ci.getQuantity());
-            orderItems.save(oi);
+            batch.add(oi);
         }
+        // Inserted as one JDBC batch (hibernate.jdbc.batch_size)
+        orderItems.saveAll(batch);
     }
 
     private String formatAddress(String name, String email, String phone, String address, String city, String postal) {
@@ -330,36 +339,4 @@ public class OrderController {
         if (postal != null && !postal.isBlank()) sb.append(postal);
         return sb.toString();
     }
-
-    private OrderDtos.OrderView toView(Order o) {
-        List<OrderItem> list = orderItems.findByOrder_Id(o.getId());
-        List<OrderDtos.OrderItemView> itemViews = new ArrayList<>();
-        for (OrderItem it : list) {
-            itemViews.add(new OrderDtos.OrderItemView(it.getProductId(), it.getProductNameSnapshot(), it.getPrice(), it.getQuantity()));
-        }
-        return new OrderDtos.OrderView(
-                o.getId(),
-                o.getOrderNumber(),
-                formatOrderNumber(o.getOrderNumber()),
-                o.getUser() == null ? null : o.getUser().getId(),
-                o.getStatus() == null ? null : o.getStatus().name(),
-                o.getPaymentMethod() == null ? null : o.getPaymentMethod().name(),
-                o.getShippingAddress(),
-                o.getGuestName(),
-                o.getGuestEmail(),
-                o.getGuestPhone(),
-                o.getSubtotal(),
-                o.getDiscount(),
-                o.getTotal(),
-                o.getCouponCode(),
-                o.getCreatedAt(),
-                itemViews,
-                new OrderDtos.CouponView(o.getCouponCode(), o.getDiscount())
-        );
-    }
-
-    private String formatOrderNumber(Integer n) {
-        if (n == null) return null;
-        return String.format("%03d", n);
-    }
 }
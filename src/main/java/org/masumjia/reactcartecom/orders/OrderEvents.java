@@ -0,0 +1,44 @@
+package org.masumjia.reactcartecom.orders;
+
+import org.masumjia.reactcartecom.common.Outbox;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Called by the order endpoints inside their transaction after each order write. Records an
+// OrderChangedEvent in the outbox (side effects such as the dashboard rollups run from there, after commit,
+// via OutboxHandlers) and publishes it in-process for AFTER_COMMIT listeners on this node. Either way the
+// writing transaction pays for one outbox insert, however many consumers there are.
+@Component
+public class OrderEvents {
+    private final Outbox outbox;
+    private final ApplicationEventPublisher events;
+
+    public OrderEvents(Outbox outbox, ApplicationEventPublisher events) {
+        this.outbox = outbox;
+        this.events = events;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void created(Order o) {
+        record(OrderChangedEvent.of(OrderChangedEvent.Kind.CREATED, o, null));
+    }
+
+    // The caller must hold the order's row lock (OrderRepository.lockById) so `previous` is really what was stored
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Order o, OrderStatus previous) {
+        if (previous == o.getStatus()) return;
+        record(OrderChangedEvent.of(OrderChangedEvent.Kind.STATUS_CHANGED, o, previous));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleted(Order o) {
+        record(OrderChangedEvent.of(OrderChangedEvent.Kind.DELETED, o, o.getStatus()));
+    }
+
+    private void record(OrderChangedEvent e) {
+        outbox.append(OrderChangedEvent.AGGREGATE_TYPE, e.orderId(), e.eventType(), e);
+        events.publishEvent(e);
+    }
+}
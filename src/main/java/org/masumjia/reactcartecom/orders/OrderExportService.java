@@ -0,0 +1,213 @@
+package org.masumjia.reactcartecom.orders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.masumjia.reactcartecom.common.CsvWriter;
+import org.masumjia.reactcartecom.orders.dto.OrderDtos;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Writes every order matching an OrderFilter, with its items, straight from a forward-only result set: orders
+// left-joined to their items in one query, consecutive rows of an order folded together, each order written
+// as soon as its last row is read. Only the current order is ever held in memory, whatever the row count.
+@Service
+public class OrderExportService {
+    // Connector/J only streams row by row (instead of buffering the whole result) for this fetch size
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    private static final int FLUSH_EVERY = 500;
+
+    private static final String SQL = """
+            select o.id, o.order_number, o.user_id, o.status, o.payment_method, o.shipping_address,
+                   o.guest_name, o.guest_email, o.guest_phone, o.subtotal, o.discount, o.total, o.coupon_code, o.created_at,
+                   i.product_id, i.product_name_snapshot, i.price, i.quantity
+            from orders o left join order_items i on i.order_id = o.id
+            where %s
+            order by o.created_at desc, o.id, i.id""";
+
+    public enum Format {
+        CSV("text/csv", "csv"), NDJSON("application/x-ndjson", "ndjson");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) return CSV;
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("format must be csv or ndjson");
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+
+    public OrderExportService(DataSource dataSource, ObjectMapper mapper) {
+        this(streaming(dataSource), mapper);
+    }
+
+    OrderExportService(JdbcTemplate jdbc, ObjectMapper mapper) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+    }
+
+    private static JdbcTemplate streaming(DataSource dataSource) {
+        JdbcTemplate t = new JdbcTemplate(dataSource);
+        t.setFetchSize(MYSQL_STREAMING_FETCH_SIZE);
+        return t;
+    }
+
+    // Returns the number of orders written
+    public long export(OrderFilter filter, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        Sink sink = format == Format.CSV ? new CsvSink(new CsvWriter(writer)) : new NdjsonSink(writer, mapper);
+        sink.header();
+        List<Object> args = new ArrayList<>();
+        Folder folder = new Folder(sink, writer);
+        try {
+            jdbc.query(SQL.formatted(filter.toSql(args)), (RowCallbackHandler) folder::row, args.toArray());
+        } catch (UncheckedIOException ex) {
+            // the client went away mid-download
+            throw ex.getCause();
+        }
+        folder.finish();
+        writer.flush();
+        return folder.written;
+    }
+
+    private interface Sink {
+        void header() throws IOException;
+        void order(OrderDtos.OrderView order) throws IOException;
+    }
+
+    // Collects the rows of one order at a time; the query keeps them adjacent
+    private static final class Folder {
+        final Sink sink;
+        final Writer writer;
+        OrderDtos.OrderView head;
+        List<OrderDtos.OrderItemView> items = new ArrayList<>();
+        long written;
+
+        Folder(Sink sink, Writer writer) {
+            this.sink = sink;
+            this.writer = writer;
+        }
+
+        void row(ResultSet rs) throws SQLException {
+            String id = rs.getString("id");
+            try {
+                if (head != null && !head.id().equals(id)) emit();
+                if (head == null) head = order(rs);
+                String productId = rs.getString("product_id");
+                if (productId != null) {
+                    items.add(new OrderDtos.OrderItemView(productId, rs.getString("product_name_snapshot"),
+                            rs.getBigDecimal("price"), rs.getObject("quantity", Integer.class)));
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        void finish() throws IOException {
+            if (head != null) emit();
+        }
+
+        private void emit() throws IOException {
+            OrderDtos.OrderView o = head;
+            sink.order(new OrderDtos.OrderView(o.id(), o.orderNumber(), o.orderNumberFormatted(), o.userId(), o.status(),
+                    o.paymentMethod(), o.shippingAddress(), o.guestName(), o.guestEmail(), o.guestPhone(), o.subtotal(),
+                    o.discount(), o.total(), o.couponCode(), o.createdAt(), List.copyOf(items), o.coupon()));
+            head = null;
+            items = new ArrayList<>();
+            if (++written % FLUSH_EVERY == 0) writer.flush();
+        }
+
+        private static OrderDtos.OrderView order(ResultSet rs) throws SQLException {
+            Integer number = rs.getObject("order_number", Integer.class);
+            BigDecimal discount = rs.getBigDecimal("discount");
+            String coupon = rs.getString("coupon_code");
+            return new OrderDtos.OrderView(
+                    rs.getString("id"),
+                    number,
+                    String.format("%03d", number == null ? 0 : number),
+                    rs.getString("user_id"),
+                    rs.getString("status"),
+                    rs.getString("payment_method"),
+                    rs.getString("shipping_address"),
+                    rs.getString("guest_name"),
+                    rs.getString("guest_email"),
+                    rs.getString("guest_phone"),
+                    rs.getBigDecimal("subtotal"),
+                    discount,
+                    rs.getBigDecimal("total"),
+                    coupon,
+                    rs.getObject("created_at", LocalDateTime.class),
+                    List.of(),
+                    new OrderDtos.CouponView(coupon, discount)
+            );
+        }
+    }
+
+    // One line per order item (order columns repeated); an order without items still gets one line
+    private static final class CsvSink implements Sink {
+        final CsvWriter csv;
+
+        CsvSink(CsvWriter csv) {
+            this.csv = csv;
+        }
+
+        public void header() throws IOException {
+            csv.row("orderId", "orderNumber", "createdAt", "status", "paymentMethod", "userId", "guestName", "guestEmail", "guestPhone",
+                    "shippingAddress", "subtotal", "discount", "total", "couponCode", "productId", "productName", "price", "quantity");
+        }
+
+        public void order(OrderDtos.OrderView o) throws IOException {
+            if (o.items().isEmpty()) {
+                line(o, null);
+                return;
+            }
+            for (OrderDtos.OrderItemView it : o.items()) line(o, it);
+        }
+
+        private void line(OrderDtos.OrderView o, OrderDtos.OrderItemView it) throws IOException {
+            csv.row(o.id(), o.orderNumberFormatted(), o.createdAt(), o.status(), o.paymentMethod(), o.userId(), o.guestName(), o.guestEmail(),
+                    o.guestPhone(), o.shippingAddress(), o.subtotal(), o.discount(), o.total(), o.couponCode(),
+                    it == null ? null : it.productId(), it == null ? null : it.name(), it == null ? null : it.price(), it == null ? null : it.quantity());
+        }
+    }
+
+    // One OrderView per line, the same shape as the admin list API
+    private static final class NdjsonSink implements Sink {
+        final Writer writer;
+        final ObjectMapper mapper;
+
+        NdjsonSink(Writer writer, ObjectMapper mapper) {
+            this.writer = writer;
+            this.mapper = mapper;
+        }
+
+        public void header() {}
+
+        public void order(OrderDtos.OrderView o) throws IOException {
+            writer.write(mapper.writeValueAsString(o));
+            writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.masumjia.reactcartecom.orders;
+
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+
+// The admin order filters (status / total range / search), shared by the paged list and the export so both
+// select exactly the same orders. An unknown or "ALL" status means no status filter, as before.
+public record OrderFilter(OrderStatus status, BigDecimal minTotal, BigDecimal maxTotal, String search) {
+
+    public static OrderFilter of(String status, String search, BigDecimal minTotal, BigDecimal maxTotal) {
+        OrderStatus st = null;
+        if (status != null && !status.isBlank() && !"ALL".equalsIgnoreCase(status)) {
+            try {
+                st = OrderStatus.valueOf(status.trim().toUpperCase());
+            } catch (Exception ignored) {}
+        }
+        return new OrderFilter(st, minTotal, maxTotal, search == null || search.isBlank() ? null : search.trim());
+    }
+
+    public Specification<Order> toSpecification() {
+        Specification<Order> spec = (root, query, cb) -> cb.conjunction();
+        if (status != null) {
+            spec = spec.and((root, q, cb) -> cb.equal(root.get("status"), status));
+        }
+        if (minTotal != null) {
+            spec = spec.and((root, q, cb) -> cb.greaterThanOrEqualTo(root.get("total"), minTotal));
+        }
+        if (maxTotal != null) {
+            spec = spec.and((root, q, cb) -> cb.lessThanOrEqualTo(root.get("total"), maxTotal));
+        }
+        if (search != null) {
+            String like = "%" + search.toLowerCase() + "%";
+            Integer number = orderNumber();
+            spec = spec.and((root, q, cb) -> {
+                var userJoin = root.join("user", JoinType.LEFT);
+                Predicate p = cb.or(
+                        cb.like(cb.lower(root.get("guestName")), like),
+                        cb.like(cb.lower(root.get("guestEmail")), like),
+                        cb.like(cb.lower(root.get("couponCode")), like),
+                        cb.like(cb.lower(userJoin.get("id")), like)
+                );
+                if (number != null) p = cb.or(p, cb.equal(root.get("orderNumber"), number));
+                return p;
+            });
+        }
+        return spec;
+    }
+
+    // Same predicate over the orders table aliased as `o`, for plain JDBC; appends the bind values to args
+    public String toSql(List<Object> args) {
+        StringBuilder where = new StringBuilder("1 = 1");
+        if (status != null) {
+            where.append(" and o.status = ?");
+            args.add(status.name());
+        }
+        if (minTotal != null) {
+            where.append(" and o.total >= ?");
+            args.add(minTotal);
+        }
+        if (maxTotal != null) {
+            where.append(" and o.total <= ?");
+            args.add(maxTotal);
+        }
+        if (search != null) {
+            String like = "%" + search.toLowerCase(Locale.ROOT) + "%";
+            where.append(" and (lower(o.guest_name) like ? or lower(o.guest_email) like ? or lower(o.coupon_code) like ? or lower(o.user_id) like ?");
+            args.add(like);
+            args.add(like);
+            args.add(like);
+            args.add(like);
+            Integer number = orderNumber();
+            if (number != null) {
+                where.append(" or o.order_number = ?");
+                args.add(number);
+            }
+            where.append(")");
+        }
+        return where.toString();
+    }
+
+    private Integer orderNumber() {
+        try {
+            return Integer.parseInt(search);
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+}
@@ -3,5 +3,6 @@ package org.masumjia.reactcartecom.orders;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, String> {
-    java.util.List<OrderItem> findByOrder_Id(String orderId);
+    // Items of a whole page of orders in one statement (see OrderViewAssembler)
+    java.util.List<OrderItem> findByOrder_IdIn(java.util.Collection<String> orderIds);
 }
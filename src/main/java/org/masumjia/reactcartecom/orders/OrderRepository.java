@@ -5,9 +5,26 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order, String>, org.springframework.data.jpa.repository.JpaSpecificationExecutor<Order> {
-    List<Order> findByUser_Id(String userId);
+    org.springframework.data.domain.Page<Order> findByUser_Id(String userId, org.springframework.data.domain.Pageable pageable);
     java.util.Optional<Order> findByOrderNumber(Integer orderNumber);
 
+    // Row lock for status changes and deletes, so two concurrent writers can't both apply a delta from the same old status
+    @org.springframework.data.jpa.repository.Lock(jakarta.persistence.LockModeType.PESSIMISTIC_WRITE)
+    @org.springframework.data.jpa.repository.Query("select o from Order o where o.id = :id")
+    java.util.Optional<Order> lockById(@org.springframework.data.repository.query.Param("id") String id);
+
+    // Newest-first feed over idx_orders_created (created_at, id); the page's limit comes from the Pageable and the
+    // next page starts strictly after the last (createdAt, id) seen
+    @org.springframework.data.jpa.repository.Query("select new org.masumjia.reactcartecom.orders.OrderSummary(o.id, o.orderNumber, o.createdAt, o.status, o.total, u.id, o.guestName, o.guestEmail, o.guestPhone) "
+            + "from Order o left join o.user u where o.createdAt is not null order by o.createdAt desc, o.id desc")
+    java.util.List<OrderSummary> findRecent(org.springframework.data.domain.Pageable page);
+
+    @org.springframework.data.jpa.repository.Query("select new org.masumjia.reactcartecom.orders.OrderSummary(o.id, o.orderNumber, o.createdAt, o.status, o.total, u.id, o.guestName, o.guestEmail, o.guestPhone) "
+            + "from Order o left join o.user u where o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id) order by o.createdAt desc, o.id desc")
+    java.util.List<OrderSummary> findRecentBefore(@org.springframework.data.repository.query.Param("createdAt") java.time.LocalDateTime createdAt,
+                                                  @org.springframework.data.repository.query.Param("id") String id,
+                                                  org.springframework.data.domain.Pageable page);
+
     long countByUser_Id(String userId);
     long countByUser_IdAndStatus(String userId, OrderStatus status);
 
@@ -0,0 +1,14 @@
+package org.masumjia.reactcartecom.orders;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Read-only projection of an order's header for feeds and the dashboard: no items, no User proxy
+public record OrderSummary(String id, Integer orderNumber, LocalDateTime createdAt, OrderStatus status, BigDecimal total,
+                           String userId, String guestName, String guestEmail, String guestPhone) {
+
+    public static OrderSummary of(OrderChangedEvent e) {
+        return new OrderSummary(e.orderId(), e.orderNumber(), e.createdAt(), e.status(), e.total(),
+                e.userId(), e.guestName(), e.guestEmail(), e.guestPhone());
+    }
+}
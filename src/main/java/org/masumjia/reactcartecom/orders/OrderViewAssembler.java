@@ -0,0 +1,58 @@
+package org.masumjia.reactcartecom.orders;
+
+import org.masumjia.reactcartecom.orders.dto.OrderDtos;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+// Builds OrderViews for a page of orders with one items query (order_id in (...)) grouped in memory,
+// instead of one findByOrder_Id per order. The user id comes from the lazy User proxy, which answers
+// getId() from the foreign key without loading the user row.
+@Component
+public class OrderViewAssembler {
+    private final OrderItemRepository orderItems;
+
+    public OrderViewAssembler(OrderItemRepository orderItems) {
+        this.orderItems = orderItems;
+    }
+
+    public List<OrderDtos.OrderView> toViews(List<Order> orders) {
+        if (orders.isEmpty()) return List.of();
+        Set<String> ids = new LinkedHashSet<>();
+        for (Order o : orders) ids.add(o.getId());
+        Map<String, List<OrderDtos.OrderItemView>> itemsByOrder = new HashMap<>();
+        for (OrderItem it : orderItems.findByOrder_IdIn(ids)) {
+            itemsByOrder.computeIfAbsent(it.getOrder().getId(), k -> new ArrayList<>())
+                    .add(new OrderDtos.OrderItemView(it.getProductId(), it.getProductNameSnapshot(), it.getPrice(), it.getQuantity()));
+        }
+        List<OrderDtos.OrderView> out = new ArrayList<>(orders.size());
+        for (Order o : orders) out.add(view(o, itemsByOrder.getOrDefault(o.getId(), List.of())));
+        return out;
+    }
+
+    public OrderDtos.OrderView toView(Order o) {
+        return toViews(List.of(o)).get(0);
+    }
+
+    private static OrderDtos.OrderView view(Order o, List<OrderDtos.OrderItemView> items) {
+        return new OrderDtos.OrderView(
+                o.getId(),
+                o.getOrderNumber(),
+                o.getOrderNumber() == null ? null : String.format("%03d", o.getOrderNumber()),
+                o.getUser() == null ? null : o.getUser().getId(),
+                o.getStatus() == null ? null : o.getStatus().name(),
+                o.getPaymentMethod() == null ? null : o.getPaymentMethod().name(),
+                o.getShippingAddress(),
+                o.getGuestName(),
+                o.getGuestEmail(),
+                o.getGuestPhone(),
+                o.getSubtotal(),
+                o.getDiscount(),
+                o.getTotal(),
+                o.getCouponCode(),
+                o.getCreatedAt(),
+                items,
+                new OrderDtos.CouponView(o.getCouponCode(), o.getDiscount())
+        );
+    }
+}
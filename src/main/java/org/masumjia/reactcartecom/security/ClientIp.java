@@ -0,0 +1,79 @@
+package org.masumjia.reactcartecom.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+// The client address behind our own load balancers / reverse proxies, for per-IP limits. X-Forwarded-For is
+// believed only as far as app.security.trusted-proxies appended it: the hops are walked from the right, skipping
+// trusted proxies, and the first untrusted one is the client. A connection that does not come from a trusted
+// proxy is the client itself, so a header forged from outside changes nothing.
+@Component
+public class ClientIp {
+    static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    private final List<IpAddressMatcher> trusted;
+
+    public ClientIp(@Value("${app.security.trusted-proxies:127.0.0.0/8,::1/128,10.0.0.0/8,172.16.0.0/12,192.168.0.0/16,fc00::/7}") String trustedProxies) {
+        List<IpAddressMatcher> m = new ArrayList<>();
+        for (String cidr : trustedProxies.split(",")) {
+            if (!cidr.isBlank()) m.add(new IpAddressMatcher(cidr.trim()));
+        }
+        this.trusted = List.copyOf(m);
+    }
+
+    public String resolve(HttpServletRequest request) {
+        String client = request.getRemoteAddr();
+        if (!isTrusted(client)) return client;
+        List<String> hops = new ArrayList<>();
+        Enumeration<String> headers = request.getHeaders(FORWARDED_FOR);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String hop : headers.nextElement().split(",")) {
+                if (!hop.isBlank()) hops.add(hop.trim());
+            }
+        }
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            String hop = hops.get(i);
+            // a garbled entry was not written by a proxy we trust; the last hop we could read is as far as we go
+            if (!isAddress(hop)) break;
+            client = hop;
+            if (!isTrusted(hop)) break;
+        }
+        return client;
+    }
+
+    boolean isTrusted(String address) {
+        if (!isAddress(address)) return false;
+        for (IpAddressMatcher m : trusted) {
+            if (m.matches(address)) return true;
+        }
+        return false;
+    }
+
+    // IP literals only, so a hostname in a header can never cause a DNS lookup
+    static boolean isAddress(String s) {
+        if (s == null || s.isEmpty() || s.length() > 45) return false;
+        if (s.indexOf(':') >= 0) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c != ':' && c != '.' && Character.digit(c, 16) < 0) return false;
+            }
+            return true;
+        }
+        String[] octets = s.split("\\.", -1);
+        if (octets.length != 4) return false;
+        for (String o : octets) {
+            if (o.isEmpty() || o.length() > 3) return false;
+            for (int i = 0; i < o.length(); i++) {
+                if (o.charAt(i) < '0' || o.charAt(i) > '9') return false;
+            }
+            if (Integer.parseInt(o) > 255) return false;
+        }
+        return true;
+    }
+}
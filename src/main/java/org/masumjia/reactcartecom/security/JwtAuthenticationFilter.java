@@ -5,29 +5,27 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.masumjia.reactcartecom.user.User;
-import org.masumjia.reactcartecom.user.UserRepository;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.Optional;
 
+// Authenticates from the token alone: subject = user id, "role" claim = role (set by AuthController when the
+// token is issued). Bans and role changes revoke the user's earlier tokens through UserRevocationList, so no
+// user row is read per request.
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserRepository userRepository;
-    public JwtAuthenticationFilter(JwtService jwtService, UserRepository userRepository) {
+    private final UserRevocationList revocations;
+    public JwtAuthenticationFilter(JwtService jwtService, UserRevocationList revocations) {
         this.jwtService = jwtService;
-        this.userRepository = userRepository;
+        this.revocations = revocations;
     }
 
     @Override
@@ -40,19 +38,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             try {
                 Claims claims = jwtService.parse(token);
                 String userId = claims.getSubject();
-                if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    Optional<User> u = userRepository.findById(userId);
-                    if (u.isPresent() && !u.get().isBanned()) {
-                        User user = u.get();
-                        UserDetails details = org.springframework.security.core.userdetails.User
-                                .withUsername(user.getId())
-                                .password(user.getPasswordHash())
-                                .roles(user.getRole())
-                                .build();
-                        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(details, null, details.getAuthorities());
-                        auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(auth);
-                    }
+                String role = claims.get("role", String.class);
+                if (userId != null && role != null && SecurityContextHolder.getContext().getAuthentication() == null
+                        && !revocations.isRevoked(userId, claims.getIssuedAt())) {
+                    UserDetails details = org.springframework.security.core.userdetails.User
+                            .withUsername(userId)
+                            .password("")
+                            .roles(role)
+                            .build();
+                    UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(details, null, details.getAuthorities());
+                    auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(auth);
                 }
             } catch (Exception ignored) {}
         }
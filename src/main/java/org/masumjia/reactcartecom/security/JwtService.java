@@ -1,6 +1,7 @@
 package org.masumjia.reactcartecom.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -13,17 +14,33 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class JwtService {
 
     private final Key key;
     private final int accessExpMin;
+    // immutable once built, safe to share between request threads
+    private final JwtParser parser;
+    private final int verifiedCacheSize;
+    // Recently verified tokens -> their claims, so a session's repeated requests skip the HMAC check until the
+    // token expires. Keyed by the whole token including its signature, so a tampered token is always a miss.
+    // Lookups take no lock; once verifiedCacheSize tokens have been added the oldest are dropped first.
+    private final ConcurrentHashMap<String, Claims> verified = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    // entries in insertionOrder, which bounds the map (a key evicted from the map may still be queued, never the reverse)
+    private final AtomicInteger queued = new AtomicInteger();
 
     public JwtService(@Value("${app.security.jwt.secret}") String secret,
-                      @Value("${app.security.jwt.access-exp-min}") int accessExpMin) {
+                      @Value("${app.security.jwt.access-exp-min}") int accessExpMin,
+                      @Value("${app.security.jwt.verified-cache-size:10000}") int verifiedCacheSize) {
         this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(java.util.Base64.getEncoder().encodeToString(secret.getBytes())));
         this.accessExpMin = accessExpMin;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedCacheSize = Math.max(0, verifiedCacheSize);
     }
 
     public String generateAccess(String subject, Map<String, Object> claims) {
@@ -37,7 +54,35 @@ public class JwtService {
                 .compact();
     }
 
+    // Returned claims may be shared with other requests presenting the same token: read them, never modify
     public Claims parse(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        if (verifiedCacheSize > 0) {
+            Claims hit = verified.get(token);
+            if (hit != null) {
+                if (hit.getExpiration().getTime() > System.currentTimeMillis()) return hit;
+                verified.remove(token, hit);
+            }
+        }
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        // tokens without an expiry are verified every time rather than trusted forever
+        if (verifiedCacheSize > 0 && claims.getExpiration() != null && verified.putIfAbsent(token, claims) == null) {
+            insertionOrder.add(token);
+            queued.incrementAndGet();
+            evictOverflow();
+        }
+        return claims;
+    }
+
+    private void evictOverflow() {
+        for (int n = queued.get(); n > verifiedCacheSize; n = queued.get()) {
+            if (!queued.compareAndSet(n, n - 1)) continue;
+            // tokens are queued before they are counted, so a claimed slot always has one to poll
+            String eldest = insertionOrder.poll();
+            if (eldest != null) verified.remove(eldest);
+        }
+    }
+
+    public int verifiedCacheSize() {
+        return verified.size();
     }
 }
@@ -0,0 +1,91 @@
+package org.masumjia.reactcartecom.security;
+
+import org.masumjia.reactcartecom.common.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Token buckets per email and per client IP for the password endpoints. A bucket holds `burst` attempts and
+// refills continuously to `per-minute`; an empty bucket is a 429 before any user lookup or BCrypt work.
+// Buckets are per node and in memory, so the limit across N nodes is at most N times the configured one.
+@Component
+public class LoginThrottle {
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final Limit perEmail;
+    private final Limit perIp;
+    private final LongSupplier clock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public LoginThrottle(@Value("${app.security.login-throttle.email-per-minute:5}") int emailPerMinute,
+                         @Value("${app.security.login-throttle.email-burst:5}") int emailBurst,
+                         @Value("${app.security.login-throttle.ip-per-minute:30}") int ipPerMinute,
+                         @Value("${app.security.login-throttle.ip-burst:20}") int ipBurst) {
+        this(new Limit(emailPerMinute, emailBurst), new Limit(ipPerMinute, ipBurst), System::nanoTime);
+    }
+
+    LoginThrottle(Limit perEmail, Limit perIp, LongSupplier clock) {
+        this.perEmail = perEmail;
+        this.perIp = perIp;
+        this.clock = clock;
+    }
+
+    record Limit(int perMinute, int burst) {
+        double perNano() { return perMinute / (double) TimeUnit.MINUTES.toNanos(1); }
+    }
+
+    // Takes one token from each bucket; the IP is checked first so one client spraying emails is cut off early
+    public void acquire(String email, String ip) {
+        if (ip != null && !ip.isBlank()) take("ip:" + ip, perIp);
+        if (email != null && !email.isBlank()) take("email:" + email.trim().toLowerCase(Locale.ROOT), perEmail);
+    }
+
+    private void take(String key, Limit limit) {
+        if (limit.perMinute() <= 0) return;
+        long waitNanos = buckets.computeIfAbsent(key, k -> new Bucket(limit.burst(), clock.getAsLong())).take(limit, clock.getAsLong());
+        if (waitNanos > 0) {
+            throw new TooManyRequestsException("Too many attempts, please retry later", TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.login-throttle.cleanup-ms:60000}")
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        buckets.values().removeIf(b -> b.idleSince(now) > IDLE_NANOS);
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long last;
+
+        Bucket(int burst, long now) {
+            this.tokens = Math.max(1, burst);
+            this.last = now;
+        }
+
+        // 0 when a token was taken, otherwise nanos until the next one
+        synchronized long take(Limit limit, long now) {
+            tokens = Math.min(Math.max(1, limit.burst()), tokens + (now - last) * limit.perNano());
+            last = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / limit.perNano());
+        }
+
+        synchronized long idleSince(long now) {
+            return now - last;
+        }
+    }
+}
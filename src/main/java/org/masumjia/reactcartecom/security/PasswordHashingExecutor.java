@@ -0,0 +1,80 @@
+package org.masumjia.reactcartecom.security;
+
+import jakarta.annotation.PreDestroy;
+import org.masumjia.reactcartecom.common.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// BCrypt runs here instead of on the request thread. Callers get a CompletableFuture and return it from the
+// controller, so the servlet thread is released while the hash is queued or running and a burst of logins cannot
+// tie up the threads that serve browsing and checkout. The pool and its queue are small and fixed: anything beyond
+// threads + queue-size is refused at once with a 429, and a hash not finished within timeout-ms completes with a
+// 429 too (one still queued then is skipped). Completion stages run on the hashing thread, so keep them to the
+// short bookkeeping that follows the hash.
+@Component
+public class PasswordHashingExecutor {
+    private final PasswordEncoder encoder;
+    private final ThreadPoolExecutor pool;
+    private final long timeoutMs;
+
+    public PasswordHashingExecutor(PasswordEncoder encoder,
+                                   @Value("${app.security.hashing.threads:0}") int threads,
+                                   @Value("${app.security.hashing.queue-size:32}") int queueSize,
+                                   @Value("${app.security.hashing.timeout-ms:3000}") long timeoutMs) {
+        this.encoder = encoder;
+        int n = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(n, n, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+            Thread t = new Thread(r, "password-hashing-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMs = timeoutMs;
+    }
+
+    public CompletableFuture<Boolean> matches(String raw, String hash) {
+        return submit(() -> encoder.matches(raw, hash));
+    }
+
+    public CompletableFuture<String> encode(String raw) {
+        return submit(() -> encoder.encode(raw));
+    }
+
+    public int queued() {
+        return pool.getQueue().size();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> work;
+        try {
+            work = CompletableFuture.supplyAsync(task, pool);
+        } catch (RejectedExecutionException ex) {
+            throw busy();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        work.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((value, ex) -> {
+            if (ex == null) {
+                result.complete(value);
+            } else if (ex instanceof TimeoutException) {
+                result.completeExceptionally(busy());
+            } else {
+                result.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+        });
+        return result;
+    }
+
+    private static TooManyRequestsException busy() {
+        return new TooManyRequestsException("Too many sign-in attempts in progress, please retry shortly", 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
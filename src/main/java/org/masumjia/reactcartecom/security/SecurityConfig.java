@@ -1,5 +1,6 @@
 package org.masumjia.reactcartecom.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -42,8 +43,11 @@ public class SecurityConfig {
                         .accessDeniedHandler(restAccessDeniedHandler)
                 )
                 .authorizeHttpRequests(reg -> reg
+                        // the request was authorized before it went async (SSE, streamed exports); the stateless
+                        // JWT filter does not run again on the async re-dispatch
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
-                        .requestMatchers(HttpMethod.POST, "/api/auth/register", "/api/auth/login", "/api/auth/reset-password", "/api/auth/logout").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/auth/register", "/api/auth/login", "/api/auth/reset-password", "/api/auth/logout", "/api/auth/refresh").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/products/**", "/api/categories/**", "/api/settings", "/api/coupons/**").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/carts/**").permitAll()
                         .requestMatchers(HttpMethod.PATCH, "/api/carts/**").permitAll()
@@ -61,15 +65,15 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, "/api/me/cart/merge").authenticated()
                         .requestMatchers(HttpMethod.POST, "/api/me/cart/apply-coupon").authenticated()
                         .requestMatchers(HttpMethod.DELETE, "/api/me/cart/coupon").authenticated()
+                        .requestMatchers(HttpMethod.GET, "/api/me/cart/best-coupon").authenticated()
+                        .requestMatchers(HttpMethod.POST, "/api/me/cart/best-coupon").authenticated()
                         .requestMatchers(HttpMethod.POST, "/api/coupons/**").permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .authenticationProvider(daoAuthenticationProvider())
-                .logout(l -> l
-                        .logoutUrl("/api/auth/logout")
-                        .logoutSuccessHandler(logoutSuccessResponder())
-                )
+                // /api/auth/logout is handled by AuthController, which revokes the refresh session
+                .logout(l -> l.disable())
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
         return http.build();
     }
@@ -102,15 +106,4 @@ public class SecurityConfig {
         src.registerCorsConfiguration("/**", cfg);
         return src;
     }
-
-    @Bean
-    public org.springframework.security.web.authentication.logout.LogoutSuccessHandler logoutSuccessResponder() {
-        return (request, response, authentication) -> {
-            response.setStatus(200);
-            response.setContentType("application/json");
-            String body = new com.fasterxml.jackson.databind.ObjectMapper()
-                    .writeValueAsString(org.masumjia.reactcartecom.common.ApiResponse.success(null, java.util.Map.of("message", "Logged out successfully")));
-            response.getWriter().write(body);
-        };
-    }
 }
@@ -0,0 +1,61 @@
+package org.masumjia.reactcartecom.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Users whose access tokens must stop working before they expire (ban, role change). JWT auth trusts the
+// token's role claim, so instead of loading the user on every request the filter checks this map: a token
+// issued at or before the user's cutoff is refused. Cutoffs are written to token_revocations and re-read
+// every app.security.revocations.refresh-ms so other nodes pick them up; ones older than the access token
+// lifetime can no longer match a live token and are dropped.
+@Component
+public class UserRevocationList {
+    private final JdbcTemplate jdbc;
+    private final long tokenLifetimeSec;
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    public UserRevocationList(JdbcTemplate jdbc, @Value("${app.security.jwt.access-exp-min}") int accessExpMin) {
+        this.jdbc = jdbc;
+        this.tokenLifetimeSec = accessExpMin * 60L;
+    }
+
+    public void revoke(String userId) {
+        long cutoff = System.currentTimeMillis() / 1000;
+        revokedBefore.merge(userId, cutoff, Math::max);
+        jdbc.update("insert into token_revocations (user_id, revoked_before) values (?, ?) on duplicate key update revoked_before = greatest(revoked_before, values(revoked_before))",
+                userId, cutoff);
+    }
+
+    public boolean isRevoked(String userId, Date issuedAt) {
+        Long cutoff = revokedBefore.get(userId);
+        if (cutoff == null) return false;
+        // second resolution on both sides: a token minted in the same second as the revocation is refused too
+        return issuedAt == null || issuedAt.getTime() / 1000 <= cutoff;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.security.revocations.refresh-ms:5000}", fixedDelayString = "${app.security.revocations.refresh-ms:5000}")
+    public void reload() {
+        long horizon = System.currentTimeMillis() / 1000 - tokenLifetimeSec;
+        jdbc.query("select user_id, revoked_before from token_revocations where revoked_before >= ?",
+                rs -> { revokedBefore.merge(rs.getString(1), rs.getLong(2), Math::max); }, horizon);
+        revokedBefore.values().removeIf(cutoff -> cutoff < horizon);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocations.purge-ms:3600000}")
+    public void purge() {
+        jdbc.update("delete from token_revocations where revoked_before < ?", System.currentTimeMillis() / 1000 - tokenLifetimeSec);
+    }
+
+    public int size() {
+        return revokedBefore.size();
+    }
+}
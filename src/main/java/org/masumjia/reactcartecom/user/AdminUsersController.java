@@ -4,47 +4,137 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.masumjia.reactcartecom.auth.SessionService;
 import org.masumjia.reactcartecom.common.ApiError;
 import org.masumjia.reactcartecom.common.ApiResponse;
+import org.masumjia.reactcartecom.security.UserRevocationList;
 import org.masumjia.reactcartecom.user.dto.AdminUserDtos;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/admin/users")
 @Tag(name = "Admin Users")
 public class AdminUsersController {
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final Set<String> SORTABLE = Set.of("email", "name", "role", "createdAt", "updatedAt");
+
     private final UserRepository users;
     private final PasswordEncoder passwordEncoder;
+    private final UserRevocationList revocations;
+    private final UserExportService exports;
+    private final SessionService sessions;
 
-    public AdminUsersController(UserRepository users, PasswordEncoder passwordEncoder) {
+    public AdminUsersController(UserRepository users, PasswordEncoder passwordEncoder, UserRevocationList revocations,
+                                UserExportService exports, SessionService sessions) {
         this.users = users;
         this.passwordEncoder = passwordEncoder;
+        this.revocations = revocations;
+        this.exports = exports;
+        this.sessions = sessions;
     }
 
     @GetMapping
-    @Operation(summary = "List users (admins + customers)", security = { @SecurityRequirement(name = "bearerAuth") })
+    @Operation(summary = "List users (admins + customers), paginated", security = { @SecurityRequirement(name = "bearerAuth") })
     public ResponseEntity<ApiResponse<List<AdminUserDtos.UserView>>> list(
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @RequestParam(required = false, defaultValue = "20") int size,
+            @RequestParam(required = false) List<String> sort
+    ) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Pageable pageable = PageRequest.of(Math.max(page, 0), pageSize, parseSort(sort));
+        Page<User> pageData = users.findAll(filter(role, search), pageable);
+        List<AdminUserDtos.UserView> data = pageData.getContent().stream().map(this::toView).toList();
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("count", data.size());
+        meta.put("total", pageData.getTotalElements());
+        meta.put("page", pageable.getPageNumber());
+        meta.put("size", pageSize);
+        meta.put("totalPages", pageData.getTotalPages());
+        return ResponseEntity.ok(ApiResponse.success(data, meta));
+    }
+
+    // Same filters as the list, streamed by UserExportService as CSV while the rows are read
+    @GetMapping(value = "/export", produces = "text/csv")
+    @Operation(summary = "Export users as CSV", security = { @SecurityRequirement(name = "bearerAuth") })
+    public ResponseEntity<StreamingResponseBody> export(
             @RequestParam(required = false) String role,
             @RequestParam(required = false) String search
     ) {
-        List<AdminUserDtos.UserView> data = users.findAll().stream()
-                .filter(u -> role == null || role.isBlank() || role.equalsIgnoreCase(u.getRole()))
-                .filter(u -> {
-                    if (search == null || search.isBlank()) return true;
-                    String s = search.toLowerCase();
-                    return (u.getEmail() != null && u.getEmail().toLowerCase().contains(s)) ||
-                           (u.getName() != null && u.getName().toLowerCase().contains(s));
-                })
-                .map(this::toView)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(data, Map.of("count", data.size())));
+        String r = roleFilter(role);
+        String prefix = searchPrefix(search);
+        StreamingResponseBody body = out -> exports.export(r, prefix, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv\"")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
+    // Prefix matches only, so MySQL can range-scan the email/name indexes; its default collation is
+    // case-insensitive, so the columns are compared as stored rather than wrapped in lower()
+    private Specification<User> filter(String role, String search) {
+        Specification<User> spec = Specification.where(null);
+        String r = roleFilter(role);
+        if (r != null) {
+            spec = spec.and((root, q, cb) -> cb.equal(root.get("role"), r));
+        }
+        String prefix = searchPrefix(search);
+        if (prefix != null) {
+            spec = spec.and((root, q, cb) -> cb.or(
+                    cb.like(root.get("email"), prefix, '\\'),
+                    cb.like(root.get("name"), prefix, '\\')));
+        }
+        return spec;
+    }
+
+    private static String roleFilter(String role) {
+        if (role == null || role.isBlank()) return null;
+        String r = role.trim().toUpperCase(Locale.ROOT);
+        if (!r.equals("ADMIN") && !r.equals("CUSTOMER")) throw new IllegalArgumentException("Role must be ADMIN or CUSTOMER");
+        return r;
+    }
+
+    // LIKE prefix pattern, escaped with backslashes
+    private static String searchPrefix(String search) {
+        if (search == null || search.isBlank()) return null;
+        return search.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    private Sort parseSort(List<String> sortParams) {
+        Sort result = Sort.unsorted();
+        if (sortParams != null) {
+            for (String p : sortParams) {
+                if (p == null || p.isBlank()) continue;
+                String[] parts = p.split(",");
+                String field = parts[0].trim();
+                if (!SORTABLE.contains(field)) throw new IllegalArgumentException("Cannot sort by " + field);
+                Sort.Direction dir = (parts.length > 1 && parts[1].trim().equalsIgnoreCase("desc"))
+                        ? Sort.Direction.DESC : Sort.Direction.ASC;
+                result = result.and(Sort.by(dir, field));
+            }
+        }
+        if (result.isUnsorted()) result = Sort.by(Sort.Direction.DESC, "createdAt");
+        // id breaks ties so rows don't repeat or vanish between pages
+        return result.and(Sort.by("id"));
     }
 
     @GetMapping("/{id}")
@@ -87,11 +177,18 @@ public class AdminUsersController {
             if (req.phone() != null) u.setPhone(req.phone());
             if (req.address() != null) u.setAddress(req.address());
             if (req.profileImageUrl() != null) u.setProfileImageUrl(req.profileImageUrl());
+            // tokens carry the role and are not checked against the user row, so bans, role and password changes revoke them
+            boolean revoke = (Boolean.TRUE.equals(req.banned()) && !u.isBanned())
+                    || (req.role() != null && !req.role().equals(u.getRole()))
+                    || req.newPassword() != null;
             if (req.banned() != null) u.setBanned(req.banned());
             if (req.role() != null) u.setRole(req.role());
             if (req.newPassword() != null) u.setPasswordHash(passwordEncoder.encode(req.newPassword()));
             u.setUpdatedAt(LocalDateTime.now());
             users.save(u);
+            // devices signed in with the old password must not keep renewing
+            if (req.newPassword() != null) sessions.revokeAll(u.getId());
+            if (revoke) revocations.revoke(u.getId());
             return ResponseEntity.ok(ApiResponse.success(toView(u), Map.of("message", "User updated")));
         }).orElseGet(() -> ResponseEntity.status(404)
                 .body(ApiResponse.error(new ApiError("NOT_FOUND", "User not found"))));
@@ -104,6 +201,7 @@ public class AdminUsersController {
             u.setBanned(true);
             u.setUpdatedAt(LocalDateTime.now());
             users.save(u);
+            revocations.revoke(u.getId());
             return ResponseEntity.ok(ApiResponse.success((Object)java.util.Map.of("id", u.getId(), "banned", true), java.util.Map.of("message", "User banned")));
         }).orElseGet(() -> ResponseEntity.status(404)
                 .body(ApiResponse.error(new ApiError("NOT_FOUND", "User not found"))));
@@ -129,6 +227,7 @@ public class AdminUsersController {
             u.setRole("ADMIN");
             u.setUpdatedAt(LocalDateTime.now());
             users.save(u);
+            revocations.revoke(u.getId());
             return ResponseEntity.ok(ApiResponse.success((Object)java.util.Map.of("id", u.getId(), "role", u.getRole()), java.util.Map.of("message", "User promoted to admin")));
         }).orElseGet(() -> ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "User not found"))));
     }
@@ -140,6 +239,7 @@ public class AdminUsersController {
             u.setRole("CUSTOMER");
             u.setUpdatedAt(LocalDateTime.now());
             users.save(u);
+            revocations.revoke(u.getId());
             return ResponseEntity.ok(ApiResponse.success((Object)java.util.Map.of("id", u.getId(), "role", u.getRole()), java.util.Map.of("message", "User demoted to customer")));
         }).orElseGet(() -> ResponseEntity.status(404).body(ApiResponse.error(new ApiError("NOT_FOUND", "User not found"))));
     }private AdminUserDtos.UserView toView(User u) {
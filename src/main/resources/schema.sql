@@ -0,0 +1,95 @@
+-- Tables owned by the application itself; the core catalog/order schema is managed outside the app.
+-- Statements must stay idempotent: this script runs on every startup.
+
+-- Journal sequence covered by the last stock ledger flush (see StockLedger)
+CREATE TABLE IF NOT EXISTS stock_ledger_checkpoint (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    seq BIGINT NOT NULL
+);
+
+-- Single-writer lease for the stock ledger: the instance named in `owner` serves reservations until expires_at
+CREATE TABLE IF NOT EXISTS stock_ledger_lease (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    owner VARCHAR(255) NOT NULL,
+    expires_at DATETIME(6) NOT NULL
+);
+
+-- Checkout stock holds (see StockReservationService); expired rows are released by the sweeper
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id CHAR(36) NOT NULL PRIMARY KEY,
+    cart_id CHAR(36) NOT NULL,
+    product_id VARCHAR(64) NOT NULL,
+    quantity INT NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    INDEX idx_stock_reservations_cart (cart_id),
+    INDEX idx_stock_reservations_expires (expires_at)
+);
+
+-- Hi-lo id blocks for prod-/cat-/cpn- ids (see IdAllocator); next_val is the first unreserved number
+CREATE TABLE IF NOT EXISTS id_sequences (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    next_val BIGINT NOT NULL
+);
+
+-- Per-user access token cutoffs (see UserRevocationList): tokens issued at or before revoked_before (epoch seconds) are refused
+CREATE TABLE IF NOT EXISTS token_revocations (
+    user_id VARCHAR(64) NOT NULL PRIMARY KEY,
+    revoked_before BIGINT NOT NULL,
+    INDEX idx_token_revocations_before (revoked_before)
+);
+
+-- Refresh-token sessions (see SessionService); token_hash is the SHA-256 of the current refresh token
+CREATE TABLE IF NOT EXISTS auth_sessions (
+    id CHAR(36) NOT NULL PRIMARY KEY,
+    user_id VARCHAR(64) NOT NULL,
+    token_hash CHAR(64) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    last_used_at DATETIME(6) NULL,
+    revoked_at DATETIME(6) NULL,
+    INDEX idx_auth_sessions_user (user_id),
+    INDEX idx_auth_sessions_expires (expires_at)
+);
+
+-- Order counts and totals per status and creation month (see DashboardMetricsStore); year/month 0 = no created_at.
+-- Maintained by deltas in the same transaction as each order write, rebuilt from orders on demand.
+CREATE TABLE IF NOT EXISTS order_rollups (
+    status VARCHAR(32) NOT NULL,
+    year INT NOT NULL,
+    month INT NOT NULL,
+    order_count BIGINT NOT NULL,
+    total_sum DECIMAL(19, 2) NOT NULL,
+    PRIMARY KEY (status, year, month)
+);
+
+-- Transactional outbox (see Outbox / OutboxDispatcher): rows are written in the same transaction as the change they
+-- describe and deleted once every handler has processed them. failed_at is set after app.outbox.max-attempts.
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    aggregate_type VARCHAR(32) NOT NULL,
+    aggregate_id VARCHAR(64) NOT NULL,
+    event_type VARCHAR(64) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(6) NULL,
+    failed_at DATETIME(6) NULL,
+    last_error VARCHAR(500) NULL,
+    INDEX idx_outbox_events_pending (failed_at, id, next_attempt_at),
+    INDEX idx_outbox_events_aggregate (aggregate_type, aggregate_id, id)
+);
+
+-- Handlers that already processed an outbox event still pending because another handler failed on it; the
+-- dispatcher skips them on retry and deletes these rows together with the event
+CREATE TABLE IF NOT EXISTS outbox_deliveries (
+    event_id BIGINT NOT NULL,
+    handler VARCHAR(255) NOT NULL,
+    PRIMARY KEY (event_id, handler)
+);
+
+-- One row per outbox dispatcher; whichever node holds its row lock dispatches, keeping per-aggregate order cluster-wide
+CREATE TABLE IF NOT EXISTS outbox_lock (
+    name VARCHAR(64) NOT NULL PRIMARY KEY
+);
+INSERT IGNORE INTO outbox_lock (name) VALUES ('dispatcher');
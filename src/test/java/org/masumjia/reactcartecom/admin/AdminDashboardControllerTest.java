@@ -0,0 +1,71 @@
+package org.masumjia.reactcartecom.admin;
+
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.catalog.ProductRepository;
+import org.masumjia.reactcartecom.orders.OrderRepository;
+import org.masumjia.reactcartecom.orders.OrderStatus;
+import org.masumjia.reactcartecom.orders.OrderSummary;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AdminDashboardControllerTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recentOrdersFeedWalksBackWithAKeysetCursor() {
+        // 25 orders, two of them sharing a timestamp so the id tie-breaker matters
+        LocalDateTime t0 = LocalDateTime.of(2025, 6, 1, 8, 0, 0, 123_000_000);
+        List<OrderSummary> all = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            LocalDateTime at = t0.plusMinutes(i == 13 ? 12 : i);
+            all.add(new OrderSummary(String.format("ord-%02d", i), i + 1, at, OrderStatus.PENDING, BigDecimal.TEN, null, "Guest", null, null));
+        }
+        all.sort(Comparator.comparing(OrderSummary::createdAt).thenComparing(OrderSummary::id).reversed());
+        OrderRepository orders = mock(OrderRepository.class);
+        when(orders.findRecent(any(Pageable.class))).thenAnswer(inv -> all.subList(0, ((Pageable) inv.getArgument(0)).getPageSize()));
+        when(orders.findRecentBefore(any(), anyString(), any(Pageable.class))).thenAnswer(inv -> {
+            LocalDateTime at = inv.getArgument(0);
+            String id = inv.getArgument(1);
+            int n = ((Pageable) inv.getArgument(2)).getPageSize();
+            return all.stream().filter(o -> o.createdAt().isBefore(at) || (o.createdAt().isEqual(at) && o.id().compareTo(id) < 0)).limit(n).toList();
+        });
+        AdminDashboardController controller = new AdminDashboardController(mock(DashboardMetricsStore.class), mock(ProductRepository.class), orders);
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var body = controller.recentOrders(10, cursor).getBody();
+            body.getData().forEach(o -> seen.add(o.id()));
+            cursor = (String) ((Map<String, Object>) body.getMeta()).get("nextCursor");
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).containsExactlyElementsOf(all.stream().map(OrderSummary::id).toList());
+        verify(orders, times(1)).findRecent(PageRequest.of(0, 10));
+        verify(orders, never()).findAll();
+    }
+
+    @Test
+    void rejectsForgedCursorsAndClampsTheLimit() {
+        OrderRepository orders = mock(OrderRepository.class);
+        AdminDashboardController controller = new AdminDashboardController(mock(DashboardMetricsStore.class), mock(ProductRepository.class), orders);
+
+        assertThatThrownBy(() -> controller.recentOrders(10, "not-a-cursor")).isInstanceOf(IllegalArgumentException.class);
+        controller.recentOrders(5_000, null);
+        verify(orders).findRecent(PageRequest.of(0, 100));
+    }
+}
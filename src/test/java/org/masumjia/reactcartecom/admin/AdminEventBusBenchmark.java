@@ -0,0 +1,68 @@
+package org.masumjia.reactcartecom.admin;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Cost of publish() to a set of admin streams, one of which never finishes a write: it should stay flat
+// whatever the stalled client does, since each subscriber only ever blocks its own sender thread.
+//   mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=AdminEventBusBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdminEventBusBenchmark {
+    @Param({ "2", "20" })
+    public int subscribers;
+
+    private AdminEventBus bus;
+    private CountDownLatch release;
+    private long next;
+
+    // Accepts every write at once, like a client keeping up
+    static final class DiscardingEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder builder) {}
+    }
+
+    // Blocks every write until the trial ends, like a client that stopped reading
+    static final class StalledEmitter extends SseEmitter {
+        private final CountDownLatch release;
+
+        StalledEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bus = new AdminEventBus(256, 60_000, 0, subscribers);
+        release = new CountDownLatch(1);
+        bus.subscribe(new StalledEmitter(release));
+        for (int i = 1; i < subscribers; i++) bus.subscribe(new DiscardingEmitter());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        release.countDown();
+        bus.shutdown();
+    }
+
+    @Benchmark
+    public void publish() {
+        bus.publish("order-created", next++);
+    }
+}
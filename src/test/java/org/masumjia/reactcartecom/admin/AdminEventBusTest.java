@@ -0,0 +1,113 @@
+package org.masumjia.reactcartecom.admin;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdminEventBusTest {
+    private final AdminEventBus bus = new AdminEventBus(4, 60_000, 0, 10);
+
+    @AfterEach
+    void tearDown() {
+        bus.shutdown();
+    }
+
+    // Records what would be written to the stream; optionally stalls every write until released
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<String> frames = new CopyOnWriteArrayList<>();
+        final CountDownLatch release;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                if (release != null) release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            frames.add(builder.build().stream().map(d -> String.valueOf(d.getData())).collect(Collectors.joining()));
+        }
+
+        List<String> names() {
+            return frames.stream().filter(f -> f.startsWith("event:"))
+                    .map(f -> f.substring(6, f.indexOf('\n'))).toList();
+        }
+    }
+
+    private static void await(RecordingEmitter e, int frames) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (e.frames.size() < frames && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    }
+
+    private static void awaitLast(RecordingEmitter e, String data) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline && (e.frames.isEmpty() || !e.frames.get(e.frames.size() - 1).contains(data))) Thread.sleep(5);
+    }
+
+    @Test
+    void deliversEventsInOrderToEachSubscriber() throws Exception {
+        RecordingEmitter a = new RecordingEmitter(null), b = new RecordingEmitter(null);
+        bus.subscribe(a);
+        bus.subscribe(b);
+
+        bus.publish("order-created", "o-1");
+        bus.publish("order-status-changed", "o-1");
+        await(a, 2);
+        await(b, 2);
+
+        assertThat(a.names()).containsExactly("order-created", "order-status-changed");
+        assertThat(b.names()).containsExactly("order-created", "order-status-changed");
+        assertThat(a.frames.get(0)).contains("data:o-1");
+    }
+
+    @Test
+    void aStalledSubscriberNeitherBlocksPublishersNorOtherSubscribers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release), fast = new RecordingEmitter(null);
+        bus.subscribe(slow);
+        bus.subscribe(fast);
+
+        int n = 10_000;
+        for (int i = 0; i < n; i++) bus.publish("order-created", "o-" + i);
+        awaitLast(fast, "data:o-" + (n - 1));
+
+        assertThat(fast.frames.get(fast.frames.size() - 1)).contains("data:o-" + (n - 1));
+        assertThat(slow.frames).isEmpty();
+
+        // the stalled client kept at most its buffer plus the one event in flight, then learns it must resync;
+        // if its sender started late the in-flight write was itself preceded by a resync, hence up to two
+        release.countDown();
+        awaitLast(slow, "data:o-" + (n - 1));
+        assertThat(slow.names()).hasSizeLessThanOrEqualTo(2 + 1 + 4).contains("resync");
+        assertThat(slow.frames.get(slow.frames.size() - 1)).contains("data:o-" + (n - 1));
+    }
+
+    @Test
+    void aFailedWriteUnsubscribes() throws Exception {
+        SseEmitter broken = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws java.io.IOException {
+                throw new java.io.IOException("Broken pipe");
+            }
+        };
+        bus.subscribe(broken);
+        assertThat(bus.subscriberCount()).isEqualTo(1);
+
+        bus.publish("low-stock", "prod-1");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (bus.hasSubscribers() && System.currentTimeMillis() < deadline) Thread.sleep(5);
+
+        assertThat(bus.hasSubscribers()).isFalse();
+    }
+}
@@ -0,0 +1,36 @@
+package org.masumjia.reactcartecom.admin;
+
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.common.TooManyRequestsException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class AdminEventsControllerTest {
+
+    @Test
+    void refusedSubscriberGets429WithRetryAfterAndNoBody() {
+        AdminEventBus bus = mock(AdminEventBus.class);
+        when(bus.subscribe()).thenThrow(new TooManyRequestsException("Too many live event subscribers", 30));
+
+        ResponseEntity<SseEmitter> res = new AdminEventsController(bus).stream();
+
+        assertThat(res.getStatusCode().value()).isEqualTo(429);
+        assertThat(res.getHeaders().getFirst("Retry-After")).isEqualTo("30");
+        assertThat(res.hasBody()).isFalse();
+    }
+
+    @Test
+    void acceptedSubscriberGetsTheEmitter() {
+        AdminEventBus bus = mock(AdminEventBus.class);
+        SseEmitter emitter = new SseEmitter();
+        when(bus.subscribe()).thenReturn(emitter);
+
+        ResponseEntity<SseEmitter> res = new AdminEventsController(bus).stream();
+
+        assertThat(res.getStatusCode().value()).isEqualTo(200);
+        assertThat(res.getBody()).isSameAs(emitter);
+    }
+}
@@ -0,0 +1,102 @@
+package org.masumjia.reactcartecom.admin;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.catalog.CatalogChangedEvent;
+import org.masumjia.reactcartecom.catalog.ProductRepository;
+import org.masumjia.reactcartecom.orders.OrderChangedEvent;
+import org.masumjia.reactcartecom.orders.OrderStatus;
+import org.masumjia.reactcartecom.orders.OrderSummary;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AdminLiveEventsTest {
+    private AdminEventBus bus;
+    private ProductRepository products;
+    private AdminLiveEvents live;
+
+    @BeforeEach
+    void setUp() {
+        bus = mock(AdminEventBus.class);
+        products = mock(ProductRepository.class);
+        DashboardMetricsStore metrics = mock(DashboardMetricsStore.class);
+        when(metrics.lowStockThreshold()).thenReturn(5);
+        when(bus.hasSubscribers()).thenReturn(true);
+        live = new AdminLiveEvents(bus, products, metrics);
+    }
+
+    private static OrderChangedEvent event(OrderChangedEvent.Kind kind, OrderStatus previous, OrderStatus status) {
+        return new OrderChangedEvent(kind, "ord-1", 1001, previous, status, new BigDecimal("42.00"), LocalDateTime.now(),
+                "u-1", null, null, null);
+    }
+
+    private void stock(String id, int stock) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{ id, stock });
+        when(products.findStockByIds(List.of(id))).thenReturn(rows);
+    }
+
+    @Test
+    void ordersBecomeCreatedAndStatusChangedEvents() {
+        live.onOrderChanged(event(OrderChangedEvent.Kind.CREATED, null, OrderStatus.PENDING));
+        live.onOrderChanged(event(OrderChangedEvent.Kind.STATUS_CHANGED, OrderStatus.PENDING, OrderStatus.CONFIRMED));
+        live.onOrderChanged(event(OrderChangedEvent.Kind.DELETED, OrderStatus.CONFIRMED, OrderStatus.CONFIRMED));
+
+        verify(bus).publish(eq(AdminLiveEvents.ORDER_CREATED), argThat(d -> ((OrderSummary) d).orderNumber() == 1001));
+        verify(bus).publish(eq(AdminLiveEvents.ORDER_STATUS_CHANGED),
+                argThat(d -> ((Map<?, ?>) d).get("previousStatus") == OrderStatus.PENDING));
+        verifyNoMoreInteractions(bus);
+    }
+
+    @Test
+    void lowStockIsReportedOnceWhenCrossingTheThreshold() {
+        stock("prod-1", 9);
+        live.onCatalogChanged(CatalogChangedEvent.stockChanged(List.of("prod-1")));
+        stock("prod-1", 5);
+        live.onCatalogChanged(CatalogChangedEvent.stockChanged(List.of("prod-1")));
+        stock("prod-1", 2);
+        live.onCatalogChanged(CatalogChangedEvent.stockChanged(List.of("prod-1")));
+        verify(bus, times(1)).publish(eq(AdminLiveEvents.LOW_STOCK), argThat(d -> Integer.valueOf(5).equals(((Map<?, ?>) d).get("stock"))));
+
+        // restocked, then sold down again
+        stock("prod-1", 20);
+        live.onCatalogChanged(CatalogChangedEvent.stockChanged(List.of("prod-1")));
+        stock("prod-1", 1);
+        live.onCatalogChanged(CatalogChangedEvent.stockChanged(List.of("prod-1")));
+        verify(bus, times(2)).publish(eq(AdminLiveEvents.LOW_STOCK), any());
+    }
+
+    @Test
+    void restockWhileNobodyIsSubscribedRearmsTheReport() {
+        stock("prod-1", 2);
+        live.onCatalogChanged(CatalogChangedEvent.stockChanged(List.of("prod-1")));
+
+        // the admin leaves, the product is restocked unseen, the admin comes back and it sells down again
+        when(bus.hasSubscribers()).thenReturn(false);
+        stock("prod-1", 20);
+        live.onCatalogChanged(CatalogChangedEvent.stockChanged(List.of("prod-1")));
+        when(bus.hasSubscribers()).thenReturn(true);
+        stock("prod-1", 3);
+        live.onCatalogChanged(CatalogChangedEvent.stockChanged(List.of("prod-1")));
+
+        verify(bus).publish(eq(AdminLiveEvents.LOW_STOCK), argThat(d -> Integer.valueOf(2).equals(((Map<?, ?>) d).get("stock"))));
+        verify(bus).publish(eq(AdminLiveEvents.LOW_STOCK), argThat(d -> Integer.valueOf(3).equals(((Map<?, ?>) d).get("stock"))));
+    }
+
+    @Test
+    void stockIsNotReadWithoutSubscribers() {
+        when(bus.hasSubscribers()).thenReturn(false);
+        live.onCatalogChanged(CatalogChangedEvent.stockChanged(List.of("prod-1")));
+
+        verifyNoInteractions(products);
+        verify(bus, never()).publish(anyString(), any());
+    }
+}
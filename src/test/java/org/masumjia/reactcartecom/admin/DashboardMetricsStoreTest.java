@@ -0,0 +1,210 @@
+package org.masumjia.reactcartecom.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.catalog.ProductRepository;
+import org.masumjia.reactcartecom.common.Outbox;
+import org.masumjia.reactcartecom.common.OutboxMessage;
+import org.masumjia.reactcartecom.coupons.CouponRepository;
+import org.masumjia.reactcartecom.orders.Order;
+import org.masumjia.reactcartecom.orders.OrderChangedEvent;
+import org.masumjia.reactcartecom.orders.OrderRepository;
+import org.masumjia.reactcartecom.orders.OrderStatus;
+import org.masumjia.reactcartecom.orders.OrderSummary;
+import org.masumjia.reactcartecom.user.UserRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DashboardMetricsStoreTest {
+    private final Map<List<Object>, long[]> counts = new HashMap<>();
+    private final Map<List<Object>, BigDecimal> totals = new HashMap<>();
+    private final ObjectMapper json = new ObjectMapper().findAndRegisterModules();
+    private JdbcTemplate jdbc;
+    private Outbox outbox;
+    private OrderRepository orders;
+    private long seq;
+    private DashboardMetricsStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbc = mock(JdbcTemplate.class);
+        // order_rollups as a map keyed by (status, year, month)
+        when(jdbc.update(startsWith("insert into order_rollups"), any(Object[].class))).thenAnswer(inv -> {
+            Object[] a = Arrays.copyOfRange(inv.getArguments(), 1, inv.getArguments().length);
+            List<Object> key = List.of(a[0], a[1], a[2]);
+            counts.computeIfAbsent(key, k -> new long[1])[0] += (Integer) a[3];
+            totals.merge(key, (BigDecimal) a[4], BigDecimal::add);
+            return 1;
+        });
+        doAnswer(inv -> {
+            RowCallbackHandler h = inv.getArgument(1);
+            for (var e : counts.entrySet()) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(1)).thenReturn((String) e.getKey().get(0));
+                when(rs.getInt(2)).thenReturn((Integer) e.getKey().get(1));
+                when(rs.getInt(3)).thenReturn((Integer) e.getKey().get(2));
+                when(rs.getLong(4)).thenReturn(e.getValue()[0]);
+                when(rs.getBigDecimal(5)).thenReturn(totals.get(e.getKey()));
+                h.processRow(rs);
+            }
+            return null;
+        }).when(jdbc).query(startsWith("select status, year, month"), any(RowCallbackHandler.class));
+        orders = mock(OrderRepository.class);
+        outbox = mock(Outbox.class);
+        store = new DashboardMetricsStore(jdbc, mock(PlatformTransactionManager.class), orders, mock(UserRepository.class),
+                mock(ProductRepository.class), mock(CouponRepository.class), outbox, json, 5);
+    }
+
+    private OutboxMessage message(OrderChangedEvent.Kind kind, Order o, OrderStatus previous) throws Exception {
+        OrderChangedEvent e = OrderChangedEvent.of(kind, o, previous);
+        return new OutboxMessage(++seq, OrderChangedEvent.AGGREGATE_TYPE, o.getId(), e.eventType(), json.writeValueAsString(e),
+                LocalDateTime.now(), 0, null);
+    }
+
+    // What the dispatcher does with an order.* event
+    private void deliver(OrderChangedEvent.Kind kind, Order o, OrderStatus previous) throws Exception {
+        OutboxMessage m = message(kind, o, previous);
+        assertThat(store.handles(m.eventType())).isTrue();
+        store.handle(m);
+    }
+
+    private static Order order(int n, OrderStatus status, String total, LocalDateTime createdAt) {
+        Order o = new Order();
+        o.setId("ord-" + n);
+        o.setOrderNumber(n);
+        o.setStatus(status);
+        o.setTotal(new BigDecimal(total));
+        o.setCreatedAt(createdAt);
+        return o;
+    }
+
+    private Map<OrderStatus, Long> byStatus() {
+        Map<OrderStatus, Long> out = new EnumMap<>(OrderStatus.class);
+        for (var r : store.rollups()) out.merge(r.status(), r.count(), Long::sum);
+        out.values().removeIf(v -> v == 0);
+        return out;
+    }
+
+    @Test
+    void deltasKeepTheRollupsEqualToAFullRecount() throws Exception {
+        LocalDateTime march = LocalDateTime.of(2025, 3, 10, 9, 0), april = LocalDateTime.of(2025, 4, 2, 9, 0);
+        Order a = order(1, OrderStatus.PENDING, "40.00", march);
+        Order b = order(2, OrderStatus.PENDING, "60.00", april);
+        Order c = order(3, OrderStatus.PENDING, "25.00", april);
+        deliver(OrderChangedEvent.Kind.CREATED, a, null);
+        deliver(OrderChangedEvent.Kind.CREATED, b, null);
+        deliver(OrderChangedEvent.Kind.CREATED, c, null);
+
+        b.setStatus(OrderStatus.DELIVERED);
+        deliver(OrderChangedEvent.Kind.STATUS_CHANGED, b, OrderStatus.PENDING);
+        a.setStatus(OrderStatus.DELIVERED);
+        deliver(OrderChangedEvent.Kind.STATUS_CHANGED, a, OrderStatus.PENDING);
+        deliver(OrderChangedEvent.Kind.STATUS_CHANGED, a, OrderStatus.DELIVERED); // no-op
+        deliver(OrderChangedEvent.Kind.DELETED, c, OrderStatus.PENDING);
+
+        assertThat(byStatus()).containsExactly(Map.entry(OrderStatus.DELIVERED, 2L));
+        assertThat(store.rollups()).filteredOn(r -> r.status() == OrderStatus.DELIVERED && r.month() == 4)
+                .singleElement().satisfies(r -> assertThat(r.total()).isEqualByComparingTo("60.00"));
+        assertThat(store.rollups()).filteredOn(r -> r.status() == OrderStatus.PENDING)
+                .allSatisfy(r -> {
+                    assertThat(r.count()).isZero();
+                    assertThat(r.total()).isEqualByComparingTo("0");
+                });
+        assertThat(store.handles("product.updated")).isFalse();
+    }
+
+    @Test
+    void rebuildTakesOutOrderEventsStillWaitingInTheOutbox() throws Exception {
+        LocalDateTime may = LocalDateTime.of(2025, 5, 3, 12, 0);
+        Order x = order(7, OrderStatus.DELIVERED, "30.00", may);
+        // orders already shows x delivered, but its created and status events are not applied yet
+        doAnswer(inv -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString(1)).thenReturn("DELIVERED");
+            when(rs.getInt(2)).thenReturn(2025);
+            when(rs.getInt(3)).thenReturn(5);
+            when(rs.getLong(4)).thenReturn(3L);
+            when(rs.getBigDecimal(5)).thenReturn(new BigDecimal("90.00"));
+            ((RowCallbackHandler) inv.getArgument(1)).processRow(rs);
+            return null;
+        }).when(jdbc).query(startsWith("select status, coalesce"), any(RowCallbackHandler.class));
+        x.setStatus(OrderStatus.PENDING);
+        OutboxMessage created = message(OrderChangedEvent.Kind.CREATED, x, null);
+        x.setStatus(OrderStatus.DELIVERED);
+        OutboxMessage delivered = message(OrderChangedEvent.Kind.STATUS_CHANGED, x, OrderStatus.PENDING);
+        doAnswer(inv -> {
+            for (OutboxMessage m : List.of(created, delivered)) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(1)).thenReturn(m.payload());
+                ((RowCallbackHandler) inv.getArgument(1)).processRow(rs);
+            }
+            return null;
+        }).when(jdbc).query(startsWith("select payload from outbox_events"), any(RowCallbackHandler.class), any(Object[].class));
+        when(jdbc.update("delete from order_rollups")).thenAnswer(inv -> {
+            counts.clear();
+            totals.clear();
+            return 0;
+        });
+        when(jdbc.batchUpdate(startsWith("insert into order_rollups"), anyList())).thenAnswer(inv -> {
+            List<Object[]> rows = inv.getArgument(1);
+            for (Object[] r : rows) {
+                List<Object> key = List.of(r[0], r[1], r[2]);
+                counts.computeIfAbsent(key, k -> new long[1])[0] += (Long) r[3];
+                totals.merge(key, (BigDecimal) r[4], BigDecimal::add);
+            }
+            return new int[rows.size()];
+        });
+
+        store.rebuild();
+        verify(outbox).lockDispatcher();
+        // events this handler already applied on an attempt another handler failed are not taken back out
+        verify(jdbc).query(contains("not exists (select 1 from outbox_deliveries d where d.event_id = e.id and d.handler = ?)"),
+                any(RowCallbackHandler.class), eq(OrderChangedEvent.EVENT_PREFIX + "%"), eq(DashboardMetricsStore.class.getName()));
+        assertThat(byStatus()).containsExactly(Map.entry(OrderStatus.DELIVERED, 2L));
+
+        // once the dispatcher catches up the rollups match the orders table exactly
+        store.handle(created);
+        store.handle(delivered);
+        assertThat(byStatus()).containsExactly(Map.entry(OrderStatus.DELIVERED, 3L));
+        assertThat(store.rollups()).filteredOn(r -> r.status() == OrderStatus.DELIVERED)
+                .singleElement().satisfies(r -> assertThat(r.total()).isEqualByComparingTo("90.00"));
+    }
+
+    @Test
+    void recentOrdersRingKeepsTheNewestTenFromCommittedChanges() {
+        LocalDateTime t0 = LocalDateTime.of(2025, 5, 1, 0, 0);
+        List<Order> all = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) {
+            Order o = order(i, OrderStatus.PENDING, "10.00", t0.plusMinutes(i));
+            all.add(o);
+            store.onOrderChanged(OrderChangedEvent.of(OrderChangedEvent.Kind.CREATED, o, null));
+        }
+        assertThat(store.recentOrders()).extracting(OrderSummary::orderNumber)
+                .containsExactly(12, 11, 10, 9, 8, 7, 6, 5, 4, 3);
+
+        all.get(9).setStatus(OrderStatus.CONFIRMED);
+        store.onOrderChanged(OrderChangedEvent.of(OrderChangedEvent.Kind.STATUS_CHANGED, all.get(9), OrderStatus.PENDING));
+        assertThat(store.recentOrders().get(2).status()).isEqualTo(OrderStatus.CONFIRMED);
+
+        // deleting one of the ten re-reads the newest ten instead of leaving a gap
+        List<OrderSummary> remaining = new ArrayList<>();
+        for (int i = 10; i >= 1; i--) remaining.add(OrderSummary.of(OrderChangedEvent.of(OrderChangedEvent.Kind.CREATED, all.get(i), null)));
+        when(orders.findRecent(any(Pageable.class))).thenReturn(remaining);
+        store.onOrderChanged(OrderChangedEvent.of(OrderChangedEvent.Kind.DELETED, all.get(11), OrderStatus.PENDING));
+        assertThat(store.recentOrders()).hasSize(10).extracting(OrderSummary::orderNumber).startsWith(11).endsWith(2);
+        verify(orders, times(1)).findRecent(PageRequest.of(0, 10));
+    }
+}
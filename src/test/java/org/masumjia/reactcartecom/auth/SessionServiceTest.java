@@ -0,0 +1,90 @@
+package org.masumjia.reactcartecom.auth;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SessionServiceTest {
+    private final Map<String, AuthSession> table = new HashMap<>();
+    private AuthSessionRepository repo;
+    private SessionService sessions;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(AuthSessionRepository.class);
+        when(repo.save(any())).thenAnswer(inv -> {
+            AuthSession s = inv.getArgument(0);
+            table.put(s.getId(), s);
+            return s;
+        });
+        when(repo.findById(anyString())).thenAnswer(inv -> Optional.ofNullable(table.get((String) inv.getArgument(0))));
+        when(repo.rotate(anyString(), anyString(), anyString(), any(), any())).thenAnswer(inv -> {
+            AuthSession s = table.get((String) inv.getArgument(0));
+            LocalDateTime now = inv.getArgument(4);
+            if (s == null || !s.getTokenHash().equals(inv.getArgument(1)) || s.getRevokedAt() != null || !s.getExpiresAt().isAfter(now)) return 0;
+            s.setTokenHash(inv.getArgument(2));
+            s.setExpiresAt(inv.getArgument(3));
+            return 1;
+        });
+        when(repo.revoke(anyString(), any())).thenAnswer(inv -> {
+            AuthSession s = table.get((String) inv.getArgument(0));
+            if (s == null || s.getRevokedAt() != null) return 0;
+            s.setRevokedAt(inv.getArgument(1));
+            return 1;
+        });
+        sessions = new SessionService(repo, 14, 100);
+    }
+
+    @Test
+    void refreshRotatesTheTokenAndStoresOnlyItsHash() {
+        SessionService.Issued first = sessions.open("u-1");
+        SessionService.Issued second = sessions.rotate(first.refreshToken()).orElseThrow();
+
+        assertThat(second.userId()).isEqualTo("u-1");
+        assertThat(second.refreshToken()).isNotEqualTo(first.refreshToken());
+        AuthSession row = table.values().iterator().next();
+        assertThat(row.getTokenHash()).hasSize(64).isNotEqualTo(second.refreshToken());
+        assertThat(sessions.rotate(second.refreshToken())).isPresent();
+    }
+
+    @Test
+    void replayingARotatedTokenRevokesTheWholeSession() {
+        SessionService.Issued first = sessions.open("u-1");
+        SessionService.Issued second = sessions.rotate(first.refreshToken()).orElseThrow();
+
+        assertThat(sessions.rotate(first.refreshToken())).isEmpty();
+        // the legitimate holder is signed out too
+        assertThat(sessions.rotate(second.refreshToken())).isEmpty();
+        assertThat(table.values().iterator().next().getRevokedAt()).isNotNull();
+    }
+
+    @Test
+    void logoutNeedsTheCurrentTokenAndEndsTheSession() {
+        SessionService.Issued issued = sessions.open("u-1");
+        String sessionId = issued.refreshToken().substring(0, issued.refreshToken().indexOf('.'));
+
+        assertThat(sessions.revoke(sessionId + ".guessed")).isFalse();
+        assertThat(sessions.revoke(issued.refreshToken())).isTrue();
+        assertThat(sessions.rotate(issued.refreshToken())).isEmpty();
+    }
+
+    @Test
+    void malformedAndExpiredTokensAreRejected() {
+        assertThat(sessions.rotate(null)).isEmpty();
+        assertThat(sessions.rotate("no-dot")).isEmpty();
+        assertThat(sessions.rotate("missing.secret")).isEmpty();
+
+        SessionService.Issued issued = sessions.open("u-1");
+        table.values().iterator().next().setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        assertThat(sessions.rotate(issued.refreshToken())).isEmpty();
+        verify(repo, never()).rotate(anyString(), anyString(), anyString(), any(), any());
+    }
+}
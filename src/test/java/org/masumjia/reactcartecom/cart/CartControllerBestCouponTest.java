@@ -0,0 +1,109 @@
+package org.masumjia.reactcartecom.cart;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.cart.dto.CartDtos;
+import org.masumjia.reactcartecom.catalog.Category;
+import org.masumjia.reactcartecom.catalog.Product;
+import org.masumjia.reactcartecom.catalog.ProductRepository;
+import org.masumjia.reactcartecom.coupons.Coupon;
+import org.masumjia.reactcartecom.coupons.CouponAssignment.AssignmentType;
+import org.masumjia.reactcartecom.coupons.CouponAssignmentRepository;
+import org.masumjia.reactcartecom.coupons.CouponIndex;
+import org.masumjia.reactcartecom.coupons.CouponRepository;
+import org.masumjia.reactcartecom.user.User;
+import org.masumjia.reactcartecom.user.UserRepository;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class CartControllerBestCouponTest {
+    private CartRepository carts;
+    private UserRepository users;
+    private CartController controller;
+    private Cart cart;
+
+    @BeforeEach
+    void setUp() {
+        carts = mock(CartRepository.class);
+        CartItemRepository items = mock(CartItemRepository.class);
+        users = mock(UserRepository.class);
+        CouponRepository couponRepo = mock(CouponRepository.class);
+        CouponAssignmentRepository assignRepo = mock(CouponAssignmentRepository.class);
+        CouponIndex index = new CouponIndex(couponRepo, assignRepo);
+        controller = new CartController(carts, items, mock(ProductRepository.class), users, index, new CartPricingService(items),
+                mock(org.masumjia.reactcartecom.catalog.StockReservationService.class));
+
+        User owner = new User();
+        owner.setId("u-1");
+        Category cat = new Category();
+        cat.setId("cat-1");
+        cart = new Cart();
+        cart.setId("cart-1");
+        cart.setUser(owner);
+        Product p = new Product();
+        p.setId("prod-1");
+        p.setName("Product 1");
+        p.setCategory(cat);
+        p.setPrice(new BigDecimal("50.00"));
+        p.setStock(100);
+        CartItem ci = new CartItem();
+        ci.setId("ci-1");
+        ci.setCart(cart);
+        ci.setProduct(p);
+        ci.setQuantity(2);
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{ "cpn-u", AssignmentType.CUSTOMER, "u-1" });
+        when(couponRepo.findAll()).thenReturn(List.of(coupon("cpn-g", "EVERYONE", "10.00"), coupon("cpn-u", "VIP", "50.00")));
+        when(assignRepo.findAllRows()).thenReturn(rows);
+        index.reload();
+
+        when(carts.findById("cart-1")).thenReturn(Optional.of(cart));
+        when(carts.findByUserId("u-1")).thenReturn(Optional.of(cart));
+        when(users.findById("u-1")).thenReturn(Optional.of(owner));
+        when(items.findByCartIdWithProduct("cart-1")).thenReturn(List.of(ci));
+    }
+
+    private static Coupon coupon(String id, String code, String percent) {
+        Coupon c = new Coupon();
+        c.setId(id);
+        c.setCode(code);
+        c.setDiscountType(Coupon.DiscountType.PERCENT);
+        c.setDiscountValue(new BigDecimal(percent));
+        return c;
+    }
+
+    @Test
+    void publicQuoteByCartIdNeverOffersTheOwnersCustomerCoupons() {
+        CartDtos.BestCouponView best = controller.bestCoupon("cart-1").getBody().getData();
+
+        assertThat(best.code()).isEqualTo("EVERYONE");
+        assertThat(controller.applyBestCoupon("cart-1").getStatusCode().value()).isEqualTo(200);
+        assertThat(cart.getCouponCode()).isEqualTo("EVERYONE");
+    }
+
+    @Test
+    void authenticatedQuoteIncludesTheCallersCustomerCoupons() {
+        var auth = new UsernamePasswordAuthenticationToken("u-1", null, List.of());
+
+        CartDtos.BestCouponView best = controller.bestCouponMy(auth).getBody().getData();
+
+        assertThat(best.code()).isEqualTo("VIP");
+        assertThat(best.discountAmount()).isEqualByComparingTo("50.00");
+        controller.applyBestCouponMy(auth);
+        assertThat(cart.getCouponCode()).isEqualTo("VIP");
+    }
+
+    @Test
+    void authenticatedQuoteRequiresLogin() {
+        assertThat(controller.bestCouponMy(null).getStatusCode().value()).isEqualTo(401);
+        verifyNoInteractions(carts);
+    }
+}
@@ -0,0 +1,113 @@
+package org.masumjia.reactcartecom.cart;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.cart.dto.CartDtos;
+import org.masumjia.reactcartecom.catalog.Category;
+import org.masumjia.reactcartecom.catalog.Product;
+import org.masumjia.reactcartecom.catalog.ProductRepository;
+import org.masumjia.reactcartecom.coupons.Coupon;
+import org.masumjia.reactcartecom.coupons.CouponAssignmentRepository;
+import org.masumjia.reactcartecom.coupons.CouponIndex;
+import org.masumjia.reactcartecom.coupons.CouponRepository;
+import org.masumjia.reactcartecom.user.UserRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Pins the number of repository round trips per cart endpoint so N+1 lookups cannot creep back in
+class CartControllerQueryBudgetTest {
+    private static final int GET_CART_BUDGET = 5;
+    private static final int PATCH_ITEM_BUDGET = 9;
+
+    private CartRepository carts;
+    private CartItemRepository items;
+    private ProductRepository products;
+    private UserRepository users;
+    private CouponRepository couponRepo;
+    private CouponAssignmentRepository assignRepo;
+    private CartController controller;
+
+    @BeforeEach
+    void setUp() {
+        carts = mock(CartRepository.class);
+        items = mock(CartItemRepository.class);
+        products = mock(ProductRepository.class);
+        users = mock(UserRepository.class);
+        couponRepo = mock(CouponRepository.class);
+        assignRepo = mock(CouponAssignmentRepository.class);
+        controller = new CartController(carts, items, products, users, new CouponIndex(couponRepo, assignRepo), new CartPricingService(items),
+                mock(org.masumjia.reactcartecom.catalog.StockReservationService.class));
+
+        Category cat = new Category();
+        cat.setId("cat-1");
+        Cart cart = new Cart();
+        cart.setId("cart-1");
+        cart.setCouponCode("SAVE10");
+        List<CartItem> lines = new java.util.ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Product p = new Product();
+            p.setId("prod-" + i);
+            p.setName("Product " + i);
+            p.setCategory(cat);
+            p.setPrice(new BigDecimal("10.00"));
+            p.setStock(100);
+            CartItem ci = new CartItem();
+            ci.setId("ci-" + i);
+            ci.setCart(cart);
+            ci.setProduct(p);
+            ci.setQuantity(2);
+            lines.add(ci);
+        }
+        Coupon coupon = new Coupon();
+        coupon.setId("cpn-1");
+        coupon.setCode("SAVE10");
+        coupon.setDiscountType(Coupon.DiscountType.PERCENT);
+        coupon.setDiscountValue(new BigDecimal("10.00"));
+
+        when(carts.findById("cart-1")).thenReturn(Optional.of(cart));
+        when(items.findByCartIdWithProduct("cart-1")).thenReturn(lines);
+        when(items.findByCart_IdAndProduct_Id("cart-1", "prod-1")).thenReturn(Optional.of(lines.get(0)));
+        when(couponRepo.findByCodeIgnoreCase(anyString())).thenReturn(Optional.of(coupon));
+        when(assignRepo.findByCouponId("cpn-1")).thenReturn(List.of());
+    }
+
+    @Test
+    void getCartStaysWithinStatementBudget() {
+        CartDtos.CartView view = controller.getCart("cart-1").getBody().getData();
+
+        assertThat(view.subtotal()).isEqualByComparingTo("60.00");
+        assertThat(view.discountAmount()).isEqualByComparingTo("6.00");
+        verify(items, times(1)).findByCartIdWithProduct("cart-1");
+        verify(items, never()).findByCart_Id(any());
+        verify(assignRepo, times(1)).findByCouponId("cpn-1");
+        verifyNoInteractions(products);
+        assertThat(repositoryCalls()).isLessThanOrEqualTo(GET_CART_BUDGET);
+    }
+
+    @Test
+    void patchItemStaysWithinStatementBudget() {
+        CartDtos.CartView view = controller.updateItem("cart-1", "prod-1", new CartDtos.UpdateItemRequest(5)).getBody().getData();
+
+        assertThat(view.totalQuantity()).isEqualTo(9);
+        verify(items, times(1)).findByCartIdWithProduct("cart-1");
+        verify(items, never()).findByCart_Id(any());
+        verify(couponRepo, times(1)).findByCodeIgnoreCase(anyString());
+        verify(assignRepo, times(1)).findByCouponId("cpn-1");
+        assertThat(repositoryCalls()).isLessThanOrEqualTo(PATCH_ITEM_BUDGET);
+    }
+
+    private int repositoryCalls() {
+        int n = 0;
+        for (Object m : List.of(carts, items, products, users, couponRepo, assignRepo)) {
+            n += mockingDetails(m).getInvocations().size();
+        }
+        return n;
+    }
+}
@@ -0,0 +1,107 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.catalog.dto.ProductDtos;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ProductCatalogCacheTest {
+    private ProductRepository products;
+    private ProductImageRepository images;
+    private ProductCatalogCache cache;
+    private List<Product> rows;
+
+    @BeforeEach
+    void setUp() {
+        products = mock(ProductRepository.class);
+        images = mock(ProductImageRepository.class);
+        cache = new ProductCatalogCache(products, images, 300, 2);
+        Category cat = new Category();
+        cat.setId("cat-1");
+        cat.setName("Shoes");
+        rows = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Product p = new Product();
+            p.setId("prod-" + i);
+            p.setName("Product " + i);
+            p.setCategory(cat);
+            p.setPrice(new BigDecimal("10.00"));
+            p.setStock(5);
+            rows.add(p);
+            when(products.findById(p.getId())).thenReturn(Optional.of(p));
+        }
+        when(products.findAllWithCategory()).thenReturn(rows);
+        when(images.findByProductIdOrderByPositionAsc(anyString())).thenReturn(List.of());
+    }
+
+    @Test
+    void summaryListIsBuiltOnceAndServedFromMemory() {
+        List<ProductDtos.ProductSummary> first = cache.summaries();
+        List<ProductDtos.ProductSummary> second = cache.summaries();
+
+        assertThat(second).isSameAs(first).hasSize(3);
+        assertThat(first.get(0).categoryName()).isEqualTo("Shoes");
+        verify(products, times(1)).findAllWithCategory();
+        assertThat(cache.stats()).containsEntry("listHits", 1L).containsEntry("listMisses", 1L);
+    }
+
+    @Test
+    void stockChangePatchesOnlyTheAffectedRows() {
+        List<ProductDtos.ProductSummary> before = cache.summaries();
+        ProductDtos.ProductSummary untouched = before.get(0);
+        List<List<Integer>> patched = new ArrayList<>();
+        cache.addStockListener((list, ordinals) -> patched.add(ordinals));
+        List<Object[]> stockRows = new ArrayList<>();
+        stockRows.add(new Object[]{ "prod-2", 1 });
+        stockRows.add(new Object[]{ "prod-3", 5 });
+        when(products.findStockByIds(any())).thenReturn(stockRows);
+
+        cache.onCatalogChanged(CatalogChangedEvent.stockChanged(List.of("prod-2", "prod-3")));
+        List<ProductDtos.ProductSummary> list = cache.summaries();
+
+        // same list instance, only prod-2's entry replaced (prod-3's stock did not actually change)
+        assertThat(list).isSameAs(before);
+        assertThat(list.get(1).stock()).isEqualTo(1);
+        assertThat(list.get(0)).isSameAs(untouched);
+        assertThat(patched).containsExactly(List.of(1));
+        verify(products, times(1)).findAllWithCategory();
+        verify(products, times(1)).findStockByIds(any());
+    }
+
+    @Test
+    void adminUpsertRebuildsListAndEvictsDetail() {
+        cache.summaries();
+        cache.detail("prod-1");
+        rows.get(0).setName("Renamed");
+
+        cache.onCatalogChanged(CatalogChangedEvent.upserted("prod-1"));
+
+        assertThat(cache.summaries().get(0).name()).isEqualTo("Renamed");
+        assertThat(cache.detail("prod-1")).get().extracting(ProductDtos.ProductDetail::name).isEqualTo("Renamed");
+        verify(products, times(2)).findAllWithCategory();
+        verify(products, times(2)).findById("prod-1");
+    }
+
+    @Test
+    void detailsAreBoundedLru() {
+        cache.detail("prod-1");
+        cache.detail("prod-2");
+        cache.detail("prod-1");
+        cache.detail("prod-3"); // evicts prod-2, the least recently used
+        cache.detail("prod-1");
+        cache.detail("prod-2");
+
+        verify(products, times(1)).findById("prod-1");
+        verify(products, times(2)).findById("prod-2");
+        assertThat(cache.stats()).containsEntry("detailSize", 2).containsEntry("detailHits", 2L).containsEntry("detailEvictions", 2L);
+    }
+}
@@ -0,0 +1,113 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.catalog.dto.ProductDtos;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class ProductFacetIndexTest {
+    private ProductCatalogCache cache;
+    private ProductFacetIndex index;
+    private List<ProductDtos.ProductSummary> rows;
+
+    @BeforeEach
+    void setUp() {
+        cache = mock(ProductCatalogCache.class);
+        index = new ProductFacetIndex(cache, "25,50,100", "10,25");
+        rows = List.of(
+                summary("prod-1", "cat-1", "Shoes", "20.00", null, null, 5),
+                summary("prod-2", "cat-1", "Shoes", "80.00", "60.00", 25, 0),
+                summary("prod-3", "cat-2", "Bags", "40.00", null, null, 3),
+                summary("prod-4", "cat-2", "Bags", "150.00", "135.00", 10, 1)
+        );
+        when(cache.summaries()).thenReturn(rows);
+    }
+
+    private static ProductDtos.ProductSummary summary(String id, String categoryId, String categoryName, String price,
+                                                      String discounted, Integer discount, int stock) {
+        return new ProductDtos.ProductSummary(id, id, null, categoryId, categoryName, new BigDecimal(price),
+                discounted == null ? null : new BigDecimal(discounted), discount, stock, null);
+    }
+
+    private static Map<String, Integer> asMap(List<ProductDtos.FacetCount> counts) {
+        Map<String, Integer> m = new java.util.LinkedHashMap<>();
+        for (ProductDtos.FacetCount c : counts) m.put(c.value(), c.count());
+        return m;
+    }
+
+    @Test
+    void filtersByOrWithinAFacetAndAndAcrossFacets() {
+        ProductFacetIndex.FacetQuery q = new ProductFacetIndex.FacetQuery(Set.of(), Set.of("0-25", "50-100"), Set.of(), true);
+
+        assertThat(index.filter(q)).extracting(ProductDtos.ProductSummary::id).containsExactly("prod-1");
+        assertThat(index.filter(ProductFacetIndex.FacetQuery.of("cat-2", null, List.of("10-25"), null)))
+                .extracting(ProductDtos.ProductSummary::id).containsExactly("prod-4");
+        assertThat(rows.stream().filter(index.predicate(ProductFacetIndex.FacetQuery.of(null, List.of("100+"), null, null))))
+                .extracting(ProductDtos.ProductSummary::id).containsExactly("prod-4");
+    }
+
+    @Test
+    void countsEachFacetWithoutItsOwnSelection() {
+        ProductFacetIndex.FacetQuery q = ProductFacetIndex.FacetQuery.of("cat-1", List.of("50-100"), null, null);
+
+        Map<String, List<ProductDtos.FacetCount>> counts = index.counts(q, null);
+
+        // category counts ignore the category selection but keep the price one
+        assertThat(asMap(counts.get("category"))).containsExactly(Map.entry("cat-1", 1));
+        assertThat(asMap(counts.get("price"))).containsExactly(
+                Map.entry("0-25", 1), Map.entry("25-50", 0), Map.entry("50-100", 1), Map.entry("100+", 0));
+        assertThat(asMap(counts.get("discount"))).containsExactly(Map.entry("0-10", 0), Map.entry("10-25", 0), Map.entry("25+", 1));
+        assertThat(asMap(counts.get("inStock"))).containsExactly(Map.entry("true", 0), Map.entry("false", 1));
+
+        Map<String, List<ProductDtos.FacetCount>> restricted = index.counts(ProductFacetIndex.FacetQuery.of(null, null, null, null), List.of("prod-3", "prod-4"));
+        assertThat(asMap(restricted.get("category"))).containsExactly(Map.entry("cat-2", 2));
+    }
+
+    @Test
+    void rebuildsOnlyWhenTheCachedListChanges() {
+        assertThat(index.productsPerCategory()).containsEntry("cat-1", 2).containsEntry("cat-2", 2);
+        ProductFacetIndex.FacetQuery inStock = ProductFacetIndex.FacetQuery.of(null, null, null, true);
+        assertThat(index.filter(inStock)).hasSize(3);
+
+        // an admin write makes the cache hand out a new list instance
+        List<ProductDtos.ProductSummary> patched = new ArrayList<>(rows);
+        patched.set(0, summary("prod-1", "cat-1", "Shoes", "20.00", null, null, 0));
+        when(cache.summaries()).thenReturn(patched);
+
+        assertThat(index.filter(inStock)).extracting(ProductDtos.ProductSummary::id).containsExactly("prod-3", "prod-4");
+    }
+
+    @Test
+    void stockPatchFlipsInStockBitsWithoutARebuild() {
+        List<ProductDtos.ProductSummary> live = new ArrayList<>(rows);
+        when(cache.summaries()).thenReturn(live);
+        ProductFacetIndex.FacetQuery inStock = ProductFacetIndex.FacetQuery.of(null, null, null, true);
+        assertThat(index.filter(inStock)).extracting(ProductDtos.ProductSummary::id).containsExactly("prod-1", "prod-3", "prod-4");
+
+        // the cache swaps entries of the same list and reports their ordinals
+        live.set(0, summary("prod-1", "cat-1", "Shoes", "20.00", null, null, 0));
+        live.set(1, summary("prod-2", "cat-1", "Shoes", "80.00", "60.00", 25, 7));
+        index.stockPatched(live, List.of(0, 1));
+
+        assertThat(index.filter(inStock)).extracting(ProductDtos.ProductSummary::id).containsExactly("prod-2", "prod-3", "prod-4");
+        assertThat(index.productsPerCategory()).containsEntry("cat-1", 2);
+        verify(cache).addStockListener(any());
+    }
+
+    @Test
+    void rejectsUnknownBuckets() {
+        assertThatThrownBy(() -> index.filter(ProductFacetIndex.FacetQuery.of(null, List.of("10-20"), null, null)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("price range");
+        assertThatThrownBy(() -> index.toSpecification(ProductFacetIndex.FacetQuery.of(null, null, List.of("5"), null)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("discount range");
+    }
+}
@@ -0,0 +1,83 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ProductListingServiceTest {
+
+    private static Product product(int i, String price, String discounted) {
+        Product p = new Product();
+        p.setId("prod-" + i);
+        p.setName("Product " + i);
+        p.setPrice(new BigDecimal(price));
+        p.setDiscountedPrice(discounted == null ? null : new BigDecimal(discounted));
+        p.setStock(1);
+        p.setCreatedAt(LocalDateTime.of(2025, 1, i, 12, 0));
+        return p;
+    }
+
+    @Test
+    void cursorRoundTripsEverySortKey() {
+        Product p = product(3, "19.90", "14.50");
+        p.setDiscount(27);
+        for (ProductListingService.SortKey key : ProductListingService.SortKey.values()) {
+            ProductListingService.Cursor c = ProductListingService.Cursor.of(key, true, p);
+            ProductListingService.Cursor back = ProductListingService.Cursor.decode(c.encode());
+            assertThat(back).isEqualTo(c);
+        }
+        assertThat(ProductListingService.Cursor.of(ProductListingService.SortKey.PRICE, false, p).value()).isEqualTo(new BigDecimal("14.50"));
+    }
+
+    @Test
+    void unpricedProductsGetADecodablePriceCursor() {
+        Product p = product(4, "1.00", null);
+        p.setPrice(null);
+
+        ProductListingService.Cursor c = ProductListingService.Cursor.of(ProductListingService.SortKey.PRICE, false, p);
+
+        assertThat(c.value()).isEqualTo(BigDecimal.ZERO);
+        assertThat(ProductListingService.Cursor.decode(c.encode())).isEqualTo(c);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fetchesOneExtraRowToDecideOnANextPage() {
+        ProductRepository repo = mock(ProductRepository.class);
+        List<Product> rows = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) rows.add(product(i, "10.00", null));
+        when(repo.findBy(any(Specification.class), any())).thenReturn(rows);
+        ProductListingService service = new ProductListingService(repo);
+
+        ProductListingService.Page page = service.page(Specification.where(null), "price", null, 2, false);
+
+        assertThat(page.items()).extracting("id").containsExactly("prod-1", "prod-2");
+        assertThat(page.total()).isNull();
+        ProductListingService.Cursor next = ProductListingService.Cursor.decode(page.nextCursor());
+        assertThat(next.id()).isEqualTo("prod-2");
+        assertThat(next.desc()).isFalse();
+        verify(repo, never()).count(any(Specification.class));
+    }
+
+    @Test
+    void rejectsTamperedOrMismatchedCursors() {
+        ProductListingService service = new ProductListingService(mock(ProductRepository.class));
+        String nameCursor = ProductListingService.Cursor.of(ProductListingService.SortKey.NAME, false, product(1, "1.00", null)).encode();
+
+        assertThatThrownBy(() -> service.page(null, "price", nameCursor, 10, true))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("sort");
+        assertThatThrownBy(() -> service.page(null, "name", "not-a-cursor", 10, true))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> service.page(null, "rating", null, 10, true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,77 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Index lookups against the linear LIKE '%term%' scan the controllers used before, emulated in memory over
+// the product names (a lower bound for the MySQL full scan).
+//   mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=ProductSearchIndexBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSearchIndexBenchmark {
+    private static final String[] WORDS = { "trail", "runner", "leather", "backpack", "canvas", "tote", "road", "light", "wool", "sock",
+            "jacket", "rain", "shell", "bottle", "steel", "cap", "cotton", "scarf", "hiking", "boot" };
+
+    @Param({ "20000" })
+    public int products;
+
+    private List<String> names;
+    private ProductSearchIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Category shoes = new Category();
+        shoes.setId("cat-1");
+        shoes.setName("Running Shoes");
+        Random rnd = new Random(42);
+        List<Product> all = new ArrayList<>(products);
+        names = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product p = new Product();
+            p.setId("prod-" + i);
+            p.setName(WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)] + " " + i);
+            p.setDescription(WORDS[rnd.nextInt(WORDS.length)] + " everyday");
+            p.setCategory(shoes);
+            all.add(p);
+            names.add(p.getName().toLowerCase());
+        }
+        ProductRepository repo = mock(ProductRepository.class);
+        when(repo.findAllWithCategory()).thenReturn(all);
+        index = new ProductSearchIndex(repo, 1000);
+        index.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.shutdown();
+    }
+
+    private String term() {
+        return WORDS[next++ % WORDS.length];
+    }
+
+    @Benchmark
+    public int indexTop24() {
+        return index.search(term(), 24).size();
+    }
+
+    @Benchmark
+    public int likeScan() {
+        String term = term();
+        int hits = 0;
+        for (String name : names) if (name.contains(term)) hits++;
+        return hits;
+    }
+}
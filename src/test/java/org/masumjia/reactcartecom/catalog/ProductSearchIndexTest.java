@@ -0,0 +1,166 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.catalog.dto.ProductDtos;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+    private ProductRepository repo;
+    private ProductSearchIndex index;
+    private Category shoes;
+    private Category bags;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(ProductRepository.class);
+        index = new ProductSearchIndex(repo, 1000);
+        shoes = category("cat-1", "Running Shoes");
+        bags = category("cat-2", "Bags");
+        when(repo.findAllWithCategory()).thenReturn(List.of(
+                product("prod-1", "Trail Runner Pro", "Grippy outsole for muddy trails", shoes),
+                product("prod-2", "Leather Backpack", "Fits a 15 inch laptop and running gear", bags),
+                product("prod-3", "Caf\u00e9 Tote", "Canvas tote bag", bags),
+                product("prod-4", "Road Runner", "Light daily trainer", shoes)
+        ));
+        index.rebuild();
+    }
+
+    private static Category category(String id, String name) {
+        Category c = new Category();
+        c.setId(id);
+        c.setName(name);
+        return c;
+    }
+
+    private static Product product(String id, String name, String description, Category category) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setDescription(description);
+        p.setCategory(category);
+        return p;
+    }
+
+    @Test
+    void matchesPrefixesAcrossFieldsAndRanksNameHitsFirst() {
+        // "run" prefixes runner (names), running (category of shoes, description of the backpack)
+        assertThat(index.searchIds("run")).containsExactly("prod-4", "prod-1", "prod-2");
+    }
+
+    @Test
+    void everyTokenMustMatch() {
+        assertThat(index.searchIds("runner trail")).containsExactly("prod-1");
+        assertThat(index.searchIds("runner tote")).isEmpty();
+    }
+
+    @Test
+    void toleratesOneTypoAndFoldsAccents() {
+        assertThat(index.searchIds("backpak")).containsExactly("prod-2");
+        assertThat(index.searchIds("lpatop")).containsExactly("prod-2"); // transposition
+        assertThat(index.searchIds("cafe")).containsExactly("prod-3");
+        assertThat(index.searchIds("bqckpqck")).isEmpty(); // two edits
+        assertThat(index.searchIds("tpt")).isEmpty(); // tokens under 4 chars must match exactly or by prefix
+    }
+
+    @Test
+    void appliesAdminWritesIncrementally() {
+        when(repo.findAllWithCategoryByIdIn(anyCollection())).thenReturn(List.of(product("prod-3", "Weekender Duffel", "Canvas", bags)));
+        index.onCatalogChanged(CatalogChangedEvent.upserted("prod-3"));
+
+        assertThat(index.searchIds("tote")).isEmpty();
+        assertThat(index.searchIds("duffel")).containsExactly("prod-3");
+
+        when(repo.findAllWithCategoryByIdIn(anyCollection())).thenReturn(List.of());
+        index.onCatalogChanged(CatalogChangedEvent.deleted("prod-3"));
+
+        assertThat(index.searchIds("duffel")).isEmpty();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void dbPredicateTakesOnlyTheBestRankedMatches() {
+        ProductSearchIndex capped = new ProductSearchIndex(repo, 2);
+        capped.rebuild();
+
+        assertThat(capped.matchingIds("run")).containsExactly("prod-4", "prod-1");
+        assertThat(capped.searchIds("run")).hasSize(3);
+    }
+
+    @Test
+    void dbMatchReportsWhenTheCapLeftMatchesOut() {
+        ProductSearchIndex capped = new ProductSearchIndex(repo, 2);
+        capped.rebuild();
+        ProductSearchIndex roomy = new ProductSearchIndex(repo, 3);
+        roomy.rebuild();
+
+        assertThat(capped.dbMatch("run").truncated()).isTrue();
+        assertThat(roomy.dbMatch("run").truncated()).isFalse();
+    }
+
+    @Test
+    void rankReadsTheCurrentEntryOfThePatchedList() {
+        List<ProductDtos.ProductSummary> live = new ArrayList<>(List.of(summary("prod-1", 5), summary("prod-2", 1), summary("prod-4", 2)));
+        assertThat(index.rank(live, "runner", p -> true)).extracting(ProductDtos.ProductSummary::id).containsExactly("prod-4", "prod-1");
+
+        // a stock patch swaps the entry within the same list instance
+        live.set(2, summary("prod-4", 0));
+
+        assertThat(index.rank(live, "runner", p -> p.stock() > 0)).extracting(ProductDtos.ProductSummary::id).containsExactly("prod-1");
+    }
+
+    @Test
+    void categoryChangesRebuildOffTheCommittingThread() throws Exception {
+        List<Product> catalog = repo.findAllWithCategory();
+        CountDownLatch release = new CountDownLatch(1);
+        when(repo.findAllWithCategory()).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return catalog;
+        });
+        shoes.setName("Sneakers");
+
+        // returns while the catalog read is still blocked
+        index.onCatalogChanged(CatalogChangedEvent.categoriesChanged());
+        assertThat(index.searchIds("sneakers")).isEmpty();
+
+        CompletableFuture<Void> pending = index.scheduleRebuild();
+        release.countDown();
+        pending.get(5, TimeUnit.SECONDS);
+        assertThat(index.searchIds("sneakers")).containsExactlyInAnyOrder("prod-1", "prod-4");
+    }
+
+    // Whole-word queries find every product a LIKE '%term%' scan over the names finds
+    @Test
+    void findsEveryProductTheLikeScanFinds() {
+        String[] words = { "trail", "runner", "leather", "backpack", "canvas", "tote", "road", "light", "wool", "sock",
+                "jacket", "rain", "shell", "bottle", "steel", "cap", "cotton", "scarf", "hiking", "boot" };
+        Random rnd = new Random(42);
+        List<Product> all = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            String name = words[rnd.nextInt(words.length)] + " " + words[rnd.nextInt(words.length)] + " " + i;
+            all.add(product("prod-" + i, name, words[rnd.nextInt(words.length)] + " everyday", i % 2 == 0 ? shoes : bags));
+        }
+        when(repo.findAllWithCategory()).thenReturn(all);
+        index.rebuild();
+
+        for (String w : words) {
+            Set<String> viaIndex = new HashSet<>(index.searchIds(w));
+            for (Product p : all) {
+                if (p.getName().toLowerCase().contains(w)) assertThat(viaIndex).contains(p.getId());
+            }
+        }
+    }
+
+    private static ProductDtos.ProductSummary summary(String id, int stock) {
+        return new ProductDtos.ProductSummary(id, id, null, null, null, BigDecimal.TEN, null, null, stock, null);
+    }
+}
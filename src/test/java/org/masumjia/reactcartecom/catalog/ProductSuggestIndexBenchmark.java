@@ -0,0 +1,53 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Per-keystroke suggest lookups over a catalog of product names.
+//   mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=ProductSuggestIndexBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSuggestIndexBenchmark {
+    private static final String[] WORDS = { "trail", "runner", "leather", "backpack", "canvas", "tote", "road", "light", "wool", "sock" };
+    private static final String[] PREFIXES = { "t", "tr", "tra", "back", "le", "wool s", "road 1", "cafe" };
+
+    @Param({ "20000" })
+    public int products;
+
+    private ProductSuggestIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random rnd = new Random(7);
+        List<Product> all = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product p = new Product();
+            p.setId("prod-" + i);
+            p.setName(WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)] + " " + i);
+            all.add(p);
+        }
+        ProductRepository repo = mock(ProductRepository.class);
+        CategoryRepository categories = mock(CategoryRepository.class);
+        when(repo.findAllWithCategory()).thenReturn(all);
+        when(categories.findAll()).thenReturn(List.of());
+        index = new ProductSuggestIndex(repo, categories);
+        index.rebuild();
+    }
+
+    @Benchmark
+    public int suggest() {
+        return index.suggest(PREFIXES[next++ % PREFIXES.length], 8).size();
+    }
+}
@@ -0,0 +1,117 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.catalog.dto.ProductDtos;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class ProductSuggestIndexTest {
+    private ProductRepository products;
+    private CategoryRepository categories;
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        products = mock(ProductRepository.class);
+        categories = mock(CategoryRepository.class);
+        index = new ProductSuggestIndex(products, categories);
+        when(categories.findAll()).thenReturn(List.of(category("cat-1", "Running Shoes", "running-shoes")));
+        when(products.findAllWithCategory()).thenReturn(List.of(
+                product("prod-1", "Trail Runner Pro"),
+                product("prod-2", "Road Runner"),
+                product("prod-3", "Caf\u00e9 Tote")
+        ));
+        index.rebuild();
+    }
+
+    private static Category category(String id, String name, String slug) {
+        Category c = new Category();
+        c.setId(id);
+        c.setName(name);
+        c.setSlug(slug);
+        return c;
+    }
+
+    private static Product product(String id, String name) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        return p;
+    }
+
+    private List<String> ids(String prefix) {
+        return index.suggest(prefix, 10).stream().map(ProductDtos.Suggestion::id).toList();
+    }
+
+    @Test
+    void matchesAnyWordPrefixWithCategoriesAndFirstWordHitsFirst() {
+        assertThat(ids("run")).containsExactly("cat-1", "prod-2", "prod-1");
+        assertThat(ids("ROAD r")).containsExactly("prod-2");
+        assertThat(ids("cafe")).containsExactly("prod-3");
+        assertThat(ids("x")).isEmpty();
+        assertThat(index.suggest("run", 1)).singleElement().extracting(ProductDtos.Suggestion::slug).isEqualTo("running-shoes");
+    }
+
+    @Test
+    void appliesProductAndCategoryWritesIncrementally() {
+        when(products.findAllWithCategoryByIdIn(anyCollection())).thenReturn(List.of(product("prod-2", "Road Racer")));
+        index.onCatalogChanged(CatalogChangedEvent.upserted("prod-2"));
+        assertThat(ids("run")).containsExactly("cat-1", "prod-1");
+        assertThat(ids("rac")).containsExactly("prod-2");
+
+        when(products.findAllWithCategoryByIdIn(anyCollection())).thenReturn(List.of());
+        index.onCatalogChanged(CatalogChangedEvent.deleted("prod-2"));
+        assertThat(ids("r")).containsExactly("cat-1", "prod-1");
+
+        when(categories.findAll()).thenReturn(List.of(category("cat-1", "Trail Shoes", "trail-shoes")));
+        index.onCatalogChanged(CatalogChangedEvent.categoriesChanged());
+        assertThat(ids("run")).containsExactly("prod-1");
+        assertThat(ids("trail")).containsExactly("cat-1", "prod-1");
+        assertThat(index.size()).isEqualTo(3);
+        verify(products, times(1)).findAllWithCategory();
+    }
+
+    @Test
+    void keepsOnlyTheBestSuggestionsPerNodeAndRefillsAfterRemoval() {
+        List<Product> many = new ArrayList<>();
+        for (int i = 0; i < 50; i++) many.add(product(String.format("p%02d", i), "Sock " + "x".repeat(i)));
+        when(products.findAllWithCategory()).thenReturn(many);
+        index.rebuild();
+
+        assertThat(ids("sock")).hasSize(ProductSuggestIndex.MAX_SUGGESTIONS).first().isEqualTo("p00");
+
+        when(products.findAllWithCategoryByIdIn(anyCollection())).thenReturn(List.of());
+        index.onCatalogChanged(CatalogChangedEvent.deleted("p00"));
+        assertThat(ids("sock")).hasSize(ProductSuggestIndex.MAX_SUGGESTIONS).first().isEqualTo("p01");
+        assertThat(ids("sock")).last().isEqualTo("p10");
+    }
+
+    @Test
+    void keysAreBoundedPerName() {
+        String longName = String.join(" ", Collections.nCopies(20, "abcdefghijklmnopqrstuvwxyz0123456789"));
+        List<String> keys = ProductSuggestIndex.keys(longName + " tail");
+        assertThat(keys).hasSizeLessThanOrEqualTo(ProductSuggestIndex.MAX_WORDS);
+        assertThat(keys).allSatisfy(k -> assertThat(k.length()).isLessThanOrEqualTo(ProductSuggestIndex.MAX_KEY_LENGTH));
+    }
+
+    @Test
+    void suggestsFromALargeCatalogWithinTheLimit() {
+        String[] words = { "trail", "runner", "leather", "backpack", "canvas", "tote", "road", "light", "wool", "sock" };
+        Random rnd = new Random(7);
+        List<Product> all = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            all.add(product("prod-" + i, words[rnd.nextInt(words.length)] + " " + words[rnd.nextInt(words.length)] + " " + i));
+        }
+        when(products.findAllWithCategory()).thenReturn(all);
+        index.rebuild();
+
+        for (String prefix : new String[]{ "t", "tr", "tra", "back", "le", "wool s" }) {
+            assertThat(index.suggest(prefix, 8)).isNotEmpty().hasSizeLessThanOrEqualTo(8);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.masumjia.reactcartecom.catalog;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Flash-sale reservations of one hot product: the in-memory ledger (CAS, journal fsync, deltas written behind
+// every 500 ms) against the row-locked path InventoryService takes with the ledger off (SELECT ... FOR UPDATE,
+// availability check, batched UPDATE in one transaction), both on a scratch table in a real MySQL database. The database defaults to the application's; override with
+// BENCHMARK_DB_URL / BENCHMARK_DB_USER / BENCHMARK_DB_PASSWORD.
+//   mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=StockLedgerBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class StockLedgerBenchmark {
+    private static final String PRODUCT = "bench-1";
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private Path dir;
+    private TransactionTemplate tx;
+    private StockLedger ledger;
+    private ScheduledExecutorService flusher;
+
+    // The ledger against stock_ledger_bench; a fresh journal needs no checkpoint and one process no lease
+    static class BenchLedger extends StockLedger {
+        private final JdbcTemplate jdbc;
+        private final TransactionTemplate tx;
+
+        BenchLedger(JdbcTemplate jdbc, PlatformTransactionManager txManager, Path journal) {
+            super(null, jdbc, txManager, event -> {}, true, journal.toString(), 60_000);
+            this.jdbc = jdbc;
+            this.tx = new TransactionTemplate(txManager);
+        }
+
+        @Override
+        protected Map<String, Integer> loadStock(Collection<String> ids) {
+            Map<String, Integer> out = new HashMap<>();
+            for (String id : ids) {
+                jdbc.query("select id, stock from stock_ledger_bench where id = ?", rs -> { out.put(rs.getString(1), rs.getInt(2)); }, id);
+            }
+            return out;
+        }
+
+        @Override
+        protected void writeDeltas(Map<String, Integer> deltas, long upToSeq) {
+            List<Object[]> args = new ArrayList<>(deltas.size());
+            deltas.forEach((id, d) -> args.add(new Object[]{ d, id }));
+            tx.executeWithoutResult(status -> jdbc.batchUpdate("update stock_ledger_bench set stock = stock + ? where id = ?", args));
+        }
+
+        @Override
+        protected long readCheckpoint() {
+            return 0;
+        }
+
+        @Override
+        protected boolean acquireLease(String owner, long ttlMs) {
+            return true;
+        }
+
+        @Override
+        protected void releaseLease(String owner) {}
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(env("BENCHMARK_DB_URL", "jdbc:mysql://localhost:3306/reactcart_db?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC&rewriteBatchedStatements=true"));
+        dataSource.setUsername(env("BENCHMARK_DB_USER", "root"));
+        dataSource.setPassword(env("BENCHMARK_DB_PASSWORD", ""));
+        dataSource.setMaximumPoolSize(40);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table if not exists stock_ledger_bench (id varchar(64) not null primary key, stock int not null)");
+        jdbc.update("delete from stock_ledger_bench");
+        // never runs out, so both sides measure accepted reservations
+        jdbc.update("insert into stock_ledger_bench (id, stock) values (?, ?)", PRODUCT, Integer.MAX_VALUE / 2);
+
+        dir = Files.createTempDirectory("stock-ledger-bench");
+        PlatformTransactionManager txManager = new DataSourceTransactionManager(dataSource);
+        tx = new TransactionTemplate(txManager);
+        ledger = new BenchLedger(jdbc, txManager, dir.resolve("stock.journal"));
+        ledger.start();
+        flusher = Executors.newSingleThreadScheduledExecutor();
+        flusher.scheduleWithFixedDelay(ledger::flush, 500, 500, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        flusher.shutdownNow();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        ledger.stop();
+        jdbc.execute("drop table if exists stock_ledger_bench");
+        dataSource.close();
+        try (var files = Files.list(dir)) {
+            for (Path f : files.toList()) Files.deleteIfExists(f);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public boolean ledgerReserve() {
+        return ledger.reserve(Map.of(PRODUCT, 1)).isEmpty();
+    }
+
+    // InventoryService.reserve with the ledger off, for a one-line cart
+    @Benchmark
+    public boolean lockedBatchReserve() {
+        Map<String, Integer> quantities = new TreeMap<>(Map.of(PRODUCT, 1));
+        return Boolean.TRUE.equals(tx.execute(status -> {
+            Map<String, Integer> available = new HashMap<>();
+            String marks = String.join(",", Collections.nCopies(quantities.size(), "?"));
+            jdbc.query("select id, stock from stock_ledger_bench where id in (" + marks + ") order by id for update",
+                    rs -> { available.put(rs.getString(1), rs.getInt(2)); }, quantities.keySet().toArray());
+            for (Map.Entry<String, Integer> e : quantities.entrySet()) {
+                if (available.getOrDefault(e.getKey(), 0) < e.getValue()) return false;
+            }
+            List<Object[]> args = new ArrayList<>(quantities.size());
+            quantities.forEach((id, q) -> args.add(new Object[]{ -q, id }));
+            jdbc.batchUpdate("update stock_ledger_bench set stock = stock + ? where id = ?", args);
+            return true;
+        }));
+    }
+
+    private static String env(String name, String fallback) {
+        String v = System.getenv(name);
+        return v == null || v.isBlank() ? fallback : v;
+    }
+}
@@ -0,0 +1,191 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class StockLedgerTest {
+    @TempDir
+    Path dir;
+
+    // Backs the ledger with maps instead of the products / stock_ledger_checkpoint / stock_ledger_lease tables
+    static class InMemoryLedger extends StockLedger {
+        final Map<String, Integer> db;
+        final AtomicLong checkpoint;
+        final AtomicReference<String> lease;
+        final AtomicInteger flushes = new AtomicInteger();
+        volatile Runnable duringWrite = () -> {};
+
+        InMemoryLedger(Path journal, Map<String, Integer> db, AtomicLong checkpoint, AtomicReference<String> lease) {
+            super(null, null, mock(PlatformTransactionManager.class), event -> {}, true, journal.toString(), 60_000);
+            this.db = db;
+            this.checkpoint = checkpoint;
+            this.lease = lease;
+        }
+
+        @Override
+        protected Map<String, Integer> loadStock(Collection<String> ids) {
+            Map<String, Integer> out = new HashMap<>();
+            for (String id : ids) if (db.containsKey(id)) out.put(id, db.get(id));
+            return out;
+        }
+
+        @Override
+        protected synchronized void writeDeltas(Map<String, Integer> deltas, long upToSeq) {
+            duringWrite.run();
+            deltas.forEach((id, d) -> db.merge(id, d, Integer::sum));
+            checkpoint.set(upToSeq);
+            flushes.incrementAndGet();
+        }
+
+        @Override
+        protected long readCheckpoint() {
+            return checkpoint.get();
+        }
+
+        @Override
+        protected boolean acquireLease(String owner, long ttlMs) {
+            return lease.compareAndSet(null, owner) || owner.equals(lease.get());
+        }
+
+        @Override
+        protected void releaseLease(String owner) {
+            lease.compareAndSet(owner, null);
+        }
+    }
+
+    // A fresh lease per instance stands in for the previous holder's lease having expired
+    private InMemoryLedger ledger(Map<String, Integer> db, AtomicLong checkpoint) throws Exception {
+        return ledger(db, checkpoint, new AtomicReference<>());
+    }
+
+    private InMemoryLedger ledger(Map<String, Integer> db, AtomicLong checkpoint, AtomicReference<String> lease) throws Exception {
+        InMemoryLedger l = new InMemoryLedger(dir.resolve("stock.journal"), db, checkpoint, lease);
+        l.start();
+        return l;
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        Map<String, Integer> db = new ConcurrentHashMap<>(Map.of("prod-1", 500));
+        InMemoryLedger ledger = ledger(db, new AtomicLong());
+
+        int accepted = hammer(16, 100, () -> ledger.reserve(Map.of("prod-1", 1)).isEmpty());
+        ledger.flush();
+
+        assertThat(accepted).isEqualTo(500);
+        assertThat(ledger.available("prod-1")).isZero();
+        assertThat(db.get("prod-1")).isZero();
+    }
+
+    @Test
+    void multiLineReservationIsAllOrNothing() throws Exception {
+        Map<String, Integer> db = new ConcurrentHashMap<>(Map.of("prod-1", 5, "prod-2", 1));
+        InMemoryLedger ledger = ledger(db, new AtomicLong());
+
+        Map<String, Integer> failed = ledger.reserve(Map.of("prod-1", 2, "prod-2", 2, "prod-9", 1));
+        ledger.flush();
+
+        assertThat(failed).containsEntry("prod-2", 1);
+        assertThat(ledger.available("prod-1")).isEqualTo(5);
+        assertThat(db).containsEntry("prod-1", 5).containsEntry("prod-2", 1);
+        assertThat(ledger.flushes).hasValue(0);
+    }
+
+    @Test
+    void unflushedReservationsAreReplayedAfterRestart() throws Exception {
+        Map<String, Integer> db = new ConcurrentHashMap<>(Map.of("prod-1", 10, "prod-2", 10));
+        AtomicLong checkpoint = new AtomicLong();
+        InMemoryLedger first = ledger(db, checkpoint);
+        first.reserve(Map.of("prod-1", 3));
+        first.flush();
+        first.reserve(Map.of("prod-1", 2, "prod-2", 4));
+        first.release(Map.of("prod-2", 1));
+        // crash: no flush, no stop
+
+        InMemoryLedger second = ledger(db, checkpoint);
+
+        assertThat(db).containsEntry("prod-1", 5).containsEntry("prod-2", 7);
+        assertThat(checkpoint).hasValue(3);
+        assertThat(second.reserve(Map.of("prod-2", 8))).containsEntry("prod-2", 7);
+        // a second restart has nothing left to replay
+        ledger(db, checkpoint);
+        assertThat(db).containsEntry("prod-1", 5).containsEntry("prod-2", 7);
+    }
+
+    @Test
+    void flushDropsJournalEntriesUpToTheCheckpointWhileAppendsContinue() throws Exception {
+        Map<String, Integer> db = new ConcurrentHashMap<>(Map.of("prod-1", 10));
+        AtomicLong checkpoint = new AtomicLong();
+        InMemoryLedger first = ledger(db, checkpoint);
+        first.reserve(Map.of("prod-1", 3));
+        // appended after the flush took its snapshot, before the checkpoint is written
+        first.duringWrite = () -> first.reserve(Map.of("prod-1", 2));
+        first.flush();
+
+        assertThat(checkpoint).hasValue(1);
+        List<String> journal = new ArrayList<>();
+        try (var files = Files.list(dir)) {
+            for (Path f : files.toList()) journal.addAll(Files.readAllLines(f));
+        }
+        assertThat(journal).containsExactly("2 prod-1:-2 ;");
+
+        // crash: the entry the checkpoint does not cover is replayed exactly once
+        ledger(db, checkpoint);
+        assertThat(db).containsEntry("prod-1", 5);
+        assertThat(checkpoint).hasValue(2);
+    }
+
+    @Test
+    void secondInstanceCannotStartWhileTheLeaseIsHeld() throws Exception {
+        AtomicReference<String> lease = new AtomicReference<>();
+        Map<String, Integer> db = new ConcurrentHashMap<>(Map.of("prod-1", 10));
+        ledger(db, new AtomicLong(), lease);
+
+        InMemoryLedger second = new InMemoryLedger(dir.resolve("other.journal"), db, new AtomicLong(), lease);
+        assertThatThrownBy(second::start).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void reservationsAreRefusedOnceTheLeaseIsLost() throws Exception {
+        AtomicReference<String> lease = new AtomicReference<>();
+        InMemoryLedger ledger = ledger(new ConcurrentHashMap<>(Map.of("prod-1", 10)), new AtomicLong(), lease);
+        assertThat(ledger.reserve(Map.of("prod-1", 1))).isEmpty();
+
+        lease.set("another-node");
+        assertThat(ledger.renewLease()).isFalse();
+
+        assertThatThrownBy(() -> ledger.reserve(Map.of("prod-1", 1))).isInstanceOf(IllegalStateException.class);
+        assertThat(ledger.available("prod-1")).isEqualTo(9);
+    }
+
+    private static int hammer(int threads, int perThread, Callable<Boolean> attempt) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                go.await();
+                for (int i = 0; i < perThread; i++) if (attempt.call()) accepted.incrementAndGet();
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        return accepted.get();
+    }
+}
@@ -0,0 +1,87 @@
+package org.masumjia.reactcartecom.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockReservationServiceTest {
+    private StockReservationRepository repo;
+    private InventoryService inventory;
+    private StockReservationService service;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(StockReservationRepository.class);
+        inventory = mock(InventoryService.class);
+        when(inventory.reserve(anyMap())).thenReturn(Map.of());
+        service = new StockReservationService(repo, inventory, 15);
+    }
+
+    private static StockReservation hold(String productId, int qty, LocalDateTime expiresAt) {
+        StockReservation r = new StockReservation();
+        r.setId(productId + "-hold");
+        r.setCartId("cart-1");
+        r.setProductId(productId);
+        r.setQuantity(qty);
+        r.setExpiresAt(expiresAt);
+        return r;
+    }
+
+    @Test
+    void recheckoutOnlyMovesTheDifference() {
+        List<StockReservation> existing = List.of(hold("prod-1", 2, LocalDateTime.now()), hold("prod-2", 3, LocalDateTime.now()));
+        when(repo.lockByCartId("cart-1")).thenReturn(existing);
+
+        StockReservationService.Result r = service.hold("cart-1", Map.of("prod-1", 5, "prod-2", 1));
+
+        assertThat(r.ok()).isTrue();
+        assertThat(r.expiresAt()).isAfter(LocalDateTime.now().plusMinutes(14));
+        verify(inventory).reserve(Map.of("prod-1", 3));
+        verify(inventory).release(Map.of("prod-2", 2));
+        verify(repo).deleteAllInBatch(existing);
+        verify(repo).saveAll(argThat((List<StockReservation> list) -> list.size() == 2));
+    }
+
+    @Test
+    void firstHoldLocksTheCartRowBeforeReadingItsHolds() {
+        when(repo.lockByCartId("cart-1")).thenReturn(List.of());
+
+        service.hold("cart-1", Map.of("prod-1", 1));
+
+        var order = inOrder(repo, inventory);
+        order.verify(repo).lockCart("cart-1");
+        order.verify(repo).lockByCartId("cart-1");
+        order.verify(inventory).reserve(Map.of("prod-1", 1));
+    }
+
+    @Test
+    void failedConversionKeepsHoldsAndReportsHeldStock() {
+        List<StockReservation> existing = List.of(hold("prod-1", 2, LocalDateTime.now().minusMinutes(1)));
+        when(repo.lockByCartId("cart-1")).thenReturn(existing);
+        when(inventory.reserve(Map.of("prod-1", 4))).thenReturn(Map.of("prod-1", 1));
+
+        StockReservationService.Result r = service.convert("cart-1", Map.of("prod-1", 6));
+
+        assertThat(r.failed()).containsEntry("prod-1", 3);
+        verify(inventory, never()).release(anyMap());
+        verify(repo, never()).deleteAllInBatch(any());
+    }
+
+    @Test
+    void expiredHoldsAreReleasedAsOneBatch() {
+        LocalDateTime past = LocalDateTime.now().minusMinutes(30);
+        List<StockReservation> expired = List.of(hold("prod-1", 2, past), hold("prod-1", 1, past), hold("prod-2", 4, past));
+        when(repo.lockExpired(any(), eq(50))).thenReturn(expired);
+
+        assertThat(service.releaseExpired(50)).isEqualTo(3);
+        verify(inventory).release(Map.of("prod-1", 3, "prod-2", 4));
+        verify(repo).deleteAllInBatch(expired);
+    }
+}
@@ -0,0 +1,35 @@
+package org.masumjia.reactcartecom.common;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CoreTableIndexesTest {
+
+    @Test
+    void createsOnlyTheMissingIndexesAndSurvivesFailures() {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        when(jdbc.queryForObject(startsWith("select count(*) from information_schema.statistics"), eq(Integer.class), eq("users"), anyString()))
+                .thenAnswer(inv -> "idx_users_name".equals(inv.getArgument(3)) ? 1 : 0);
+        doThrow(new BadSqlGrammarException("create index", "create index idx_users_created", new SQLException("denied")))
+                .when(jdbc).execute("create index idx_users_created on users (created_at)");
+
+        new CoreTableIndexes(jdbc, true).ensure();
+
+        verify(jdbc, never()).execute(contains("idx_users_name"));
+        verify(jdbc).execute("create index idx_users_created on users (created_at)");
+        verify(jdbc).execute("create index idx_users_role_created on users (role, created_at)");
+    }
+
+    @Test
+    void canBeTurnedOff() {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        new CoreTableIndexes(jdbc, false).ensure();
+        verifyNoInteractions(jdbc);
+    }
+}
@@ -0,0 +1,36 @@
+package org.masumjia.reactcartecom.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvWriterTest {
+    private static String line(Object... cells) throws Exception {
+        StringWriter out = new StringWriter();
+        new CsvWriter(out).row(cells);
+        return out.toString();
+    }
+
+    @Test
+    void quotesSeparatorsQuotesAndLineBreaks() throws Exception {
+        assertThat(line("a", null, "Doe, \"J\"", "two\nlines")).isEqualTo("a,,\"Doe, \"\"J\"\"\",\"two\nlines\"\r\n");
+    }
+
+    @Test
+    void textThatASpreadsheetWouldEvaluateIsDefused() throws Exception {
+        assertThat(line("=HYPERLINK(\"http://x\",\"y\")", "+1", "-2+3", "@SUM(A1)", "\tcmd", "ok=fine"))
+                .isEqualTo("\"'=HYPERLINK(\"\"http://x\"\",\"\"y\"\")\",'+1,'-2+3,'@SUM(A1),'\tcmd,ok=fine\r\n");
+        // a leading CR is still quoted, after the prefix
+        assertThat(line("\r=1")).isEqualTo("\"'\r=1\"\r\n");
+    }
+
+    @Test
+    void typedValuesAreWrittenAsIs() throws Exception {
+        assertThat(line(new BigDecimal("-5.00"), -3, false, LocalDateTime.of(2025, 1, 1, 0, 0)))
+                .isEqualTo("-5.00,-3,false,2025-01-01T00:00\r\n");
+    }
+}
@@ -0,0 +1,156 @@
+package org.masumjia.reactcartecom.common;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdAllocatorTest {
+
+    // Stands in for the id_sequences table (and the ids already in the entity tables) shared by several app
+    // nodes; answers exactly the statements IdAllocator issues
+    private static final class SharedDb extends JdbcTemplate {
+        final Map<String, Long> sequences = new ConcurrentHashMap<>();
+        final Map<String, List<String>> tableIds = new HashMap<>();
+        final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            statements.add(sql);
+            if (sql.startsWith("select next_val from id_sequences where name = ?")) {
+                Long v = sequences.get((String) args[0]);
+                return v == null ? List.of() : List.of((T) v);
+            }
+            if (sql.startsWith("select id from ")) {
+                String table = sql.substring("select id from ".length(), sql.indexOf(' ', "select id from ".length()));
+                return (List<T>) tableIds.getOrDefault(table, List.of());
+            }
+            throw new IllegalArgumentException(sql);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            statements.add(sql);
+            if (sql.startsWith("insert ignore into id_sequences")) {
+                return sequences.putIfAbsent((String) args[0], (Long) args[1]) == null ? 1 : 0;
+            }
+            if (sql.startsWith("update id_sequences set next_val = ?")) {
+                Thread.yield(); // widen the read-modify-write window; only the row lock keeps it safe
+                sequences.put((String) args[1], (Long) args[0]);
+                return 1;
+            }
+            throw new IllegalArgumentException(sql);
+        }
+
+        long count(String prefix) {
+            synchronized (statements) {
+                return statements.stream().filter(s -> s.startsWith(prefix)).count();
+            }
+        }
+    }
+
+    // Every transaction holds the row lock its FOR UPDATE read would take until it commits
+    private static final class RowLockingTransactions implements PlatformTransactionManager {
+        final ReentrantLock rowLock = new ReentrantLock();
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            rowLock.lock();
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            rowLock.unlock();
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            rowLock.unlock();
+        }
+    }
+
+    @Test
+    void handsOutIdsFromReservedBlocksInTheExistingFormat() {
+        SharedDb db = new SharedDb();
+        IdAllocator ids = new IdAllocator(db, new RowLockingTransactions(), 10);
+
+        List<String> products = new ArrayList<>();
+        for (int i = 0; i < 25; i++) products.add(ids.next(IdAllocator.Sequence.PRODUCT));
+
+        assertThat(products).startsWith("prod-1", "prod-2").endsWith("prod-25");
+        assertThat(ids.next(IdAllocator.Sequence.CATEGORY)).isEqualTo("cat-1");
+        assertThat(ids.next(IdAllocator.Sequence.COUPON)).isEqualTo("cpn-1");
+        assertThat(db.count("select next_val from id_sequences where name = ? for update")).isEqualTo(3 + 2);
+        assertThat(db.sequences).containsEntry("PRODUCT", 31L).containsEntry("CATEGORY", 11L);
+    }
+
+    @Test
+    void concurrentCreatesOnSeveralNodesNeverCollide() throws Exception {
+        SharedDb db = new SharedDb();
+        RowLockingTransactions txs = new RowLockingTransactions();
+        List<IdAllocator> nodes = List.of(new IdAllocator(db, txs, 7), new IdAllocator(db, txs, 7), new IdAllocator(db, txs, 7));
+        int threads = 12, perThread = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            IdAllocator ids = nodes.get(t % nodes.size());
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    if (!seen.add(ids.next(IdAllocator.Sequence.PRODUCT))) duplicates.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertThat(duplicates.get()).isZero();
+        assertThat(seen).hasSize(threads * perThread).allMatch(id -> id.matches("prod-\\d+"));
+        // one locked round trip per block, not per id
+        assertThat(db.count("select next_val from id_sequences where name = ? for update"))
+                .isLessThanOrEqualTo(threads * perThread / 7 + nodes.size());
+        // every node may try to seed, but only one row is ever inserted and nobody waits on a missing row
+        assertThat(db.count("insert ignore into id_sequences")).isBetween(1L, (long) nodes.size());
+    }
+
+    @Test
+    void seedsANewSequenceFromTheHighestExistingId() {
+        SharedDb db = new SharedDb();
+        db.tableIds.put("products", List.of("prod-7", "prod-12", "prod-legacy"));
+        IdAllocator ids = new IdAllocator(db, new RowLockingTransactions(), 50);
+
+        assertThat(ids.next(IdAllocator.Sequence.PRODUCT)).isEqualTo("prod-13");
+        assertThat(ids.next(IdAllocator.Sequence.PRODUCT)).isEqualTo("prod-14");
+        assertThat(db.sequences).containsEntry("PRODUCT", 63L);
+        assertThat(db.count("select id from products")).isEqualTo(1);
+    }
+
+    @Test
+    void aSeededSequenceIsNeitherScannedNorReseeded() {
+        SharedDb db = new SharedDb();
+        db.sequences.put("PRODUCT", 200L);
+        db.tableIds.put("products", List.of("prod-7"));
+        IdAllocator ids = new IdAllocator(db, new RowLockingTransactions(), 50);
+
+        assertThat(ids.next(IdAllocator.Sequence.PRODUCT)).isEqualTo("prod-200");
+        assertThat(db.sequences).containsEntry("PRODUCT", 250L);
+        assertThat(db.count("select id from products")).isZero();
+        assertThat(db.count("insert ignore")).isZero();
+    }
+}
@@ -0,0 +1,80 @@
+package org.masumjia.reactcartecom.common;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// The dispatcher's own cost per batch (handler lookup, one savepoint per handler, per-aggregate ordering) with
+// handlers that do nothing and a transaction manager that does nothing, so it can be compared with the cost of
+// the handlers themselves.
+//   mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=OutboxDispatcherBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutboxDispatcherBenchmark {
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Param({ "200" })
+    public int batchSize;
+
+    @Param({ "1", "3" })
+    public int handlers;
+
+    private OutboxDispatcher dispatcher;
+    private List<OutboxMessage> batch;
+
+    static final class Noop implements OutboxHandler {
+        private final String name;
+
+        Noop(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean handles(String eventType) {
+            return eventType.startsWith("order.");
+        }
+
+        @Override
+        public void handle(OutboxMessage message) {}
+
+        @Override
+        public String handlerName() {
+            return name;
+        }
+    }
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        List<OutboxHandler> beans = new ArrayList<>();
+        for (int i = 0; i < handlers; i++) beans.add(new Noop("noop-" + i));
+        ObjectProvider<OutboxHandler> provider = mock(ObjectProvider.class);
+        when(provider.orderedStream()).thenAnswer(inv -> beans.stream());
+        // stub-only: a recording mock would keep every savepoint call for the whole run
+        dispatcher = new OutboxDispatcher(mock(JdbcTemplate.class, withSettings().stubOnly()),
+                mock(PlatformTransactionManager.class, withSettings().stubOnly()), provider, batchSize, 10, 1000, 60_000);
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new OutboxMessage(i, "order", "ord-" + (i % 50), "order.created", "{}", NOW, 0, null));
+        }
+    }
+
+    @Benchmark
+    public int deliver() {
+        return dispatcher.deliver(batch, NOW).processed();
+    }
+}
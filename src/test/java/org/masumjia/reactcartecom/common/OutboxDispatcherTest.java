@@ -0,0 +1,189 @@
+package org.masumjia.reactcartecom.common;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxDispatcherTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    private final List<String> handled = new ArrayList<>();
+    private final Set<String> failing = new HashSet<>();
+    private final List<String> audited = new ArrayList<>();
+    private final Set<String> auditFailing = new HashSet<>();
+    private JdbcTemplate jdbc;
+    private OutboxDispatcher dispatcher;
+
+    // Records what it sees; throws for payloads listed in `failing`
+    private final class Recording implements OutboxHandler {
+        @Override
+        public boolean handles(String eventType) {
+            return eventType.startsWith("order.");
+        }
+
+        @Override
+        public void handle(OutboxMessage m) throws Exception {
+            if (failing.contains(m.payload())) throw new java.io.IOException("mail server down");
+            handled.add(m.payload());
+        }
+    }
+
+    // A second consumer of the same events, with its own failures
+    private final class Audit implements OutboxHandler {
+        @Override
+        public boolean handles(String eventType) {
+            return eventType.startsWith("order.");
+        }
+
+        @Override
+        public void handle(OutboxMessage m) {
+            if (auditFailing.contains(m.payload())) throw new IllegalStateException("audit log full");
+            audited.add(m.payload());
+        }
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jdbc = mock(JdbcTemplate.class);
+        when(jdbc.queryForList(Outbox.LOCK_SQL + " skip locked", String.class)).thenReturn(List.of("dispatcher"));
+        ObjectProvider<OutboxHandler> handlers = mock(ObjectProvider.class);
+        when(handlers.orderedStream()).thenAnswer(inv -> Stream.of(new Recording(), new Audit()));
+        dispatcher = new OutboxDispatcher(jdbc, mock(PlatformTransactionManager.class), handlers, 100, 3, 1000, 60_000);
+    }
+
+    private static OutboxMessage msg(long id, String orderId, String payload) {
+        return new OutboxMessage(id, "order", orderId, "order.created", payload, NOW, 0, null);
+    }
+
+    private static OutboxMessage retry(OutboxMessage m, int attempts, LocalDateTime next) {
+        return new OutboxMessage(m.id(), m.aggregateType(), m.aggregateId(), m.eventType(), m.payload(), m.createdAt(), attempts, next);
+    }
+
+    @Test
+    void aFailingEventHoldsBackOnlyItsOwnAggregate() {
+        failing.add("a1");
+        List<OutboxMessage> batch = List.of(msg(1, "ord-a", "a1"), msg(2, "ord-b", "b1"), msg(3, "ord-a", "a2"), msg(4, "ord-b", "b2"));
+
+        OutboxDispatcher.Outcome out = dispatcher.deliver(batch, NOW);
+
+        assertThat(handled).containsExactly("b1", "b2");
+        assertThat(out.delivered()).containsExactly(2L, 4L);
+        assertThat(out.retries()).singleElement().satisfies(f -> {
+            assertThat(f.id()).isEqualTo(1L);
+            assertThat(f.attempts()).isEqualTo(1);
+            assertThat(f.at()).isEqualTo(NOW.plusSeconds(1));
+            assertThat(f.error()).contains("mail server down");
+        });
+
+        // still backing off: nothing of ord-a runs, not even a2
+        handled.clear();
+        dispatcher.deliver(List.of(retry(batch.get(0), 1, NOW.plusSeconds(1)), batch.get(2)), NOW);
+        assertThat(handled).isEmpty();
+
+        // recovered: a1 then a2, in order
+        failing.clear();
+        out = dispatcher.deliver(List.of(retry(batch.get(0), 1, NOW.plusSeconds(1)), batch.get(2)), NOW.plusSeconds(2));
+        assertThat(handled).containsExactly("a1", "a2");
+        assertThat(out.delivered()).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void backoffDoublesUpToTheCapAndPoisonEventsAreParked() {
+        assertThat(dispatcher.backoff(1).toMillis()).isEqualTo(1000);
+        assertThat(dispatcher.backoff(3).toMillis()).isEqualTo(4000);
+        assertThat(dispatcher.backoff(40).toMillis()).isEqualTo(60_000);
+
+        failing.add("a1");
+        OutboxDispatcher.Outcome out = dispatcher.deliver(List.of(retry(msg(1, "ord-a", "a1"), 2, NOW), msg(2, "ord-a", "a2")), NOW);
+
+        assertThat(out.parked()).extracting(OutboxDispatcher.Failure::id).containsExactly(1L);
+        assertThat(out.retries()).isEmpty();
+        assertThat(handled).containsExactly("a2");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void aBatchDeletesDeliveredRowsAndReschedulesFailures() {
+        failing.add("b1");
+        List<OutboxMessage> rows = List.of(msg(1, "ord-a", "a1"), msg(2, "ord-b", "b1"), new OutboxMessage(3, "user", "u-1", "user.created", "u1", NOW, 0, null));
+        when(jdbc.query(startsWith("select id, aggregate_type"), any(RowMapper.class), any(Object[].class))).thenReturn(rows);
+
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(3);
+
+        // only due rows not queued behind a backing-off row of their aggregate are claimed
+        verify(jdbc).query(argThat((String sql) -> sql.contains("(next_attempt_at is null or next_attempt_at <= ?)")
+                        && sql.contains("not exists (select 1 from outbox_events p") && sql.contains("p.next_attempt_at > ?")),
+                any(RowMapper.class), any(LocalDateTime.class), any(LocalDateTime.class), eq(100));
+        // events nobody handles are simply consumed
+        verify(jdbc).batchUpdate(eq("delete from outbox_events where id = ?"),
+                argThat((List<Object[]> ids) -> ids.stream().map(a -> (Long) a[0]).toList().equals(List.of(1L, 3L))));
+        verify(jdbc).update(startsWith("update outbox_events set attempts = ?, next_attempt_at"), eq(1), any(LocalDateTime.class), contains("mail server down"), eq(2L));
+        // b1 reached the audit handler, which must not see it again on the retry
+        verify(jdbc).batchUpdate(eq("insert into outbox_deliveries (event_id, handler) values (?, ?)"),
+                argThat((List<Object[]> r) -> r.size() == 1 && r.get(0)[0].equals(2L) && r.get(0)[1].equals(Audit.class.getName())));
+        // nothing was retried, so no delivery rows can be left to clean up
+        verify(jdbc, never()).batchUpdate(startsWith("delete from outbox_deliveries"), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void handlersThatSucceededAreSkippedWhenTheEventIsRetried() {
+        auditFailing.add("a1");
+        OutboxDispatcher.Outcome out = dispatcher.deliver(List.of(msg(1, "ord-a", "a1")), NOW);
+
+        assertThat(handled).containsExactly("a1");
+        assertThat(audited).isEmpty();
+        assertThat(out.retries()).extracting(OutboxDispatcher.Failure::id).containsExactly(1L);
+        assertThat(out.retries().get(0).error()).contains("audit log full");
+        assertThat(out.handled()).containsExactly(new OutboxDispatcher.Handled(1, Recording.class.getName()));
+
+        // the retry reads back what was recorded and only runs the handler that failed
+        auditFailing.clear();
+        handled.clear();
+        when(jdbc.query(startsWith("select event_id, handler from outbox_deliveries where event_id in (?)"), any(RowMapper.class), eq(1L)))
+                .thenReturn(List.of(new OutboxDispatcher.Handled(1, Recording.class.getName())));
+        out = dispatcher.deliver(List.of(retry(msg(1, "ord-a", "a1"), 1, NOW)), NOW);
+
+        assertThat(handled).isEmpty();
+        assertThat(audited).containsExactly("a1");
+        assertThat(out.delivered()).containsExactly(1L);
+        assertThat(out.handled()).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deliveringARetriedEventDeletesItsDeliveryRows() {
+        when(jdbc.query(startsWith("select id, aggregate_type"), any(RowMapper.class), any(Object[].class)))
+                .thenReturn(List.of(retry(msg(1, "ord-a", "a1"), 1, NOW.minusSeconds(1)), msg(2, "ord-b", "b1")));
+
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(2);
+
+        verify(jdbc).batchUpdate(eq("delete from outbox_deliveries where event_id = ?"),
+                argThat((List<Object[]> ids) -> ids.size() == 1 && ids.get(0)[0].equals(1L)));
+        verify(jdbc, never()).batchUpdate(startsWith("insert into outbox_deliveries"), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void skipsTheTickWhileAnotherNodeHoldsTheLock() {
+        when(jdbc.queryForList(Outbox.LOCK_SQL + " skip locked", String.class)).thenReturn(List.of());
+
+        assertThat(dispatcher.dispatchBatch()).isZero();
+        verify(jdbc, never()).query(anyString(), any(RowMapper.class), any(Object[].class));
+    }
+}
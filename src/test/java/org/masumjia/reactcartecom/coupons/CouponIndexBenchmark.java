@@ -0,0 +1,54 @@
+package org.masumjia.reactcartecom.coupons;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Code lookups should cost the same however many coupons have been issued.
+//   mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=CouponIndexBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CouponIndexBenchmark {
+    @Param({ "1000", "50000" })
+    public int coupons;
+
+    private CouponIndex index;
+    private String[] codes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Coupon> all = new ArrayList<>(coupons);
+        codes = new String[coupons];
+        for (int i = 0; i < coupons; i++) {
+            Coupon c = new Coupon();
+            c.setId("cpn-" + i);
+            c.setCode("CAMPAIGN-" + i);
+            c.setDiscountType(Coupon.DiscountType.PERCENT);
+            c.setDiscountValue(new BigDecimal("10.00"));
+            all.add(c);
+            codes[i] = "campaign-" + i;
+        }
+        CouponRepository repo = mock(CouponRepository.class);
+        CouponAssignmentRepository assignments = mock(CouponAssignmentRepository.class);
+        when(repo.findAll()).thenReturn(all);
+        when(assignments.findAllRows()).thenReturn(List.of());
+        index = new CouponIndex(repo, assignments);
+        index.reload();
+    }
+
+    @Benchmark
+    public boolean find() {
+        return index.find(codes[next++ % codes.length]).isPresent();
+    }
+}
@@ -0,0 +1,172 @@
+package org.masumjia.reactcartecom.coupons;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.coupons.CouponAssignment.AssignmentType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CouponIndexTest {
+    private CouponRepository coupons;
+    private CouponAssignmentRepository assignments;
+    private CouponIndex index;
+
+    @BeforeEach
+    void setUp() {
+        coupons = mock(CouponRepository.class);
+        assignments = mock(CouponAssignmentRepository.class);
+        index = new CouponIndex(coupons, assignments);
+    }
+
+    private static Coupon coupon(String id, String code) {
+        Coupon c = new Coupon();
+        c.setId(id);
+        c.setCode(code);
+        c.setDiscountType(Coupon.DiscountType.PERCENT);
+        c.setDiscountValue(new BigDecimal("10.00"));
+        return c;
+    }
+
+    private static CouponAssignment assignment(Coupon c, AssignmentType type, String id) {
+        CouponAssignment a = new CouponAssignment();
+        a.setCoupon(c);
+        a.setAssignedType(type);
+        a.setAssignedId(id);
+        return a;
+    }
+
+    @Test
+    void resolvesCodesCaseInsensitivelyWithPreResolvedScopes() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{ "cpn-2", AssignmentType.PRODUCT, "prod-1" });
+        rows.add(new Object[]{ "cpn-2", AssignmentType.CUSTOMER, "*" });
+        when(coupons.findAll()).thenReturn(List.of(coupon("cpn-1", "SAVE10"), coupon("cpn-2", "VIP")));
+        when(assignments.findAllRows()).thenReturn(rows);
+        index.reload();
+
+        assertThat(index.find(" save10 ")).get().extracting(e -> e.coupon().getId()).isEqualTo("cpn-1");
+        assertThat(index.find("SAVE10").get().scope().global()).isTrue();
+        CouponIndex.Scope vip = index.find("vip").get().scope();
+        assertThat(vip.products()).containsExactly("prod-1");
+        assertThat(vip.anyCustomer()).isTrue();
+        assertThat(vip.global()).isFalse();
+        verify(coupons, never()).findByCodeIgnoreCase(anyString());
+        verify(assignments, never()).findByCouponId(anyString());
+    }
+
+    @Test
+    void unknownCodesFallBackToTheUniqueCodeLookupOnce() {
+        when(coupons.findAll()).thenReturn(List.of());
+        when(assignments.findAllRows()).thenReturn(List.of());
+        index.reload();
+        Coupon fresh = coupon("cpn-9", "NEW");
+        when(coupons.findByCodeIgnoreCase("new")).thenReturn(Optional.of(fresh));
+        when(assignments.findByCouponId("cpn-9")).thenReturn(List.of(assignment(fresh, AssignmentType.CATEGORY, "cat-1")));
+
+        assertThat(index.find("new")).isPresent();
+        assertThat(index.find("NEW").get().scope().categories()).containsExactly("cat-1");
+        assertThat(index.find("missing")).isEmpty();
+        verify(coupons, times(1)).findByCodeIgnoreCase("new");
+    }
+
+    @Test
+    void adminWritesRefreshOrDropTheCoupon() {
+        Coupon c = coupon("cpn-1", "OLD");
+        when(coupons.findAll()).thenReturn(List.of(c));
+        when(assignments.findAllRows()).thenReturn(List.of());
+        index.reload();
+
+        Coupon renamed = coupon("cpn-1", "RENAMED");
+        renamed.setActive(false);
+        when(coupons.findById("cpn-1")).thenReturn(Optional.of(renamed));
+        when(assignments.findByCouponId("cpn-1")).thenReturn(List.of());
+        index.onCouponChanged(new CouponChangedEvent("cpn-1"));
+
+        assertThat(index.find("renamed").get().coupon().isActive()).isFalse();
+        when(coupons.findByCodeIgnoreCase("OLD")).thenReturn(Optional.empty());
+        assertThat(index.find("OLD")).isEmpty();
+
+        when(coupons.findById("cpn-1")).thenReturn(Optional.empty());
+        index.onCouponChanged(new CouponChangedEvent("cpn-1"));
+        when(coupons.findByCodeIgnoreCase("RENAMED")).thenReturn(Optional.empty());
+        assertThat(index.find("RENAMED")).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void candidatesAreOnlyTheCouponsScopedToTheCart() {
+        List<Coupon> all = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            all.add(coupon("cpn-p" + i, "PROD-" + i));
+            rows.add(new Object[]{ "cpn-p" + i, AssignmentType.PRODUCT, "prod-" + i });
+        }
+        all.add(coupon("cpn-g", "EVERYONE"));
+        all.add(coupon("cpn-c", "SHOES"));
+        rows.add(new Object[]{ "cpn-c", AssignmentType.CATEGORY, "cat-1" });
+        all.add(coupon("cpn-u", "VIP"));
+        rows.add(new Object[]{ "cpn-u", AssignmentType.CUSTOMER, "u-1" });
+        Coupon off = coupon("cpn-off", "OFF");
+        off.setActive(false);
+        all.add(off);
+        when(coupons.findAll()).thenReturn(all);
+        when(assignments.findAllRows()).thenReturn(rows);
+        index.reload();
+
+        assertThat(index.candidates(null, List.of("prod-7", "prod-9"), List.of("cat-1")))
+                .extracting(e -> e.coupon().getId()).containsExactlyInAnyOrder("cpn-g", "cpn-p7", "cpn-p9", "cpn-c");
+        assertThat(index.candidates("u-1", List.of(), List.of()))
+                .extracting(e -> e.coupon().getId()).containsExactlyInAnyOrder("cpn-g", "cpn-u");
+
+        // deactivating drops it from the postings
+        Coupon p7 = coupon("cpn-p7", "PROD-7");
+        p7.setActive(false);
+        when(coupons.findById("cpn-p7")).thenReturn(Optional.of(p7));
+        when(assignments.findByCouponId("cpn-p7")).thenReturn(List.of(assignment(p7, AssignmentType.PRODUCT, "prod-7")));
+        index.onCouponChanged(new CouponChangedEvent("cpn-p7"));
+        assertThat(index.candidates(null, List.of("prod-7"), null)).extracting(e -> e.coupon().getId()).containsExactly("cpn-g");
+    }
+
+    @Test
+    void storesDetachedCopiesOfLoadedCoupons() {
+        when(coupons.findAll()).thenReturn(List.of());
+        when(assignments.findAllRows()).thenReturn(List.of());
+        index.reload();
+        Coupon managed = coupon("cpn-9", "LATE");
+        when(coupons.findByCodeIgnoreCase("LATE")).thenReturn(Optional.of(managed));
+        when(coupons.findById("cpn-9")).thenReturn(Optional.of(managed));
+
+        Coupon viaFallback = index.find("LATE").get().coupon();
+        managed.setDiscountValue(new BigDecimal("99.00"));
+
+        assertThat(viaFallback).isNotSameAs(managed);
+        assertThat(index.find("late").get().coupon().getDiscountValue()).isEqualByComparingTo("10.00");
+
+        index.refresh("cpn-9");
+        Coupon viaRefresh = index.find("late").get().coupon();
+        assertThat(viaRefresh).isNotSameAs(managed);
+        assertThat(viaRefresh.getDiscountValue()).isEqualByComparingTo("99.00");
+    }
+
+    @Test
+    void everyIssuedCodeIsServedFromMemory() {
+        List<Coupon> all = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) all.add(coupon("cpn-" + i, "CAMPAIGN-" + i));
+        when(coupons.findAll()).thenReturn(all);
+        when(assignments.findAllRows()).thenReturn(List.of());
+        index.reload();
+
+        int hits = 0;
+        for (int i = 0; i < 50_000; i++) if (index.find("campaign-" + i).isPresent()) hits++;
+
+        assertThat(hits).isEqualTo(50_000);
+        verify(coupons, never()).findByCodeIgnoreCase(anyString());
+    }
+}
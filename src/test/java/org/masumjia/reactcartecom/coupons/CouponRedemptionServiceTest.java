@@ -0,0 +1,140 @@
+package org.masumjia.reactcartecom.coupons;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CouponRedemptionServiceTest {
+
+    // Stands in for the coupons row: the conditional update runs under the row lock
+    private static final class CouponRow {
+        Integer maxUses;
+        int used;
+        boolean active = true;
+        final AtomicInteger updates = new AtomicInteger();
+
+        CouponRow(Integer maxUses) {
+            this.maxUses = maxUses;
+        }
+
+        synchronized int redeemIfAvailable() {
+            updates.incrementAndGet();
+            if (!active || (maxUses != null && used >= maxUses)) return 0;
+            Thread.yield();
+            used++;
+            return 1;
+        }
+
+        synchronized Coupon read() {
+            Coupon c = new Coupon();
+            c.setId("cpn-1");
+            c.setCode("HOT");
+            c.setMaxUses(maxUses);
+            c.setUsedCount(used);
+            c.setActive(active);
+            return c;
+        }
+    }
+
+    private CouponRepository coupons;
+    private CouponIndex index;
+    private CouponRow row;
+
+    @BeforeEach
+    void setUp() {
+        coupons = mock(CouponRepository.class);
+        index = mock(CouponIndex.class);
+        row = new CouponRow(100);
+        when(coupons.redeemIfAvailable(eq("cpn-1"), any())).thenAnswer(inv -> row.redeemIfAvailable());
+        when(coupons.findById("cpn-1")).thenAnswer(inv -> Optional.of(row.read()));
+        when(coupons.findUsedCount("cpn-1")).thenAnswer(inv -> row.read().getUsedCount());
+    }
+
+    private CouponRedemptionService node() {
+        return new CouponRedemptionService(coupons, index, 30_000);
+    }
+
+    @Test
+    void gateNeverAdmitsMoreThanMaxUses() throws Exception {
+        List<CouponRedemptionService> nodes = List.of(node(), node(), node());
+        int redeems = 1000;
+        // the row update is synchronized, so a few dozen racing threads exercise the gate as well as a thousand
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CouponRedemptionService.Redemption>> futures = new ArrayList<>();
+        for (int i = 0; i < redeems; i++) {
+            CouponRedemptionService service = nodes.get(i % nodes.size());
+            futures.add(pool.submit(() -> {
+                start.await();
+                return service.redeem("cpn-1");
+            }));
+        }
+        start.countDown();
+        int redeemed = 0, refused = 0;
+        for (Future<CouponRedemptionService.Redemption> f : futures) {
+            CouponRedemptionService.Redemption r = f.get(30, TimeUnit.SECONDS);
+            if (r.outcome() == CouponRedemptionService.Outcome.REDEEMED) redeemed++;
+            if (r.outcome() == CouponRedemptionService.Outcome.LIMIT_REACHED) refused++;
+        }
+        pool.shutdown();
+
+        assertThat(redeemed).isEqualTo(100);
+        assertThat(refused).isEqualTo(900);
+        assertThat(row.used).isEqualTo(100);
+        // the gates turn the sold-out tail away before it reaches the row
+        assertThat(row.updates.get()).isLessThan(redeems);
+    }
+
+    @Test
+    void refusesFromMemoryOnceUsedUpAndReopensAfterAnAdminChange() {
+        row = new CouponRow(2);
+        CouponRedemptionService service = node();
+
+        assertThat(service.redeem("cpn-1").outcome()).isEqualTo(CouponRedemptionService.Outcome.REDEEMED);
+        assertThat(service.redeem("cpn-1").usedCount()).isEqualTo(2);
+        for (int i = 0; i < 10; i++) {
+            assertThat(service.redeem("cpn-1").outcome()).isEqualTo(CouponRedemptionService.Outcome.LIMIT_REACHED);
+        }
+        assertThat(row.updates.get()).isEqualTo(2);
+        verify(index).recordUsage("cpn-1", 2);
+
+        row.maxUses = 3;
+        service.onCouponChanged(new CouponChangedEvent("cpn-1"));
+        assertThat(service.redeem("cpn-1").outcome()).isEqualTo(CouponRedemptionService.Outcome.REDEEMED);
+        assertThat(row.used).isEqualTo(3);
+    }
+
+    @Test
+    void deactivatedCouponsAreReportedAsUnavailable() {
+        row = new CouponRow(null);
+        row.active = false;
+
+        CouponRedemptionService.Redemption r = node().redeem("cpn-1");
+
+        assertThat(r.outcome()).isEqualTo(CouponRedemptionService.Outcome.UNAVAILABLE);
+        assertThat(row.used).isZero();
+    }
+
+    @Test
+    void aFailedUpdateGivesItsUseBack() {
+        row = new CouponRow(1);
+        CouponRedemptionService service = node();
+        when(coupons.redeemIfAvailable(eq("cpn-1"), any()))
+                .thenThrow(new IllegalStateException("lock wait timeout"))
+                .thenAnswer(inv -> row.redeemIfAvailable());
+
+        assertThatThrownBy(() -> service.redeem("cpn-1")).isInstanceOf(IllegalStateException.class);
+        assertThat(service.redeem("cpn-1").outcome()).isEqualTo(CouponRedemptionService.Outcome.REDEEMED);
+    }
+}
@@ -0,0 +1,149 @@
+package org.masumjia.reactcartecom.coupons;
+
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.cart.Cart;
+import org.masumjia.reactcartecom.cart.CartItem;
+import org.masumjia.reactcartecom.cart.CartItemRepository;
+import org.masumjia.reactcartecom.cart.CartPricingService;
+import org.masumjia.reactcartecom.catalog.Category;
+import org.masumjia.reactcartecom.catalog.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class CouponRuleTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    private static Coupon coupon(Coupon.DiscountType type, String value) {
+        Coupon c = new Coupon();
+        c.setId("cpn-1");
+        c.setCode("SAVE");
+        c.setDiscountType(type);
+        c.setDiscountValue(new BigDecimal(value));
+        return c;
+    }
+
+    private static CouponIndex.Scope scope(Set<String> customers, Set<String> products, Set<String> categories,
+                                           boolean anyCustomer, boolean anyProduct, boolean anyCategory) {
+        return new CouponIndex.Scope(customers, products, categories, anyCustomer, anyProduct, anyCategory);
+    }
+
+    @Test
+    void matchesInStatusCustomerProductCategoryOrder() {
+        Coupon c = coupon(Coupon.DiscountType.PERCENT, "10.00");
+        CouponRule rule = CouponRule.compile(c, scope(Set.of("u-1"), Set.of("prod-1"), Set.of("cat-1"), false, false, false));
+
+        assertThat(rule.match("u-1", List.of("prod-1"), null, NOW)).isEqualTo(CouponRule.Match.CUSTOMER);
+        assertThat(rule.match("u-2", List.of("prod-9", "prod-1"), null, NOW)).isEqualTo(CouponRule.Match.PRODUCT);
+        assertThat(rule.match(null, List.of("prod-9"), List.of("cat-1"), NOW)).isEqualTo(CouponRule.Match.CATEGORY);
+        assertThat(rule.match(null, List.of("prod-9"), List.of("cat-9"), NOW)).isEqualTo(CouponRule.Match.NOT_APPLICABLE);
+        assertThat(CouponRule.compile(c, CouponIndex.Scope.GLOBAL).match(null, null, null, NOW)).isEqualTo(CouponRule.Match.GLOBAL);
+
+        // "*" customers still need a signed-in customer
+        CouponRule anyone = CouponRule.compile(c, scope(Set.of(), Set.of(), Set.of(), true, false, false));
+        assertThat(anyone.match(null, null, null, NOW).applies()).isFalse();
+        assertThat(anyone.match("u-3", null, null, NOW)).isEqualTo(CouponRule.Match.CUSTOMER);
+    }
+
+    @Test
+    void statusIsCheckedBeforeScope() {
+        Coupon expired = coupon(Coupon.DiscountType.FIXED, "5.00");
+        expired.setExpiryDate(NOW.minusMinutes(1));
+        Coupon usedUp = coupon(Coupon.DiscountType.FIXED, "5.00");
+        usedUp.setMaxUses(3);
+        usedUp.setUsedCount(3);
+        Coupon inactive = coupon(Coupon.DiscountType.FIXED, "5.00");
+        inactive.setActive(false);
+
+        assertThat(CouponRule.compile(expired, CouponIndex.Scope.GLOBAL).match(null, null, null, NOW)).isEqualTo(CouponRule.Match.EXPIRED);
+        assertThat(CouponRule.compile(usedUp, CouponIndex.Scope.GLOBAL).match(null, null, null, NOW)).isEqualTo(CouponRule.Match.EXPIRED);
+        assertThat(CouponRule.compile(inactive, CouponIndex.Scope.GLOBAL).match(null, null, null, NOW)).isEqualTo(CouponRule.Match.INACTIVE);
+    }
+
+    @Test
+    void discountIsCappedAtTheAmountItAppliesTo() {
+        CouponRule pct = CouponRule.compile(coupon(Coupon.DiscountType.PERCENT, "15.00"), CouponIndex.Scope.GLOBAL);
+        CouponRule fixed = CouponRule.compile(coupon(Coupon.DiscountType.FIXED, "25.00"), CouponIndex.Scope.GLOBAL);
+
+        assertThat(pct.discountOn(new BigDecimal("40.00"))).isEqualByComparingTo("6.00");
+        assertThat(fixed.discountOn(new BigDecimal("40.00"))).isEqualByComparingTo("25.00");
+        assertThat(fixed.discountOn(new BigDecimal("10.00"))).isEqualByComparingTo("10.00");
+        assertThat(fixed.discountOn(BigDecimal.ZERO)).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void cartQuotesDiscountOnlyCoveredLinesAndCustomerCouponsTheWholeCart() {
+        CartItemRepository items = mock(CartItemRepository.class);
+        Cart cart = new Cart();
+        cart.setId("cart-1");
+        List<CartItem> lines = new ArrayList<>();
+        lines.add(line(cart, "prod-1", "cat-1", "10.00", 2));
+        lines.add(line(cart, "prod-2", "cat-2", "30.00", 1));
+        when(items.findByCartIdWithProduct("cart-1")).thenReturn(lines);
+        CartPricingService pricing = new CartPricingService(items);
+        CartPricingService.Snapshot snap = pricing.load(cart);
+        Coupon c = coupon(Coupon.DiscountType.PERCENT, "10.00");
+
+        CartPricingService.Quote byCategory = pricing.quote(CouponRule.compile(c, scope(Set.of(), Set.of(), Set.of("cat-2"), false, false, false)), snap, null);
+        assertThat(byCategory.applicableSubtotal()).isEqualByComparingTo("30.00");
+        assertThat(byCategory.discount()).isEqualByComparingTo("3.00");
+
+        CartPricingService.Quote vip = pricing.quote(CouponRule.compile(c, scope(Set.of("u-1"), Set.of(), Set.of(), false, false, false)), snap, "u-1");
+        assertThat(vip.applicable()).isTrue();
+        assertThat(vip.discount()).isEqualByComparingTo("5.00");
+        assertThat(pricing.quote(CouponRule.compile(c, scope(Set.of("u-1"), Set.of(), Set.of(), false, false, false)), snap, "u-2").applicable()).isFalse();
+    }
+
+    @Test
+    void bestPicksTheLargestDiscountAmongApplicableCoupons() {
+        CartItemRepository items = mock(CartItemRepository.class);
+        Cart cart = new Cart();
+        cart.setId("cart-1");
+        when(items.findByCartIdWithProduct("cart-1")).thenReturn(List.of(line(cart, "prod-1", "cat-1", "50.00", 1), line(cart, "prod-2", "cat-2", "20.00", 1)));
+        CartPricingService pricing = new CartPricingService(items);
+        CartPricingService.Snapshot snap = pricing.load(cart);
+
+        Coupon tenPct = coupon(Coupon.DiscountType.PERCENT, "10.00");
+        tenPct.setCode("TEN");
+        Coupon shoes = coupon(Coupon.DiscountType.FIXED, "15.00");
+        shoes.setCode("SHOES");
+        Coupon bags = coupon(Coupon.DiscountType.FIXED, "40.00");
+        bags.setCode("BAGS");
+        Coupon vip = coupon(Coupon.DiscountType.PERCENT, "50.00");
+        vip.setCode("VIP");
+        List<CouponRule> rules = List.of(
+                CouponRule.compile(tenPct, CouponIndex.Scope.GLOBAL),
+                CouponRule.compile(shoes, scope(Set.of(), Set.of(), Set.of("cat-1"), false, false, false)),
+                // capped at the 20.00 it applies to
+                CouponRule.compile(bags, scope(Set.of(), Set.of("prod-2"), Set.of(), false, false, false)),
+                CouponRule.compile(vip, scope(Set.of("u-1"), Set.of(), Set.of(), false, false, false)));
+
+        CartPricingService.Quote guest = pricing.best(rules, snap, null);
+        assertThat(guest.coupon().getCode()).isEqualTo("BAGS");
+        assertThat(guest.discount()).isEqualByComparingTo("20.00");
+        assertThat(guest.match()).isEqualTo(CouponRule.Match.PRODUCT);
+        assertThat(pricing.best(rules, snap, "u-1").coupon().getCode()).isEqualTo("VIP");
+        assertThat(pricing.best(List.of(), snap, null)).isNull();
+    }
+
+    private static CartItem line(Cart cart, String productId, String categoryId, String price, int qty) {
+        Category cat = new Category();
+        cat.setId(categoryId);
+        Product p = new Product();
+        p.setId(productId);
+        p.setCategory(cat);
+        p.setPrice(new BigDecimal(price));
+        CartItem ci = new CartItem();
+        ci.setId("ci-" + productId);
+        ci.setCart(cart);
+        ci.setProduct(p);
+        ci.setQuantity(qty);
+        return ci;
+    }
+}
@@ -0,0 +1,43 @@
+package org.masumjia.reactcartecom.orders;
+
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.common.Outbox;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderEventsTest {
+
+    @Test
+    void eachOrderWriteIsOneOutboxRowAndOneLocalEvent() {
+        Outbox outbox = mock(Outbox.class);
+        List<Object> published = new ArrayList<>();
+        OrderEvents events = new OrderEvents(outbox, published::add);
+        Order o = new Order();
+        o.setId("ord-1");
+        o.setOrderNumber(1001);
+        o.setStatus(OrderStatus.PENDING);
+        o.setTotal(new BigDecimal("42.00"));
+        o.setCreatedAt(LocalDateTime.now());
+
+        events.created(o);
+        o.setStatus(OrderStatus.CONFIRMED);
+        events.statusChanged(o, OrderStatus.PENDING);
+        events.statusChanged(o, OrderStatus.CONFIRMED); // unchanged: nothing recorded
+        events.deleted(o);
+
+        verify(outbox).append(eq("order"), eq("ord-1"), eq("order.created"), any(OrderChangedEvent.class));
+        verify(outbox).append(eq("order"), eq("ord-1"), eq("order.status_changed"),
+                argThat((OrderChangedEvent e) -> e.previousStatus() == OrderStatus.PENDING && e.status() == OrderStatus.CONFIRMED));
+        verify(outbox).append(eq("order"), eq("ord-1"), eq("order.deleted"), any(OrderChangedEvent.class));
+        verifyNoMoreInteractions(outbox);
+        assertThat(published).extracting(e -> ((OrderChangedEvent) e).kind()).containsExactly(
+                OrderChangedEvent.Kind.CREATED, OrderChangedEvent.Kind.STATUS_CHANGED, OrderChangedEvent.Kind.DELETED);
+    }
+}
@@ -0,0 +1,82 @@
+package org.masumjia.reactcartecom.orders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Folding and writing a full export (two items per order) from a fake forward-only cursor, so the numbers are
+// the service's own cost without the database or the network.
+//   mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=OrderExportServiceBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderExportServiceBenchmark {
+    @Param({ "10000", "100000" })
+    public int orders;
+
+    @Param({ "CSV", "NDJSON" })
+    public OrderExportService.Format format;
+
+    private OrderExportService exports;
+    private final OutputStream discard = OutputStream.nullOutputStream();
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        Map<String, Object>[] rows = new Map[orders * 2];
+        for (int i = 0; i < rows.length; i++) {
+            int o = i / 2;
+            Map<String, Object> r = new HashMap<>();
+            r.put("id", "ord-" + o);
+            r.put("order_number", o);
+            r.put("status", "PENDING");
+            r.put("payment_method", "COD");
+            r.put("guest_name", "Guest " + o);
+            r.put("subtotal", new BigDecimal("20.00"));
+            r.put("discount", BigDecimal.ZERO);
+            r.put("total", new BigDecimal("20.00"));
+            r.put("created_at", LocalDateTime.of(2025, 3, 1, 12, 0));
+            r.put("product_id", "prod-" + (i % 2));
+            r.put("product_name_snapshot", "Product " + (i % 2));
+            r.put("price", new BigDecimal("10.00"));
+            r.put("quantity", 1);
+            rows[i] = r;
+        }
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        ResultSet rs = mock(ResultSet.class, withSettings().stubOnly());
+        Map<String, Object>[] current = new Map[1];
+        when(rs.getString(anyString())).thenAnswer(inv -> (String) current[0].get(inv.getArgument(0)));
+        when(rs.getBigDecimal(anyString())).thenAnswer(inv -> (BigDecimal) current[0].get(inv.getArgument(0)));
+        when(rs.getObject(anyString(), any(Class.class))).thenAnswer(inv -> current[0].get(inv.getArgument(0)));
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            for (Map<String, Object> r : rows) {
+                current[0] = r;
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbc).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        exports = new OrderExportService(jdbc, new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+    }
+
+    @Benchmark
+    public long export() throws Exception {
+        return exports.export(OrderFilter.of(null, null, null, null), format, discard);
+    }
+}
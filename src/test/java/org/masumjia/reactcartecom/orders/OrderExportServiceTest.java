@@ -0,0 +1,133 @@
+package org.masumjia.reactcartecom.orders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderExportServiceTest {
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    // Rows as the export query returns them: order columns repeated per item, null item columns for no items
+    private static Map<String, Object> row(int order, String productId, int qty) {
+        Map<String, Object> r = new HashMap<>();
+        r.put("id", "ord-" + order);
+        r.put("order_number", order);
+        r.put("status", "PENDING");
+        r.put("payment_method", "COD");
+        r.put("guest_name", order == 1 ? "Doe, Jane" : "Guest " + order);
+        r.put("subtotal", new BigDecimal("20.00"));
+        r.put("discount", BigDecimal.ZERO);
+        r.put("total", new BigDecimal("20.00"));
+        r.put("created_at", LocalDateTime.of(2025, 3, 1, 12, 0));
+        if (productId != null) {
+            r.put("product_id", productId);
+            r.put("product_name_snapshot", "Product " + productId);
+            r.put("price", new BigDecimal("10.00"));
+            r.put("quantity", qty);
+        }
+        return r;
+    }
+
+    // Feeds the rows one at a time through a single result set, like a forward-only cursor
+    private static JdbcTemplate cursorOver(Iterator<Map<String, Object>> rows, List<Object[]> argsSeen, List<String> sqlSeen) throws Exception {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        // stub-only: a recording mock would itself retain every row
+        ResultSet rs = mock(ResultSet.class, withSettings().stubOnly());
+        Map<String, Object>[] current = new Map[1];
+        when(rs.getString(anyString())).thenAnswer(inv -> (String) current[0].get(inv.getArgument(0)));
+        when(rs.getBigDecimal(anyString())).thenAnswer(inv -> (BigDecimal) current[0].get(inv.getArgument(0)));
+        when(rs.getObject(anyString(), any(Class.class))).thenAnswer(inv -> current[0].get(inv.getArgument(0)));
+        doAnswer(inv -> {
+            sqlSeen.add(inv.getArgument(0));
+            Object[] args = new Object[inv.getArguments().length - 2];
+            System.arraycopy(inv.getArguments(), 2, args, 0, args.length);
+            argsSeen.add(args);
+            RowCallbackHandler handler = inv.getArgument(1);
+            while (rows.hasNext()) {
+                current[0] = rows.next();
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbc).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        return jdbc;
+    }
+
+    @Test
+    void csvHasOneLinePerItemAndKeepsOrdersWithoutItems() throws Exception {
+        List<Map<String, Object>> rows = List.of(row(1, "prod-1", 1), row(1, "prod-2", 3), row(2, null, 0));
+        List<Object[]> args = new ArrayList<>();
+        List<String> sql = new ArrayList<>();
+        OrderExportService exports = new OrderExportService(cursorOver(rows.iterator(), args, sql), mapper);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long n = exports.export(OrderFilter.of("pending", " 42 ", new BigDecimal("5"), null), OrderExportService.Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(n).isEqualTo(2);
+        assertThat(lines).hasSize(4);
+        assertThat(lines[1]).startsWith("ord-1,001,2025-03-01T12:00,PENDING,COD,,\"Doe, Jane\"").endsWith(",prod-1,Product prod-1,10.00,1");
+        assertThat(lines[2]).endsWith(",prod-2,Product prod-2,10.00,3");
+        assertThat(lines[3]).startsWith("ord-2,002").endsWith(",,,,");
+        // same filters as the admin list: status, min total, and the search over text columns plus order number
+        assertThat(sql.get(0)).contains("o.status = ?", "o.total >= ?", "lower(o.guest_email) like ?", "o.order_number = ?").doesNotContain("o.total <= ?");
+        assertThat(args.get(0)).containsExactly("PENDING", new BigDecimal("5"), "%42%", "%42%", "%42%", "%42%", 42);
+    }
+
+    @Test
+    void ndjsonWritesOneOrderViewPerLine() throws Exception {
+        List<Map<String, Object>> rows = List.of(row(1, "prod-1", 1), row(1, "prod-2", 3), row(2, "prod-3", 2));
+        OrderExportService exports = new OrderExportService(cursorOver(rows.iterator(), new ArrayList<>(), new ArrayList<>()), mapper);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exports.export(OrderFilter.of(null, null, null, null), OrderExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        var first = mapper.readTree(lines[0]);
+        assertThat(first.get("id").asText()).isEqualTo("ord-1");
+        assertThat(first.get("items")).hasSize(2);
+        assertThat(first.get("createdAt").asText()).isEqualTo("2025-03-01T12:00:00");
+        assertThat(mapper.readTree(lines[1]).get("items").get(0).get("productId").asText()).isEqualTo("prod-3");
+    }
+
+    @Test
+    void memoryStaysFlatWhileStreamingManyOrders() throws Exception {
+        int orders = 50_000;
+        Iterator<Map<String, Object>> rows = new Iterator<>() {
+            int i;
+            public boolean hasNext() { return i < orders * 2; }
+            public Map<String, Object> next() { int o = i++ / 2; return row(o, "prod-" + (i % 2), 1); }
+        };
+        OrderExportService exports = new OrderExportService(cursorOver(rows, new ArrayList<>(), new ArrayList<>()), mapper);
+        long[] bytes = new long[1];
+        OutputStream sink = new OutputStream() {
+            public void write(int b) { bytes[0]++; }
+            public void write(byte[] b, int off, int len) { bytes[0] += len; }
+        };
+
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        long before = rt.totalMemory() - rt.freeMemory();
+        long n = exports.export(OrderFilter.of(null, null, null, null), OrderExportService.Format.CSV, sink);
+        System.gc();
+        long after = rt.totalMemory() - rt.freeMemory();
+
+        assertThat(n).isEqualTo(orders);
+        assertThat(bytes[0]).isPositive();
+        assertThat(after - before).isLessThan(16L << 20);
+    }
+}
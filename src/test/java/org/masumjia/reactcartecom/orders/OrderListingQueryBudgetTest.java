@@ -0,0 +1,119 @@
+package org.masumjia.reactcartecom.orders;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.cart.CartItemRepository;
+import org.masumjia.reactcartecom.cart.CartRepository;
+import org.masumjia.reactcartecom.catalog.StockReservationService;
+import org.masumjia.reactcartecom.orders.dto.OrderDtos;
+import org.masumjia.reactcartecom.user.User;
+import org.masumjia.reactcartecom.user.UserRepository;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Pins the repository round trips for order listings: one for the page, one for all of its items
+class OrderListingQueryBudgetTest {
+    private static final int LIST_BUDGET = 2;
+
+    private OrderRepository orders;
+    private OrderItemRepository items;
+    private UserRepository users;
+    private OrderController customer;
+    private OrderAdminController admin;
+    private List<Order> page;
+
+    @BeforeEach
+    void setUp() {
+        orders = mock(OrderRepository.class);
+        items = mock(OrderItemRepository.class);
+        users = mock(UserRepository.class);
+        OrderViewAssembler views = new OrderViewAssembler(items);
+        customer = new OrderController(orders, items, mock(CartRepository.class), mock(CartItemRepository.class),
+                mock(StockReservationService.class), users, views, mock(OrderEvents.class));
+        admin = new OrderAdminController(orders, mock(OrderExportService.class), views, mock(OrderEvents.class));
+
+        User u = new User();
+        u.setId("u-1");
+        page = new ArrayList<>();
+        List<OrderItem> lines = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            Order o = new Order();
+            o.setId("ord-" + i);
+            o.setOrderNumber(i);
+            o.setUser(u);
+            o.setStatus(OrderStatus.PENDING);
+            o.setTotal(new BigDecimal("30.00"));
+            o.setCreatedAt(LocalDateTime.now().minusHours(i));
+            page.add(o);
+            for (int j = 1; j <= 3; j++) {
+                OrderItem it = new OrderItem();
+                it.setId("oi-" + i + "-" + j);
+                it.setOrder(o);
+                it.setProductId("prod-" + j);
+                it.setPrice(new BigDecimal("10.00"));
+                it.setQuantity(1);
+                lines.add(it);
+            }
+        }
+        when(items.findByOrder_IdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<String> ids = inv.getArgument(0);
+            return lines.stream().filter(it -> ids.contains(it.getOrder().getId())).toList();
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void adminPageLoadsItemsInOneStatement() {
+        when(orders.findAll(any(Specification.class), any(Pageable.class))).thenAnswer(inv -> new PageImpl<>(page, inv.getArgument(1), 500));
+
+        List<OrderDtos.OrderView> out = admin.listAll(null, null, null, null, 0, 20, "createdAt,DESC").getBody().getData();
+
+        assertThat(out).hasSize(20).allSatisfy(v -> assertThat(v.items()).hasSize(3));
+        assertThat(out.get(4).userId()).isEqualTo("u-1");
+        verify(items, times(1)).findByOrder_IdIn(anyCollection());
+        verifyNoInteractions(users);
+        assertThat(repositoryCalls()).isLessThanOrEqualTo(LIST_BUDGET);
+    }
+
+    @Test
+    void myOrdersArePagedNewestFirst() {
+        when(orders.findByUser_Id(eq("u-1"), any(Pageable.class))).thenAnswer(inv -> new PageImpl<>(page.subList(0, 10), inv.getArgument(1), 20));
+
+        var res = customer.listMine(new UsernamePasswordAuthenticationToken("u-1", null, List.of()), 1, 500).getBody();
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(orders).findByUser_Id(eq("u-1"), pageable.capture());
+        assertThat(pageable.getValue().getPageNumber()).isEqualTo(1);
+        assertThat(pageable.getValue().getPageSize()).isEqualTo(100);
+        assertThat(pageable.getValue().getSort().getOrderFor("createdAt").isDescending()).isTrue();
+        assertThat(res.getData()).hasSize(10).allSatisfy(v -> assertThat(v.items()).hasSize(3));
+        assertThat(repositoryCalls()).isLessThanOrEqualTo(LIST_BUDGET);
+    }
+
+    @Test
+    void emptyPagesSkipTheItemsQuery() {
+        when(orders.findByUser_Id(eq("u-1"), any(Pageable.class))).thenAnswer(inv -> new PageImpl<>(List.of(), inv.getArgument(1), 0));
+
+        assertThat(customer.listMine(new UsernamePasswordAuthenticationToken("u-1", null, List.of()), 0, 20).getBody().getData()).isEmpty();
+        verifyNoInteractions(items);
+    }
+
+    private int repositoryCalls() {
+        int n = 0;
+        for (Object m : List.of(orders, items, users)) n += mockingDetails(m).getInvocations().size();
+        return n;
+    }
+}
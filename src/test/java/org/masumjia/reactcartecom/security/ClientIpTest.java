@@ -0,0 +1,45 @@
+package org.masumjia.reactcartecom.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientIpTest {
+    private final ClientIp clientIp = new ClientIp("127.0.0.0/8,::1/128,10.0.0.0/8,172.16.0.0/12,192.168.0.0/16,fc00::/7");
+
+    private static MockHttpServletRequest request(String remoteAddr, String... forwardedFor) {
+        MockHttpServletRequest req = new MockHttpServletRequest("POST", "/api/auth/login");
+        req.setRemoteAddr(remoteAddr);
+        for (String h : forwardedFor) req.addHeader(ClientIp.FORWARDED_FOR, h);
+        return req;
+    }
+
+    @Test
+    void directClientsCannotChooseTheirAddress() {
+        assertThat(clientIp.resolve(request("203.0.113.7"))).isEqualTo("203.0.113.7");
+        assertThat(clientIp.resolve(request("203.0.113.7", "198.51.100.1"))).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void walksForwardedForFromTheRightPastTrustedProxies() {
+        // the client's own forged entry sits left of what our proxies appended
+        assertThat(clientIp.resolve(request("10.0.0.2", "6.6.6.6, 198.51.100.1, 10.0.0.5"))).isEqualTo("198.51.100.1");
+        // the same chain split over several headers
+        assertThat(clientIp.resolve(request("10.0.0.2", "6.6.6.6", "198.51.100.1", "10.0.0.5"))).isEqualTo("198.51.100.1");
+        assertThat(clientIp.resolve(request("::1", "2001:db8::1"))).isEqualTo("2001:db8::1");
+    }
+
+    @Test
+    void stopsAtTheLastReadableHop() {
+        assertThat(clientIp.resolve(request("10.0.0.2"))).isEqualTo("10.0.0.2");
+        assertThat(clientIp.resolve(request("10.0.0.2", "192.168.1.4, 10.0.0.5"))).isEqualTo("192.168.1.4");
+        assertThat(clientIp.resolve(request("10.0.0.2", "198.51.100.1, evil.example.com, 10.0.0.5"))).isEqualTo("10.0.0.5");
+        assertThat(clientIp.resolve(request("10.0.0.2", "999.1.1.1"))).isEqualTo("10.0.0.2");
+    }
+
+    @Test
+    void anEmptyTrustListIgnoresTheHeader() {
+        assertThat(new ClientIp("").resolve(request("10.0.0.2", "198.51.100.1"))).isEqualTo("10.0.0.2");
+    }
+}
@@ -0,0 +1,49 @@
+package org.masumjia.reactcartecom.security;
+
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+// One authenticated request through the filter: token verification (cached or not) and the revocation check,
+// with no user row read.
+//   mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=JwtAuthenticationFilterBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+    @Param({ "0", "10000" })
+    public int verifiedCacheSize;
+
+    private JwtAuthenticationFilter filter;
+    private FilterChain chain;
+    private String header;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JwtService jwt = new JwtService("test-secret-test-secret-test-secret-0123456789", 15, verifiedCacheSize);
+        filter = new JwtAuthenticationFilter(jwt, new UserRevocationList(mock(JdbcTemplate.class), 15));
+        chain = mock(FilterChain.class);
+        header = "Bearer " + jwt.generateAccess("u-1", Map.of("role", "CUSTOMER"));
+    }
+
+    @Benchmark
+    public Authentication authenticate() throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/me/cart");
+        req.addHeader("Authorization", header);
+        filter.doFilter(req, new MockHttpServletResponse(), chain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,75 @@
+package org.masumjia.reactcartecom.security;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+    private JwtService jwt;
+    private JdbcTemplate jdbc;
+    private UserRevocationList revocations;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jwt = new JwtService("test-secret-test-secret-test-secret-0123456789", 15, 1000);
+        jdbc = mock(JdbcTemplate.class);
+        revocations = new UserRevocationList(jdbc, 15);
+        filter = new JwtAuthenticationFilter(jwt, revocations);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/me/cart");
+        req.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(req, new MockHttpServletResponse(), mock(FilterChain.class));
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    void authenticatesFromTheRoleClaim() throws Exception {
+        Authentication auth = authenticate(jwt.generateAccess("u-1", Map.of("role", "ADMIN")));
+
+        assertThat(auth.getName()).isEqualTo("u-1");
+        assertThat(auth.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void refusesTokensWithoutARoleOrWithABadSignature() throws Exception {
+        assertThat(authenticate(jwt.generateAccess("u-1", Map.of()))).isNull();
+        String other = new JwtService("another-secret-another-secret-0123456789", 15, 1000).generateAccess("u-1", Map.of("role", "ADMIN"));
+        assertThat(authenticate(other)).isNull();
+    }
+
+    @Test
+    void revokedUsersLoseTheirEarlierTokens() throws Exception {
+        String token = jwt.generateAccess("u-1", Map.of("role", "ADMIN"));
+        revocations.revoke("u-1");
+
+        assertThat(authenticate(token)).isNull();
+        assertThat(authenticate(jwt.generateAccess("u-2", Map.of("role", "CUSTOMER")))).isNotNull();
+        verify(jdbc).update(startsWith("insert into token_revocations"), eq("u-1"), anyLong());
+        // a token minted after the cutoff second is accepted again
+        assertThat(revocations.isRevoked("u-1", new Date(System.currentTimeMillis() + 1_000))).isFalse();
+    }
+}
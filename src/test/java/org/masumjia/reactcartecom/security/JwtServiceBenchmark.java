@@ -0,0 +1,38 @@
+package org.masumjia.reactcartecom.security;
+
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Token verification from many request threads at once: verifying every token (cache size 0) against the
+// verified-token cache, with more live sessions than the cache holds in the last case.
+//   mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=JwtServiceBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class JwtServiceBenchmark {
+    @Param({ "0", "10000", "100" })
+    public int verifiedCacheSize;
+
+    private JwtService jwt;
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwt = new JwtService("test-secret-test-secret-test-secret-0123456789", 15, verifiedCacheSize);
+        tokens = new String[1000];
+        for (int i = 0; i < tokens.length; i++) tokens[i] = jwt.generateAccess("u-" + i, Map.of("role", "CUSTOMER"));
+    }
+
+    @Benchmark
+    public Claims parse() {
+        return jwt.parse(tokens[ThreadLocalRandom.current().nextInt(tokens.length)]);
+    }
+}
@@ -0,0 +1,76 @@
+package org.masumjia.reactcartecom.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceTest {
+    private static final String SECRET = "test-secret-test-secret-test-secret-0123456789";
+
+    @Test
+    void repeatedTokensAreServedFromTheVerifiedCache() {
+        JwtService jwt = new JwtService(SECRET, 15, 2);
+        String a = jwt.generateAccess("u-1", Map.of("role", "CUSTOMER"));
+
+        Claims first = jwt.parse(a);
+        assertThat(jwt.parse(a)).isSameAs(first);
+        assertThat(first.getSubject()).isEqualTo("u-1");
+
+        jwt.parse(jwt.generateAccess("u-2", Map.of("role", "CUSTOMER")));
+        jwt.parse(jwt.generateAccess("u-3", Map.of("role", "CUSTOMER")));
+        assertThat(jwt.verifiedCacheSize()).isEqualTo(2);
+    }
+
+    @Test
+    void tamperedAndExpiredTokensAreNeverCached() {
+        JwtService jwt = new JwtService(SECRET, 15, 100);
+        String token = jwt.generateAccess("u-1", Map.of("role", "CUSTOMER"));
+        jwt.parse(token);
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + parts[1] + "." + (parts[2].charAt(0) == 'A' ? 'B' : 'A') + parts[2].substring(1);
+
+        assertThatThrownBy(() -> jwt.parse(forged)).isInstanceOf(SignatureException.class);
+
+        JwtService shortLived = new JwtService(SECRET, -1, 100);
+        String expired = shortLived.generateAccess("u-1", Map.of("role", "CUSTOMER"));
+        assertThatThrownBy(() -> shortLived.parse(expired)).isInstanceOf(ExpiredJwtException.class);
+        assertThat(shortLived.verifiedCacheSize()).isZero();
+    }
+
+    @Test
+    void cacheStaysBoundedUnderConcurrentParsing() throws Exception {
+        JwtService jwt = new JwtService(SECRET, 15, 50);
+        String[] tokens = new String[400];
+        for (int i = 0; i < tokens.length; i++) tokens[i] = jwt.generateAccess("u-" + i, Map.of("role", "CUSTOMER"));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int offset = t * 37;
+                runs.add(pool.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        String token = tokens[(offset + i) % tokens.length];
+                        assertThat(jwt.parse(token).getSubject()).isEqualTo("u-" + ((offset + i) % tokens.length));
+                    }
+                }));
+            }
+            for (Future<?> r : runs) r.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(jwt.verifiedCacheSize()).isBetween(1, 50);
+    }
+}
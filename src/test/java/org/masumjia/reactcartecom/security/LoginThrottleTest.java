@@ -0,0 +1,50 @@
+package org.masumjia.reactcartecom.security;
+
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.common.TooManyRequestsException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginThrottleTest {
+    private final AtomicLong now = new AtomicLong();
+    private final LoginThrottle throttle = new LoginThrottle(new LoginThrottle.Limit(5, 3), new LoginThrottle.Limit(60, 10), now::get);
+
+    @Test
+    void emailBucketAllowsABurstThenRefillsOverTime() {
+        for (int i = 0; i < 3; i++) throttle.acquire("a@x.com", "10.0.0.1");
+        assertThatThrownBy(() -> throttle.acquire(" A@X.com ", "10.0.0.2"))
+                .isInstanceOf(TooManyRequestsException.class)
+                .satisfies(ex -> assertThat(((TooManyRequestsException) ex).getRetryAfterSeconds()).isBetween(1L, 13L));
+
+        // 5 per minute = one token every 12 s
+        now.addAndGet(TimeUnit.SECONDS.toNanos(12));
+        throttle.acquire("a@x.com", "10.0.0.3");
+        assertThatThrownBy(() -> throttle.acquire("a@x.com", "10.0.0.3")).isInstanceOf(TooManyRequestsException.class);
+        throttle.acquire("b@x.com", "10.0.0.3");
+    }
+
+    @Test
+    void oneAddressSprayingManyEmailsIsCutOff() {
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            try {
+                throttle.acquire("user" + i + "@x.com", "10.0.0.9");
+                allowed++;
+            } catch (TooManyRequestsException ignored) {}
+        }
+        assertThat(allowed).isEqualTo(10);
+    }
+
+    @Test
+    void idleBucketsAreEvicted() {
+        throttle.acquire("a@x.com", "10.0.0.1");
+        assertThat(throttle.size()).isEqualTo(2);
+        now.addAndGet(TimeUnit.MINUTES.toNanos(11));
+        throttle.evictIdle();
+        assertThat(throttle.size()).isZero();
+    }
+}
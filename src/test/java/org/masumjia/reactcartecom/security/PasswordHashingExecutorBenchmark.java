@@ -0,0 +1,48 @@
+package org.masumjia.reactcartecom.security;
+
+import org.masumjia.reactcartecom.common.TooManyRequestsException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+// A login burst larger than the hashing pool: accepted checks cost a BCrypt hash (plus queueing), refusals
+// should come back in microseconds. SampleTime shows both populations in one latency histogram.
+//   mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=PasswordHashingExecutorBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(32)
+public class PasswordHashingExecutorBenchmark {
+    @Param({ "32" })
+    public int queueSize;
+
+    private PasswordHashingExecutor hashing;
+    private String hash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(10);
+        hash = encoder.encode("correct horse battery staple");
+        hashing = new PasswordHashingExecutor(encoder, 0, queueSize, 3_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hashing.shutdown();
+    }
+
+    @Benchmark
+    public boolean login() {
+        try {
+            return hashing.matches("correct horse battery staple", hash).join();
+        } catch (TooManyRequestsException | CompletionException ex) {
+            // refused at submission, or timed out in the queue
+            return false;
+        }
+    }
+}
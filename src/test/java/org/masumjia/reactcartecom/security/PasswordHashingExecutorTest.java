@@ -0,0 +1,81 @@
+package org.masumjia.reactcartecom.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.common.TooManyRequestsException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingExecutorTest {
+    private PasswordHashingExecutor hashing;
+
+    @AfterEach
+    void tearDown() {
+        if (hashing != null) hashing.shutdown();
+    }
+
+    @Test
+    void hashesAndVerifiesOnThePool() {
+        hashing = new PasswordHashingExecutor(new BCryptPasswordEncoder(4), 2, 4, 5_000);
+        String hash = hashing.encode("secret-1").join();
+
+        assertThat(hashing.matches("secret-1", hash).join()).isTrue();
+        assertThat(hashing.matches("secret-2", hash).join()).isFalse();
+    }
+
+    @Test
+    void saturationIsRefusedAtSubmissionInsteadOfQueueing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        hashing = new PasswordHashingExecutor(blockingUntil(release), 2, 4, 10_000);
+        int callers = 50;
+        List<CompletableFuture<Boolean>> accepted = new ArrayList<>();
+        int refused = 0;
+        for (int i = 0; i < callers; i++) {
+            try {
+                accepted.add(hashing.matches("pw", "hash"));
+            } catch (TooManyRequestsException ex) {
+                refused++;
+            }
+        }
+        // everything but the 2 running + 4 queued is turned away without the caller waiting on anything
+        assertThat(accepted).hasSize(6);
+        assertThat(refused).isEqualTo(callers - 6);
+        assertThat(accepted).noneMatch(CompletableFuture::isDone);
+
+        release.countDown();
+        for (CompletableFuture<Boolean> f : accepted) assertThat(f.get(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void hashesNotDoneByTheDeadlineCompleteWithA429() {
+        CountDownLatch release = new CountDownLatch(1);
+        hashing = new PasswordHashingExecutor(blockingUntil(release), 1, 1, 100);
+        CompletableFuture<Boolean> running = hashing.matches("pw", "hash");
+        CompletableFuture<Boolean> queued = hashing.matches("pw", "hash");
+        try {
+            assertThatThrownBy(queued::join).hasCauseInstanceOf(TooManyRequestsException.class);
+            assertThatThrownBy(running::join).hasCauseInstanceOf(TooManyRequestsException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static PasswordEncoder blockingUntil(CountDownLatch release) {
+        return new BCryptPasswordEncoder(4) {
+            @Override
+            public boolean matches(CharSequence raw, String encoded) {
+                try { release.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package org.masumjia.reactcartecom.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.masumjia.reactcartecom.auth.SessionService;
+import org.masumjia.reactcartecom.common.ApiResponse;
+import org.masumjia.reactcartecom.security.UserRevocationList;
+import org.masumjia.reactcartecom.user.dto.AdminUserDtos;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AdminUsersControllerTest {
+    private UserRepository users;
+    private UserExportService exports;
+    private UserRevocationList revocations;
+    private SessionService sessions;
+    private AdminUsersController controller;
+
+    @BeforeEach
+    void setUp() {
+        users = mock(UserRepository.class);
+        exports = mock(UserExportService.class);
+        revocations = mock(UserRevocationList.class);
+        sessions = mock(SessionService.class);
+        controller = new AdminUsersController(users, mock(PasswordEncoder.class), revocations, exports, sessions);
+    }
+
+    private static User user(int i) {
+        User u = new User();
+        u.setId(String.format("u-%06d", i));
+        u.setEmail("user" + i + "@example.com");
+        u.setName(i % 10 == 0 ? "Doe, \"J\"" : "User " + i);
+        u.setRole("CUSTOMER");
+        u.setCreatedAt(LocalDateTime.of(2025, 1, 1, 0, 0));
+        return u;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listPagesInTheDatabaseWithAStableOrder() {
+        when(users.findAll(any(Specification.class), any(Pageable.class)))
+                .thenAnswer(inv -> new PageImpl<>(List.of(user(1), user(2)), inv.getArgument(1), 250_000));
+
+        var res = controller.list("customer", "user", 3, 10_000, List.of("email,desc"));
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(users).findAll(any(Specification.class), pageable.capture());
+        assertThat(pageable.getValue().getPageNumber()).isEqualTo(3);
+        assertThat(pageable.getValue().getPageSize()).isEqualTo(200);
+        assertThat(pageable.getValue().getSort()).containsExactly(Sort.Order.desc("email"), Sort.Order.asc("id"));
+        ApiResponse<List<AdminUserDtos.UserView>> body = res.getBody();
+        assertThat(body.getData()).hasSize(2);
+        assertThat((Map<String, Object>) body.getMeta()).containsEntry("total", 250_000L).containsEntry("totalPages", 1250);
+        verify(users, never()).findAll();
+    }
+
+    @Test
+    void rejectsUnknownRolesAndSortFields() {
+        assertThatThrownBy(() -> controller.list("ROOT", null, 0, 20, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> controller.list(null, null, 0, 20, List.of("passwordHash"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void exportStreamsWithTheListFiltersAndNoEntities() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        controller.export(" customer ", "jo_").getBody().writeTo(out);
+
+        verify(exports).export("CUSTOMER", "jo\\_%", out);
+        verifyNoInteractions(users);
+        assertThatThrownBy(() -> controller.export("ROOT", null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void adminPasswordChangeEndsSessionsAndAccessTokens() {
+        User u = user(1);
+        when(users.findById(u.getId())).thenReturn(Optional.of(u));
+
+        controller.update(u.getId(), new AdminUserDtos.UpdateUserRequest(null, null, null, null, null, null, "n3w-secret"));
+
+        verify(sessions).revokeAll(u.getId());
+        verify(revocations).revoke(u.getId());
+    }
+
+    @Test
+    void profileEditKeepsSessions() {
+        User u = user(1);
+        when(users.findById(u.getId())).thenReturn(Optional.of(u));
+
+        controller.update(u.getId(), new AdminUserDtos.UpdateUserRequest("New Name", null, null, null, null, null, null));
+
+        verifyNoInteractions(sessions, revocations);
+    }
+}
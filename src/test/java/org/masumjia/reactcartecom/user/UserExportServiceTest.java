@@ -0,0 +1,86 @@
+package org.masumjia.reactcartecom.user;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserExportServiceTest {
+    private static Map<String, Object> row(int i) {
+        Map<String, Object> r = new HashMap<>();
+        r.put("id", String.format("u-%06d", i));
+        r.put("email", "user" + i + "@example.com");
+        r.put("name", i % 10 == 0 ? "Doe, \"J\"" : "User " + i);
+        r.put("role", "CUSTOMER");
+        r.put("is_banned", false);
+        r.put("created_at", LocalDateTime.of(2025, 1, 1, 0, 0));
+        return r;
+    }
+
+    // Feeds the rows one at a time through a single result set, like a forward-only cursor
+    private static JdbcTemplate cursorOver(Iterator<Map<String, Object>> rows, List<Object[]> argsSeen, List<String> sqlSeen) throws Exception {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        ResultSet rs = mock(ResultSet.class, withSettings().stubOnly());
+        Map<String, Object>[] current = new Map[1];
+        when(rs.getString(anyString())).thenAnswer(inv -> (String) current[0].get(inv.getArgument(0)));
+        when(rs.getBoolean(anyString())).thenAnswer(inv -> Boolean.TRUE.equals(current[0].get(inv.getArgument(0))));
+        when(rs.getObject(anyString(), any(Class.class))).thenAnswer(inv -> current[0].get(inv.getArgument(0)));
+        doAnswer(inv -> {
+            sqlSeen.add(inv.getArgument(0));
+            Object[] args = new Object[inv.getArguments().length - 2];
+            System.arraycopy(inv.getArguments(), 2, args, 0, args.length);
+            argsSeen.add(args);
+            RowCallbackHandler handler = inv.getArgument(1);
+            while (rows.hasNext()) {
+                current[0] = rows.next();
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbc).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        return jdbc;
+    }
+
+    @Test
+    void writesEveryMatchingRowFromOneStreamedQuery() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 1; i <= 1_234; i++) rows.add(row(i));
+        List<Object[]> args = new ArrayList<>();
+        List<String> sql = new ArrayList<>();
+        UserExportService exports = new UserExportService(cursorOver(rows.iterator(), args, sql));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long n = exports.export("CUSTOMER", "user1%", out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(n).isEqualTo(1_234);
+        assertThat(lines).hasSize(1 + 1_234);
+        assertThat(lines[0]).startsWith("id,email,name,role");
+        assertThat(lines[10]).isEqualTo("u-000010,user10@example.com,\"Doe, \"\"J\"\"\",CUSTOMER,false,,,2025-01-01T00:00,");
+        assertThat(sql).hasSize(1);
+        assertThat(sql.get(0)).contains("role = ?", "email like ?", "name like ?", "order by id");
+        assertThat(args.get(0)).containsExactly("CUSTOMER", "user1%", "user1%");
+    }
+
+    @Test
+    void noFiltersMeansNoArguments() throws Exception {
+        List<Object[]> args = new ArrayList<>();
+        List<String> sql = new ArrayList<>();
+        UserExportService exports = new UserExportService(cursorOver(Collections.emptyIterator(), args, sql));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(exports.export(null, null, out)).isZero();
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("id,email,name,role,banned,phone,address,createdAt,updatedAt\r\n");
+        assertThat(sql.get(0)).doesNotContain("like", "role = ?");
+        assertThat(args.get(0)).isEmpty();
+    }
+}